@@ -0,0 +1,40 @@
+package fr.turtlesport;
+
+/**
+ * Transport des packets USB vers le garmin.
+ * 
+ * @author Denis Apparicio
+ */
+public interface IUsbProtocol {
+
+  /**
+   * Initialisation USB.
+   * 
+   * @throws UsbProtocolException
+   *           si erreur.
+   */
+  void init() throws UsbProtocolException;
+
+  /**
+   * Close USB.
+   * 
+   * @throws UsbProtocolException
+   *           si erreur.
+   */
+  void close() throws UsbProtocolException;
+
+  /**
+   * Envoie un packet au device USB.
+   * 
+   * @throws UsbProtocolException
+   */
+  void send(UsbPacket packet) throws UsbProtocolException;
+
+  /**
+   * Recoie un packet du device USB.
+   * 
+   * @throws UsbProtocolException
+   */
+  UsbPacket read() throws UsbProtocolException;
+
+}
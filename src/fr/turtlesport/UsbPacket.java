@@ -1,5 +1,7 @@
 package fr.turtlesport;
 
+import java.nio.ByteBuffer;
+
 import fr.turtlesport.util.ByteUtil;
 
 /**
@@ -8,7 +10,7 @@ import fr.turtlesport.util.ByteUtil;
 public class UsbPacket {
 
   /** Longueur du packet sans les donnes. */
-  private static final int  PACKET_HEADER_SIZE = 12;
+  public static final int   PACKET_HEADER_SIZE = 12;
 
   /** Valeur du byte reserve. */
   private static final byte RESERVED           = 0;
@@ -25,6 +27,9 @@ public class UsbPacket {
   /** byte 12+. */
   private byte[]            data;
 
+  /** Buffer recu (les donnees sont lues sans copie). */
+  private byte[]            buffer;
+
   /**
    * 
    */
@@ -56,8 +61,11 @@ public class UsbPacket {
     size = ByteUtil.toInt(buffer[8], buffer[9], buffer[10], buffer[11]);
 
     if (size > 0) {
-      data = new byte[size];
-      System.arraycopy(buffer, PACKET_HEADER_SIZE, data, 0, size);
+      if (size > buffer.length - PACKET_HEADER_SIZE) {
+        throw new IllegalArgumentException("size " + size);
+      }
+      // copie differee (getData)
+      this.buffer = buffer;
     }
 
   }
@@ -93,6 +101,7 @@ public class UsbPacket {
     res[11] = (byte) (size >> 24);
 
     /** byte 12+. */
+    byte[] data = getData();
     if (size > 0 && data != null) {
       System.arraycopy(data, 0, res, PACKET_HEADER_SIZE, data.length);
     }
@@ -172,6 +181,7 @@ public class UsbPacket {
   public void setData(byte[] data) {
     setSize(((data == null) ? 0 : data.length));
     this.data = data;
+    this.buffer = null;
   }
 
   /**
@@ -193,7 +203,27 @@ public class UsbPacket {
    * @return les donn&eacute;es.
    */
   public byte[] getData() {
+    if (data == null && buffer != null) {
+      data = new byte[size];
+      System.arraycopy(buffer, PACKET_HEADER_SIZE, data, 0, size);
+      buffer = null;
+    }
     return data;
   }
 
+  /**
+   * Restitue les donn&eacute;es sans copie.
+   * 
+   * @return les donn&eacute;es.
+   */
+  public ByteBuffer getDataBuffer() {
+    if (buffer != null) {
+      return ByteBuffer.wrap(buffer, PACKET_HEADER_SIZE, size);
+    }
+    if (data == null) {
+      return ByteBuffer.allocate(0);
+    }
+    return ByteBuffer.wrap(data, 0, Math.min(size, data.length));
+  }
+
 }
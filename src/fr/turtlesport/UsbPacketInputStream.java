@@ -1,8 +1,9 @@
 package fr.turtlesport;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.TimeZone;
@@ -12,11 +13,14 @@ import fr.turtlesport.protocol.data.PositionType;
 import fr.turtlesport.util.ByteUtil;
 
 /**
+ * Lecture little-endian des donn&eacute;es d'un packet.
+ * <p>
+ * Les donn&eacute;es sont lues directement dans le buffer du packet, sans
+ * copie ; une m&ecirc;me instance peut &ecirc;tre r&eacute;utilis&eacute;e
+ * pour plusieurs packets ({@link #reset(UsbPacket)}).
  * 
  * @author Denis Apparicio
  * 
- * 
- * 
  */
 
 public class UsbPacketInputStream extends InputStream {
@@ -51,15 +55,22 @@ public class UsbPacketInputStream extends InputStream {
     elapsed1989 = cal.getTime().getTime();
   }
 
-  /** InputStream du packet. */
-  private ByteArrayInputStream in;
+  /** Donnees du packet. */
+  private ByteBuffer           in;
+
+  /**
+   * 
+   */
+  public UsbPacketInputStream() {
+    super();
+  }
 
   /**
    * 
    * @param packet
    */
   public UsbPacketInputStream(UsbPacket packet) {
-    in = new ByteArrayInputStream(packet.getData());
+    reset(packet);
   }
 
   /**
@@ -68,7 +79,29 @@ public class UsbPacketInputStream extends InputStream {
    * 
    */
   public UsbPacketInputStream(byte[] bytes) {
-    in = new ByteArrayInputStream(bytes);
+    reset(bytes);
+  }
+
+  /**
+   * Positionne la lecture au d&eacute;but des donn&eacute;es d'un packet.
+   * 
+   * @param packet
+   *          le packet.
+   */
+  public void reset(UsbPacket packet) {
+    in = packet.getDataBuffer();
+    in.order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Positionne la lecture au d&eacute;but d'un tableau de bytes.
+   * 
+   * @param bytes
+   *          les bytes.
+   */
+  public void reset(byte[] bytes) {
+    in = ByteBuffer.wrap((bytes == null) ? new byte[0] : bytes);
+    in.order(ByteOrder.LITTLE_ENDIAN);
   }
 
   /**
@@ -97,8 +130,10 @@ public class UsbPacketInputStream extends InputStream {
    */
   @Override
   public int available() {
-    int res = in.available();
-    log.debug("available=" + res);
+    int res = in.remaining();
+    if (log.isDebugEnabled()) {
+      log.debug("available=" + res);
+    }
     return res;
   }
 
@@ -109,7 +144,7 @@ public class UsbPacketInputStream extends InputStream {
    */
   @Override
   public int read() {
-    return in.read();
+    return in.hasRemaining() ? (in.get() & 0xff) : -1;
   }
 
   /**
@@ -127,9 +162,7 @@ public class UsbPacketInputStream extends InputStream {
    * 
    */
   public void readUnused(int len) {
-    for (int i = 0; i < len; i++) {
-      read();
-    }
+    in.position(Math.min(in.limit(), in.position() + len));
   }
 
   /**
@@ -167,7 +200,7 @@ public class UsbPacketInputStream extends InputStream {
    */
 
   public byte readByte() {
-    return (byte) in.read();
+    return (byte) read();
   }
 
   /**
@@ -177,7 +210,7 @@ public class UsbPacketInputStream extends InputStream {
    * @return
    */
   public boolean readBoolean() {
-    return (in.read() != 0);
+    return (read() != 0);
   }
 
   /**
@@ -211,12 +244,14 @@ public class UsbPacketInputStream extends InputStream {
     for (i = 0; i < (len - 1); i++) {
       b = read();
       if (b == 0) {
+        i++;
         break;
       }
       out.write(b);
     }
 
-    for (; i < (len - 1); i++) {
+    // la chaine occupe toujours len octets
+    for (; i < len; i++) {
       read();
     }
 
@@ -230,9 +265,18 @@ public class UsbPacketInputStream extends InputStream {
    * @return
    */
   public Date readTime() {
+    return new Date(readTimeMillis());
+  }
+
+  /**
+   * 
+   * Lecture d'une date en millisecondes.
+   * 
+   * @return
+   */
+  public long readTimeMillis() {
     // Temps ecoule
-    int time = ByteUtil.toInt(readByte(), readByte(), readByte(), readByte());
-    return new Date(elapsed1989 + time * 1000L);
+    return elapsed1989 + readInt() * 1000L;
   }
 
   /**
@@ -243,6 +287,9 @@ public class UsbPacketInputStream extends InputStream {
    * 
    */
   public short readShort() {
+    if (in.remaining() >= 2) {
+      return in.getShort();
+    }
     return ByteUtil.toShort(readByte(), readByte());
   }
 
@@ -253,6 +300,9 @@ public class UsbPacketInputStream extends InputStream {
    * @return
    */
   public float readFloat() {
+    if (in.remaining() >= 4) {
+      return in.getFloat();
+    }
     return ByteUtil.toFloat(readByte(), readByte(), readByte(), readByte());
   }
 
@@ -263,6 +313,9 @@ public class UsbPacketInputStream extends InputStream {
    * @return
    */
   public int readInt() {
+    if (in.remaining() >= 4) {
+      return in.getInt();
+    }
     return ByteUtil.toInt(readByte(), readByte(), readByte(), readByte());
   }
 
@@ -54,11 +54,12 @@ public class UsbPacketOutputStream {
    * @throws GarminProtocolException
    */
   public void writeTime(Date date) throws GarminProtocolException {
+    // secondes ecoulees depuis 1989 (cf. UsbPacketInputStream.readTime)
     long elapsed = date.getTime() - UsbPacketInputStream.elpased1989();
     if (elapsed < 0) {
-      elapsed = UsbPacketInputStream.elpased1989();
+      elapsed = 0;
     }
-    writeInt((int) elapsed);
+    writeInt((int) (elapsed / 1000));
   }
 
   /**
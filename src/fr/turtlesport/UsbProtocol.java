@@ -6,7 +6,7 @@ import fr.turtlesport.util.Library;
 /**
  * @author Denis Apparicio
  */
-public final class UsbProtocol {
+public final class UsbProtocol implements IUsbProtocol {
   private static TurtleLogger log;
   static {
     log = (TurtleLogger) TurtleLogger.getLogger(UsbProtocol.class);
@@ -34,6 +34,15 @@ public class UsbProtocolException extends Exception {
 ///** Echec lecture garmin. */
 //public static final int     ERR_READ_GARMIN         = -1;
 
+  /** Aucun garmin. */
+  public static final int     ERR_NO_GARMIN           = 0;
+
+  /** Echec ecriture garmin. */
+  public static final int     ERR_SEND_GARMIN         = 4;
+
+  /** Echec lecture garmin. */
+  public static final int     ERR_READ_GARMIN         = -1;
+
   /** Protocole non support&eacute;. */
   public static final int     ERR_NO_PROTOCOL         = 5;
 
@@ -54,6 +63,15 @@ public class UsbProtocolException extends Exception {
 
   }
 
+  /**
+   * Restitue le code erreur.
+   * 
+   * @return le code erreur.
+   */
+  public int getErrorCode() {
+    return errorCode;
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -0,0 +1,162 @@
+package fr.turtlesport;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+
+import fr.turtlesport.log.TurtleLogger;
+
+/**
+ * Enregistrement des packets USB &eacute;chang&eacute;s avec le garmin.
+ * <p>
+ * Chaque session (de {@link #init()} &agrave; {@link #close()}) produit un
+ * fichier compress&eacute; qui peut &ecirc;tre rejou&eacute; par
+ * {@link UsbProtocolReplay}. Format :
+ * <ul>
+ * <li>en-t&ecirc;te : {@link #MAGIC} (int), {@link #VERSION} (short).</li>
+ * <li>pour chaque packet : sens {@link #SEND} ou {@link #READ} (byte),
+ * d&eacute;lai depuis le d&eacute;but de la session en ms (int), taille
+ * (int), octets du packet.</li>
+ * </ul>
+ * 
+ * @author Denis Apparicio
+ */
+public final class UsbProtocolRecorder implements IUsbProtocol {
+  private static TurtleLogger log;
+  static {
+    log = (TurtleLogger) TurtleLogger.getLogger(UsbProtocolRecorder.class);
+  }
+
+  /** En-t&ecirc;te des fichiers. */
+  public static final int     MAGIC   = 0x54555342;
+
+  /** Version du format. */
+  public static final short   VERSION = 1;
+
+  /** Packet envoy&eacute;. */
+  public static final byte    SEND    = 0;
+
+  /** Packet re&ccedil;u. */
+  public static final byte    READ    = 1;
+
+  /** Extension des fichiers. */
+  public static final String  EXT     = "tsusb";
+
+  private IUsbProtocol        delegate;
+
+  private File                dir;
+
+  private DataOutputStream    out;
+
+  private long                startTime;
+
+  /**
+   * @param delegate
+   *          le transport enregistr&eacute;.
+   * @param dir
+   *          le r&eacute;pertoire des enregistrements.
+   */
+  public UsbProtocolRecorder(IUsbProtocol delegate, File dir) {
+    super();
+    if (delegate == null || dir == null) {
+      throw new IllegalArgumentException();
+    }
+    this.delegate = delegate;
+    this.dir = dir;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.IUsbProtocol#init()
+   */
+  public synchronized void init() throws UsbProtocolException {
+    delegate.init();
+
+    SimpleDateFormat df = new SimpleDateFormat("yyyyMMdd-HHmmss");
+    File file = new File(dir, "usb-" + df.format(new Date()) + "." + EXT);
+    try {
+      dir.mkdirs();
+      out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))));
+      out.writeInt(MAGIC);
+      out.writeShort(VERSION);
+      startTime = System.currentTimeMillis();
+      log.info("capture " + file);
+    }
+    catch (IOException e) {
+      // la capture ne doit pas empecher le transfert
+      log.error("", e);
+      closeOut();
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.IUsbProtocol#close()
+   */
+  public synchronized void close() throws UsbProtocolException {
+    try {
+      delegate.close();
+    }
+    finally {
+      closeOut();
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.IUsbProtocol#send(fr.turtlesport.UsbPacket)
+   */
+  public synchronized void send(UsbPacket packet) throws UsbProtocolException {
+    delegate.send(packet);
+    record(SEND, packet);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.IUsbProtocol#read()
+   */
+  public synchronized UsbPacket read() throws UsbProtocolException {
+    UsbPacket packet = delegate.read();
+    record(READ, packet);
+    return packet;
+  }
+
+  private void record(byte kind, UsbPacket packet) {
+    if (out == null || packet == null) {
+      return;
+    }
+    try {
+      byte[] buf = packet.makebuffer();
+      out.writeByte(kind);
+      out.writeInt((int) (System.currentTimeMillis() - startTime));
+      out.writeInt(buf.length);
+      out.write(buf);
+    }
+    catch (IOException e) {
+      log.error("", e);
+      closeOut();
+    }
+  }
+
+  private void closeOut() {
+    if (out != null) {
+      try {
+        out.close();
+      }
+      catch (IOException e) {
+        log.error("", e);
+      }
+      out = null;
+    }
+  }
+
+}
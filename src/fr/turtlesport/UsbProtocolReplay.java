@@ -0,0 +1,194 @@
+package fr.turtlesport;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import fr.turtlesport.log.TurtleLogger;
+
+/**
+ * Rejoue un enregistrement de {@link UsbProtocolRecorder} &agrave; la place
+ * du garmin.
+ * <p>
+ * Les packets lus sont restitu&eacute;s dans l'ordre de l'enregistrement ; les
+ * packets envoy&eacute;s sont compar&eacute;s &agrave; ceux de
+ * l'enregistrement. La vitesse est un multiplicateur du temps
+ * enregistr&eacute; (<code>1</code> : temps r&eacute;el, <code>0</code> :
+ * sans attente).
+ * 
+ * @author Denis Apparicio
+ */
+public final class UsbProtocolReplay implements IUsbProtocol {
+  private static TurtleLogger log;
+  static {
+    log = (TurtleLogger) TurtleLogger.getLogger(UsbProtocolReplay.class);
+  }
+
+  private File                file;
+
+  private double              speed;
+
+  private DataInputStream     in;
+
+  private long                startTime;
+
+  /** Prochain packet de l'enregistrement. */
+  private byte                nextKind;
+
+  private int                 nextDelay;
+
+  private byte[]              nextBuffer;
+
+  /**
+   * @param file
+   *          l'enregistrement.
+   * @param speed
+   *          la vitesse (<code>0</code> sans attente).
+   */
+  public UsbProtocolReplay(File file, double speed) {
+    super();
+    if (file == null) {
+      throw new IllegalArgumentException();
+    }
+    this.file = file;
+    this.speed = (speed < 0) ? 0 : speed;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.IUsbProtocol#init()
+   */
+  public synchronized void init() throws UsbProtocolException {
+    log.debug(">>init");
+
+    try {
+      in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))));
+      if (in.readInt() != UsbProtocolRecorder.MAGIC
+          || in.readShort() > UsbProtocolRecorder.VERSION) {
+        throw new IOException("format invalide " + file);
+      }
+      startTime = System.currentTimeMillis();
+      next();
+      log.info("replay " + file + " speed=" + speed);
+    }
+    catch (IOException e) {
+      log.error("", e);
+      closeIn();
+      throw new UsbProtocolException(UsbProtocolException.ERR_NO_GARMIN);
+    }
+
+    log.debug("<<init");
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.IUsbProtocol#close()
+   */
+  public synchronized void close() throws UsbProtocolException {
+    log.debug(">>close");
+    closeIn();
+    log.debug("<<close");
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.IUsbProtocol#send(fr.turtlesport.UsbPacket)
+   */
+  public synchronized void send(UsbPacket packet) throws UsbProtocolException {
+    if (packet == null) {
+      throw new NullPointerException("packet est null");
+    }
+    if (in == null) {
+      throw new UsbProtocolException(UsbProtocolException.ERR_SEND_GARMIN);
+    }
+
+    if (nextBuffer == null || nextKind != UsbProtocolRecorder.SEND) {
+      log.warn("send non enregistre packetID=" + packet.getPacketID());
+      return;
+    }
+    UsbPacket recorded = new UsbPacket(nextBuffer);
+    if (recorded.getPacketID() != packet.getPacketID()
+        || recorded.getPacketType() != packet.getPacketType()) {
+      log.warn("send packetID=" + packet.getPacketID() + " attendu "
+               + recorded.getPacketID());
+    }
+    next();
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.IUsbProtocol#read()
+   */
+  public synchronized UsbPacket read() throws UsbProtocolException {
+    if (in == null) {
+      throw new UsbProtocolException(UsbProtocolException.ERR_READ_GARMIN);
+    }
+
+    // packets envoyes non rejoues
+    while (nextBuffer != null && nextKind == UsbProtocolRecorder.SEND) {
+      log.warn("send enregistre non rejoue");
+      next();
+    }
+    if (nextBuffer == null) {
+      throw new UsbProtocolException(UsbProtocolException.ERR_READ_GARMIN);
+    }
+
+    // attente du delai enregistre
+    if (speed > 0) {
+      long wait = startTime + (long) (nextDelay / speed)
+                  - System.currentTimeMillis();
+      if (wait > 0) {
+        try {
+          Thread.sleep(wait);
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    byte[] buf = nextBuffer;
+    log.debug(buf, "read");
+    next();
+    return new UsbPacket(buf);
+  }
+
+  private void next() throws UsbProtocolException {
+    try {
+      nextKind = in.readByte();
+      nextDelay = in.readInt();
+      nextBuffer = new byte[in.readInt()];
+      in.readFully(nextBuffer);
+    }
+    catch (EOFException e) {
+      nextBuffer = null;
+    }
+    catch (IOException e) {
+      log.error("", e);
+      nextBuffer = null;
+      throw new UsbProtocolException(UsbProtocolException.ERR_READ_GARMIN);
+    }
+  }
+
+  private void closeIn() {
+    nextBuffer = null;
+    if (in != null) {
+      try {
+        in.close();
+      }
+      catch (IOException e) {
+        log.error("", e);
+      }
+      in = null;
+    }
+  }
+
+}
@@ -0,0 +1,90 @@
+package fr.turtlesport.db;
+
+import java.util.Date;
+
+/**
+ * Derni&egrave;re synchronisation d'une montre.
+ * 
+ * @author Denis Apparicio
+ * 
+ */
+public class DataDeviceSync {
+
+  /** Identifiant de la montre. */
+  private String idDevice;
+
+  /** Index de la derni&egrave;re course synchronis&eacute;e. */
+  private int    trackIndex = -1;
+
+  /** Date de d&eacute;but de la derni&egrave;re course synchronis&eacute;e. */
+  private Date   startTime;
+
+  /** Date de la synchronisation. */
+  private Date   syncTime;
+
+  /**
+   * 
+   */
+  public DataDeviceSync() {
+    super();
+  }
+
+  /**
+   * Restitue l'identifiant de la montre.
+   */
+  public String getIdDevice() {
+    return idDevice;
+  }
+
+  /**
+   * Valorise l'identifiant de la montre.
+   */
+  public void setIdDevice(String idDevice) {
+    this.idDevice = idDevice;
+  }
+
+  /**
+   * Restitue l'index de la derni&egrave;re course synchronis&eacute;e.
+   */
+  public int getTrackIndex() {
+    return trackIndex;
+  }
+
+  /**
+   * Valorise l'index de la derni&egrave;re course synchronis&eacute;e.
+   */
+  public void setTrackIndex(int trackIndex) {
+    this.trackIndex = trackIndex;
+  }
+
+  /**
+   * Restitue la date de d&eacute;but de la derni&egrave;re course
+   * synchronis&eacute;e.
+   */
+  public Date getStartTime() {
+    return startTime;
+  }
+
+  /**
+   * Valorise la date de d&eacute;but de la derni&egrave;re course
+   * synchronis&eacute;e.
+   */
+  public void setStartTime(Date startTime) {
+    this.startTime = startTime;
+  }
+
+  /**
+   * Restitue la date de la synchronisation.
+   */
+  public Date getSyncTime() {
+    return syncTime;
+  }
+
+  /**
+   * Valorise la date de la synchronisation.
+   */
+  public void setSyncTime(Date syncTime) {
+    this.syncTime = syncTime;
+  }
+
+}
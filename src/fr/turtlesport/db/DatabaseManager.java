@@ -16,6 +16,7 @@ import java.sql.*;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.List;
 
 /**
  * @author Denis Apparicio
@@ -46,10 +47,17 @@ public class DatabaseManager {
 
   protected static final String          TABLE_METEO         = "APP.RUNMETEO";
 
+  protected static final String          TABLE_IMPORT_FILE   = "APP.IMPORTFILE";
+
+  protected static final String          TABLE_DEVICE_SYNC   = "APP.DEVICESYNC";
+
   // We want to keep the same connection for a given thread
   // as long as we're in the same transaction
   private static ThreadLocal<Connection> tranConnection      = new ThreadLocal<Connection>();
 
+  /** T&acirc;ches ex&eacute;cut&eacute;es apr&egrave;s la validation. */
+  private static ThreadLocal<List<Runnable>> afterCommit     = new ThreadLocal<List<Runnable>>();
+
   private static boolean                 isInit              = false;
 
   private static boolean                 isNeedCreateIndex   = false;
@@ -265,6 +273,14 @@ public class DatabaseManager {
     tranConnection.get().commit();
     tranConnection.set(null);
 
+    List<Runnable> tasks = afterCommit.get();
+    afterCommit.set(null);
+    if (tasks != null) {
+      for (Runnable r : tasks) {
+        r.run();
+      }
+    }
+
     log.debug("<<commitTransaction");
   }
 
@@ -282,10 +298,32 @@ public class DatabaseManager {
     }
     tranConnection.get().rollback();
     tranConnection.set(null);
+    afterCommit.set(null);
 
     log.debug("<<rollbackTransaction");
   }
 
+  /**
+   * Ex&eacute;cution d'une t&acirc;che apr&egrave;s la validation de la
+   * transaction en cours, imm&eacute;diatement hors transaction. La
+   * t&acirc;che est abandonn&eacute;e si la transaction est annul&eacute;e.
+   *
+   * @param r
+   *          la t&acirc;che.
+   */
+  public static void afterCommit(Runnable r) {
+    if (tranConnection.get() == null) {
+      r.run();
+      return;
+    }
+    List<Runnable> tasks = afterCommit.get();
+    if (tasks == null) {
+      tasks = new ArrayList<Runnable>();
+      afterCommit.set(tasks);
+    }
+    tasks.add(r);
+  }
+
   /**
    * Recup&eacute; une connection.
    * 
@@ -333,6 +371,9 @@ public class DatabaseManager {
 
       executeUpdate("DROP TABLE " + TABLE_METEO);
       executeUpdate("DROP INDEX TABLE_METEO_index1");
+
+      executeUpdate("DROP TABLE " + TABLE_IMPORT_FILE);
+      executeUpdate("DROP TABLE " + TABLE_DEVICE_SYNC);
     }
     catch (SQLException sqle) {
       if (!tableDoesntExist(sqle.getSQLState())) {
@@ -357,6 +398,8 @@ public class DatabaseManager {
       executeUpdate("DELETE FROM " + TABLE_USER);
       executeUpdate("DELETE FROM " + TABLE_EQUIPEMENT);
       executeUpdate("DELETE FROM " + TABLE_USER_ACTIVITY);
+      executeUpdate("DELETE FROM " + TABLE_IMPORT_FILE);
+      executeUpdate("DELETE FROM " + TABLE_DEVICE_SYNC);
     }
     finally {
       releaseConnection(conn);
@@ -535,6 +578,12 @@ public class DatabaseManager {
     // TABLE_METEO
     createTableMeteo();
 
+    // TABLE_IMPORT_FILE
+    createTableImportFile();
+
+    // TABLE_DEVICE_SYNC
+    createTableDeviceSync();
+
     log.debug("<<createTables");
   }
 
@@ -917,6 +966,87 @@ public class DatabaseManager {
     executeUpdate(st.toString());
   }
 
+  private static void createTableImportFile() throws SQLException {
+    if (tableExists(TABLE_IMPORT_FILE)) {
+      // registre sans chemin complet : les entrees sont perdues
+      Connection conn = getConnection();
+      try {
+        ResultSet rs = conn.getMetaData().getColumns(null,
+                                                     "APP",
+                                                     "IMPORTFILE",
+                                                     "PATH");
+        if (rs.next()) {
+          return;
+        }
+      }
+      finally {
+        releaseConnection(conn);
+      }
+      log.info("drop " + TABLE_IMPORT_FILE);
+      executeUpdate("DROP TABLE " + TABLE_IMPORT_FILE);
+    }
+
+    log.info("createTableImportFile");
+
+    StringBuilder st = new StringBuilder();
+    st.append("CREATE TABLE ");
+    st.append(TABLE_IMPORT_FILE);
+    st.append('(');
+    st.append("name VARCHAR(255), ");
+    st.append("path VARCHAR(1024), ");
+    st.append("file_size BIGINT, ");
+    st.append("last_modified BIGINT, ");
+    st.append("digest VARCHAR(64), ");
+    st.append("id_run INT, ");
+    st.append("import_time TIMESTAMP");
+    st.append(')');
+    executeUpdate(st.toString());
+
+    st = new StringBuilder();
+    st.append("CREATE INDEX ");
+    st.append("TABLE_IMPORT_FILE_index1");
+    st.append(" ON ");
+    st.append(TABLE_IMPORT_FILE);
+    st.append("(path)");
+    executeUpdate(st.toString());
+
+    st = new StringBuilder();
+    st.append("CREATE INDEX ");
+    st.append("TABLE_IMPORT_FILE_index2");
+    st.append(" ON ");
+    st.append(TABLE_IMPORT_FILE);
+    st.append("(digest)");
+    executeUpdate(st.toString());
+
+    st = new StringBuilder();
+    st.append("CREATE INDEX ");
+    st.append("TABLE_IMPORT_FILE_index3");
+    st.append(" ON ");
+    st.append(TABLE_IMPORT_FILE);
+    st.append("(id_run)");
+    executeUpdate(st.toString());
+  }
+
+  private static void createTableDeviceSync() throws SQLException {
+    if (tableExists(TABLE_DEVICE_SYNC)) {
+      return;
+    }
+
+    log.info("createTableDeviceSync");
+
+    StringBuilder st = new StringBuilder();
+    st.append("CREATE TABLE ");
+    st.append(TABLE_DEVICE_SYNC);
+    st.append('(');
+    st.append("id_device VARCHAR(64) NOT NULL, ");
+    st.append("track_index INT, ");
+    st.append("start_time TIMESTAMP, ");
+    st.append("sync_time TIMESTAMP, ");
+    st.append("PRIMARY KEY (id_device)");
+    st.append(')');
+    executeUpdate(st.toString());
+  }
+
   private static void createTableTrk() throws SQLException {
     if (tableExists(TABLE_RUN_TRK)) {
       if (isNeedCreateIndex) {
@@ -0,0 +1,306 @@
+package fr.turtlesport.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+
+import fr.turtlesport.Configuration;
+import fr.turtlesport.log.TurtleLogger;
+import fr.turtlesport.protocol.IRunTypeFilter;
+import fr.turtlesport.protocol.data.AbstractLapType;
+import fr.turtlesport.protocol.data.AbstractRunType;
+
+/**
+ * Derni&egrave;re synchronisation USB de chaque montre.
+ * <p>
+ * Les courses d&eacute;j&agrave; synchronis&eacute;es ne sont pas
+ * transf&eacute;r&eacute;es de nouveau : seules les courses
+ * post&eacute;rieures &agrave; la derni&egrave;re synchronisation, ou dont
+ * les tours ne sont pas enregistr&eacute;s, sont r&eacute;cup&eacute;r&eacute;es.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public final class DeviceSyncTableManager extends AbstractTableManager {
+  private static TurtleLogger           log;
+  static {
+    log = (TurtleLogger) TurtleLogger.getLogger(DeviceSyncTableManager.class);
+  }
+
+  private static DeviceSyncTableManager singleton = new DeviceSyncTableManager();
+
+  /**
+   *
+   */
+  private DeviceSyncTableManager() {
+    super();
+  }
+
+  /**
+   * Restitue une instance unique.
+   */
+  public static DeviceSyncTableManager getInstance() {
+    return singleton;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.db.AbstractTableManager#getTableName()
+   */
+  @Override
+  public String getTableName() {
+    return DatabaseManager.TABLE_DEVICE_SYNC;
+  }
+
+  /**
+   * D&eacute;termine si la synchronisation incr&eacute;mentale est
+   * activ&eacute;e.
+   */
+  public static boolean isEnabled() {
+    return Configuration.getConfig().getPropertyAsBoolean("Transfert",
+                                                          "incremental",
+                                                          true);
+  }
+
+  /**
+   * Restitue la derni&egrave;re synchronisation d'une montre.
+   *
+   * @param idDevice
+   *          l'identifiant de la montre.
+   * @return la derni&egrave;re synchronisation ou <code>null</code>.
+   * @throws SQLException
+   */
+  public DataDeviceSync find(String idDevice) throws SQLException {
+    log.debug(">>find idDevice=" + idDevice);
+
+    if (idDevice == null) {
+      return null;
+    }
+
+    DataDeviceSync data = null;
+    Connection conn = DatabaseManager.getConnection();
+    try {
+      StringBuilder st = new StringBuilder();
+      st.append("SELECT * FROM ");
+      st.append(getTableName());
+      st.append(" WHERE id_device=?");
+
+      PreparedStatement pstmt = conn.prepareStatement(st.toString());
+      pstmt.setString(1, idDevice);
+      ResultSet rs = pstmt.executeQuery();
+      if (rs.next()) {
+        data = new DataDeviceSync();
+        data.setIdDevice(idDevice);
+        data.setTrackIndex(rs.getInt("track_index"));
+        data.setStartTime(rs.getTimestamp("start_time"));
+        data.setSyncTime(rs.getTimestamp("sync_time"));
+      }
+      pstmt.close();
+    }
+    finally {
+      DatabaseManager.releaseConnection(conn);
+    }
+
+    log.debug("<<find");
+    return data;
+  }
+
+  /**
+   * Enregistre la synchronisation des courses d'une montre.
+   *
+   * @param idDevice
+   *          l'identifiant de la montre.
+   * @param runs
+   *          les courses transf&eacute;r&eacute;es.
+   * @throws SQLException
+   */
+  public void store(String idDevice, List<AbstractRunType> runs) throws SQLException {
+    log.debug(">>store idDevice=" + idDevice);
+
+    if (idDevice == null || runs == null || runs.isEmpty()) {
+      return;
+    }
+
+    // course la plus recente
+    AbstractRunType last = null;
+    for (AbstractRunType runType : runs) {
+      if (last == null
+          || runType.getComputeStartTime()
+              .after(last.getComputeStartTime())) {
+        last = runType;
+      }
+    }
+
+    DataDeviceSync previous = find(idDevice);
+    if (previous != null && previous.getStartTime() != null
+        && !last.getComputeStartTime().after(previous.getStartTime())) {
+      log.debug("<<store deja a jour");
+      return;
+    }
+
+    // debut transaction
+    boolean isInTransaction = DatabaseManager.isInTransaction();
+    if (!isInTransaction) {
+      DatabaseManager.beginTransaction();
+    }
+    Connection conn = DatabaseManager.getConnection();
+
+    try {
+      StringBuilder st = new StringBuilder();
+      st.append("DELETE FROM ");
+      st.append(getTableName());
+      st.append(" WHERE id_device=?");
+
+      PreparedStatement pstmt = conn.prepareStatement(st.toString());
+      pstmt.setString(1, idDevice);
+      pstmt.executeUpdate();
+      pstmt.close();
+
+      st = new StringBuilder();
+      st.append("INSERT INTO ");
+      st.append(getTableName());
+      st.append("(id_device,");
+      st.append(" track_index,");
+      st.append(" start_time,");
+      st.append(" sync_time)");
+      st.append(" VALUES(?, ?, ?, ?)");
+
+      pstmt = conn.prepareStatement(st.toString());
+      pstmt.setString(1, idDevice);
+      pstmt.setInt(2, last.getTrackIndex());
+      pstmt.setTimestamp(3, new Timestamp(last.getComputeStartTime()
+          .getTime()));
+      pstmt.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+      pstmt.executeUpdate();
+      pstmt.close();
+    }
+    catch (SQLException e) {
+      if (!isInTransaction) {
+        DatabaseManager.rollbackTransaction();
+      }
+      DatabaseManager.releaseConnection(conn);
+      throw e;
+    }
+
+    // ok
+    if (!isInTransaction) {
+      DatabaseManager.commitTransaction();
+    }
+    DatabaseManager.releaseConnection(conn);
+
+    log.debug("<<store");
+  }
+
+  /**
+   * Suppression de la synchronisation d'une montre : la prochaine
+   * synchronisation r&eacute;cup&egrave;rera toutes les courses.
+   *
+   * @param idDevice
+   *          l'identifiant de la montre.
+   * @throws SQLException
+   */
+  public void delete(String idDevice) throws SQLException {
+    log.debug(">>delete idDevice=" + idDevice);
+
+    Connection conn = DatabaseManager.getConnection();
+    try {
+      StringBuilder st = new StringBuilder();
+      st.append("DELETE FROM ");
+      st.append(getTableName());
+      st.append(" WHERE id_device=?");
+
+      PreparedStatement pstmt = conn.prepareStatement(st.toString());
+      pstmt.setString(1, idDevice);
+      pstmt.executeUpdate();
+    }
+    finally {
+      DatabaseManager.releaseConnection(conn);
+    }
+
+    log.debug("<<delete");
+  }
+
+  /**
+   * D&eacute;termine si une course et tous ses tours sont d&eacute;j&agrave;
+   * enregistr&eacute;s.
+   *
+   * @param runType
+   *          la course.
+   * @return <code>true</code> si la course est d&eacute;j&agrave;
+   *         enregistr&eacute;e.
+   * @throws SQLException
+   */
+  public boolean isStored(AbstractRunType runType) throws SQLException {
+    int id = RunTableManager.getInstance().find(DataUser.getAllUser().getId(),
+                                                runType.getComputeStartTime());
+    if (id == -1) {
+      return false;
+    }
+    for (AbstractLapType lap : runType.getListLapType()) {
+      if (!RunLapTableManager.getInstance().findLap(id,
+                                                    lap.getIndex(),
+                                                    lap.getStartTime())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Restitue le filtre des courses d&eacute;j&agrave; synchronis&eacute;es
+   * d'une montre.
+   * <p>
+   * Les courses post&eacute;rieures &agrave; la derni&egrave;re
+   * synchronisation sont transf&eacute;r&eacute;es sans recherche en base ;
+   * les autres ne le sont que si elles ou l'un de leurs tours ne sont pas
+   * enregistr&eacute;s.
+   *
+   * @param idDevice
+   *          l'identifiant de la montre.
+   * @return le filtre.
+   */
+  public IRunTypeFilter newFilter(String idDevice) {
+    Date date = null;
+    try {
+      DataDeviceSync data = find(idDevice);
+      if (data != null) {
+        date = data.getStartTime();
+        if (log.isInfoEnabled()) {
+          log.info("derniere synchronisation " + idDevice + " trackIndex="
+                   + data.getTrackIndex() + " startTime=" + date);
+        }
+      }
+    }
+    catch (SQLException e) {
+      log.error("", e);
+    }
+
+    final Date lastStartTime = date;
+    return new IRunTypeFilter() {
+      public boolean accept(AbstractRunType runType) {
+        if (runType.getComputeStartTime() == null) {
+          return true;
+        }
+        // course posterieure a la derniere synchronisation : pas de
+        // recherche en base
+        if (lastStartTime != null
+            && runType.getComputeStartTime().after(lastStartTime)) {
+          return true;
+        }
+        try {
+          return !isStored(runType);
+        }
+        catch (SQLException e) {
+          log.error("", e);
+          return true;
+        }
+      }
+    };
+  }
+
+}
@@ -0,0 +1,378 @@
+package fr.turtlesport.db;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.turtlesport.Configuration;
+import fr.turtlesport.log.TurtleLogger;
+import fr.turtlesport.util.DigestUtil;
+
+/**
+ * Registre des fichiers import&eacute;s.
+ * <p>
+ * Un fichier est identifi&eacute; par son chemin complet, sa taille, sa date
+ * de modification et son digest. Un fichier dont le chemin, la taille et la
+ * date sont inchang&eacute;s est reconnu sans &ecirc;tre ouvert. Deux
+ * fichiers de m&ecirc;me nom dans des r&eacute;pertoires ou sur des
+ * mat&eacute;riels diff&eacute;rents sont distincts.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public final class ImportFileTableManager extends AbstractTableManager {
+  private static TurtleLogger           log;
+  static {
+    log = (TurtleLogger) TurtleLogger.getLogger(ImportFileTableManager.class);
+  }
+
+  /** Algorithme du digest. */
+  private static final String           ALGO      = "SHA-1";
+
+  /** Fichier inconnu. */
+  public static final int               UNKNOWN   = 0;
+
+  /** Fichier d&eacute;j&agrave; import&eacute; et inchang&eacute;. */
+  public static final int               IMPORTED  = 1;
+
+  /** Fichier d&eacute;j&agrave; import&eacute; dont le contenu a chang&eacute;. */
+  public static final int               CHANGED   = 2;
+
+  private static ImportFileTableManager singleton = new ImportFileTableManager();
+
+  /**
+   *
+   */
+  private ImportFileTableManager() {
+    super();
+  }
+
+  /**
+   * Restitue une instance unique.
+   */
+  public static ImportFileTableManager getInstance() {
+    return singleton;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.db.AbstractTableManager#getTableName()
+   */
+  @Override
+  public String getTableName() {
+    return DatabaseManager.TABLE_IMPORT_FILE;
+  }
+
+  /**
+   * D&eacute;termine si un fichier dont le contenu a chang&eacute; doit
+   * &ecirc;tre r&eacute;import&eacute;.
+   *
+   * @return <code>true</code> si un fichier modifi&eacute; doit &ecirc;tre
+   *         r&eacute;import&eacute;.
+   */
+  public static boolean isReimportIfChanged() {
+    return Configuration.getConfig().getPropertyAsBoolean("Import",
+                                                          "reimportIfChanged",
+                                                          true);
+  }
+
+  /**
+   * Valorise la r&eacute;importation des fichiers modifi&eacute;s.
+   *
+   * @param value
+   *          la nouvelle valeur.
+   */
+  public static void setReimportIfChanged(boolean value) {
+    Configuration.getConfig().addProperty("Import",
+                                          "reimportIfChanged",
+                                          Boolean.toString(value));
+  }
+
+  /**
+   * D&eacute;termine si ce fichier a d&eacute;j&agrave; &eacute;t&eacute;
+   * import&eacute;.
+   *
+   * @param file
+   *          le fichier.
+   * @return <code>Boolean.TRUE</code> si le fichier est d&eacute;j&agrave;
+   *         import&eacute;, <code>Boolean.FALSE</code> s'il doit &ecirc;tre
+   *         r&eacute;import&eacute; ou <code>null</code> si le fichier est
+   *         inconnu du registre.
+   */
+  public Boolean isAlreadyImport(File file) {
+    try {
+      switch (lookup(file)) {
+        case IMPORTED:
+          return Boolean.TRUE;
+        case CHANGED:
+          return !isReimportIfChanged();
+        default:
+          return null;
+      }
+    }
+    catch (SQLException e) {
+      log.error("", e);
+      return null;
+    }
+  }
+
+  /**
+   * Recherche un fichier dans le registre.
+   *
+   * @param file
+   *          le fichier.
+   * @return {@link #UNKNOWN}, {@link #IMPORTED} ou {@link #CHANGED}.
+   * @throws SQLException
+   */
+  public int lookup(File file) throws SQLException {
+    if (log.isDebugEnabled()) {
+      log.debug(">>lookup " + file);
+    }
+
+    if (file == null || !file.isFile()) {
+      return UNKNOWN;
+    }
+
+    int state = UNKNOWN;
+    long startTime = System.currentTimeMillis();
+
+    Connection conn = DatabaseManager.getConnection();
+    try {
+      // chemin, taille et date inchanges : le fichier n'est pas lu
+      StringBuilder st = new StringBuilder();
+      st.append("SELECT id_run FROM ");
+      st.append(getTableName());
+      st.append(" WHERE path=? AND file_size=? AND last_modified=?");
+
+      PreparedStatement pstmt = conn.prepareStatement(st.toString());
+      pstmt.setString(1, path(file));
+      pstmt.setLong(2, file.length());
+      pstmt.setLong(3, file.lastModified());
+      ResultSet rs = pstmt.executeQuery();
+      if (rs.next()) {
+        state = IMPORTED;
+      }
+      pstmt.close();
+
+      if (state == UNKNOWN) {
+        String digest = digest(file);
+
+        // contenu identique (fichier deplace, copie ou touche)
+        int[] idRuns = null;
+        if (digest != null) {
+          st = new StringBuilder();
+          st.append("SELECT DISTINCT id_run FROM ");
+          st.append(getTableName());
+          st.append(" WHERE digest=?");
+
+          pstmt = conn.prepareStatement(st.toString());
+          pstmt.setString(1, digest);
+          rs = pstmt.executeQuery();
+          List<Integer> list = new ArrayList<Integer>();
+          while (rs.next()) {
+            list.add(rs.getInt(1));
+          }
+          pstmt.close();
+          if (!list.isEmpty()) {
+            state = IMPORTED;
+            idRuns = new int[list.size()];
+            for (int i = 0; i < idRuns.length; i++) {
+              idRuns[i] = list.get(i);
+            }
+          }
+        }
+        if (idRuns != null) {
+          // ce chemin est reconnu sans relecture
+          store(conn, file, digest, idRuns);
+        }
+
+        // contenu modifie
+        if (state == UNKNOWN) {
+          st = new StringBuilder();
+          st.append("SELECT id_run FROM ");
+          st.append(getTableName());
+          st.append(" WHERE path=?");
+
+          pstmt = conn.prepareStatement(st.toString());
+          pstmt.setString(1, path(file));
+          rs = pstmt.executeQuery();
+          if (rs.next()) {
+            state = CHANGED;
+          }
+          pstmt.close();
+        }
+      }
+    }
+    finally {
+      DatabaseManager.releaseConnection(conn);
+    }
+
+    if (log.isInfoEnabled()) {
+      long delay = System.currentTimeMillis() - startTime;
+      log.info("<<lookup " + file.getName() + " state=" + state + " delay="
+               + delay + "ms");
+    }
+    return state;
+  }
+
+  /**
+   * Enregistre un fichier import&eacute; et les runs associ&eacute;s.
+   *
+   * @param file
+   *          le fichier.
+   * @param idRuns
+   *          les id des runs issus de ce fichier.
+   * @throws SQLException
+   */
+  public void store(File file, int[] idRuns) throws SQLException {
+    log.debug(">>store");
+
+    if (file == null || idRuns == null || idRuns.length == 0) {
+      return;
+    }
+
+    String digest = digest(file);
+
+    // debut transaction
+    boolean isInTransaction = DatabaseManager.isInTransaction();
+    if (!isInTransaction) {
+      DatabaseManager.beginTransaction();
+    }
+    Connection conn = DatabaseManager.getConnection();
+
+    try {
+      store(conn, file, digest, idRuns);
+    }
+    catch (SQLException e) {
+      if (!isInTransaction) {
+        DatabaseManager.rollbackTransaction();
+      }
+      DatabaseManager.releaseConnection(conn);
+      throw e;
+    }
+
+    // ok
+    if (!isInTransaction) {
+      DatabaseManager.commitTransaction();
+    }
+    DatabaseManager.releaseConnection(conn);
+
+    log.debug("<<store");
+  }
+
+  /**
+   * Enregistre un fichier dont la course a &eacute;t&eacute; retrouv&eacute;e
+   * par sa date de d&eacute;but (fichier import&eacute; avant le registre) :
+   * il ne sera plus relu.
+   *
+   * @param file
+   *          le fichier.
+   * @param idRun
+   *          l'id du run.
+   */
+  public void storeFound(File file, int idRun) {
+    if (idRun == -1) {
+      return;
+    }
+    try {
+      store(file, new int[] { idRun });
+    }
+    catch (SQLException e) {
+      log.error("", e);
+    }
+  }
+
+  /**
+   * Suppression du fichier ayant produit ce run, pour qu'il puisse &ecirc;tre
+   * r&eacute;import&eacute;.
+   *
+   * @param idRun
+   *          l'id du run.
+   * @throws SQLException
+   */
+  public void deleteRun(int idRun) throws SQLException {
+    log.debug(">>deleteRun id=" + idRun);
+
+    Connection conn = DatabaseManager.getConnection();
+    try {
+      StringBuilder st = new StringBuilder();
+      st.append("DELETE FROM ");
+      st.append(getTableName());
+      st.append(" WHERE digest IN (SELECT digest FROM ");
+      st.append(getTableName());
+      st.append(" WHERE id_run=?)");
+
+      PreparedStatement pstmt = conn.prepareStatement(st.toString());
+      pstmt.setInt(1, idRun);
+      pstmt.executeUpdate();
+    }
+    finally {
+      DatabaseManager.releaseConnection(conn);
+    }
+
+    log.debug("<<deleteRun");
+  }
+
+  /**
+   * Remplace les entr&eacute;es d'un chemin.
+   */
+  private void store(Connection conn, File file, String digest, int[] idRuns) throws SQLException {
+    StringBuilder st = new StringBuilder();
+    st.append("DELETE FROM ");
+    st.append(getTableName());
+    st.append(" WHERE path=?");
+
+    PreparedStatement pstmt = conn.prepareStatement(st.toString());
+    pstmt.setString(1, path(file));
+    pstmt.executeUpdate();
+    pstmt.close();
+
+    st = new StringBuilder();
+    st.append("INSERT INTO ");
+    st.append(getTableName());
+    st.append("(name,");
+    st.append(" path,");
+    st.append(" file_size,");
+    st.append(" last_modified,");
+    st.append(" digest,");
+    st.append(" id_run,");
+    st.append(" import_time)");
+    st.append(" VALUES(?, ?, ?, ?, ?, ?, ?)");
+
+    pstmt = conn.prepareStatement(st.toString());
+    Timestamp now = new Timestamp(System.currentTimeMillis());
+    for (int idRun : idRuns) {
+      pstmt.setString(1, file.getName());
+      pstmt.setString(2, path(file));
+      pstmt.setLong(3, file.length());
+      pstmt.setLong(4, file.lastModified());
+      pstmt.setString(5, digest);
+      pstmt.setInt(6, idRun);
+      pstmt.setTimestamp(7, now);
+      pstmt.executeUpdate();
+    }
+    pstmt.close();
+  }
+
+  private static String path(File file) {
+    return file.getAbsolutePath();
+  }
+
+  private String digest(File file) {
+    try {
+      return DigestUtil.digestHex(file, ALGO);
+    }
+    catch (FileNotFoundException e) {
+      log.error("", e);
+      return null;
+    }
+  }
+
+}
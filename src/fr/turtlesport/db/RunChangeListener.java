@@ -0,0 +1,46 @@
+package fr.turtlesport.db;
+
+/**
+ * Notification des modifications des courses.
+ * <p>
+ * Les notifications sont &eacute;mises apr&egrave;s la validation de la
+ * transaction qui a modifi&eacute; les courses, jamais en cas
+ * d'annulation.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public interface RunChangeListener {
+
+  /**
+   * Une course a &eacute;t&eacute; ajout&eacute;e ou ses points
+   * modifi&eacute;s.
+   *
+   * @param idRun
+   *          l'id de la course.
+   */
+  void runStored(int idRun);
+
+  /**
+   * Des courses ont &eacute;t&eacute; ajout&eacute;es.
+   */
+  void runsStored();
+
+  /**
+   * Une course a &eacute;t&eacute; supprim&eacute;e.
+   *
+   * @param idRun
+   *          l'id de la course.
+   */
+  void runDeleted(int idRun);
+
+  /**
+   * Le r&eacute;sum&eacute; d'une course (activit&eacute;, utilisateur) a
+   * &eacute;t&eacute; modifi&eacute;, les points sont inchang&eacute;s.
+   *
+   * @param idRun
+   *          l'id de la course ou <code>-1</code> pour plusieurs courses.
+   */
+  void runUpdated(int idRun);
+
+}
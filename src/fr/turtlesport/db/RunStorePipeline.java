@@ -0,0 +1,252 @@
+package fr.turtlesport.db;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import fr.turtlesport.Configuration;
+import fr.turtlesport.device.IProductDevice;
+import fr.turtlesport.log.TurtleLogger;
+import fr.turtlesport.protocol.IRunTypeConsumer;
+import fr.turtlesport.protocol.data.AbstractRunType;
+
+/**
+ * Enregistrement des courses au fil du transfert USB.
+ * <p>
+ * Les courses transmises par le thread de lecture USB sont plac&eacute;es
+ * dans une file non born&eacute;e : la lecture n'attend jamais la base.
+ * Un thread d&eacute;di&eacute; enregistre chaque nouvelle course dans sa
+ * propre transaction d&egrave;s sa r&eacute;ception : la base n'attend pas la
+ * fin du transfert. Les courses d&eacute;j&agrave; pr&eacute;sentes en base
+ * ne sont pas modifi&eacute;es : elles sont mises de c&ocirc;t&eacute; et
+ * enregistr&eacute;es apr&egrave;s la confirmation de l'utilisateur (voir
+ * {@link #isDeferred(AbstractRunType)}), l'annulation se limite donc
+ * &agrave; la suppression des courses cr&eacute;&eacute;es.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public class RunStorePipeline implements IRunTypeConsumer {
+  private static TurtleLogger                   log;
+  static {
+    log = (TurtleLogger) TurtleLogger.getLogger(RunStorePipeline.class);
+  }
+
+  private final LinkedBlockingQueue<AbstractRunType> queue = new LinkedBlockingQueue<AbstractRunType>();
+
+  /** Id des courses cr&eacute;&eacute;es. */
+  private final Map<AbstractRunType, Integer>   ids   = new IdentityHashMap<AbstractRunType, Integer>();
+
+  /** Courses existantes, enregistr&eacute;es apr&egrave;s confirmation. */
+  private final Map<AbstractRunType, Boolean>   deferred = new IdentityHashMap<AbstractRunType, Boolean>();
+
+  private IProductDevice                        device;
+
+  private Thread                                thread;
+
+  private volatile boolean                      isClosed;
+
+  private volatile boolean                      isAborted;
+
+  private SQLException                          error;
+
+  /**
+   * @param device
+   *          la montre.
+   */
+  public RunStorePipeline(IProductDevice device) {
+    super();
+    this.device = device;
+  }
+
+  /**
+   * D&eacute;termine si l'enregistrement au fil du transfert est
+   * activ&eacute;.
+   */
+  public static boolean isEnabled() {
+    return Configuration.getConfig().getPropertyAsBoolean("Transfert",
+                                                          "pipeline",
+                                                          false);
+  }
+
+  /**
+   * D&eacute;marrage du thread d'enregistrement.
+   */
+  public synchronized void start() {
+    log.debug(">>start");
+
+    if (thread != null) {
+      return;
+    }
+    thread = new Thread("RunStorePipeline") {
+      @Override
+      public void run() {
+        consumeQueue();
+      }
+    };
+    thread.setDaemon(true);
+    thread.start();
+
+    log.debug("<<start");
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see
+   * fr.turtlesport.protocol.IRunTypeConsumer#consume(fr.turtlesport.protocol
+   * .data.AbstractRunType)
+   */
+  public void consume(AbstractRunType runType) {
+    if (runType != null && !isClosed) {
+      queue.offer(runType);
+    }
+  }
+
+  /**
+   * Attend l'enregistrement des courses re&ccedil;ues.
+   *
+   * @throws SQLException
+   *           si une course n'a pu &ecirc;tre enregistr&eacute;e.
+   */
+  public void finish() throws SQLException {
+    log.debug(">>finish");
+
+    isClosed = true;
+    Thread t;
+    synchronized (this) {
+      t = thread;
+    }
+    if (t != null) {
+      try {
+        t.join();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    synchronized (this) {
+      if (error != null) {
+        throw error;
+      }
+    }
+
+    log.debug("<<finish");
+  }
+
+  /**
+   * Abandon : les courses non encore enregistr&eacute;es sont ignor&eacute;es.
+   */
+  public void abort() {
+    log.debug(">>abort");
+
+    isAborted = true;
+    isClosed = true;
+    queue.clear();
+
+    log.debug("<<abort");
+  }
+
+  /**
+   * Restitue l'id d'une course cr&eacute;&eacute;e par ce pipeline.
+   *
+   * @param runType
+   *          la course.
+   * @return l'id de la course ou <code>-1</code> si la course n'a pas
+   *         &eacute;t&eacute; cr&eacute;&eacute;e.
+   */
+  public int getId(AbstractRunType runType) {
+    synchronized (ids) {
+      Integer id = ids.get(runType);
+      return (id == null) ? -1 : id;
+    }
+  }
+
+  /**
+   * D&eacute;termine si une course existait d&eacute;j&agrave; en base et
+   * n'a pas &eacute;t&eacute; enregistr&eacute;e par ce pipeline.
+   *
+   * @param runType
+   *          la course.
+   * @return <code>true</code> si la course reste &agrave; enregistrer.
+   */
+  public boolean isDeferred(AbstractRunType runType) {
+    synchronized (deferred) {
+      return deferred.containsKey(runType);
+    }
+  }
+
+  /**
+   * Restitue les id des courses cr&eacute;&eacute;es par ce pipeline.
+   */
+  public List<Integer> getIds() {
+    synchronized (ids) {
+      return new ArrayList<Integer>(ids.values());
+    }
+  }
+
+  private void consumeQueue() {
+    log.debug(">>consumeQueue");
+
+    while (!isAborted) {
+      AbstractRunType runType;
+      try {
+        runType = queue.poll(200, TimeUnit.MILLISECONDS);
+      }
+      catch (InterruptedException e) {
+        break;
+      }
+      if (runType == null) {
+        if (isClosed) {
+          break;
+        }
+        continue;
+      }
+
+      try {
+        long deb = System.currentTimeMillis();
+        // une course existante n'est pas modifiee avant confirmation
+        if (RunTableManager.getInstance().find(runType) != -1) {
+          synchronized (deferred) {
+            deferred.put(runType, Boolean.TRUE);
+          }
+          log.info("deferred trackIndex=" + runType.getTrackIndex());
+          continue;
+        }
+        int id = RunTableManager.getInstance().store(runType, device);
+        if (id != -1) {
+          synchronized (ids) {
+            ids.put(runType, id);
+          }
+        }
+        if (log.isInfoEnabled()) {
+          log.info("store trackIndex=" + runType.getTrackIndex() + " id=" + id
+                   + " (ms) --> " + (System.currentTimeMillis() - deb));
+        }
+      }
+      catch (SQLException e) {
+        log.error("", e);
+        synchronized (this) {
+          if (error == null) {
+            error = e;
+          }
+        }
+      }
+      catch (RuntimeException e) {
+        log.error("", e);
+        synchronized (this) {
+          if (error == null) {
+            error = new SQLException(e.getMessage());
+          }
+        }
+      }
+    }
+
+    log.debug("<<consumeQueue");
+  }
+
+}
@@ -5,15 +5,21 @@ import fr.turtlesport.db.progress.IGeoRouteStoreProgress;
 import fr.turtlesport.db.progress.IRunStoreProgress;
 import fr.turtlesport.db.progress.RunStoreProgressAdaptor;
 import fr.turtlesport.device.IProductDevice;
+import fr.turtlesport.geo.GeoLoadException;
+import fr.turtlesport.geo.GeoRouteSummary;
+import fr.turtlesport.geo.GeoSegmentSummary;
 import fr.turtlesport.geo.IGeoPositionWithAlt;
 import fr.turtlesport.geo.IGeoRoute;
+import fr.turtlesport.geo.IGeoRouteHandler;
+import fr.turtlesport.geo.IGeoSegment;
+import fr.turtlesport.geo.TrackPointBuffer;
 import fr.turtlesport.log.TurtleLogger;
 import fr.turtlesport.protocol.A1000RunTransferProtocol;
 import fr.turtlesport.protocol.data.AbstractLapType;
 import fr.turtlesport.protocol.data.AbstractRunType;
-import fr.turtlesport.protocol.data.AbstractTrkPointType;
 import fr.turtlesport.protocol.progress.IRunTransfertProgress;
 
+import java.io.File;
 import java.sql.*;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -31,6 +37,8 @@ public final class RunTableManager extends AbstractTableManager {
 
   private static RunTableManager singleton = new RunTableManager();
 
+  private final List<RunChangeListener> runChangeListeners = new ArrayList<RunChangeListener>();
+
   /**
    * 
    */
@@ -45,6 +53,89 @@ public final class RunTableManager extends AbstractTableManager {
     return singleton;
   }
 
+  /**
+   * Ajout d'un listener notifi&eacute; des modifications des courses.
+   */
+  public void addRunChangeListener(RunChangeListener l) {
+    synchronized (runChangeListeners) {
+      if (!runChangeListeners.contains(l)) {
+        runChangeListeners.add(l);
+      }
+    }
+  }
+
+  /**
+   * Suppression d'un listener.
+   */
+  public boolean removeRunChangeListener(RunChangeListener l) {
+    synchronized (runChangeListeners) {
+      return runChangeListeners.remove(l);
+    }
+  }
+
+  private RunChangeListener[] getRunChangeListeners() {
+    synchronized (runChangeListeners) {
+      return runChangeListeners
+          .toArray(new RunChangeListener[runChangeListeners.size()]);
+    }
+  }
+
+  /**
+   * Notification d'une course ajout&eacute;e ou de ses points
+   * modifi&eacute;s, apr&egrave;s la validation de la transaction.
+   */
+  protected void fireRunStored(final int id) {
+    DatabaseManager.afterCommit(new Runnable() {
+      public void run() {
+        for (RunChangeListener l : getRunChangeListeners()) {
+          l.runStored(id);
+        }
+      }
+    });
+  }
+
+  /**
+   * Notification de courses ajout&eacute;es, apr&egrave;s la validation de
+   * la transaction.
+   */
+  protected void fireRunsStored() {
+    DatabaseManager.afterCommit(new Runnable() {
+      public void run() {
+        for (RunChangeListener l : getRunChangeListeners()) {
+          l.runsStored();
+        }
+      }
+    });
+  }
+
+  /**
+   * Notification d'une course supprim&eacute;e, apr&egrave;s la validation
+   * de la transaction.
+   */
+  protected void fireRunDeleted(final int id) {
+    DatabaseManager.afterCommit(new Runnable() {
+      public void run() {
+        for (RunChangeListener l : getRunChangeListeners()) {
+          l.runDeleted(id);
+        }
+      }
+    });
+  }
+
+  /**
+   * Notification d'un r&eacute;sum&eacute; de course modifi&eacute;,
+   * apr&egrave;s la validation de la transaction.
+   */
+  protected void fireRunUpdated(final int id) {
+    DatabaseManager.afterCommit(new Runnable() {
+      public void run() {
+        for (RunChangeListener l : getRunChangeListeners()) {
+          l.runUpdated(id);
+        }
+      }
+    });
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -409,6 +500,17 @@ public final class RunTableManager extends AbstractTableManager {
     return id;
   }
 
+  /**
+   * D&eacute;termine si une course de la montre existe.
+   * 
+   * @param runType
+   *          la course.
+   * @return l'id du run ou -1 si non trouv&eacute;e.
+   */
+  public int find(AbstractRunType runType) throws SQLException {
+    return find(getIdUser(runType), runType.getComputeStartTime());
+  }
+
   /**
    * Restitue le run pour une date sup&eecute;rieure ou &aecute;gale &aecute;
    * une date.
@@ -517,104 +619,10 @@ public final class RunTableManager extends AbstractTableManager {
 
     // notification
     progress.beginStore(maxLine);
-    int nbSave = 0;
+    int[] nbSave = { 0 };
     try {
-      int id;
-      Hashtable<Integer, Integer> hashLap = new Hashtable<Integer, Integer>();
       for (AbstractRunType runType : a1000.getListRunType()) {
-
-        log.info("TrackIndex=" + runType.getTrackIndex());
-
-        // notification
-        progress.beginStore(runType);
-
-        id = find(getIdUser(runType), runType.getComputeStartTime());
-        boolean isNewRun = false;
-        // insertion du run si non present
-        if (id == -1) {
-          isNewRun = true;
-
-          String comments = null;
-          String equipement = null;
-          int idUser = -1;
-          if (runType.getExtra() != null) {
-            comments = ((DataRunExtra) runType.getExtra()).getComments();
-            equipement = ((DataRunExtra) runType.getExtra()).getEquipement();
-            idUser = ((DataRunExtra) runType.getExtra()).getIdUser();
-          }
-
-          id = store(idUser,
-                     runType.getSportType(),
-                     runType.getProgramType(),
-                     runType.getMultisport(),
-                     runType.getComputeStartTime(),
-                     comments,
-                     equipement,
-                     null,
-                     (device == null) ? null : device.id(),
-                     (device == null) ? null : device.softwareVersion(),
-                     (device == null) ? null : device.displayName());
-
-          hashLap.put(runType.getTrackIndex(), id);
-        }
-
-        // notification
-        if (++nbSave % IRunTransfertProgress.POINT_NOTIFY == 0) {
-          progress.store(nbSave, maxLine);
-        }
-
-        // insertion des run intermediaires.
-        boolean hasNewLap = false;
-        for (AbstractLapType lap : runType.getListLapType()) {
-          log.info("LapIndex=" + lap.getIndex());
-          // insertion du lap si non present
-          if (!RunLapTableManager.getInstance().findLap(id,
-                                                        lap.getIndex(),
-                                                        lap.getStartTime())) {
-            RunLapTableManager.getInstance().store(id, lap);
-            hasNewLap = true;
-          }
-          // notification
-          if (++nbSave % IRunTransfertProgress.POINT_NOTIFY == 0) {
-            progress.store(nbSave, maxLine);
-          }
-        }
-
-        // insertion des points si nouveau tour intermediaire
-        if (hasNewLap) {
-          log.info("point");
-
-          // notification
-          progress.beginStorePoint();
-          int maxPoint = runType.sizeTrkPointType();
-
-          // effacement des points pour un run existant
-          if (!isNewRun) {
-            RunTrkTableManager.getInstance().delete(id);
-          }
-          // insertion des points
-          List<AbstractTrkPointType> listPoint = runType.getListTrkPointType();
-          for (int i = 0; i < maxPoint; i++) {
-            // notification
-            if ((i + 1) % IRunTransfertProgress.POINT_NOTIFY == 0) {
-              progress.storePoint(runType, i + 1, maxPoint);
-            }
-            if (++nbSave % IRunTransfertProgress.POINT_NOTIFY == 0) {
-              progress.store(nbSave, maxLine);
-            }
-            // sauvegarde
-            RunTrkTableManager.getInstance().store(id, listPoint.get(i));
-          }
-        }
-        else {
-          nbSave += runType.sizeTrkPointType();
-          if (++nbSave % IRunTransfertProgress.POINT_NOTIFY == 0) {
-            progress.store(nbSave, maxLine);
-          }
-        }
-
-        // notification
-        progress.endStore(runType);
+        storeRunType(runType, device, progress, nbSave, maxLine);
       }
 
       // logTable();
@@ -645,6 +653,7 @@ public final class RunTableManager extends AbstractTableManager {
     // ok -> commit
     DatabaseManager.commitTransaction();
     DatabaseManager.getConnection().close();
+    fireRunsStored();
 
     // notification
     progress.endStore();
@@ -652,18 +661,181 @@ public final class RunTableManager extends AbstractTableManager {
     log.debug("<<store");
   }
 
+  /**
+   * Insertion d'une course de la montre.
+   * <p>
+   * La course est enregistr&eacute;e dans sa propre transaction : cette
+   * m&eacute;thode est appel&eacute;e au fil du transfert USB (voir
+   * {@link RunStorePipeline}).
+   * 
+   * @param runType
+   *          la course.
+   * @param device
+   *          la montre.
+   * @return l'id de la course si elle a &eacute;t&eacute; cr&eacute;&eacute;e,
+   *         <code>-1</code> si elle existait d&eacute;j&agrave;.
+   * @throws SQLException
+   */
+  public int store(AbstractRunType runType, IProductDevice device) throws SQLException {
+    log.debug(">>store runType");
+
+    int maxLine = 1 + runType.sizeLapType() + runType.sizeTrkPointType();
+    int id;
+
+    // Debut de tansaction
+    DatabaseManager.beginTransaction();
+    try {
+      id = storeRunType(runType,
+                        device,
+                        new RunStoreProgressAdaptor(),
+                        new int[1],
+                        maxLine);
+    }
+    catch (SQLException e) {
+      log.error("", e);
+      // Erreur rollback
+      DatabaseManager.rollbackTransaction();
+      DatabaseManager.getConnection().close();
+      throw e;
+    }
+    catch (RuntimeException e) {
+      log.error("", e);
+      // Erreur rollback
+      DatabaseManager.rollbackTransaction();
+      DatabaseManager.getConnection().close();
+      throw e;
+    }
+
+    // ok -> commit
+    DatabaseManager.commitTransaction();
+    DatabaseManager.getConnection().close();
+    fireRunsStored();
+
+    log.debug("<<store id=" + id);
+    return id;
+  }
+
+  /**
+   * Insertion d'une course dans la transaction courante.
+   * 
+   * @return l'id de la course si elle a &eacute;t&eacute; cr&eacute;&eacute;e,
+   *         <code>-1</code> si elle existait d&eacute;j&agrave;.
+   */
+  private int storeRunType(AbstractRunType runType,
+                           IProductDevice device,
+                           IRunStoreProgress progress,
+                           int[] nbSave,
+                           int maxLine) throws SQLException {
+    log.info("TrackIndex=" + runType.getTrackIndex());
+
+    // notification
+    progress.beginStore(runType);
+
+    int id = find(getIdUser(runType), runType.getComputeStartTime());
+    boolean isNewRun = false;
+    // insertion du run si non present
+    if (id == -1) {
+      isNewRun = true;
+
+      String comments = null;
+      String equipement = null;
+      int idUser = -1;
+      if (runType.getExtra() != null) {
+        comments = ((DataRunExtra) runType.getExtra()).getComments();
+        equipement = ((DataRunExtra) runType.getExtra()).getEquipement();
+        idUser = ((DataRunExtra) runType.getExtra()).getIdUser();
+      }
+
+      id = store(idUser,
+                 runType.getSportType(),
+                 runType.getProgramType(),
+                 runType.getMultisport(),
+                 runType.getComputeStartTime(),
+                 comments,
+                 equipement,
+                 null,
+                 (device == null) ? null : device.id(),
+                 (device == null) ? null : device.softwareVersion(),
+                 (device == null) ? null : device.displayName());
+    }
+
+    // notification
+    if (++nbSave[0] % IRunTransfertProgress.POINT_NOTIFY == 0) {
+      progress.store(nbSave[0], maxLine);
+    }
+
+    // insertion des run intermediaires.
+    boolean hasNewLap = false;
+    for (AbstractLapType lap : runType.getListLapType()) {
+      log.info("LapIndex=" + lap.getIndex());
+      // insertion du lap si non present
+      if (!RunLapTableManager.getInstance().findLap(id,
+                                                    lap.getIndex(),
+                                                    lap.getStartTime())) {
+        RunLapTableManager.getInstance().store(id, lap);
+        hasNewLap = true;
+      }
+      // notification
+      if (++nbSave[0] % IRunTransfertProgress.POINT_NOTIFY == 0) {
+        progress.store(nbSave[0], maxLine);
+      }
+    }
+
+    // insertion des points si nouveau tour intermediaire
+    if (hasNewLap) {
+      log.info("point");
+
+      // notification
+      progress.beginStorePoint();
+      int maxPoint = runType.sizeTrkPointType();
+
+      // effacement des points pour un run existant
+      if (!isNewRun) {
+        RunTrkTableManager.getInstance().delete(id);
+      }
+      // insertion des points par lot
+      TrackPointBuffer points = runType.getTrkPoints();
+      for (int i = 0; i < maxPoint; i += IRunTransfertProgress.POINT_NOTIFY) {
+        int to = Math.min(maxPoint, i + IRunTransfertProgress.POINT_NOTIFY);
+        RunTrkTableManager.getInstance().store(id, points, i, to);
+
+        // notification
+        nbSave[0] += to - i;
+        progress.storePoint(runType, to, maxPoint);
+        progress.store(nbSave[0], maxLine);
+      }
+
+      // les points d'une course existante sont remplaces
+      if (!isNewRun) {
+        fireRunStored(id);
+      }
+    }
+    else {
+      nbSave[0] += runType.sizeTrkPointType();
+      if (++nbSave[0] % IRunTransfertProgress.POINT_NOTIFY == 0) {
+        progress.store(nbSave[0], maxLine);
+      }
+    }
+
+    // notification
+    progress.endStore(runType);
+
+    return isNewRun ? id : -1;
+  }
+
   /**
    * Insertion d'un run.
    * 
    * @param listRoute
    * @param progress
+   * @return les id des runs dans l'ordre de <code>listRoute</code>.
    * @throws SQLException
    */
-  public void store(List<IGeoRoute> listRoute, IGeoRouteStoreProgress progress) throws SQLException {
+  public int[] store(List<IGeoRoute> listRoute, IGeoRouteStoreProgress progress) throws SQLException {
     log.debug(">>store route");
 
     if (listRoute == null || listRoute.size() == 0) {
-      return;
+      return new int[0];
     }
 
     if (progress == null) {
@@ -681,62 +853,60 @@ public final class RunTableManager extends AbstractTableManager {
       // lap
       maxLine += route.getSegmentSize();
       // points
-      maxLine += route.getAllPoints().size();
+      if (route instanceof GeoRouteSummary) {
+        maxLine += ((GeoRouteSummary) route).getPointSize();
+      }
+      else {
+        maxLine += route.getAllPoints().size();
+      }
     }
 
     // notification
     progress.beginStore(maxLine);
 
+    int[] ids = new int[listRoute.size()];
+    Set<File> streamFiles = new HashSet<File>();
     try {
       int id;
 
       int nbSave = 0;
+      int index = 0;
       for (IGeoRoute route : listRoute) {
+        if (route instanceof GeoRouteSummary) {
+          // les routes lues en flux sont enregistrees a la relecture du
+          // fichier
+          GeoRouteSummary summary = (GeoRouteSummary) route;
+          if (streamFiles.add(summary.getFile())) {
+            StreamStoreHandler handler = new StreamStoreHandler(listRoute,
+                                                                summary.getFile(),
+                                                                ids,
+                                                                progress,
+                                                                nbSave,
+                                                                maxLine);
+            try {
+              summary.getGeoFile().load(summary.getFile(),
+                                        summary.getProductDevice(),
+                                        handler);
+            }
+            catch (GeoLoadException e) {
+              if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+              }
+              throw new RuntimeException(e);
+            }
+            nbSave = handler.nbSave;
+          }
+          index++;
+          continue;
+        }
+
         // Run
         // --------------
         // notification
         progress.beginStore(route);
 
-        Date startTime = route.getStartTime();
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(startTime);
-        cal.set(Calendar.MILLISECOND, 0);
-        startTime = cal.getTime();
-
-        if (log.isDebugEnabled()) {
-          SimpleDateFormat df = null;
-          df = new SimpleDateFormat("dd/MM/yyyy k:mm:ss.S");
-          log.debug("route startTime=" + df.format(startTime));
-        }
-        id = find(getIdUser(route), startTime);
-        if (id != -1) {
-          // suppression du tour a la meme date
-          delete(id);
-        }
-
-        // insertion du run
-        String comments = null;
-        String equipement = null;
-        int idUser = -1;
-        if (route.getExtra() != null) {
-          idUser = ((DataRunExtra) route.getExtra()).getIdUser();
-          comments = ((DataRunExtra) route.getExtra()).getComments();
-          equipement = ((DataRunExtra) route.getExtra()).getEquipement();
-        }
-
-        IProductDevice device = route.getProductDevice();
-
-        id = store(idUser,
-                   route.getSportType(),
-                   0,
-                   0,
-                   startTime,
-                   comments,
-                   equipement,
-                   null,
-                   (device == null) ? null : device.id(),
-                   (device == null) ? null : device.softwareVersion(),
-                   (device == null) ? null : device.displayName());
+        id = storeRoute(route);
+        ids[index++] = id;
         // notification
         if (++nbSave % IRunTransfertProgress.POINT_NOTIFY == 0) {
           progress.store(nbSave, maxLine);
@@ -805,11 +975,64 @@ public final class RunTableManager extends AbstractTableManager {
     // ok -> commit
     DatabaseManager.commitTransaction();
     DatabaseManager.getConnection().close();
+    fireRunsStored();
 
     // notification
     progress.endStore();
 
     log.debug("<<store");
+    return ids;
+  }
+
+  /**
+   * Insertion du run d'une route, en rempla&ccedil;ant le run existant
+   * &agrave; la m&ecirc;me date.
+   * 
+   * @param route
+   * @return l'id du run.
+   * @throws SQLException
+   */
+  private int storeRoute(IGeoRoute route) throws SQLException {
+    Date startTime = route.getStartTime();
+    Calendar cal = Calendar.getInstance();
+    cal.setTime(startTime);
+    cal.set(Calendar.MILLISECOND, 0);
+    startTime = cal.getTime();
+
+    if (log.isDebugEnabled()) {
+      SimpleDateFormat df = null;
+      df = new SimpleDateFormat("dd/MM/yyyy k:mm:ss.S");
+      log.debug("route startTime=" + df.format(startTime));
+    }
+    int id = find(getIdUser(route), startTime);
+    if (id != -1) {
+      // suppression du tour a la meme date
+      delete(id);
+    }
+
+    // insertion du run
+    String comments = null;
+    String equipement = null;
+    int idUser = -1;
+    if (route.getExtra() != null) {
+      idUser = ((DataRunExtra) route.getExtra()).getIdUser();
+      comments = ((DataRunExtra) route.getExtra()).getComments();
+      equipement = ((DataRunExtra) route.getExtra()).getEquipement();
+    }
+
+    IProductDevice device = route.getProductDevice();
+
+    return store(idUser,
+                 route.getSportType(),
+                 0,
+                 0,
+                 startTime,
+                 comments,
+                 equipement,
+                 null,
+                 (device == null) ? null : device.id(),
+                 (device == null) ? null : device.softwareVersion(),
+                 (device == null) ? null : device.displayName());
   }
 
   /**
@@ -905,6 +1128,7 @@ public final class RunTableManager extends AbstractTableManager {
     // ok -> commit
     DatabaseManager.commitTransaction();
     DatabaseManager.getConnection().close();
+    fireRunsStored();
 
     log.debug("<<store");
   }
@@ -991,6 +1215,7 @@ public final class RunTableManager extends AbstractTableManager {
     // ok -> commit
     DatabaseManager.commitTransaction();
     DatabaseManager.getConnection().close();
+    fireRunStored(dataRun.getId());
 
     log.debug("<<store");
   }
@@ -1073,6 +1298,9 @@ public final class RunTableManager extends AbstractTableManager {
 
         // suppression de la meteo
         MeteoTableManager.getInstance().delete(id);
+
+        // le fichier d'origine peut etre reimporte
+        ImportFileTableManager.getInstance().deleteRun(id);
       }
 
     }
@@ -1089,6 +1317,10 @@ public final class RunTableManager extends AbstractTableManager {
       DatabaseManager.commitTransaction();
     }
     DatabaseManager.releaseConnection(conn);
+    if (bRes) {
+      // apres la validation de la transaction englobante
+      fireRunDeleted(id);
+    }
 
     log.debug("<<delete bRes=" + bRes);
     return bRes;
@@ -1276,6 +1508,41 @@ public final class RunTableManager extends AbstractTableManager {
     return id;
   }
 
+  /**
+   * Restitue les id de toutes les courses.
+   * 
+   * @return les id de toutes les courses.
+   * @throws SQLException
+   */
+  public int[] retreiveIds() throws SQLException {
+    log.debug(">>retreiveIds");
+
+    List<Integer> list = new ArrayList<Integer>();
+    Connection conn = DatabaseManager.getConnection();
+    try {
+      StringBuilder st = new StringBuilder();
+      st.append("SELECT id FROM ");
+      st.append(getTableName());
+
+      PreparedStatement pstmt = conn.prepareStatement(st.toString());
+      ResultSet rs = pstmt.executeQuery();
+      while (rs.next()) {
+        list.add(rs.getInt(1));
+      }
+    }
+    finally {
+      DatabaseManager.releaseConnection(conn);
+    }
+
+    int[] ids = new int[list.size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = list.get(i);
+    }
+
+    log.debug("<<retreiveIds size=" + ids.length);
+    return ids;
+  }
+
   /**
    * D&eacute;termine si cette ligne existe.
    * 
@@ -2390,6 +2657,8 @@ public final class RunTableManager extends AbstractTableManager {
       DatabaseManager.releaseConnection(conn);
     }
 
+    fireRunUpdated(id);
+
     log.debug("<<updateSport");
   }
 
@@ -2462,6 +2731,40 @@ public final class RunTableManager extends AbstractTableManager {
     log.debug("<<updateComments");
   }
 
+  /**
+   * Mis &agrave; jour de l'utilisateur.
+   * 
+   * @param id
+   * @param idUser
+   *          l'id de l'utilisateur.
+   * @throws SQLException
+   */
+  public void updateUser(int id, int idUser) throws SQLException {
+    log.debug(">>updateUser id=" + id);
+
+    Connection conn = DatabaseManager.getConnection();
+
+    try {
+      StringBuilder st = new StringBuilder();
+      st.append("UPDATE ");
+      st.append(getTableName());
+      st.append(" SET id_user=?");
+      st.append(" WHERE id = ?");
+
+      PreparedStatement pstmt = conn.prepareStatement(st.toString());
+      pstmt.setInt(1, idUser);
+      pstmt.setInt(2, id);
+      pstmt.executeUpdate();
+    }
+    finally {
+      DatabaseManager.releaseConnection(conn);
+    }
+
+    fireRunUpdated(id);
+
+    log.debug("<<updateUser");
+  }
+
   /**
    * Mis &agrave; jour de la localisation.
    * 
@@ -2586,6 +2889,8 @@ public final class RunTableManager extends AbstractTableManager {
     }
     DatabaseManager.releaseConnection(conn);
 
+    fireRunUpdated(-1);
+
     log.debug("<<updateSportType");
   }
 
@@ -2603,4 +2908,147 @@ public final class RunTableManager extends AbstractTableManager {
     return -1;
   }
 
+
+  /**
+   * Enregistrement des routes d'un fichier relu en flux : les points sont
+   * ins&eacute;r&eacute;s au fil de la lecture.
+   */
+  private class StreamStoreHandler implements IGeoRouteHandler {
+
+    private IGeoRouteStoreProgress   progress;
+
+    private int[]                    ids;
+
+    private int                      maxLine;
+
+    private int                      nbSave;
+
+    /** Routes a enregistrer, par position dans le fichier. */
+    private Map<Integer, GeoRouteSummary> routes    = new HashMap<Integer, GeoRouteSummary>();
+
+    /** Position des routes dans la liste a enregistrer. */
+    private Map<Integer, Integer>         positions = new HashMap<Integer, Integer>();
+
+    private GeoRouteSummary          current;
+
+    private int                      id;
+
+    private int                      nbPoint;
+
+    private GeoSegmentSummary        currentLap;
+
+    private int                      lapIndex;
+
+    private double                   distance;
+
+    public StreamStoreHandler(List<IGeoRoute> listRoute,
+                              File file,
+                              int[] ids,
+                              IGeoRouteStoreProgress progress,
+                              int nbSave,
+                              int maxLine) {
+      this.ids = ids;
+      this.progress = progress;
+      this.nbSave = nbSave;
+      this.maxLine = maxLine;
+
+      for (int i = 0; i < listRoute.size(); i++) {
+        if (listRoute.get(i) instanceof GeoRouteSummary) {
+          GeoRouteSummary r = (GeoRouteSummary) listRoute.get(i);
+          if (file.equals(r.getFile())) {
+            routes.put(r.index(), r);
+            positions.put(r.index(), i);
+          }
+        }
+      }
+    }
+
+    public void beginRoute(IGeoRoute route) throws GeoLoadException {
+      current = routes.get(((GeoRouteSummary) route).index());
+      if (current == null) {
+        return;
+      }
+
+      // notification
+      progress.beginStore(current);
+
+      try {
+        id = storeRoute(current);
+      }
+      catch (SQLException e) {
+        throw new GeoLoadException(e);
+      }
+      ids[positions.get(current.index())] = id;
+      nbPoint = 0;
+      distance = 0;
+      lapIndex = 0;
+      currentLap = null;
+
+      // notification
+      if (++nbSave % IRunTransfertProgress.POINT_NOTIFY == 0) {
+        progress.store(nbSave, maxLine);
+      }
+    }
+
+    public void point(IGeoRoute route, IGeoPositionWithAlt point) throws GeoLoadException {
+      if (current == null) {
+        return;
+      }
+
+      if (nbPoint > 0 && point.isValidDistance()) {
+        distance = point.getDistanceMeters();
+      }
+      current.adjust(point, (nbPoint == 0) ? 0 : distance);
+      if (currentLap == null) {
+        currentLap = new GeoSegmentSummary(lapIndex++);
+      }
+      currentLap.add(point);
+
+      // notification
+      nbPoint++;
+      if (nbPoint % IRunTransfertProgress.POINT_NOTIFY == 0) {
+        progress.storePoint(current, nbPoint, current.getPointSize());
+      }
+      if (++nbSave % IRunTransfertProgress.POINT_NOTIFY == 0) {
+        progress.store(nbSave, maxLine);
+      }
+
+      // sauvegarde
+      try {
+        RunTrkTableManager.getInstance().store(id, point);
+      }
+      catch (SQLException e) {
+        throw new GeoLoadException(e);
+      }
+    }
+
+    public void endSegment(IGeoRoute route, IGeoSegment segment) throws GeoLoadException {
+      if (current == null || currentLap == null) {
+        return;
+      }
+
+      // le tour est calcule sur les points dont la date a ete modifiee
+      try {
+        RunLapTableManager.getInstance().store(id, currentLap);
+      }
+      catch (SQLException e) {
+        throw new GeoLoadException(e);
+      }
+      currentLap = null;
+
+      // notification
+      if (++nbSave % IRunTransfertProgress.POINT_NOTIFY == 0) {
+        progress.store(nbSave, maxLine);
+      }
+    }
+
+    public void endRoute(IGeoRoute route) {
+      if (current != null) {
+        // notification
+        progress.endStore(current);
+      }
+      current = null;
+    }
+  }
+
 }
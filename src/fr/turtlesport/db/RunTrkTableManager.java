@@ -7,10 +7,12 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
 import fr.turtlesport.geo.IGeoPositionWithAlt;
+import fr.turtlesport.geo.TrackPointBuffer;
 import fr.turtlesport.log.TurtleLogger;
 import fr.turtlesport.protocol.data.AbstractTrkPointType;
 import fr.turtlesport.protocol.data.D304TrkPointType;
@@ -117,6 +119,83 @@ public final class RunTrkTableManager extends AbstractTableManager {
     log.debug("<<store");
   }
 
+  /**
+   * Insertion des points d'un buffer, dans une seule requ&ecirc;te
+   * pr&eacute;par&eacute;e.
+   * 
+   * @param id
+   *          l'id du run.
+   * @param points
+   *          les points.
+   * @param fromIndex
+   *          index inclus.
+   * @param toIndex
+   *          index exclus.
+   * @throws SQLException
+   */
+  public void store(int id, TrackPointBuffer points, int fromIndex, int toIndex) throws SQLException {
+    log.debug(">>store id=" + id + " fromIndex=" + fromIndex + " toIndex="
+              + toIndex);
+
+    if (points == null || fromIndex >= toIndex) {
+      return;
+    }
+
+    boolean isInTransaction = DatabaseManager.isInTransaction();
+    if (!isInTransaction) {
+      DatabaseManager.beginTransaction();
+    }
+
+    Connection conn = DatabaseManager.getConnection();
+
+    try {
+      if (!RunTableManager.getInstance().exist(id)) {
+        throw new SQLException("id=" + id + " non trouve.");
+      }
+
+      StringBuilder st = new StringBuilder();
+      st.append("INSERT INTO ");
+      st.append(getTableName());
+      st.append(" VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?)");
+
+      PreparedStatement pstmt = conn.prepareStatement(st.toString());
+      for (int i = fromIndex; i < toIndex; i++) {
+        pstmt.setInt(1, id);
+        pstmt.setInt(2, points.getGarminLatitude(i));
+        pstmt.setInt(3, points.getGarminLongitude(i));
+        pstmt.setTimestamp(4, new Timestamp(points.getTime(i)));
+        pstmt.setFloat(5, points.getAltitude(i));
+        pstmt.setFloat(6, points.getDistance(i));
+        pstmt.setInt(7, points.getHeartRate(i));
+        pstmt.setInt(8, points.getCadence(i));
+        if (points.getTemperature(i) == 0xff) {
+          pstmt.setNull(9, java.sql.Types.NUMERIC);
+        }
+        else {
+          pstmt.setInt(9, points.getTemperature(i));
+        }
+        pstmt.addBatch();
+      }
+      pstmt.executeBatch();
+      pstmt.close();
+    }
+    catch (SQLException e) {
+      if (!isInTransaction) {
+        DatabaseManager.rollbackTransaction();
+      }
+      DatabaseManager.releaseConnection(conn);
+      throw e;
+    }
+
+    // ok
+    if (!isInTransaction) {
+      DatabaseManager.commitTransaction();
+    }
+    DatabaseManager.releaseConnection(conn);
+
+    log.debug("<<store id=" + id);
+  }
+
   /**
    * Insertion d'un point.
    * 
@@ -225,6 +304,89 @@ public final class RunTrkTableManager extends AbstractTableManager {
     log.debug("<<delete id=" + id);
   }
 
+  /**
+   * Restitue les coordonn&eacute;es GPS valides d'une course, sans les autres
+   * colonnes.
+   * 
+   * @param idRun
+   *          l'id de la course.
+   * @return latitude et longitude (semicircles) de chaque point : lat0, lon0,
+   *         lat1, lon1...
+   * @throws SQLException
+   */
+  public int[] getPositions(int idRun) throws SQLException {
+    if (log.isDebugEnabled()) {
+      log.debug(">>getPositions idRun=" + idRun);
+    }
+    int[] positions = new int[1024];
+    int size = 0;
+
+    Connection conn = DatabaseManager.getConnection();
+    try {
+      StringBuilder st = new StringBuilder();
+      st.append("SELECT latitude, longitude FROM ");
+      st.append(getTableName());
+      st.append(" WHERE id=?");
+      st.append(" AND ((latitude <> ? OR longitude <> ?) AND  (latitude <> 0 OR longitude <> 0))");
+      st.append(" ORDER BY time");
+
+      PreparedStatement pstmt = conn.prepareStatement(st.toString());
+      pstmt.setInt(1, idRun);
+      pstmt.setInt(2, 0x7FFFFFFF);
+      pstmt.setInt(3, 0x7FFFFFFF);
+
+      ResultSet rs = pstmt.executeQuery();
+      while (rs.next()) {
+        if (size == positions.length) {
+          positions = Arrays.copyOf(positions, size * 2);
+        }
+        positions[size++] = rs.getInt(1);
+        positions[size++] = rs.getInt(2);
+      }
+    }
+    finally {
+      DatabaseManager.releaseConnection(conn);
+    }
+
+    if (log.isDebugEnabled()) {
+      log.debug("<<getPositions size=" + size / 2);
+    }
+    return Arrays.copyOf(positions, size);
+  }
+
+  /**
+   * Restitue la version des points d'un run : nombre de points et temps du
+   * dernier point.
+   * 
+   * @param idRun
+   *          l'id du run.
+   * @return la version des points.
+   * @throws SQLException
+   */
+  public long getDataVersion(int idRun) throws SQLException {
+    long version = 0;
+
+    Connection conn = DatabaseManager.getConnection();
+    try {
+      StringBuilder st = new StringBuilder();
+      st.append("SELECT COUNT(*), MAX(time) FROM ");
+      st.append(getTableName());
+      st.append(" WHERE id=?");
+
+      PreparedStatement pstmt = conn.prepareStatement(st.toString());
+      pstmt.setInt(1, idRun);
+
+      ResultSet rs = pstmt.executeQuery();
+      if (rs.next() && rs.getTimestamp(2) != null) {
+        version = rs.getTimestamp(2).getTime() * 31 + rs.getInt(1);
+      }
+    }
+    finally {
+      DatabaseManager.releaseConnection(conn);
+    }
+    return version;
+  }
+
   /**
    * D&eacute;termine si ce run &agrave; des points..
    * 
@@ -0,0 +1,474 @@
+package fr.turtlesport.device;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringTokenizer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import fr.turtlesport.Configuration;
+import fr.turtlesport.db.ImportFileTableManager;
+import fr.turtlesport.device.energympro.EnergymproDevice;
+import fr.turtlesport.device.energympro.TrainerDevice;
+import fr.turtlesport.device.garmin.GarminFitDevice;
+import fr.turtlesport.device.garmin.GarminGpxDevice;
+import fr.turtlesport.geo.FactoryGeoLoad;
+import fr.turtlesport.geo.IGeoRoute;
+import fr.turtlesport.geo.energympro.CpoFile;
+import fr.turtlesport.geo.garmin.fit.FitFile;
+import fr.turtlesport.geo.garmin.tcx.TcxFile;
+import fr.turtlesport.log.TurtleLogger;
+
+/**
+ * Surveillance en t&acirc;che de fond des montres connect&eacute;es et des
+ * r&eacute;pertoires configur&eacute;s.
+ * <p>
+ * Les nouveaux fichiers d'activit&eacute;s (FIT, TCX, CPO) sont lus par un
+ * thread de faible priorit&eacute; : la bo&icirc;te d'import s'ouvre avec
+ * les fichiers d&eacute;j&agrave; lus ({@link #getParsedFiles()}) et
+ * restitue directement leurs routes ({@link #takeRoutes(FileDevice)}).
+ *
+ * @author Denis Apparicio
+ *
+ */
+public final class DeviceWatcher {
+  private static TurtleLogger        log;
+  static {
+    log = (TurtleLogger) TurtleLogger.getLogger(DeviceWatcher.class);
+  }
+
+  /** Nombre maximum de fichiers lus conserv&eacute;s. */
+  private static final int           MAX_FILES = 100;
+
+  private static DeviceWatcher       singleton = new DeviceWatcher();
+
+  /** Fichiers lus. */
+  private final Map<File, Parsed>    cache     = new LinkedHashMap<File, Parsed>(16,
+                                                                                0.75f,
+                                                                                true) {
+                                                 @Override
+                                                 protected boolean removeEldestEntry(Map.Entry<File, Parsed> eldest) {
+                                                   return size() > MAX_FILES;
+                                                 }
+                                               };
+
+  /** R&eacute;pertoires surveill&eacute;s. */
+  private final Map<WatchKey, Watched> keys      = new HashMap<WatchKey, Watched>();
+
+  private final Set<File>            dirs      = new HashSet<File>();
+
+  /** Montres d&eacute;j&agrave; d&eacute;tect&eacute;es. */
+  private final Set<String>          volumes   = new HashSet<String>();
+
+  private ExecutorService            executor;
+
+  private WatchService               watchService;
+
+  private Thread                     thread;
+
+  /**
+   *
+   */
+  private DeviceWatcher() {
+    super();
+  }
+
+  /**
+   * Restitue une instance unique.
+   */
+  public static DeviceWatcher getInstance() {
+    return singleton;
+  }
+
+  /**
+   * D&eacute;termine si la surveillance est activ&eacute;e.
+   */
+  public static boolean isEnabled() {
+    return Configuration.getConfig().getPropertyAsBoolean("Import",
+                                                          "watchDevices",
+                                                          true);
+  }
+
+  /**
+   * Restitue les r&eacute;pertoires configur&eacute;s par l'utilisateur.
+   */
+  public static List<File> getUserDirs() {
+    List<File> list = new ArrayList<File>();
+    String value = Configuration.getConfig().getProperty("Import",
+                                                         "watchDirs");
+    if (value != null) {
+      StringTokenizer tk = new StringTokenizer(value, File.pathSeparator);
+      while (tk.hasMoreTokens()) {
+        File dir = new File(tk.nextToken().trim());
+        if (dir.isDirectory()) {
+          list.add(dir);
+        }
+      }
+    }
+    return list;
+  }
+
+  /**
+   * D&eacute;marrage de la surveillance.
+   */
+  public synchronized void start() {
+    log.debug(">>start");
+
+    if (thread != null || !isEnabled()) {
+      return;
+    }
+
+    try {
+      watchService = FileSystems.getDefault().newWatchService();
+    }
+    catch (IOException e) {
+      log.error("", e);
+      return;
+    }
+
+    executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "DeviceWatcher-parse");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+      }
+    });
+
+    thread = new Thread("DeviceWatcher") {
+      @Override
+      public void run() {
+        watch();
+      }
+    };
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    thread.start();
+
+    log.debug("<<start");
+  }
+
+  /**
+   * Arr&ecirc;t de la surveillance.
+   */
+  public synchronized void stop() {
+    log.debug(">>stop");
+
+    if (thread == null) {
+      return;
+    }
+    thread.interrupt();
+    thread = null;
+    executor.shutdownNow();
+    try {
+      watchService.close();
+    }
+    catch (IOException e) {
+      log.error("", e);
+    }
+    synchronized (cache) {
+      cache.clear();
+    }
+    keys.clear();
+    dirs.clear();
+    volumes.clear();
+
+    log.debug("<<stop");
+  }
+
+  /**
+   * Restitue les routes d&eacute;j&agrave; lues d'un fichier, si le fichier
+   * n'a pas &eacute;t&eacute; modifi&eacute; depuis.
+   *
+   * @param file
+   *          le fichier.
+   * @return les routes ou <code>null</code>.
+   */
+  public IGeoRoute[] takeRoutes(FileDevice file) {
+    Parsed parsed;
+    synchronized (cache) {
+      parsed = cache.remove(file.getFile());
+    }
+    if (parsed == null || !parsed.isUpToDate()) {
+      return null;
+    }
+    log.info("pre-parsed " + file.getFile());
+    return parsed.routes;
+  }
+
+  /**
+   * Restitue les fichiers lus en t&acirc;che de fond et non encore
+   * import&eacute;s.
+   */
+  public List<FileDevice> getParsedFiles() {
+    List<FileDevice> list = new ArrayList<FileDevice>();
+    synchronized (cache) {
+      for (Parsed p : cache.values()) {
+        if (p.isUpToDate()) {
+          list.add(p.file);
+        }
+      }
+    }
+    return list;
+  }
+
+  private void watch() {
+    log.debug(">>watch");
+
+    long lastScan = 0;
+    while (!Thread.currentThread().isInterrupted()) {
+      // les volumes apparaissent et disparaissent : re-detection
+      // periodique des montres
+      long now = System.currentTimeMillis();
+      if (now - lastScan > 30000) {
+        lastScan = now;
+        scanDevices();
+      }
+
+      WatchKey key;
+      try {
+        key = watchService.poll(5, TimeUnit.SECONDS);
+      }
+      catch (InterruptedException e) {
+        break;
+      }
+      catch (Exception e) {
+        // service ferme
+        break;
+      }
+      if (key == null) {
+        continue;
+      }
+
+      Watched watched = keys.get(key);
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (watched != null && event.context() instanceof Path) {
+          File file = new File(watched.dir, ((Path) event.context()).toString());
+          if (isActivityFile(file)) {
+            submit(new FileDevice(file, watched.productDevice));
+          }
+        }
+      }
+      if (!key.reset()) {
+        keys.remove(key);
+        if (watched != null) {
+          dirs.remove(watched.dir);
+        }
+      }
+    }
+
+    log.debug("<<watch");
+  }
+
+  private void scanDevices() {
+    log.debug(">>scanDevices");
+
+    // seules les montres vues comme des volumes sont lues : la session USB
+    // garmin reste reservee au transfert
+    Set<String> found = new HashSet<String>();
+    for (Device device : listFileDevices()) {
+      String volume = device.getClass().getName() + ':' + device.id();
+      found.add(volume);
+      if (volumes.contains(volume)) {
+        // les modifications suivantes arrivent par le WatchService
+        continue;
+      }
+      try {
+        Set<File> parents = new HashSet<File>();
+        for (FileDevice f : device.getFiles()) {
+          parents.add(f.getFile().getParentFile());
+        }
+        for (File dir : parents) {
+          register(dir, device);
+        }
+        // les fichiers deja presents sont lus une seule fois
+        for (FileDevice f : device.getNewFiles()) {
+          submit(f);
+        }
+        volumes.add(volume);
+      }
+      catch (Throwable e) {
+        log.error(volume, e);
+      }
+    }
+    // montre debranchee : redetectee au prochain branchement
+    volumes.retainAll(found);
+
+    try {
+      for (File dir : getUserDirs()) {
+        register(dir, NullProductDevice.INSTANCE);
+      }
+    }
+    catch (Throwable e) {
+      log.error("", e);
+    }
+
+    log.debug("<<scanDevices");
+  }
+
+  private List<Device> listFileDevices() {
+    List<Device> list = new ArrayList<Device>();
+    try {
+      list.addAll(GarminFitDevice.getDevices());
+    }
+    catch (Throwable e) {
+      log.error("", e);
+    }
+    try {
+      list.addAll(GarminGpxDevice.getDevices());
+    }
+    catch (Throwable e) {
+      log.error("", e);
+    }
+    try {
+      list.addAll(EnergymproDevice.getDevices());
+    }
+    catch (Throwable e) {
+      log.error("", e);
+    }
+    try {
+      list.addAll(TrainerDevice.getDevices());
+    }
+    catch (Throwable e) {
+      log.error("", e);
+    }
+    return list;
+  }
+
+  private void register(File dir, IProductDevice productDevice) {
+    if (dir == null || !dir.isDirectory() || dirs.contains(dir)) {
+      return;
+    }
+    try {
+      WatchKey key = dir.toPath().register(watchService,
+                                           ENTRY_CREATE,
+                                           ENTRY_MODIFY);
+      keys.put(key, new Watched(dir, productDevice));
+      dirs.add(dir);
+      log.info("watch " + dir);
+    }
+    catch (IOException e) {
+      log.error("", e);
+    }
+  }
+
+  private void submit(final FileDevice file) {
+    synchronized (cache) {
+      Parsed parsed = cache.get(file.getFile());
+      if (parsed != null && parsed.isUpToDate()) {
+        return;
+      }
+    }
+
+    executor.execute(new Runnable() {
+      public void run() {
+        parse(file);
+      }
+    });
+  }
+
+  private void parse(FileDevice file) {
+    File f = file.getFile();
+    if (!f.isFile()
+        || Boolean.TRUE.equals(ImportFileTableManager.getInstance()
+            .isAlreadyImport(f))) {
+      return;
+    }
+
+    long lastModified = f.lastModified();
+    long length = f.length();
+    try {
+      IGeoRoute[] routes = FactoryGeoLoad.getRoutesSummary(f, file);
+      synchronized (cache) {
+        cache.put(f, new Parsed(file, lastModified, length, routes));
+      }
+      if (log.isInfoEnabled()) {
+        log.info("parse " + f + " routes="
+                 + ((routes == null) ? 0 : routes.length));
+      }
+    }
+    catch (Throwable e) {
+      // le fichier est peut-etre en cours d'ecriture : il sera relu a
+      // l'import
+      log.warn("parse " + f + " " + e.getMessage());
+    }
+  }
+
+  private static boolean isActivityFile(File file) {
+    String name = file.getName().toLowerCase();
+    int i = name.lastIndexOf('.');
+    if (i < 0) {
+      return false;
+    }
+    String ext = name.substring(i + 1);
+    for (String[] exts : new String[][] { FitFile.EXT, TcxFile.EXT,
+        CpoFile.EXT }) {
+      for (String s : exts) {
+        if (s.equalsIgnoreCase(ext)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * R&eacute;pertoire surveill&eacute;.
+   */
+  private static class Watched {
+    private File           dir;
+
+    private IProductDevice productDevice;
+
+    public Watched(File dir, IProductDevice productDevice) {
+      this.dir = dir;
+      this.productDevice = productDevice;
+    }
+  }
+
+  /**
+   * Fichier lu.
+   */
+  private static class Parsed {
+    private FileDevice  file;
+
+    private long        lastModified;
+
+    private long        length;
+
+    private IGeoRoute[] routes;
+
+    public Parsed(FileDevice file,
+                  long lastModified,
+                  long length,
+                  IGeoRoute[] routes) {
+      this.file = file;
+      this.lastModified = lastModified;
+      this.length = length;
+      this.routes = routes;
+    }
+
+    public boolean isUpToDate() {
+      File f = file.getFile();
+      return f.lastModified() == lastModified && f.length() == length;
+    }
+  }
+
+}
@@ -1,6 +1,7 @@
 package fr.turtlesport.device.energympro;
 
 import fr.turtlesport.db.DataUser;
+import fr.turtlesport.db.ImportFileTableManager;
 import fr.turtlesport.db.RunTableManager;
 import fr.turtlesport.device.Device;
 import fr.turtlesport.device.FileDevice;
@@ -175,8 +176,13 @@ public class EnergymproDevice implements Device {
     }
 
     private boolean isAlreadyImport(File file) {
+        Boolean isImport = ImportFileTableManager.getInstance().isAlreadyImport(file);
+        if (isImport != null) {
+            return isImport;
+        }
+
         try {
-            return isAlreadyImport(new CpoFile().retreiveDate(file));
+            return isAlreadyImport(file, new CpoFile().retreiveDate(file));
         }
         catch (FileNotFoundException e) {
         }
@@ -186,15 +192,21 @@ public class EnergymproDevice implements Device {
         return false;
     }
 
-    private boolean isAlreadyImport(Date date) {
+    private boolean isAlreadyImport(File file, Date date) {
         try {
             Calendar cal = Calendar.getInstance();
             cal.setTimeZone(TimeZone.getTimeZone("GMT"));
             cal.setTime(date);
             date = cal.getTime();
 
-            return (RunTableManager.getInstance().find(DataUser.getAllUser().getId(),
-                    date) != -1);
+            int id = RunTableManager.getInstance().find(DataUser.getAllUser().getId(),
+                    date);
+            if (id == -1) {
+                return false;
+            }
+            // fichier importe avant le registre
+            ImportFileTableManager.getInstance().storeFound(file, id);
+            return true;
         }
         catch (Throwable e) {
             log.error("", e);
@@ -1,6 +1,7 @@
 package fr.turtlesport.device.garmin;
 
 import fr.turtlesport.db.DataUser;
+import fr.turtlesport.db.ImportFileTableManager;
 import fr.turtlesport.db.RunTableManager;
 import fr.turtlesport.device.Device;
 import fr.turtlesport.device.FileDevice;
@@ -115,6 +116,12 @@ public class GarminFitDevice implements Device {
   }
 
   private boolean isTcxAlreadyImport(File file) {
+    Boolean isImport = ImportFileTableManager.getInstance()
+        .isAlreadyImport(file);
+    if (isImport != null) {
+      return isImport;
+    }
+
     String sDate = file.getName().substring(0, file.getName().length() - 4);
 
     SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd-HHmmss");
@@ -123,7 +130,7 @@ public class GarminFitDevice implements Device {
       synchronized (getClass()) {
         date = df.parse(sDate);
       }
-      return isAlreadyImport(date);
+      return isAlreadyImport(file, date);
     }
     catch (ParseException e) {
       return true;
@@ -131,8 +138,14 @@ public class GarminFitDevice implements Device {
   }
 
   private boolean isFitAlreadyImport(File file) {
+    Boolean isImport = ImportFileTableManager.getInstance()
+        .isAlreadyImport(file);
+    if (isImport != null) {
+      return isImport;
+    }
+
     try {
-      return isAlreadyImport(new FitFile().retreiveDate(file));
+      return isAlreadyImport(file, new FitFile().retreiveDate(file));
     }
     catch (FileNotFoundException e) {
     }
@@ -142,15 +155,21 @@ public class GarminFitDevice implements Device {
     return false;
   }
 
-  private boolean isAlreadyImport(Date date) {
+  private boolean isAlreadyImport(File file, Date date) {
     try {
       Calendar cal = Calendar.getInstance();
       cal.setTimeZone(TimeZone.getTimeZone("GMT"));
       cal.setTime(date);
       date = cal.getTime();
 
-      return (RunTableManager.getInstance().find(DataUser.getAllUser().getId(),
-                                                 date) != -1);
+      int id = RunTableManager.getInstance().find(DataUser.getAllUser()
+          .getId(), date);
+      if (id == -1) {
+        return false;
+      }
+      // fichier importe avant le registre
+      ImportFileTableManager.getInstance().storeFound(file, id);
+      return true;
     }
     catch (Throwable e) {
       log.error("", e);
@@ -325,7 +344,7 @@ public class GarminFitDevice implements Device {
 
   @Override
   public List<FileDevice> getFiles() {
-    return getNewFiles();
+    return (getTcxFiles().size() > 0) ? getTcxFiles() : getFitFiles();
   }
 
   @Override
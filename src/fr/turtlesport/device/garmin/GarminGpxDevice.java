@@ -1,7 +1,12 @@
 package fr.turtlesport.device.garmin;
 
+import fr.turtlesport.db.DataUser;
+import fr.turtlesport.db.ImportFileTableManager;
+import fr.turtlesport.db.RunTableManager;
 import fr.turtlesport.device.Device;
 import fr.turtlesport.device.FileDevice;
+import fr.turtlesport.geo.FactoryGeoLoad;
+import fr.turtlesport.geo.IGeoRoute;
 import fr.turtlesport.log.TurtleLogger;
 import fr.turtlesport.util.OperatingSystem;
 import org.xml.sax.SAXException;
@@ -136,7 +141,48 @@ public class GarminGpxDevice implements Device {
 
   @Override
   public List<FileDevice> getNewFiles() {
-    return getFiles();
+    List<FileDevice> list = new ArrayList<>();
+
+    // current.gpx est reimporte seulement si son contenu a change
+    File file = getCurrentFile();
+    if (file != null && !isAlreadyImport(file)) {
+      list.add(new FileDevice(file, this));
+    }
+    return list;
+  }
+
+  private boolean isAlreadyImport(File file) {
+    Boolean isImport = ImportFileTableManager.getInstance()
+        .isAlreadyImport(file);
+    if (isImport != null) {
+      return isImport;
+    }
+
+    // fichier importe avant le registre : toutes ses courses existent
+    try {
+      IGeoRoute[] routes = FactoryGeoLoad
+          .getRoutesSummary(file, new FileDevice(file, this));
+      if (routes == null || routes.length == 0) {
+        return false;
+      }
+      int[] ids = new int[routes.length];
+      for (int i = 0; i < routes.length; i++) {
+        if (routes[i].getStartTime() == null) {
+          return false;
+        }
+        ids[i] = RunTableManager.getInstance().find(DataUser.getAllUser()
+            .getId(), routes[i].getStartTime());
+        if (ids[i] == -1) {
+          return false;
+        }
+      }
+      ImportFileTableManager.getInstance().store(file, ids);
+      return true;
+    }
+    catch (Throwable e) {
+      log.error("", e);
+      return false;
+    }
   }
 
   @Override
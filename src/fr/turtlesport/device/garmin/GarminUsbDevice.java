@@ -1,17 +1,23 @@
 package fr.turtlesport.device.garmin;
 
+import fr.turtlesport.Configuration;
+import fr.turtlesport.IUsbProtocol;
 import fr.turtlesport.UsbPacket;
 import fr.turtlesport.UsbProtocol;
 import fr.turtlesport.UsbProtocolException;
+import fr.turtlesport.UsbProtocolRecorder;
+import fr.turtlesport.UsbProtocolReplay;
 import fr.turtlesport.device.Device;
 import fr.turtlesport.device.FileDevice;
 import fr.turtlesport.log.TurtleLogger;
 import fr.turtlesport.protocol.AppProtocolCommand;
 import fr.turtlesport.protocol.StartSessionCommand;
+import fr.turtlesport.protocol.TransfertStats;
 import fr.turtlesport.protocol.data.ProductDataType;
 import fr.turtlesport.protocol.data.ProtocolCapability;
 import fr.turtlesport.protocol.data.ProtocolDataType;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.List;
@@ -34,6 +40,15 @@ public final class GarminUsbDevice implements Device {
 
   private static ThreadLocal<GarminUsbDevice>  trans = new ThreadLocal<GarminUsbDevice>();
 
+  /** Transport USB impose (rejeu). */
+  private static IUsbProtocol                  forcedProtocol;
+
+  /** Transport USB de la session. */
+  private IUsbProtocol                         usbProtocol;
+
+  /** Mesures du transfert en cours. */
+  private TransfertStats                       stats;
+
   /**
    * 
    */
@@ -43,11 +58,62 @@ public final class GarminUsbDevice implements Device {
     log.debug(">>GarminDevice");
 
     // Initialisation du garmin
-    UsbProtocol.getInstance().init();
+    usbProtocol = newUsbProtocol();
+    usbProtocol.init();
 
     log.debug("<<GarminDevice");
   }
   
+  /**
+   * Impose le transport USB, par exemple un rejeu (
+   * {@link UsbProtocolReplay}) pour les tests sans montre. Le transport est
+   * utilis&eacute; tel quel, sans lire la configuration.
+   * 
+   * @param protocol
+   *          le transport ou <code>null</code> pour le transport par
+   *          d&eacute;faut.
+   */
+  public static void setUsbProtocol(IUsbProtocol protocol) {
+    forcedProtocol = protocol;
+  }
+
+  /**
+   * Construction du transport USB.
+   * <p>
+   * Section <code>Usb</code> de la configuration : <code>replay</code>
+   * (enregistrement &agrave; rejouer), <code>replaySpeed</code> (vitesse du
+   * rejeu, <code>0</code> sans attente) et <code>capture</code>
+   * (r&eacute;pertoire des enregistrements).
+   */
+  private static IUsbProtocol newUsbProtocol() {
+    if (forcedProtocol != null) {
+      return forcedProtocol;
+    }
+
+    IUsbProtocol protocol;
+    String replay = Configuration.getConfig().getProperty("Usb", "replay");
+    if (replay != null && !"".equals(replay.trim())) {
+      double speed = 0;
+      try {
+        speed = Double.parseDouble(Configuration.getConfig()
+            .getProperty("Usb", "replaySpeed", "0"));
+      }
+      catch (NumberFormatException e) {
+        log.warn("replaySpeed invalide");
+      }
+      protocol = new UsbProtocolReplay(new File(replay.trim()), speed);
+    }
+    else {
+      protocol = UsbProtocol.getInstance();
+    }
+
+    String capture = Configuration.getConfig().getProperty("Usb", "capture");
+    if (capture != null && !"".equals(capture.trim())) {
+      protocol = new UsbProtocolRecorder(protocol, new File(capture.trim()));
+    }
+    return protocol;
+  }
+
   /**
    * @return Restitue la liste des Garmin devices.
    */
@@ -133,8 +199,9 @@ public final class GarminUsbDevice implements Device {
    */
   public static void close() throws UsbProtocolException {
     checkInit();
+    GarminUsbDevice device = trans.get();
     trans.set(null);
-    UsbProtocol.getInstance().close();
+    device.usbProtocol.close();
   }
 
   /**
@@ -144,7 +211,14 @@ public final class GarminUsbDevice implements Device {
    */
   public synchronized void send(UsbPacket packet) throws UsbProtocolException {
     checkInit();
-    UsbProtocol.getInstance().send(packet);
+    if (stats == null) {
+      usbProtocol.send(packet);
+      return;
+    }
+    long t = System.nanoTime();
+    usbProtocol.send(packet);
+    stats.addSend(UsbPacket.PACKET_HEADER_SIZE + packet.getSize(),
+                  System.nanoTime() - t);
   }
 
   /**
@@ -154,7 +228,37 @@ public final class GarminUsbDevice implements Device {
    */
   public synchronized UsbPacket read() throws UsbProtocolException {
     checkInit();
-    return UsbProtocol.getInstance().read();
+    if (stats == null) {
+      return usbProtocol.read();
+    }
+    long t = System.nanoTime();
+    UsbPacket packet = usbProtocol.read();
+    stats.addRead(UsbPacket.PACKET_HEADER_SIZE + packet.getSize(),
+                  System.nanoTime() - t);
+    return packet;
+  }
+
+  /**
+   * Valorise les mesures du transfert en cours.
+   * 
+   * @param stats
+   *          les mesures ou <code>null</code>.
+   */
+  public synchronized void setStats(TransfertStats stats) {
+    this.stats = stats;
+  }
+
+  /**
+   * Retire les mesures d'un transfert termin&eacute; si ce sont les mesures
+   * en cours.
+   * 
+   * @param stats
+   *          les mesures du transfert.
+   */
+  public synchronized void removeStats(TransfertStats stats) {
+    if (this.stats == stats) {
+      this.stats = null;
+    }
   }
 
   /**
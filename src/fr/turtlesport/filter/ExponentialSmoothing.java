@@ -0,0 +1,84 @@
+package fr.turtlesport.filter;
+
+/**
+ * Lissage exponentiel.
+ * <p>
+ * Filtre passe-bas du premier ordre : <code>s[i] = s[i - 1] + alpha * (y[i] -
+ * s[i - 1])</code>. Avec les temps des points, <code>alpha</code> d&eacute;pend
+ * de l'intervalle entre deux points pour une constante de temps fixe : un
+ * enregistrement irr&eacute;gulier (pause, perte GPS) n'est pas plus
+ * liss&eacute; qu'un enregistrement r&eacute;gulier. Le lissage introduit un
+ * retard de l'ordre de la constante de temps, {@link #filterTwoWay} applique
+ * le filtre dans les deux sens pour le supprimer.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public final class ExponentialSmoothing {
+
+  private ExponentialSmoothing() {
+  }
+
+  /**
+   * Applique un lissage exponentiel sur place.
+   *
+   * @param y
+   *          les donn&eacute;es, remplac&eacute;es par les donn&eacute;es
+   *          liss&eacute;es.
+   * @param alpha
+   *          le poids du nouveau point entre <code>0</code> (exclu) et
+   *          <code>1</code>.
+   */
+  public static void filter(double[] y, double alpha) {
+    if (alpha <= 0 || alpha > 1) {
+      throw new IllegalArgumentException("alpha=" + alpha);
+    }
+    for (int i = 1; i < y.length; i++) {
+      y[i] = y[i - 1] + alpha * (y[i] - y[i - 1]);
+    }
+  }
+
+  /**
+   * Applique un lissage exponentiel sur place.
+   *
+   * @param time
+   *          les temps des points en ms, croissants.
+   * @param y
+   *          les donn&eacute;es, remplac&eacute;es par les donn&eacute;es
+   *          liss&eacute;es.
+   * @param tau
+   *          la constante de temps en secondes.
+   */
+  public static void filter(long[] time, double[] y, double tau) {
+    if (tau <= 0) {
+      throw new IllegalArgumentException("tau=" + tau);
+    }
+    double tauMs = tau * 1000;
+    for (int i = 1; i < y.length; i++) {
+      double alpha = 1 - Math.exp(-(time[i] - time[i - 1]) / tauMs);
+      y[i] = y[i - 1] + alpha * (y[i] - y[i - 1]);
+    }
+  }
+
+  /**
+   * Applique un lissage exponentiel sur place dans les deux sens, sans
+   * retard.
+   *
+   * @param time
+   *          les temps des points en ms, croissants.
+   * @param y
+   *          les donn&eacute;es, remplac&eacute;es par les donn&eacute;es
+   *          liss&eacute;es.
+   * @param tau
+   *          la constante de temps en secondes.
+   */
+  public static void filterTwoWay(long[] time, double[] y, double tau) {
+    filter(time, y, tau);
+    double tauMs = tau * 1000;
+    for (int i = y.length - 2; i >= 0; i--) {
+      double alpha = 1 - Math.exp(-(time[i + 1] - time[i]) / tauMs);
+      y[i] = y[i + 1] + alpha * (y[i] - y[i + 1]);
+    }
+  }
+
+}
@@ -0,0 +1,68 @@
+package fr.turtlesport.filter;
+
+/**
+ * Lissage de Kalman d'une grandeur &agrave; variation al&eacute;atoire (vitesse
+ * GPS, fr&eacute;quence cardiaque).
+ * <p>
+ * Le mod&egrave;le est une marche al&eacute;atoire : la variance de la
+ * grandeur augmente de <code>q</code> par seconde entre deux points et
+ * chaque mesure a une variance <code>r</code>. Le filtre avant est suivi du
+ * lissage arri&egrave;re de Rauch-Tung-Striebel : chaque point tient compte
+ * des mesures pass&eacute;es et futures, sans retard. Le rapport
+ * <code>q / r</code> r&egrave;gle le lissage, les intervalles
+ * irr&eacute;guliers sont pris en compte.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public final class KalmanSmoothing {
+
+  private KalmanSmoothing() {
+  }
+
+  /**
+   * Applique le lissage sur place.
+   *
+   * @param time
+   *          les temps des points en ms, croissants, ou <code>null</code>
+   *          pour des points espac&eacute;s d'une seconde.
+   * @param y
+   *          les mesures, remplac&eacute;es par les donn&eacute;es
+   *          liss&eacute;es.
+   * @param q
+   *          la variance du processus par seconde.
+   * @param r
+   *          la variance des mesures.
+   */
+  public static void filter(long[] time, double[] y, double q, double r) {
+    if (q < 0 || r <= 0) {
+      throw new IllegalArgumentException("q=" + q + " r=" + r);
+    }
+    int n = y.length;
+    if (n < 2) {
+      return;
+    }
+
+    // gains du lissage arriere
+    double[] gain = new double[n - 1];
+
+    // filtre avant
+    double x = y[0];
+    double p = r;
+    for (int i = 1; i < n; i++) {
+      double dt = (time == null) ? 1 : (time[i] - time[i - 1]) / 1000.0;
+      double pPred = p + q * dt;
+      gain[i - 1] = (pPred == 0) ? 0 : p / pPred;
+      double k = pPred / (pPred + r);
+      x += k * (y[i] - x);
+      p = (1 - k) * pPred;
+      y[i] = x;
+    }
+
+    // lissage arriere : la prediction de i + 1 est l'estimation de i
+    for (int i = n - 2; i >= 0; i--) {
+      y[i] += gain[i] * (y[i + 1] - y[i]);
+    }
+  }
+
+}
@@ -0,0 +1,167 @@
+package fr.turtlesport.filter;
+
+import java.util.List;
+
+import fr.turtlesport.db.DataRunTrk;
+
+/**
+ * S&eacute;ries d&eacute;riv&eacute;es des points d'une course.
+ * <p>
+ * Les s&eacute;ries sont calcul&eacute;es une seule fois dans des tableaux
+ * de primitives, sans modifier les points : vitesse et allure
+ * liss&eacute;es, fr&eacute;quence cardiaque et altitude liss&eacute;es. La
+ * vitesse GPS est liss&eacute;e par {@link KalmanSmoothing} qui tient compte
+ * des intervalles entre les points : apr&egrave;s une pause ou une perte du
+ * signal la vitesse suit la mesure au lieu d'&ecirc;tre moyenn&eacute;e sur
+ * un nombre fixe de points. Les tableaux restitu&eacute;s sont
+ * partag&eacute;s et ne doivent pas &ecirc;tre modifi&eacute;s.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public final class RunSeries {
+
+  /** Variance de la vitesse par seconde en (km/h)<sup>2</sup>. */
+  public static final double SPEED_PROCESS_VARIANCE = 1;
+
+  /** Variance de la vitesse mesur&eacute;e en (km/h)<sup>2</sup>. */
+  public static final double SPEED_MEASURE_VARIANCE = 9;
+
+  private final long[]   time;
+
+  private final double[] distance;
+
+  private final double[] speed;
+
+  private final double[] pace;
+
+  private final double[] heartRate;
+
+  private final double[] altitude;
+
+  private RunSeries(int size) {
+    time = new long[size];
+    distance = new double[size];
+    speed = new double[size];
+    pace = new double[size];
+    heartRate = new double[size];
+    altitude = new double[size];
+  }
+
+  /**
+   * Calcul des s&eacute;ries.
+   *
+   * @param trks
+   *          les points de la course.
+   * @return les s&eacute;ries.
+   */
+  public static RunSeries compute(List<DataRunTrk> trks) {
+    int n = trks.size();
+    RunSeries series = new RunSeries(n);
+    if (n == 0) {
+      return series;
+    }
+
+    long time0 = trks.get(0).getTime().getTime();
+    for (int i = 0; i < n; i++) {
+      DataRunTrk p = trks.get(i);
+      // un point mal date ne doit pas donner une vitesse negative
+      long t = p.getTime().getTime() - time0;
+      series.time[i] = (i == 0) ? 0 : Math.max(series.time[i - 1], t);
+      series.distance[i] = p.getDistance();
+      series.heartRate[i] = p.getHeartRate();
+      series.altitude[i] = p.getAltitude();
+    }
+
+    // vitesse en km/h
+    double[] speed = series.speed;
+    for (int i = 1; i < n; i++) {
+      long dt = series.time[i] - series.time[i - 1];
+      double dd = series.distance[i] - series.distance[i - 1];
+      speed[i] = (dt == 0) ? 0 : (dd / dt) * 3600;
+    }
+    if (n > 1) {
+      speed[0] = speed[1];
+    }
+    KalmanSmoothing.filter(series.time,
+                           speed,
+                           SPEED_PROCESS_VARIANCE,
+                           SPEED_MEASURE_VARIANCE);
+    for (int i = 0; i < n; i++) {
+      if (speed[i] < 0) {
+        speed[i] = 0;
+      }
+      series.pace[i] = (speed[i] <= 0) ? 0 : (60 / speed[i]);
+    }
+
+    // frequence cardiaque
+    SavitzkyGolay.filter(series.heartRate,
+                         SavitzkyGolay.DEFAULT_HALF_WINDOW,
+                         SavitzkyGolay.DEFAULT_ORDER);
+
+    // altitude
+    double[] altitude = series.altitude;
+    SavitzkyGolay.filter(altitude,
+                         SavitzkyGolay.DEFAULT_HALF_WINDOW,
+                         SavitzkyGolay.DEFAULT_ORDER);
+    for (int i = 0; i < n; i++) {
+      if (altitude[i] < 0) {
+        altitude[i] = 0;
+      }
+    }
+
+    return series;
+  }
+
+  /**
+   * Restitue le nombre de points.
+   */
+  public int size() {
+    return time.length;
+  }
+
+  /**
+   * Restitue le temps &eacute;coul&eacute; depuis le premier point en ms,
+   * croissant.
+   */
+  public long[] getTime() {
+    return time;
+  }
+
+  /**
+   * Restitue la distance en m&egrave;tres.
+   */
+  public double[] getDistance() {
+    return distance;
+  }
+
+  /**
+   * Restitue la vitesse liss&eacute;e en km/h.
+   */
+  public double[] getSpeed() {
+    return speed;
+  }
+
+  /**
+   * Restitue l'allure liss&eacute;e en mn/km, <code>0</code> &agrave;
+   * l'arr&ecirc;t.
+   */
+  public double[] getPace() {
+    return pace;
+  }
+
+  /**
+   * Restitue la fr&eacute;quence cardiaque liss&eacute;e.
+   */
+  public double[] getHeartRate() {
+    return heartRate;
+  }
+
+  /**
+   * Restitue l'altitude liss&eacute;e en m&egrave;tres.
+   */
+  public double[] getAltitude() {
+    return altitude;
+  }
+
+}
@@ -0,0 +1,194 @@
+package fr.turtlesport.filter;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import fr.turtlesport.db.DataRunTrk;
+import fr.turtlesport.db.RunChangeListener;
+import fr.turtlesport.db.RunTrkTableManager;
+import fr.turtlesport.log.TurtleLogger;
+
+/**
+ * Calcul et cache des s&eacute;ries d&eacute;riv&eacute;es des courses.
+ * <p>
+ * Les s&eacute;ries sont calcul&eacute;es en t&acirc;che de fond d&egrave;s
+ * la demande et partag&eacute;es par tous les utilisateurs (diagrammes,
+ * zones, tableau des points). Les derni&egrave;res courses demand&eacute;es
+ * sont conserv&eacute;es jusqu'&agrave; la modification ou la suppression de
+ * leurs points.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public final class RunSeriesManager implements RunChangeListener {
+  private static TurtleLogger                    log;
+  static {
+    log = (TurtleLogger) TurtleLogger.getLogger(RunSeriesManager.class);
+  }
+
+  /** Nombre de courses conserv&eacute;es. */
+  private static final int                       MAX_RUNS  = 16;
+
+  private static RunSeriesManager                singleton = new RunSeriesManager();
+
+  private final Map<Integer, Future<RunSeries>> cache     = new LinkedHashMap<Integer, Future<RunSeries>>(MAX_RUNS + 1,
+                                                                                                         0.75f,
+                                                                                                         true) {
+                                                             @Override
+                                                             protected boolean removeEldestEntry(Map.Entry<Integer, Future<RunSeries>> eldest) {
+                                                               return size() > MAX_RUNS;
+                                                             }
+                                                           };
+
+  private final ExecutorService                  executor;
+
+  private RunSeriesManager() {
+    executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "RunSeries");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+
+  /**
+   * Restitue l'instance.
+   */
+  public static RunSeriesManager getInstance() {
+    return singleton;
+  }
+
+  /**
+   * Demande le calcul des s&eacute;ries d'une course, les points sont lus en
+   * base.
+   *
+   * @param idRun
+   *          l'id de la course.
+   * @return le calcul en cours ou termin&eacute;.
+   */
+  public Future<RunSeries> request(int idRun) {
+    return request(idRun, null);
+  }
+
+  /**
+   * Demande le calcul des s&eacute;ries d'une course.
+   *
+   * @param idRun
+   *          l'id de la course.
+   * @param trks
+   *          les points de la course, non modifi&eacute;s par la suite, ou
+   *          <code>null</code> pour les lire en base.
+   * @return le calcul en cours ou termin&eacute;.
+   */
+  public synchronized Future<RunSeries> request(final int idRun,
+                                                final List<DataRunTrk> trks) {
+    Future<RunSeries> future = cache.get(idRun);
+    if (future == null) {
+      future = executor.submit(new Callable<RunSeries>() {
+        public RunSeries call() throws Exception {
+          long deb = System.currentTimeMillis();
+          List<DataRunTrk> list = (trks == null) ? RunTrkTableManager
+              .getInstance().getAllTrks(idRun) : trks;
+          RunSeries series = RunSeries.compute(list);
+          if (log.isDebugEnabled()) {
+            log.debug("compute idRun=" + idRun + " (ms) --> "
+                      + (System.currentTimeMillis() - deb));
+          }
+          return series;
+        }
+      });
+      cache.put(idRun, future);
+    }
+    return future;
+  }
+
+  /**
+   * Restitue les s&eacute;ries d'une course, en attendant la fin du calcul.
+   *
+   * @param idRun
+   *          l'id de la course.
+   * @param trks
+   *          les points de la course ou <code>null</code> pour les lire en
+   *          base.
+   * @return les s&eacute;ries ou <code>null</code> si le calcul a
+   *         &eacute;chou&eacute;.
+   * @throws SQLException
+   */
+  public RunSeries getSeries(int idRun, List<DataRunTrk> trks) throws SQLException {
+    Future<RunSeries> future = request(idRun, trks);
+    try {
+      return future.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+    catch (ExecutionException e) {
+      remove(idRun, future);
+      if (e.getCause() instanceof SQLException) {
+        throw (SQLException) e.getCause();
+      }
+      log.error("idRun=" + idRun, e.getCause());
+      return null;
+    }
+  }
+
+  /**
+   * Restitue les s&eacute;ries d'une course, en attendant la fin du calcul.
+   *
+   * @param idRun
+   *          l'id de la course.
+   * @return les s&eacute;ries ou <code>null</code> si le calcul a
+   *         &eacute;chou&eacute;.
+   * @throws SQLException
+   */
+  public RunSeries getSeries(int idRun) throws SQLException {
+    return getSeries(idRun, null);
+  }
+
+  /**
+   * Les points d'une course ont &eacute;t&eacute; modifi&eacute;s.
+   */
+  public synchronized void runStored(int idRun) {
+    cache.remove(idRun);
+  }
+
+  /**
+   * Une course a &eacute;t&eacute; supprim&eacute;e.
+   */
+  public void runDeleted(int idRun) {
+    runStored(idRun);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.db.RunChangeListener#runsStored()
+   */
+  public void runsStored() {
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.db.RunChangeListener#runUpdated(int)
+   */
+  public void runUpdated(int idRun) {
+  }
+
+  private synchronized void remove(int idRun, Future<RunSeries> future) {
+    if (cache.get(idRun) == future) {
+      cache.remove(idRun);
+    }
+  }
+
+}
@@ -1,85 +1,180 @@
 package fr.turtlesport.filter;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
+ * Filtre de Savitzky-Golay.
+ * <p>
+ * Chaque point est remplac&eacute; par la valeur au centre du polyn&ocirc;me
+ * d'ordre donn&eacute; ajust&eacute; aux moindres carr&eacute;s sur une
+ * fen&ecirc;tre de <code>2 * halfWindow + 1</code> points. Les
+ * coefficients sont calcul&eacute;s une fois par couple fen&ecirc;tre/ordre,
+ * le filtrage se fait sur place : seules les <code>halfWindow</code>
+ * derni&egrave;res valeurs d'origine sont conserv&eacute;es. Les
+ * <code>halfWindow</code> premiers et derniers points ne sont pas
+ * modifi&eacute;s.
+ *
  * @author Denis Apparicio
- * 
+ *
  */
 public final class SavitzkyGolay {
 
-  // private static final double[] TABLE_COEFF1 = { -2 / 21.0,
-  // 3 / 21.0,
-  // 6 / 21.0,
-  // 7 / 21.0,
-  // 6 / 21.0,
-  // 3 / 21.0,
-  // -2 / 21.0 };
-
-  private static final double[] TABLE_COEFF2 = { -171 / 3059.0,
-      -76 / 3059.0,
-      9 / 3059.0,
-      84 / 3059.0,
-      149 / 3059.0,
-      204 / 3059.0,
-      249 / 3059.0,
-      284 / 3059.0,
-      309 / 3059.0,
-      324 / 3059.0,
-      329 / 3059.0,
-      324 / 3059.0,
-      309 / 3059.0,
-      284 / 3059.0,
-      249 / 3059.0,
-      204 / 3059.0,
-      149 / 3059.0,
-      84 / 3059.0,
-      9 / 3059.0,
-      -76 / 3059.0,
-      -171 / 3059.0                         };
+  /** Demi-fen&ecirc;tre par d&eacute;faut. */
+  public static final int                   DEFAULT_HALF_WINDOW = 10;
+
+  /** Ordre par d&eacute;faut. */
+  public static final int                   DEFAULT_ORDER       = 2;
+
+  private static final Map<Long, double[]> COEFFS              = new HashMap<Long, double[]>();
 
   /**
-   * 
+   *
    */
   private SavitzkyGolay() {
   }
 
   /**
-   * Applique un filtre de SavitzkyGolay.
-   * 
+   * Applique un filtre de SavitzkyGolay (21 points, ordre 2).
+   *
    * @param y
    *          les donn&eacute; d'&eacute;
    * @return les donn&eacute; apr&egrave;s filtre.
    */
   public static double[] filter(double[] y) {
-    double[] yl = new double[y.length];
+    double[] yl = y.clone();
+    filter(yl, DEFAULT_HALF_WINDOW, DEFAULT_ORDER);
+    return yl;
+  }
+
+  /**
+   * Applique un filtre de SavitzkyGolay sur place.
+   *
+   * @param y
+   *          les donn&eacute;es, remplac&eacute;es par les donn&eacute;es
+   *          filtr&eacute;es.
+   * @param halfWindow
+   *          la demi-fen&ecirc;tre.
+   * @param order
+   *          l'ordre du polyn&ocirc;me, inf&eacute;rieur &agrave;
+   *          <code>2 * halfWindow + 1</code>.
+   */
+  public static void filter(double[] y, int halfWindow, int order) {
+    double[] c = coefficients(halfWindow, order);
+    int m = halfWindow;
+    int n = y.length;
+    if (m == 0 || n < 2 * m + 1) {
+      return;
+    }
 
-    int len = TABLE_COEFF2.length;
-    int iInf = (len + 1) / 2 - 1;
-    int iSup = y.length - (len - 1) / 2;
+    // valeurs d'origine des m points precedents
+    double[] ring = new double[m];
+    System.arraycopy(y, 0, ring, 0, m);
+    int head = 0;
 
-    if (iInf > y.length) {
-      iInf = y.length;
+    for (int i = m; i < n - m; i++) {
+      double sum = 0;
+      int k = head;
+      for (int j = 0; j < m; j++) {
+        sum += c[j] * ring[k];
+        if (++k == m) {
+          k = 0;
+        }
+      }
+      for (int j = m; j < c.length; j++) {
+        sum += c[j] * y[i - m + j];
+      }
+      ring[head] = y[i];
+      if (++head == m) {
+        head = 0;
+      }
+      y[i] = sum;
     }
+  }
 
-    for (int i = 0; i < iInf; i++) {
-      yl[i] = y[i];
+  /**
+   * Restitue les coefficients de lissage.
+   *
+   * @param halfWindow
+   *          la demi-fen&ecirc;tre.
+   * @param order
+   *          l'ordre du polyn&ocirc;me.
+   * @return les <code>2 * halfWindow + 1</code> coefficients.
+   */
+  public static synchronized double[] coefficients(int halfWindow, int order) {
+    if (halfWindow < 0 || order < 0 || order > 2 * halfWindow) {
+      throw new IllegalArgumentException("halfWindow=" + halfWindow
+                                         + " order=" + order);
+    }
+    Long key = ((long) halfWindow << 32) | order;
+    double[] c = COEFFS.get(key);
+    if (c == null) {
+      c = computeCoefficients(halfWindow, order);
+      COEFFS.put(key, c);
     }
+    return c;
+  }
+
+  /**
+   * Moindres carr&eacute;s : les coefficients sont la premi&egrave;re ligne
+   * de <code>(A<sup>t</sup>A)<sup>-1</sup>A<sup>t</sup></code> avec
+   * <code>A[j][p] = (j / m)<sup>p</sup></code>.
+   */
+  private static double[] computeCoefficients(int m, int order) {
+    int len = 2 * m + 1;
+    int dim = order + 1;
+    double scale = (m == 0) ? 1 : m;
 
-    // Lissage
-    if (iSup > 0) {
-      double sum;
-      for (int i = iInf; i < iSup; i++) {
-        sum = 0;
-        for (int j = 0; j < len; j++) {
-          sum += y[i - iInf + j] * TABLE_COEFF2[j];
+    // matrice normale augmentee de e0
+    double[][] a = new double[dim][dim + 1];
+    for (int j = -m; j <= m; j++) {
+      double x = j / scale;
+      double[] pow = new double[2 * dim - 1];
+      pow[0] = 1;
+      for (int p = 1; p < pow.length; p++) {
+        pow[p] = pow[p - 1] * x;
+      }
+      for (int r = 0; r < dim; r++) {
+        for (int s = 0; s < dim; s++) {
+          a[r][s] += pow[r + s];
         }
-        yl[i] = sum;
       }
-      for (int i = iSup; i < y.length; i++) {
-        yl[i] = y[i];
+    }
+    a[0][dim] = 1;
+
+    // Gauss avec pivot partiel
+    for (int col = 0; col < dim; col++) {
+      int pivot = col;
+      for (int r = col + 1; r < dim; r++) {
+        if (Math.abs(a[r][col]) > Math.abs(a[pivot][col])) {
+          pivot = r;
+        }
+      }
+      double[] tmp = a[col];
+      a[col] = a[pivot];
+      a[pivot] = tmp;
+      for (int r = 0; r < dim; r++) {
+        if (r != col) {
+          double f = a[r][col] / a[col][col];
+          for (int s = col; s <= dim; s++) {
+            a[r][s] -= f * a[col][s];
+          }
+        }
       }
     }
 
-    return yl;
+    double[] c = new double[len];
+    for (int j = -m; j <= m; j++) {
+      double x = j / scale;
+      double pow = 1;
+      double sum = 0;
+      for (int p = 0; p < dim; p++) {
+        sum += a[p][dim] / a[p][p] * pow;
+        pow *= x;
+      }
+      c[j + m] = sum;
+    }
+    return c;
   }
 
 }
@@ -1,21 +1,30 @@
 package fr.turtlesport.filter;
 
-import fr.turtlesport.log.TurtleLogger;
+import java.util.Comparator;
+import java.util.TreeSet;
 
 /**
+ * Filtre m&eacute;dian glissant.
+ * <p>
+ * Chaque point est remplac&eacute; par la m&eacute;diane des points de la
+ * fen&ecirc;tre <code>[i - halfWindow, i + halfWindow]</code>, tronqu&eacute;e
+ * aux extr&eacute;mit&eacute;s. La fen&ecirc;tre est r&eacute;partie entre
+ * une moiti&eacute; basse et une moiti&eacute; haute tri&eacute;es : chaque
+ * d&eacute;placement ajoute et retire un point en
+ * <code>O(log halfWindow)</code>. Les pics isol&eacute;s (perte GPS, capteur
+ * cardiaque) sont supprim&eacute;s sans att&eacute;nuer les paliers.
+ *
  * @author Denis Apparicio
- * 
+ *
  */
 public final class SmoothMedian {
 
-  private static TurtleLogger log;
-  static {
-    log = (TurtleLogger) TurtleLogger.getLogger(SmoothMedian.class);
+  private SmoothMedian() {
   }
 
   /**
-   * Applique un filtre median.
-   * 
+   * Applique un filtre median sur 5 points.
+   *
    * @param y
    *          les donn&eacute; d'&eacute;
    * @return les donn&eacute; apr&egrave;s filtre.
@@ -26,37 +35,89 @@ public final class SmoothMedian {
 
   /**
    * Applique un filtre median.
-   * 
+   *
    * @param y
    *          les donn&eacute; d'&eacute;
-   * @param nb
+   * @param halfWindow
+   *          la demi-fen&ecirc;tre.
    * @return les donn&eacute; apr&egrave;s filtre.
    */
-  public static double[] filter(double[] y, int nb) {
-    log.error(">>filter nb=" + nb);
+  public static double[] filter(double[] y, int halfWindow) {
+    double[] yl = new double[y.length];
+    filter(y, halfWindow, yl);
+    return yl;
+  }
 
-    nb++;
+  /**
+   * Applique un filtre median.
+   *
+   * @param y
+   *          les donn&eacute; d'&eacute;
+   * @param halfWindow
+   *          la demi-fen&ecirc;tre.
+   * @param out
+   *          les donn&eacute; apr&egrave;s filtre, distinct de
+   *          <code>y</code>.
+   */
+  public static void filter(final double[] y, int halfWindow, double[] out) {
+    if (halfWindow < 0 || out == y || out.length < y.length) {
+      throw new IllegalArgumentException();
+    }
+    int n = y.length;
 
-    double[] yl = new double[y.length / nb + 1];
-    log.error("y.length=" + y.length);
-    log.error("yl.length=" + yl.length);
+    // ordre total : valeur puis indice
+    Comparator<Integer> comparator = new Comparator<Integer>() {
+      public int compare(Integer i1, Integer i2) {
+        int cmp = Double.compare(y[i1], y[i2]);
+        return (cmp != 0) ? cmp : i1.compareTo(i2);
+      }
+    };
+    TreeSet<Integer> low = new TreeSet<Integer>(comparator);
+    TreeSet<Integer> high = new TreeSet<Integer>(comparator);
 
-    double val = 0;
-    int j = 0;
-    for (int i = 0; i < y.length; i++) {
-      if (i % nb != 0) {
-        val += y[i];
+    for (int i = 0; i < Math.min(halfWindow, n); i++) {
+      add(low, high, i);
+    }
+    for (int i = 0; i < n; i++) {
+      int in = i + halfWindow;
+      if (in < n) {
+        add(low, high, in);
       }
-      else {
-        yl[j] = val / nb;
-        log.error(j + "=" + yl[j]);
-        j++;
-        val = 0;
+      int outIndex = i - halfWindow - 1;
+      if (outIndex >= 0) {
+        if (!low.remove(outIndex)) {
+          high.remove(outIndex);
+        }
+        balance(low, high);
       }
+
+      // low contient la mediane ou la moitie basse
+      out[i] = (low.size() > high.size()) ? y[low.last()]
+          : (y[low.last()] + y[high.first()]) / 2;
     }
+  }
 
-    log.error("j=" + j);
+  private static void add(TreeSet<Integer> low, TreeSet<Integer> high, int i) {
+    if (low.isEmpty() || low.comparator().compare(i, low.last()) <= 0) {
+      low.add(i);
+    }
+    else {
+      high.add(i);
+    }
+    balance(low, high);
+  }
 
-    return yl;
+  /**
+   * <code>low</code> contient autant de points que <code>high</code> ou un
+   * de plus.
+   */
+  private static void balance(TreeSet<Integer> low, TreeSet<Integer> high) {
+    if (low.size() > high.size() + 1) {
+      high.add(low.pollLast());
+    }
+    else if (high.size() > low.size()) {
+      low.add(high.pollFirst());
+    }
   }
+
 }
@@ -0,0 +1,156 @@
+package fr.turtlesport.geo;
+
+/**
+ * Simplification de trac&eacute; de Douglas-Peucker.
+ * <p>
+ * Au lieu de simplifier pour une tol&eacute;rance donn&eacute;e,
+ * l'importance de chaque point est calcul&eacute;e une seule fois :
+ * l'&eacute;cart au trac&eacute; simplifi&eacute; au moment o&ugrave; le point
+ * est retenu, born&eacute; par l'importance du point parent. Les points
+ * d'importance sup&eacute;rieure &agrave; une tol&eacute;rance sont
+ * exactement ceux que Douglas-Peucker conserve pour cette tol&eacute;rance :
+ * toutes les tol&eacute;rances sont ensuite obtenues par un simple filtre.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public final class DouglasPeucker {
+
+  /** Importance des points toujours conserv&eacute;s. */
+  public static final double FORCED = Double.MAX_VALUE;
+
+  private DouglasPeucker() {
+  }
+
+  /**
+   * Calcul de l'importance de chaque point.
+   *
+   * @param x
+   *          les abscisses (rep&egrave;re plan).
+   * @param y
+   *          les ordonn&eacute;es (rep&egrave;re plan).
+   * @param isForced
+   *          les points toujours conserv&eacute;s ou <code>null</code> ; le
+   *          premier et le dernier point sont toujours conserv&eacute;s.
+   * @return l'importance de chaque point.
+   */
+  public static double[] significance(double[] x, double[] y, boolean[] isForced) {
+    int n = x.length;
+    double[] significance = new double[n];
+    if (n == 0) {
+      return significance;
+    }
+
+    int[] stackFrom = new int[n];
+    int[] stackTo = new int[n];
+    double[] stackParent = new double[n];
+
+    int from = 0;
+    for (int to = 1; to < n; to++) {
+      if (to < n - 1 && (isForced == null || !isForced[to])) {
+        continue;
+      }
+
+      // sous-trace entre deux points conserves
+      int top = 0;
+      stackFrom[top] = from;
+      stackTo[top] = to;
+      stackParent[top] = FORCED;
+      top++;
+      while (top > 0) {
+        top--;
+        int a = stackFrom[top];
+        int b = stackTo[top];
+        double parent = stackParent[top];
+        if (b - a < 2) {
+          continue;
+        }
+
+        int index = -1;
+        double dmax = -1;
+        for (int i = a + 1; i < b; i++) {
+          double d = segmentDistance(x[i], y[i], x[a], y[a], x[b], y[b]);
+          if (d > dmax) {
+            dmax = d;
+            index = i;
+          }
+        }
+        double sig = Math.min(dmax, parent);
+        significance[index] = sig;
+
+        stackFrom[top] = a;
+        stackTo[top] = index;
+        stackParent[top] = sig;
+        top++;
+        stackFrom[top] = index;
+        stackTo[top] = b;
+        stackParent[top] = sig;
+        top++;
+      }
+      from = to;
+    }
+
+    significance[0] = FORCED;
+    significance[n - 1] = FORCED;
+    if (isForced != null) {
+      for (int i = 0; i < n; i++) {
+        if (isForced[i]) {
+          significance[i] = FORCED;
+        }
+      }
+    }
+    return significance;
+  }
+
+  /**
+   * Restitue les index des points conserv&eacute;s pour une tol&eacute;rance.
+   *
+   * @param significance
+   *          l'importance de chaque point.
+   * @param tolerance
+   *          la tol&eacute;rance.
+   * @return les index croissants des points conserv&eacute;s.
+   */
+  public static int[] select(double[] significance, double tolerance) {
+    int nb = 0;
+    for (double s : significance) {
+      if (s > tolerance) {
+        nb++;
+      }
+    }
+    int[] indexes = new int[nb];
+    int k = 0;
+    for (int i = 0; i < significance.length; i++) {
+      if (significance[i] > tolerance) {
+        indexes[k++] = i;
+      }
+    }
+    return indexes;
+  }
+
+  /**
+   * Distance d'un point &agrave; un segment.
+   */
+  public static double segmentDistance(double px,
+                                       double py,
+                                       double ax,
+                                       double ay,
+                                       double bx,
+                                       double by) {
+    double dx = bx - ax;
+    double dy = by - ay;
+    double len2 = dx * dx + dy * dy;
+    if (len2 == 0) {
+      return Math.hypot(px - ax, py - ay);
+    }
+    double t = ((px - ax) * dx + (py - ay) * dy) / len2;
+    if (t < 0) {
+      t = 0;
+    }
+    else if (t > 1) {
+      t = 1;
+    }
+    return Math.hypot(px - (ax + t * dx), py - (ay + t * dy));
+  }
+
+}
@@ -8,14 +8,36 @@ import fr.turtlesport.geo.garmin.tcx.TcxFile;
 import fr.turtlesport.geo.gpx.GpxFile;
 import fr.turtlesport.geo.suunto.SuuntoFile;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import fr.turtlesport.log.TurtleLogger;
 
 /**
  * @author Denis Apparicio
  * 
  */
 public final class FactoryGeoLoad {
+  private static TurtleLogger log;
+  static {
+    log = (TurtleLogger) TurtleLogger.getLogger(FactoryGeoLoad.class);
+  }
 
   /** Pour conversion gpx. */
   public static final String GPX = "gpx";
@@ -32,6 +54,18 @@ public final class FactoryGeoLoad {
   /** Pour conversion Suunto. */
   public static final String XML = "xml";
 
+  /**
+   * Taille &agrave; partir de laquelle un fichier est lu en flux, sans
+   * conserver les points.
+   */
+  public static final long   STREAM_LENGTH = 4 * 1024 * 1024;
+
+  /** Fichier compress&eacute; gzip. */
+  public static final String GZ            = "gz";
+
+  /** Archive zip. */
+  public static final String ZIP           = "zip";
+
   
   private FactoryGeoLoad() {
   }
@@ -83,17 +117,242 @@ public final class FactoryGeoLoad {
     }
 
     // recuperation de l'extension
-    String ext = null;
-    String s = file.getName();
-    int i = s.lastIndexOf('.');
-    if (i > 0 && i < s.length() - 1) {
-      ext = s.substring(i + 1).toLowerCase();
+    String ext = extension(file.getName());
+
+    // fichier compresse et archive
+    if (GZ.equals(ext)) {
+      return loadGzip(file, productDevice);
+    }
+    if (ZIP.equals(ext)) {
+      return loadZip(file, productDevice);
     }
 
     IGeoFile geo = getInstance(ext);
     return geo.load(file, productDevice);
   }
 
+  /**
+   * D&eacute;termine si le fichier est un fichier compress&eacute; ou une
+   * archive.
+   */
+  public static boolean isArchive(File file) {
+    String ext = extension(file.getName());
+    return GZ.equals(ext) || ZIP.equals(ext);
+  }
+
+  /**
+   * Lecture d'un fichier compress&eacute; (<code>.gpx.gz</code>,
+   * <code>.tcx.gz</code>, ...) sans d&eacute;compression sur disque.
+   */
+  private static IGeoRoute[] loadGzip(File file, IProductDevice productDevice) throws FileNotFoundException,
+                                                                             GeoLoadException {
+    String name = file.getName();
+    IGeoInputStreamFile geo = getInputStreamInstance(name.substring(0, name
+        .length() - GZ.length() - 1));
+    if (geo == null) {
+      throw new GeoLoadException("format non supporte : " + name);
+    }
+
+    InputStream in = null;
+    try {
+      in = new GZIPInputStream(new BufferedInputStream(new FileInputStream(file)));
+      return geo.load(in, productDevice);
+    }
+    catch (FileNotFoundException e) {
+      throw e;
+    }
+    catch (IOException e) {
+      log.error("", e);
+      throw new GeoLoadException(e);
+    }
+    finally {
+      if (in != null) {
+        try {
+          in.close();
+        }
+        catch (IOException e) {
+          log.error("", e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Lecture d'une archive zip. Les entr&eacute;es sont lues en
+   * parall&egrave;le, directement depuis l'archive.
+   */
+  private static IGeoRoute[] loadZip(File file,
+                                     final IProductDevice productDevice) throws GeoLoadException {
+    final ZipFile zip;
+    try {
+      zip = new ZipFile(file);
+    }
+    catch (IOException e) {
+      log.error("", e);
+      throw new GeoLoadException(e);
+    }
+
+    ExecutorService executor = null;
+    try {
+      // lecture des entrees
+      List<Future<IGeoRoute[]>> futures = new ArrayList<Future<IGeoRoute[]>>();
+      List<ZipEntry> entries = new ArrayList<ZipEntry>();
+      for (Enumeration<? extends ZipEntry> e = zip.entries(); e
+          .hasMoreElements();) {
+        ZipEntry entry = e.nextElement();
+        if (!entry.isDirectory()
+            && getInputStreamInstance(entry.getName()) != null) {
+          entries.add(entry);
+        }
+        else if (log.isDebugEnabled()) {
+          log.debug("entry ignored " + entry.getName());
+        }
+      }
+      if (entries.isEmpty()) {
+        return new IGeoRoute[0];
+      }
+
+      int nbThreads = Math.min(entries.size(), Runtime.getRuntime()
+          .availableProcessors());
+      executor = Executors.newFixedThreadPool(nbThreads);
+      for (final ZipEntry entry : entries) {
+        futures.add(executor.submit(new Callable<IGeoRoute[]>() {
+          public IGeoRoute[] call() throws Exception {
+            IGeoInputStreamFile geo = getInputStreamInstance(entry.getName());
+            InputStream in = new BufferedInputStream(zip.getInputStream(entry));
+            try {
+              return geo.load(in, productDevice);
+            }
+            finally {
+              in.close();
+            }
+          }
+        }));
+      }
+
+      // resultats dans l'ordre de l'archive
+      List<IGeoRoute> list = new ArrayList<IGeoRoute>();
+      GeoLoadException error = null;
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          IGeoRoute[] routes = futures.get(i).get();
+          if (routes != null) {
+            Collections.addAll(list, routes);
+          }
+        }
+        catch (ExecutionException e) {
+          log.error(entries.get(i).getName(), e.getCause());
+          if (error == null) {
+            error = (e.getCause() instanceof GeoLoadException) ? (GeoLoadException) e
+                .getCause()
+                : new GeoLoadException(e.getCause());
+          }
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new GeoLoadException(e);
+        }
+      }
+
+      // aucune entree lisible
+      if (list.isEmpty() && error != null) {
+        throw error;
+      }
+      return list.toArray(new IGeoRoute[list.size()]);
+    }
+    finally {
+      if (executor != null) {
+        executor.shutdownNow();
+      }
+      try {
+        zip.close();
+      }
+      catch (IOException e) {
+        log.error("", e);
+      }
+    }
+  }
+
+  /**
+   * Restitue une instance pouvant lire ce fichier depuis un flux.
+   * 
+   * @param name
+   *          le nom du fichier.
+   * @return une instance ou <code>null</code>.
+   */
+  private static IGeoInputStreamFile getInputStreamInstance(String name) {
+    String ext = extension(name);
+    if (ext == null) {
+      return null;
+    }
+    try {
+      IGeoFile geo = getInstance(ext);
+      return (geo instanceof IGeoInputStreamFile) ? (IGeoInputStreamFile) geo
+          : null;
+    }
+    catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private static String extension(String name) {
+    int i = name.lastIndexOf('.');
+    if (i > 0 && i < name.length() - 1) {
+      return name.substring(i + 1).toLowerCase();
+    }
+    return null;
+  }
+
+  /**
+   * Restitue les pistes. Si le fichier est volumineux et que son format le
+   * permet, seul un r&eacute;sum&eacute; des pistes est restitu&eacute; (
+   * {@link GeoRouteSummary}) : les points seront relus lors de
+   * l'enregistrement.
+   * 
+   * @param file
+   *          le fichier
+   * @return les pistes.
+   * @throws FileNotFoundException
+   *           si fichier non trouv&eacute;
+   * @throws GeoLoadException
+   */
+  public static IGeoRoute[] getRoutesSummary(File file,
+                                             IProductDevice productDevice) throws FileNotFoundException,
+                                                                          GeoLoadException {
+    if (file == null || !file.isFile()) {
+      throw new FileNotFoundException();
+    }
+    if (isArchive(file)) {
+      return getRoutes(file, productDevice);
+    }
+
+    IGeoFile geo = getInstance(extension(file.getName()));
+    if (!(geo instanceof IGeoStreamFile) || file.length() < STREAM_LENGTH) {
+      return geo.load(file, productDevice);
+    }
+
+    final List<IGeoRoute> list = new ArrayList<IGeoRoute>();
+    ((IGeoStreamFile) geo).load(file, productDevice, new IGeoRouteHandler() {
+      public void beginRoute(IGeoRoute route) {
+      }
+
+      public void point(IGeoRoute route, IGeoPositionWithAlt point) {
+      }
+
+      public void endSegment(IGeoRoute route, IGeoSegment segment) {
+      }
+
+      public void endRoute(IGeoRoute route) {
+        if (((GeoRouteSummary) route).getPointSize() > 0) {
+          list.add(route);
+        }
+      }
+    });
+
+    IGeoRoute[] rep = new IGeoRoute[list.size()];
+    return list.toArray(rep);
+  }
+
   private static boolean isIn(String[] ext, String theExt) {
     for (String s : ext) {
       if (s.equalsIgnoreCase(theExt)) {
@@ -0,0 +1,386 @@
+package fr.turtlesport.geo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import fr.turtlesport.UsbPacketInputStream;
+import fr.turtlesport.device.IProductDevice;
+import fr.turtlesport.log.TurtleLogger;
+import fr.turtlesport.util.GeoUtil;
+
+/**
+ * R&eacute;sum&eacute; d'une route lue en flux.
+ * <p>
+ * Seuls les totaux (date de d&eacute;but, distance, dur&eacute;e, nombre de
+ * points) sont conserv&eacute;s : les points sont relus depuis le fichier au
+ * moment de l'enregistrement (voir {@link IGeoStreamFile}).
+ *
+ * @author Denis Apparicio
+ *
+ */
+public class GeoRouteSummary extends AbstractGeoRoute {
+  private static TurtleLogger     log;
+  static {
+    log = (TurtleLogger) TurtleLogger.getLogger(GeoRouteSummary.class);
+  }
+
+  private IGeoStreamFile          geoFile;
+
+  private File                    file;
+
+  private int                     index;
+
+  private IProductDevice          productDevice;
+
+  private String                  name;
+
+  private Date                    firstDate;
+
+  private Date                    lastDate;
+
+  private boolean                 hasPointsDate = true;
+
+  private double                  distance;
+
+  private int                     pointSize;
+
+  private IGeoPositionWithAlt     lastPoint;
+
+  private List<IGeoSegment>       segments      = new ArrayList<IGeoSegment>();
+
+  private GeoSegmentSummary       currentSegment;
+
+  private Date                    newStartTime;
+
+  private long                    newTotalTime  = -1;
+
+  /**
+   * @param geoFile
+   *          le format du fichier.
+   * @param file
+   *          le fichier.
+   * @param index
+   *          la position de la route dans le fichier.
+   */
+  public GeoRouteSummary(IGeoStreamFile geoFile, File file, int index) {
+    super();
+    this.geoFile = geoFile;
+    this.file = file;
+    this.index = index;
+  }
+
+  /**
+   * Restitue le format du fichier.
+   */
+  public IGeoStreamFile getGeoFile() {
+    return geoFile;
+  }
+
+  /**
+   * Restitue le fichier.
+   */
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Restitue la position de la route dans le fichier.
+   */
+  public int index() {
+    return index;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.IGeoRoute#getProductDevice()
+   */
+  public IProductDevice getProductDevice() {
+    return productDevice;
+  }
+
+  /**
+   * Valorise le produit.
+   */
+  public void setProductDevice(IProductDevice productDevice) {
+    this.productDevice = productDevice;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.IGeoRoute#getName()
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Valorise le nom.
+   */
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Ajoute un point au r&eacute;sum&eacute;.
+   *
+   * @param point
+   *          le point.
+   * @return la distance cumul&eacute;e en m&egrave;tres.
+   */
+  public double addPoint(IGeoPositionWithAlt point) {
+    if (lastPoint != null) {
+      distance += GeoUtil.computeDistance(lastPoint, point);
+    }
+    lastPoint = point;
+
+    Date date = point.getDate();
+    if (date == null || date.before(UsbPacketInputStream.date1989())) {
+      hasPointsDate = false;
+    }
+    else {
+      if (firstDate == null) {
+        firstDate = date;
+      }
+      lastDate = date;
+    }
+
+    if (currentSegment == null) {
+      currentSegment = new GeoSegmentSummary(segments.size());
+    }
+    currentSegment.add(point);
+    pointSize++;
+
+    return distance;
+  }
+
+  /**
+   * Termine le segment courant.
+   *
+   * @return le segment termin&eacute; ou <code>null</code> si le segment
+   *         n'a pas de points.
+   */
+  public GeoSegmentSummary endSegment() {
+    GeoSegmentSummary seg = currentSegment;
+    currentSegment = null;
+    if (seg != null) {
+      segments.add(seg);
+    }
+    return seg;
+  }
+
+  /**
+   * Restitue le nombre de points.
+   */
+  public int getPointSize() {
+    return pointSize;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.IGeoRoute#getAllPoints()
+   */
+  public List<IGeoPositionWithAlt> getAllPoints() {
+    return Collections.emptyList();
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.IGeoRoute#getSegmentSize()
+   */
+  public int getSegmentSize() {
+    return segments.size();
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.IGeoRoute#getSegment(int)
+   */
+  public IGeoSegment getSegment(int index) {
+    return segments.get(index);
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.IGeoRoute#getSegments()
+   */
+  public List<IGeoSegment> getSegments() {
+    return segments;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.AbstractGeoRoute#distanceTot()
+   */
+  @Override
+  public double distanceTot() {
+    return distance;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.AbstractGeoRoute#hasPointsDate()
+   */
+  @Override
+  public boolean hasPointsDate() {
+    return pointSize > 0 && hasPointsDate;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.AbstractGeoRoute#totalTime()
+   */
+  @Override
+  public long totalTime() {
+    if (newTotalTime != -1) {
+      return newTotalTime;
+    }
+    if (!hasPointsDate()) {
+      return -1;
+    }
+    return lastDate.getTime() - firstDate.getTime();
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.AbstractGeoRoute#getStartTime()
+   */
+  @Override
+  public Date getStartTime() {
+    return (newStartTime != null) ? newStartTime : firstDate;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.AbstractGeoRoute#setStartTime(java.util.Date)
+   */
+  @Override
+  public void setStartTime(Date date) {
+    log.debug(">>setStartTime");
+
+    checkStartTime(date);
+    if (firstDate == null) {
+      log.warn("dateOrigin est null");
+      return;
+    }
+    if (Math.abs(date.getTime() - getStartTime().getTime()) >= 1000) {
+      newStartTime = date;
+    }
+
+    log.debug("<<setStartTime");
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.AbstractGeoRoute#setTotalTime(long)
+   */
+  @Override
+  public void setTotalTime(long totalTime) {
+    log.debug(">>setTotalTime totalTime=" + totalTime);
+
+    if (totalTime < 1000) {
+      throw new IllegalArgumentException("totalTime=" + totalTime);
+    }
+    if (hasPointsDate()
+        && Math.abs((double) (totalTime() - totalTime)) > 1000) {
+      newTotalTime = totalTime;
+    }
+
+    log.debug("<<setTotalTime");
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.AbstractGeoRoute#update(java.util.Date, long)
+   */
+  @Override
+  public void update(Date startTime, long totalTime) {
+    if (log.isDebugEnabled()) {
+      log.debug(">>update startTime=" + startTime + " ; totalTime="
+                + totalTime);
+    }
+
+    checkStartTime(startTime);
+    if (totalTime < 1000) {
+      throw new IllegalArgumentException("totalTime=" + totalTime);
+    }
+
+    if (hasPointsDate()) {
+      setStartTime(startTime);
+      setTotalTime(totalTime);
+    }
+    else {
+      // les dates seront calculees avec la distance
+      newStartTime = startTime;
+      newTotalTime = totalTime;
+    }
+
+    log.debug("<<update");
+  }
+
+  /**
+   * Applique &agrave; un point relu les modifications de date et de
+   * dur&eacute;e de cette route.
+   *
+   * @param point
+   *          le point relu.
+   * @param distance
+   *          la distance cumul&eacute;e du point.
+   */
+  public void adjust(IGeoPositionWithAlt point, double distance) {
+    if (newStartTime == null && newTotalTime == -1) {
+      return;
+    }
+
+    if (hasPointsDate()) {
+      long origin = firstDate.getTime();
+      long start = getStartTime().getTime();
+      double ratio = 1.0;
+      long timeTotOrigin = lastDate.getTime() - origin;
+      if (newTotalTime != -1 && timeTotOrigin > 0) {
+        ratio = newTotalTime / (double) timeTotOrigin;
+      }
+      long delay = point.getDate().getTime() - origin;
+      point.setDate(new Date(start + (long) (delay * ratio)));
+    }
+    else if (newStartTime != null) {
+      double speed = (newTotalTime > 0) ? this.distance / newTotalTime : 0;
+      if (speed <= 0 || Double.isNaN(distance) || point.isInvalidPosition()) {
+        point.setDate(newStartTime);
+      }
+      else {
+        point.setDate(new Date((long) (newStartTime.getTime() + distance
+                                                                 / speed)));
+      }
+    }
+  }
+
+  private void checkStartTime(Date date) {
+    if (date == null) {
+      throw new IllegalArgumentException("date est null");
+    }
+    if (date.after(new Date())) {
+      throw new IllegalArgumentException("date est apres la date du jour");
+    }
+    if (date.before(UsbPacketInputStream.date1989())) {
+      throw new IllegalArgumentException("date est avant "
+                                         + UsbPacketInputStream.date1989());
+    }
+  }
+
+}
@@ -0,0 +1,185 @@
+package fr.turtlesport.geo;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import fr.turtlesport.UsbPacketInputStream;
+import fr.turtlesport.util.GeoUtil;
+
+/**
+ * R&eacute;sum&eacute; d'un segment lu en flux : les totaux sont
+ * calcul&eacute;s au fil des points, qui ne sont pas conserv&eacute;s.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public class GeoSegmentSummary implements IGeoSegment {
+
+  private int                 index;
+
+  private Date                startTime;
+
+  private Date                firstDate;
+
+  private Date                lastDate;
+
+  private double              distance;
+
+  private int                 pointSize;
+
+  private long                sumHeartRate;
+
+  private int                 maxHeartRate;
+
+  private IGeoPositionWithAlt lastPoint;
+
+  /**
+   * @param index
+   *          l'index du segment.
+   */
+  public GeoSegmentSummary(int index) {
+    super();
+    this.index = index;
+  }
+
+  /**
+   * Ajoute un point au r&eacute;sum&eacute;.
+   *
+   * @param point
+   *          le point.
+   */
+  public void add(IGeoPositionWithAlt point) {
+    if (lastPoint != null) {
+      distance += GeoUtil.computeDistance(lastPoint, point);
+    }
+    lastPoint = point;
+
+    Date date = point.getDate();
+    if (date != null) {
+      if (firstDate == null) {
+        firstDate = date;
+      }
+      lastDate = date;
+      if (startTime == null && date.after(UsbPacketInputStream.date1989())) {
+        startTime = date;
+      }
+    }
+
+    sumHeartRate += (point.getHeartRate() < 0) ? 0 : point.getHeartRate();
+    maxHeartRate = Math.max(maxHeartRate, point.getHeartRate());
+    pointSize++;
+  }
+
+  /**
+   * Restitue le nombre de points.
+   *
+   * @return le nombre de points.
+   */
+  public int getPointSize() {
+    return pointSize;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.IGeoSegment#index()
+   */
+  public int index() {
+    return index;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.IGeoSegment#getStartTime()
+   */
+  public Date getStartTime() {
+    return startTime;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.IGeoSegment#setStartTime(java.util.Date)
+   */
+  public void setStartTime(Date startTime) {
+    this.startTime = startTime;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.IGeoSegment#getTotalTime()
+   */
+  public long getTotalTime() {
+    if (pointSize < 2 || firstDate == null) {
+      return 0;
+    }
+    return lastDate.getTime() - firstDate.getTime();
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.IGeoSegment#getTotalPauseTime()
+   */
+  public long getTotalPauseTime() {
+    return 0;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.IGeoSegment#distance()
+   */
+  public double distance() {
+    return distance;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.IGeoSegment#getCalories()
+   */
+  public int getCalories() {
+    return 0;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.IGeoSegment#getMaxSpeed()
+   */
+  public double getMaxSpeed() {
+    return 0;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.IGeoSegment#getAvgHeartRate()
+   */
+  public int getAvgHeartRate() {
+    return (pointSize == 0) ? -1 : (int) (sumHeartRate / pointSize);
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.IGeoSegment#getMaxHeartRate()
+   */
+  public int getMaxHeartRate() {
+    return (pointSize == 0) ? -1 : maxHeartRate;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.geo.IGeoSegment#getPoints()
+   */
+  public List<IGeoPositionWithAlt> getPoints() {
+    return Collections.emptyList();
+  }
+
+}
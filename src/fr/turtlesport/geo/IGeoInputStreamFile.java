@@ -0,0 +1,27 @@
+package fr.turtlesport.geo;
+
+import java.io.InputStream;
+
+import fr.turtlesport.device.IProductDevice;
+
+/**
+ * Format de fichier pouvant &ecirc;tre lu depuis un flux (fichier
+ * compress&eacute;, entr&eacute;e d'une archive).
+ * 
+ * @author Denis Apparicio
+ * 
+ */
+public interface IGeoInputStreamFile extends IGeoFile {
+
+  /**
+   * Lecture depuis un flux. Le flux n'est pas ferm&eacute;.
+   * 
+   * @param in
+   *          le flux.
+   * @param productDevice
+   * @return les routes lues.
+   * @throws GeoLoadException
+   */
+  IGeoRoute[] load(InputStream in, IProductDevice productDevice) throws GeoLoadException;
+
+}
@@ -0,0 +1,54 @@
+package fr.turtlesport.geo;
+
+/**
+ * Traitement en flux des routes d'un fichier.
+ * <p>
+ * Les points sont transmis au fur et &agrave; mesure de la lecture et ne sont
+ * pas conserv&eacute;s par le lecteur.
+ * 
+ * @author Denis Apparicio
+ * 
+ */
+public interface IGeoRouteHandler {
+
+  /**
+   * D&eacute;but d'une route.
+   * 
+   * @param route
+   *          la route en cours de lecture.
+   * @throws GeoLoadException
+   */
+  void beginRoute(IGeoRoute route) throws GeoLoadException;
+
+  /**
+   * Lecture d'un point.
+   * 
+   * @param route
+   *          la route en cours de lecture.
+   * @param point
+   *          le point.
+   * @throws GeoLoadException
+   */
+  void point(IGeoRoute route, IGeoPositionWithAlt point) throws GeoLoadException;
+
+  /**
+   * Fin d'un segment.
+   * 
+   * @param route
+   *          la route en cours de lecture.
+   * @param segment
+   *          le r&eacute;sum&eacute; du segment.
+   * @throws GeoLoadException
+   */
+  void endSegment(IGeoRoute route, IGeoSegment segment) throws GeoLoadException;
+
+  /**
+   * Fin d'une route.
+   * 
+   * @param route
+   *          la route lue.
+   * @throws GeoLoadException
+   */
+  void endRoute(IGeoRoute route) throws GeoLoadException;
+
+}
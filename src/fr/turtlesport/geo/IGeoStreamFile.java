@@ -0,0 +1,29 @@
+package fr.turtlesport.geo;
+
+import fr.turtlesport.device.IProductDevice;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+
+/**
+ * Fichier pouvant &ecirc;tre lu en flux.
+ * 
+ * @author Denis Apparicio
+ */
+public interface IGeoStreamFile extends IGeoFile {
+
+  /**
+   * Lecture en flux.
+   * <p>
+   * Les routes transmises au <code>handler</code> sont des
+   * {@link GeoRouteSummary}.
+   * 
+   * @param file
+   * @param productDevice
+   * @param handler
+   * @throws GeoLoadException
+   * @throws FileNotFoundException
+   */
+  void load(File file, IProductDevice productDevice, IGeoRouteHandler handler) throws GeoLoadException,
+                                                                              FileNotFoundException;
+}
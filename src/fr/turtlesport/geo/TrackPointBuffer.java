@@ -0,0 +1,560 @@
+package fr.turtlesport.geo;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.RandomAccess;
+
+import fr.turtlesport.protocol.data.PositionType;
+import fr.turtlesport.util.GeoUtil;
+import fr.turtlesport.util.Wgs84;
+
+/**
+ * Stockage compact de points : une colonne de type primitif par champ au lieu
+ * d'un objet par point.
+ * <p>
+ * Les points sont restitu&eacute;s par des vues l&eacute;g&egrave;res (
+ * {@link #get(int)}, {@link #asList()}) qui lisent et &eacute;crivent
+ * directement dans les tableaux. Les latitudes et longitudes sont
+ * stock&eacute;es en semi-cercles Garmin.
+ * <p>
+ * Chaque acc&egrave;s &agrave; une vue alloue un objet : les boucles sur
+ * tous les points utilisent les accesseurs par colonne (
+ * {@link #getLatitude(int)}, {@link #getHeartRate(int)}, ...).
+ *
+ * @author Denis Apparicio
+ *
+ */
+public class TrackPointBuffer {
+
+  /** Pas de date. */
+  private static final long NO_TIME       = Long.MIN_VALUE;
+
+  private static final int  DEFAULT_SIZE  = 256;
+
+  private long[]            time;
+
+  private int[]             lat;
+
+  private int[]             lon;
+
+  private float[]           alt;
+
+  private float[]           dist;
+
+  private float[]           speed;
+
+  private short[]           hr;
+
+  private short[]           cad;
+
+  private short[]           temp;
+
+  private boolean[]         sensor;
+
+  private int               size;
+
+  /**
+   *
+   */
+  public TrackPointBuffer() {
+    this(DEFAULT_SIZE);
+  }
+
+  /**
+   * @param capacity
+   *          la capacit&eacute; initiale.
+   */
+  public TrackPointBuffer(int capacity) {
+    super();
+    allocate(Math.max(capacity, 1));
+  }
+
+  private void allocate(int capacity) {
+    time = (time == null) ? new long[capacity] : Arrays.copyOf(time, capacity);
+    lat = (lat == null) ? new int[capacity] : Arrays.copyOf(lat, capacity);
+    lon = (lon == null) ? new int[capacity] : Arrays.copyOf(lon, capacity);
+    alt = (alt == null) ? new float[capacity] : Arrays.copyOf(alt, capacity);
+    dist = (dist == null) ? new float[capacity] : Arrays
+        .copyOf(dist, capacity);
+    speed = (speed == null) ? new float[capacity] : Arrays.copyOf(speed,
+                                                                  capacity);
+    hr = (hr == null) ? new short[capacity] : Arrays.copyOf(hr, capacity);
+    cad = (cad == null) ? new short[capacity] : Arrays.copyOf(cad, capacity);
+    temp = (temp == null) ? new short[capacity] : Arrays
+        .copyOf(temp, capacity);
+    sensor = (sensor == null) ? new boolean[capacity] : Arrays
+        .copyOf(sensor, capacity);
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > time.length) {
+      allocate(Math.max(capacity, time.length + (time.length >> 1)));
+    }
+  }
+
+  /**
+   * Restitue le nombre de points.
+   *
+   * @return le nombre de points.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Ajuste la taille des tableaux au nombre de points.
+   */
+  public void trimToSize() {
+    if (size > 0 && size < time.length) {
+      allocate(size);
+    }
+  }
+
+  /**
+   * Ajoute un point.
+   *
+   * @param p
+   *          le point.
+   * @return l'index du point.
+   */
+  public int add(IGeoPositionWithAlt p) {
+    int index = add(p.getDate(),
+                    p.getLatitude(),
+                    p.getLongitude(),
+                    p.getElevation(),
+                    p.getDistanceMeters(),
+                    p.getHeartRate(),
+                    p.getCadence(),
+                    p.getTemperature());
+    speed[index] = p.getSpeed();
+    sensor[index] = p.hasSensor();
+    return index;
+  }
+
+  /**
+   * Ajoute un point.
+   *
+   * @return l'index du point.
+   */
+  public int add(Date date,
+                 double latitude,
+                 double longitude,
+                 double elevation,
+                 double distance,
+                 int heartRate,
+                 int cadence,
+                 int temperature) {
+    ensureCapacity(size + 1);
+    int index = size++;
+    time[index] = (date == null) ? NO_TIME : date.getTime();
+    lat[index] = toGarmin(latitude, true);
+    lon[index] = toGarmin(longitude, false);
+    alt[index] = (float) elevation;
+    dist[index] = (float) distance;
+    speed[index] = -1;
+    hr[index] = (short) heartRate;
+    cad[index] = (short) cadence;
+    temp[index] = (short) temperature;
+    sensor[index] = false;
+    return index;
+  }
+
+  /**
+   * Ajoute un point au format Garmin (semi-cercles).
+   *
+   * @return l'index du point.
+   */
+  public int addGarmin(long time,
+                       int latitude,
+                       int longitude,
+                       float elevation,
+                       float distance,
+                       int heartRate,
+                       int cadence,
+                       int temperature,
+                       boolean hasSensor) {
+    ensureCapacity(size + 1);
+    int index = size++;
+    this.time[index] = time;
+    lat[index] = latitude;
+    lon[index] = longitude;
+    alt[index] = elevation;
+    dist[index] = distance;
+    speed[index] = -1;
+    hr[index] = (short) heartRate;
+    cad[index] = (short) cadence;
+    temp[index] = (short) temperature;
+    sensor[index] = hasSensor;
+    return index;
+  }
+
+  /**
+   * Ajoute une copie d'un point d'un autre buffer.
+   *
+   * @param src
+   *          le buffer source.
+   * @param index
+   *          l'index du point dans le buffer source.
+   * @return l'index du point.
+   */
+  public int add(TrackPointBuffer src, int index) {
+    int i = addGarmin(src.time[index],
+                      src.lat[index],
+                      src.lon[index],
+                      src.alt[index],
+                      src.dist[index],
+                      src.hr[index],
+                      src.cad[index],
+                      src.temp[index],
+                      src.sensor[index]);
+    speed[i] = src.speed[index];
+    return i;
+  }
+
+  /**
+   * Restitue une vue sur le point &agrave; l'index sp&eacute;cifi&eacute;.
+   *
+   * @param index
+   *          l'index du point.
+   * @return une vue sur le point.
+   */
+  public IGeoPositionWithAlt get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+                                          + size);
+    }
+    return new Point(index);
+  }
+
+  /**
+   * Restitue la liste des points (vues).
+   */
+  public List<IGeoPositionWithAlt> asList() {
+    return new PointList(0, size);
+  }
+
+  /**
+   * Restitue une partie de la liste des points (vues).
+   *
+   * @param fromIndex
+   *          index inclus.
+   * @param toIndex
+   *          index exclus.
+   */
+  public List<IGeoPositionWithAlt> asList(int fromIndex, int toIndex) {
+    if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+      throw new IndexOutOfBoundsException("fromIndex=" + fromIndex
+                                          + ", toIndex=" + toIndex
+                                          + ", Size: " + size);
+    }
+    return new PointList(fromIndex, toIndex);
+  }
+
+  /**
+   * Restitue la date en millisecondes ou <code>Long.MIN_VALUE</code> si pas
+   * de date.
+   */
+  public long getTime(int index) {
+    return time[index];
+  }
+
+  /**
+   * Restitue la date ou <code>null</code> si pas de date.
+   */
+  public Date getDate(int index) {
+    return (time[index] == NO_TIME) ? null : new Date(time[index]);
+  }
+
+  /**
+   * Restitue la latitude en degr&eacute;.
+   */
+  public double getLatitude(int index) {
+    return fromGarmin(lat[index]);
+  }
+
+  /**
+   * Restitue la longitude en degr&eacute;.
+   */
+  public double getLongitude(int index) {
+    return fromGarmin(lon[index]);
+  }
+
+  /**
+   * D&eacute;termine si la position est invalide.
+   */
+  public boolean isInvalidPosition(int index) {
+    return GeoUtil.isInvalidGarminGpx(lat[index])
+           && GeoUtil.isInvalidGarminGpx(lon[index]);
+  }
+
+  /**
+   * Restitue la latitude en semi-cercle.
+   */
+  public int getGarminLatitude(int index) {
+    return lat[index];
+  }
+
+  /**
+   * Restitue la longitude en semi-cercle.
+   */
+  public int getGarminLongitude(int index) {
+    return lon[index];
+  }
+
+  /**
+   * Restitue l'altitude en m&egrave;tres.
+   */
+  public float getAltitude(int index) {
+    return alt[index];
+  }
+
+  /**
+   * Valorise l'altitude en m&egrave;tres.
+   */
+  public void setAltitude(int index, float value) {
+    alt[index] = value;
+  }
+
+  /**
+   * Restitue la distance en m&egrave;tres.
+   */
+  public float getDistance(int index) {
+    return dist[index];
+  }
+
+  /**
+   * Valorise la distance en m&egrave;tres.
+   */
+  public void setDistance(int index, float value) {
+    dist[index] = value;
+  }
+
+  /**
+   * Restitue la vitesse ou <code>-1</code>.
+   */
+  public float getSpeed(int index) {
+    return speed[index];
+  }
+
+  /**
+   * Restitue la fr&eacute;quence cardiaque.
+   */
+  public int getHeartRate(int index) {
+    return hr[index];
+  }
+
+  /**
+   * Valorise la fr&eacute;quence cardiaque.
+   */
+  public void setHeartRate(int index, int value) {
+    hr[index] = (short) value;
+  }
+
+  /**
+   * Restitue la cadence.
+   */
+  public int getCadence(int index) {
+    return cad[index];
+  }
+
+  /**
+   * Restitue la temp&eacute;rature.
+   */
+  public int getTemperature(int index) {
+    return temp[index];
+  }
+
+  /**
+   * D&eacute;termine si le capteur est pr&eacute;sent.
+   */
+  public boolean hasSensor(int index) {
+    return sensor[index];
+  }
+
+  /**
+   * Calcule la distance en m&egrave;tres entre 2 points.
+   *
+   * @return la distance ou 0 si une des positions est invalide.
+   */
+  public double computeDistance(int index1, int index2) {
+    return computeDistance(this, index1, this, index2);
+  }
+
+  /**
+   * Calcule la distance en m&egrave;tres entre les points de 2 buffers.
+   *
+   * @return la distance ou 0 si une des positions est invalide.
+   */
+  public static double computeDistance(TrackPointBuffer b1,
+                                       int index1,
+                                       TrackPointBuffer b2,
+                                       int index2) {
+    if (b1.isInvalidPosition(index1) || b2.isInvalidPosition(index2)) {
+      return 0;
+    }
+    return Wgs84.computeWsg84(b1.getLatitude(index1),
+                              b1.getLongitude(index1),
+                              b2.getLatitude(index2),
+                              b2.getLongitude(index2));
+  }
+
+  private static int toGarmin(double value, boolean isLatitude) {
+    if (Double.isNaN(value)) {
+      return PositionType.INVALID;
+    }
+    return isLatitude ? GeoUtil.makeLatitudeFromGeo(value) : GeoUtil
+        .makeLongitudeFromGeo(value);
+  }
+
+  private static double fromGarmin(int value) {
+    if (GeoUtil.isInvalidGarminGpx(value)) {
+      return IGeoPosition.INVALID_POS;
+    }
+    return GeoUtil.makeLatitudeFromGarmin(value);
+  }
+
+  /**
+   * Liste de vues.
+   */
+  private class PointList extends AbstractList<IGeoPositionWithAlt> implements
+                                                                   RandomAccess {
+    private int from;
+
+    private int to;
+
+    public PointList(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public IGeoPositionWithAlt get(int index) {
+      if (index < 0 || index >= to - from) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+                                            + (to - from));
+      }
+      return new Point(from + index);
+    }
+
+    @Override
+    public int size() {
+      return to - from;
+    }
+  }
+
+  /**
+   * Vue sur un point du buffer.
+   */
+  private class Point implements IGeoPositionWithAlt {
+    private final int index;
+
+    public Point(int index) {
+      this.index = index;
+    }
+
+    public boolean isInvalidPosition() {
+      return TrackPointBuffer.this.isInvalidPosition(index);
+    }
+
+    public double getLatitude() {
+      return TrackPointBuffer.this.getLatitude(index);
+    }
+
+    public double getLongitude() {
+      return TrackPointBuffer.this.getLongitude(index);
+    }
+
+    public void setLatitude(double latitude) {
+      lat[index] = toGarmin(latitude, true);
+    }
+
+    public void setLongitude(double longitude) {
+      lon[index] = toGarmin(longitude, false);
+    }
+
+    public Date getDate() {
+      return TrackPointBuffer.this.getDate(index);
+    }
+
+    public void setDate(Date date) {
+      if (date == null) {
+        throw new IllegalArgumentException();
+      }
+      time[index] = date.getTime();
+    }
+
+    public String geoPosition() {
+      if (isInvalidPosition()) {
+        return null;
+      }
+      return GeoUtil.geoPosition(getLatitude(), getLongitude());
+    }
+
+    public int getHeartRate() {
+      return hr[index];
+    }
+
+    public float getSpeed() {
+      return speed[index];
+    }
+
+    public double getDistanceMeters() {
+      return dist[index];
+    }
+
+    public int getCadence() {
+      return cad[index];
+    }
+
+    public int getTemperature() {
+      return temp[index];
+    }
+
+    public boolean hasSensor() {
+      return sensor[index];
+    }
+
+    public double getElevation() {
+      return alt[index];
+    }
+
+    public boolean isValidElevation() {
+      return !Float.isNaN(alt[index]);
+    }
+
+    public boolean isValidDistance() {
+      return !Float.isNaN(dist[index]);
+    }
+
+    public boolean isValidCadence() {
+      return cad[index] >= 0 && cad[index] < 0xFF;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Point)) {
+        return false;
+      }
+      Point p = (Point) obj;
+      return p.index == index && p.buffer() == buffer();
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(buffer()) * 31 + index;
+    }
+
+    private TrackPointBuffer buffer() {
+      return TrackPointBuffer.this;
+    }
+
+    @Override
+    public String toString() {
+      return "[" + getLatitude() + ", " + getLongitude() + ", "
+             + getElevation() + ", " + getDate() + "]";
+    }
+  }
+
+}
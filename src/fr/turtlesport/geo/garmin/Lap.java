@@ -7,6 +7,7 @@ import java.util.List;
 
 import fr.turtlesport.geo.AbstractGeoSegment;
 import fr.turtlesport.geo.IGeoPositionWithAlt;
+import fr.turtlesport.geo.TrackPointBuffer;
 
 /**
  * @author Denis Apparicio
@@ -89,13 +90,15 @@ public class Lap extends AbstractGeoSegment {
     if (averageHeartRateBpm == 0) {
       if (avgHeartRate == -1) {
         avgHeartRate = 0;
-        List<IGeoPositionWithAlt> list = getPoints();
-        if (list != null) {
+        if (listTrack != null) {
           int nb = 0;
-          for (IGeoPositionWithAlt geo : list) {
-            if (geo.getHeartRate() > 0) {
-              avgHeartRate += geo.getHeartRate();
-              nb++;
+          for (Track t : listTrack) {
+            TrackPointBuffer points = t.getTrackPointBuffer();
+            for (int i = 0; i < t.getTrackPointSize(); i++) {
+              if (points.getHeartRate(i) > 0) {
+                avgHeartRate += points.getHeartRate(i);
+                nb++;
+              }
             }
           }
           if (nb != 0) {
@@ -132,11 +135,11 @@ public class Lap extends AbstractGeoSegment {
     if (maximumHeartRateBpm == 0) {
       if (maxHeartRate == -1) {
         maxHeartRate = 0;
-        List<IGeoPositionWithAlt> list = getPoints();
-        if (list != null) {
-          for (IGeoPositionWithAlt geo : list) {
-            if (geo.getHeartRate() > maxHeartRate) {
-              maxHeartRate = geo.getHeartRate();
+        if (listTrack != null) {
+          for (Track t : listTrack) {
+            TrackPointBuffer points = t.getTrackPointBuffer();
+            for (int i = 0; i < t.getTrackPointSize(); i++) {
+              maxHeartRate = Math.max(maxHeartRate, points.getHeartRate(i));
             }
           }
         }
@@ -165,11 +168,7 @@ public class Lap extends AbstractGeoSegment {
     List<IGeoPositionWithAlt> list = new ArrayList<IGeoPositionWithAlt>();
     if (listTrack != null) {
       for (Track t : listTrack) {
-        if (t.getTrackPoints() != null) {
-          for (TrackPoint p : t.getTrackPoints()) {
-            list.add(p);
-          }
-        }
+        list.addAll(t.getTrackPoints());
       }
     }
     return list;
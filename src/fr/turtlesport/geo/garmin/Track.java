@@ -1,15 +1,17 @@
 package fr.turtlesport.geo.garmin;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import fr.turtlesport.geo.IGeoPositionWithAlt;
+import fr.turtlesport.geo.TrackPointBuffer;
+
 /**
  * @author Denis Apparicio
  * 
  */
 public class Track {
-  private ArrayList<TrackPoint> listTrackPoint;
+  private TrackPointBuffer buffer;
 
   /**
    * 
@@ -24,13 +26,13 @@ public class Track {
    * @param p
    *          le point.
    */
-  public void addPoint(TrackPoint p) {
-    if (listTrackPoint == null) {
+  public void addPoint(IGeoPositionWithAlt p) {
+    if (buffer == null) {
       synchronized (Track.class) {
-        listTrackPoint = new ArrayList<TrackPoint>();
+        buffer = new TrackPointBuffer();
       }
     }
-    listTrackPoint.add(p);
+    buffer.add(p);
   }
 
   /**
@@ -38,11 +40,11 @@ public class Track {
    * 
    * @return la liste des points.
    */
-  public List<TrackPoint> getTrackPoints() {
-    if (listTrackPoint == null) {
+  public List<IGeoPositionWithAlt> getTrackPoints() {
+    if (buffer == null) {
       return Collections.emptyList();
     }
-    return listTrackPoint;
+    return buffer.asList();
   }
 
   /**
@@ -52,11 +54,20 @@ public class Track {
    *          l'index du point.
    * @throws IndexOutofBoundException
    */
-  public TrackPoint getTrackPoint(int index) {
-    if (listTrackPoint == null) {
+  public IGeoPositionWithAlt getTrackPoint(int index) {
+    if (buffer == null) {
       throw new IndexOutOfBoundsException("size =0, index=" + index);
     }
-    return listTrackPoint.get(index);
+    return buffer.get(index);
+  }
+
+  /**
+   * Restitue les points, pour un acc&egrave;s par colonne.
+   * 
+   * @return les points ou <code>null</code> si pas de points.
+   */
+  public TrackPointBuffer getTrackPointBuffer() {
+    return buffer;
   }
 
   /**
@@ -65,7 +76,7 @@ public class Track {
    * @return le nombre de points.
    */
   public int getTrackPointSize() {
-    return (listTrackPoint == null) ? 0 : listTrackPoint.size();
+    return (buffer == null) ? 0 : buffer.size();
   }
 
 }
@@ -14,6 +14,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -24,7 +25,7 @@ import java.util.List;
  * @author Denis Apparicio
  * 
  */
-public class FitFile implements IGeoFile, IGeoConvertRun {
+public class FitFile implements IGeoInputStreamFile, IGeoConvertRun {
   private static TurtleLogger  log;
   static {
     log = (TurtleLogger) TurtleLogger.getLogger(FitFile.class);
@@ -135,10 +136,28 @@ public class FitFile implements IGeoFile, IGeoConvertRun {
    */
   public IGeoRoute[] load(File file, IProductDevice productDevice) throws GeoLoadException,
                                     FileNotFoundException {
-    IGeoRoute[] geos = null;
-
     // Lecture
     FileInputStream fis = new FileInputStream(file);
+    try {
+      return load(fis, productDevice);
+    }
+    finally {
+      try {
+        fis.close();
+      }
+      catch (IOException e) {
+      }
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.geo.IGeoInputStreamFile#load(java.io.InputStream,
+   * fr.turtlesport.device.IProductDevice)
+   */
+  public IGeoRoute[] load(InputStream fis, IProductDevice productDevice) throws GeoLoadException {
+    IGeoRoute[] geos = null;
 
     try {
       Decode decode = new Decode();
@@ -165,13 +184,6 @@ public class FitFile implements IGeoFile, IGeoConvertRun {
     catch(Throwable e) {
       throw new GeoLoadException(e);
     }
-    finally {
-      try {
-        fis.close();
-      }
-      catch (IOException e) {
-      }
-    }
 
     return geos;
   }
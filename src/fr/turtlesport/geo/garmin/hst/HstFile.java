@@ -828,9 +828,7 @@ public class HstFile implements IGeoFile, IGeoConvertRun {
       ArrayList<IGeoPositionWithAlt> list = new ArrayList<IGeoPositionWithAlt>();
       for (Lap lap : run.getLaps()) {
         for (Track trk : lap.getTracks()) {
-          for (TrackPoint p : trk.getTrackPoints()) {
-            list.add(p);
-          }
+          list.addAll(trk.getTrackPoints());
         }
       }
       return list;
@@ -37,7 +37,7 @@ import java.util.*;
  * @author Denis Apparicio
  * 
  */
-public class TcxFile implements IGeoFile, IGeoConvertRun {
+public class TcxFile implements IGeoInputStreamFile, IGeoConvertRun {
   private static TurtleLogger  log;
   static {
     log = (TurtleLogger) TurtleLogger.getLogger(TcxFile.class);
@@ -383,13 +383,54 @@ public class TcxFile implements IGeoFile, IGeoConvertRun {
    */
   public IGeoRoute[] load(File file, IProductDevice device) throws GeoLoadException,
                                     FileNotFoundException {
+    // Lecture
+    FileInputStream fis = new FileInputStream(file);
+    try {
+      return load(fis, new StreamSource(file));
+    }
+    finally {
+      try {
+        fis.close();
+      }
+      catch (IOException e) {
+        log.error("", e);
+      }
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.geo.IGeoInputStreamFile#load(java.io.InputStream,
+   * fr.turtlesport.device.IProductDevice)
+   */
+  public IGeoRoute[] load(InputStream in, IProductDevice device) throws GeoLoadException {
+    // le flux est lu deux fois (validation puis parsing) : lecture en
+    // memoire
+    byte[] content;
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buf = new byte[8192];
+      int len;
+      while ((len = in.read(buf)) != -1) {
+        out.write(buf, 0, len);
+      }
+      content = out.toByteArray();
+    }
+    catch (IOException e) {
+      log.error("", e);
+      throw new GeoLoadException(e);
+    }
+
+    return load(new ByteArrayInputStream(content),
+                new StreamSource(new ByteArrayInputStream(content)));
+  }
+
+  private IGeoRoute[] load(InputStream fis, StreamSource source) throws GeoLoadException {
     log.debug(">>load");
 
     IGeoRoute[] rep;
 
-    // Lecture
-    FileInputStream fis = new FileInputStream(file);
-
     TcxHandler handler = null;
     try {
       // Validation schema
@@ -399,7 +440,7 @@ public class TcxFile implements IGeoFile, IGeoConvertRun {
           .getResourceAsStream("TrainingCenterDatabasev2.xsd"));
       Schema schema = factory.newSchema(ss);
       Validator validator = schema.newValidator();
-      validator.validate(new StreamSource(file));
+      validator.validate(source);
 
       // Recuperation du parser
       SAXParserFactory spf = SAXParserFactory.newInstance();
@@ -1090,9 +1131,7 @@ public class TcxFile implements IGeoFile, IGeoConvertRun {
       ArrayList<IGeoPositionWithAlt> list = new ArrayList<IGeoPositionWithAlt>();
       for (Lap lap : activity.getLaps()) {
         for (Track trk : lap.getTracks()) {
-          for (TrackPoint p : trk.getTrackPoints()) {
-            list.add(p);
-          }
+          list.addAll(trk.getTrackPoints());
         }
       }
       return list;
@@ -1,9 +1,6 @@
 package fr.turtlesport.geo.gpx;
 
-import java.util.List;
-
 import fr.turtlesport.geo.AbstractGeoSegment;
-import fr.turtlesport.geo.IGeoPositionWithAlt;
 
 /**
  * @author Denis Apparicio
@@ -19,17 +16,28 @@ public abstract class AbstractGpxSegment extends AbstractGeoSegment {
     super(index);
   }
 
+  /**
+   * Restitue le nombre de points du segment.
+   */
+  protected abstract int pointSize();
+
+  /**
+   * Restitue la fr&eacute;quence cardiaque d'un point du segment.
+   */
+  protected abstract int heartRate(int index);
+
   private synchronized void computeHeart() {
     if (avgHeartRate == -1) {
-      List<IGeoPositionWithAlt> points = getPoints();
-      if (points != null && points.size() > 0) {
+      int size = pointSize();
+      if (size > 0) {
         long avg = 0;
         maxHeartRate = 0;
-        for (IGeoPositionWithAlt p : points) {
-          avg += (p.getHeartRate() < 0) ? 0 : p.getHeartRate();
-          maxHeartRate = Math.max(maxHeartRate, p.getHeartRate());
+        for (int i = 0; i < size; i++) {
+          int hr = heartRate(i);
+          avg += (hr < 0) ? 0 : hr;
+          maxHeartRate = Math.max(maxHeartRate, hr);
         }
-        avgHeartRate = (int) (avg / points.size());
+        avgHeartRate = (int) (avg / size);
       }
     }
   }
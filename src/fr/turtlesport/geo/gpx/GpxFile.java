@@ -13,6 +13,7 @@ import fr.turtlesport.util.Location;
 import fr.turtlesport.util.XmlUtil;
 import org.xml.sax.Attributes;
 import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 import org.xml.sax.helpers.DefaultHandler;
 
@@ -30,7 +31,8 @@ import java.util.TimeZone;
  * @author Denis Apparicio
  * 
  */
-public class GpxFile implements IGeoFile, IGeoConvertRun, IGeoConvertCourse {
+public class GpxFile implements IGeoStreamFile, IGeoInputStreamFile,
+    IGeoConvertRun, IGeoConvertCourse {
   private static TurtleLogger  log;
   static {
     log = (TurtleLogger) TurtleLogger.getLogger(GpxFile.class);
@@ -378,13 +380,32 @@ public class GpxFile implements IGeoFile, IGeoConvertRun, IGeoConvertCourse {
    */
   public IGeoRoute[] load(File file, IProductDevice productDevice) throws GeoLoadException,
                                     FileNotFoundException {
+    // Lecture
+    FileInputStream fis = new FileInputStream(file);
+    try {
+      return load(fis, productDevice);
+    }
+    finally {
+      try {
+        fis.close();
+      }
+      catch (IOException e) {
+        log.error("", e);
+      }
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.geo.IGeoInputStreamFile#load(java.io.InputStream,
+   * fr.turtlesport.device.IProductDevice)
+   */
+  public IGeoRoute[] load(InputStream fis, IProductDevice productDevice) throws GeoLoadException {
     log.debug(">>load");
 
     IGeoRoute[] rep;
 
-    // Lecture
-    FileInputStream fis = new FileInputStream(file);
-
     GpxHandler handler = null;
     try {
       SAXParserFactory factory = SAXParserFactory.newInstance();
@@ -434,6 +455,62 @@ public class GpxFile implements IGeoFile, IGeoConvertRun, IGeoConvertCourse {
     return rep;
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.geo.IGeoStreamFile#load(java.io.File,
+   * fr.turtlesport.device.IProductDevice,
+   * fr.turtlesport.geo.IGeoRouteHandler)
+   */
+  public void load(File file,
+                   IProductDevice productDevice,
+                   IGeoRouteHandler routeHandler) throws GeoLoadException,
+                                                 FileNotFoundException {
+    log.debug(">>load stream");
+
+    if (routeHandler == null) {
+      throw new IllegalArgumentException("routeHandler est null");
+    }
+
+    // Lecture
+    InputStream in = new BufferedInputStream(new FileInputStream(file));
+    try {
+      SAXParserFactory factory = SAXParserFactory.newInstance();
+      factory.setNamespaceAware(true);
+      SAXParser parser = factory.newSAXParser();
+
+      GpxHandler handler = new GpxHandler(file, productDevice, routeHandler);
+      parser.parse(in, handler);
+
+      if (log.isDebugEnabled()) {
+        log.debug("handler.nbTrk=" + handler.nbTrk);
+        log.debug("handler.nbTrkseg=" + handler.nbTrkseg);
+        log.debug("handler.nbTrkpt=" + handler.nbTrkpt);
+      }
+    }
+    catch (SAXException e) {
+      if (e.getException() instanceof GeoLoadException) {
+        throw (GeoLoadException) e.getException();
+      }
+      log.error("", e);
+      throw new GeoLoadException(e);
+    }
+    catch (Exception e) {
+      log.error("", e);
+      throw new GeoLoadException(e);
+    }
+    finally {
+      try {
+        in.close();
+      }
+      catch (IOException e) {
+        log.error("", e);
+      }
+    }
+
+    log.debug("<<load stream");
+  }
+
   private void writeBegin(File file, long startTime, BufferedWriter writer) throws IOException {
     writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
     writeln(writer);
@@ -627,6 +704,17 @@ public class GpxFile implements IGeoFile, IGeoConvertRun, IGeoConvertCourse {
 
     private String sportType;
 
+    // lecture en flux
+    private IGeoRouteHandler routeHandler;
+
+    private File             file;
+
+    private IProductDevice   productDevice;
+
+    private GeoRouteSummary  currentSummary;
+
+    private int              nbRoute  = 0;
+
     /**
      * 
      */
@@ -635,6 +723,19 @@ public class GpxFile implements IGeoFile, IGeoConvertRun, IGeoConvertCourse {
 
     }
 
+    /**
+     * Lecture en flux : les points sont transmis &agrave;
+     * <code>routeHandler</code> sans &ecirc;tre conserv&eacute;s.
+     */
+    public GpxHandler(File file,
+                      IProductDevice productDevice,
+                      IGeoRouteHandler routeHandler) {
+      super();
+      this.file = file;
+      this.productDevice = productDevice;
+      this.routeHandler = routeHandler;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -644,7 +745,7 @@ public class GpxFile implements IGeoFile, IGeoConvertRun, IGeoConvertCourse {
     public void startElement(String uri,
                              String localName,
                              String qName,
-                             Attributes attrs) throws SAXParseException {
+                             Attributes attrs) throws SAXException {
       log.debug(">>startElement uri=" + uri + " localName=" + localName
                 + " qName=" + localName);
 
@@ -665,6 +766,7 @@ public class GpxFile implements IGeoFile, IGeoConvertRun, IGeoConvertCourse {
       if (localName.equals("rte")) {
         currentRte = new Rte();
         isRte = true;
+        beginRoute();
       }
 
       // rtept
@@ -689,6 +791,7 @@ public class GpxFile implements IGeoFile, IGeoConvertRun, IGeoConvertCourse {
         currentTrk = new Trk();
         nbTrk++;
         isTrk = true;
+        beginRoute();
       }
       // trkseg
       if (localName.equals("trkseg") && isTrk) {
@@ -723,7 +826,7 @@ public class GpxFile implements IGeoFile, IGeoConvertRun, IGeoConvertCourse {
      * @see org.xml.sax.helpers.DefaultHandler#endElement(java.lang.String,
      * java.lang.String, java.lang.String)
      */
-    public void endElement(String uri, String localName, String qName) {
+    public void endElement(String uri, String localName, String qName) throws SAXException {
       log.debug(">>endElement uri=" + uri + " localName=" + localName
                 + " qName=" + qName);
 
@@ -814,7 +917,12 @@ public class GpxFile implements IGeoFile, IGeoConvertRun, IGeoConvertCourse {
       if (localName.equals("rte")) {
         isRte = false;
         log.debug("currentRte.getRteptSize()=" + currentRte.getRteptSize());
-        if (currentRte.getRteptSize() > 0) {
+        if (routeHandler != null) {
+          currentSummary.setName(currentRte.getName());
+          endSegment();
+          endRoute();
+        }
+        else if (currentRte.getRteptSize() > 0) {
           addRte(currentRte);
         }
       }
@@ -822,13 +930,23 @@ public class GpxFile implements IGeoFile, IGeoConvertRun, IGeoConvertCourse {
       // -------------------------
       else if (localName.equals("rtept")) {
         isRtept = false;
-        currentRte.addRtept(currentRtept);
+        if (routeHandler != null) {
+          point(currentRtept);
+        }
+        else {
+          currentRte.addRtept(currentRtept);
+        }
       }
       // trk
       // -------------------------
       else if (localName.equals("trk")) {
         isTrk = false;
-        if (currentTrk.getTrkSize() > 0) {
+        if (routeHandler != null) {
+          currentSummary.setName(currentTrk.getName());
+          currentSummary.setSportType(currentTrk.getSportType());
+          endRoute();
+        }
+        else if (currentTrk.getTrkSize() > 0) {
           addTrk(currentTrk);
         }
       }
@@ -843,14 +961,22 @@ public class GpxFile implements IGeoFile, IGeoConvertRun, IGeoConvertCourse {
       // ------------
       else if (localName.equals("trkpt")) {
         isTrkpt = false;
-        currentTrkseg.addTrk(currentTrkpt);
+        if (routeHandler != null) {
+          point(currentTrkpt);
+        }
+        else {
+          currentTrkseg.addTrk(currentTrkpt);
+        }
       }
       // trkseg
       // -----------------
       else if (localName.equals("trkseg")) {
         isTrkseg = false;
         log.debug("currentTrkseg.getTrkSize()=" + currentTrkseg.getTrkSize());
-        if (currentTrkseg.getTrkSize() > 0) {
+        if (routeHandler != null) {
+          endSegment();
+        }
+        else if (currentTrkseg.getTrkSize() > 0) {
           currentTrk.addTrkseg(currentTrkseg);
         }
       }
@@ -889,6 +1015,75 @@ public class GpxFile implements IGeoFile, IGeoConvertRun, IGeoConvertCourse {
       log.debug("<<characters ");
     }
 
+    /**
+     * Lecture en flux : d&eacute;but d'une route.
+     */
+    private void beginRoute() throws SAXException {
+      if (routeHandler == null) {
+        return;
+      }
+
+      IProductDevice device = productDevice;
+      if (productDevice == null && creator != null
+          && !ProductDeviceUtil.isKnown(creator)) {
+        device = new GPXDevice(creator);
+      }
+      currentSummary = new GeoRouteSummary(GpxFile.this, file, nbRoute++);
+      currentSummary.setProductDevice(device);
+      try {
+        routeHandler.beginRoute(currentSummary);
+      }
+      catch (GeoLoadException e) {
+        throw new SAXException(e);
+      }
+    }
+
+    /**
+     * Lecture en flux : transmission d'un point.
+     */
+    private void point(Wpt point) throws SAXException {
+      boolean isFirst = (currentSummary.getPointSize() == 0);
+      double distance = currentSummary.addPoint(point);
+      if (!isFirst) {
+        point.setDistanceMeters(distance);
+      }
+      try {
+        routeHandler.point(currentSummary, point);
+      }
+      catch (GeoLoadException e) {
+        throw new SAXException(e);
+      }
+    }
+
+    /**
+     * Lecture en flux : fin d'un segment.
+     */
+    private void endSegment() throws SAXException {
+      IGeoSegment seg = currentSummary.endSegment();
+      if (seg == null) {
+        return;
+      }
+      try {
+        routeHandler.endSegment(currentSummary, seg);
+      }
+      catch (GeoLoadException e) {
+        throw new SAXException(e);
+      }
+    }
+
+    /**
+     * Lecture en flux : fin d'une route.
+     */
+    private void endRoute() throws SAXException {
+      try {
+        routeHandler.endRoute(currentSummary);
+      }
+      catch (GeoLoadException e) {
+        throw new SAXException(e);
+      }
+      currentSummary = null;
+    }
+
     /**
      * Ajoute une route.
      */
@@ -221,6 +221,26 @@ public class Rte extends AbstractGeoRoute {
       return getAllPoints();
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see fr.turtlesport.geo.gpx.AbstractGpxSegment#pointSize()
+     */
+    @Override
+    protected int pointSize() {
+      return (listRtept == null) ? 0 : listRtept.size();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see fr.turtlesport.geo.gpx.AbstractGpxSegment#heartRate(int)
+     */
+    @Override
+    protected int heartRate(int index) {
+      return listRtept.get(index).getHeartRate();
+    }
+
   }
 
 }
@@ -7,7 +7,7 @@ import fr.turtlesport.device.IProductDevice;
 import fr.turtlesport.geo.AbstractGeoRoute;
 import fr.turtlesport.geo.IGeoPositionWithAlt;
 import fr.turtlesport.geo.IGeoSegment;
-import fr.turtlesport.util.GeoUtil;
+import fr.turtlesport.geo.TrackPointBuffer;
 
 /**
  * @author Denis Apparicio
@@ -56,16 +56,12 @@ public class Trk extends AbstractGeoRoute {
    * @see fr.turtlesport.geo.IGeoRoute#getAllPoints()
    */
   public List<IGeoPositionWithAlt> getAllPoints() {
-    ArrayList<IGeoPositionWithAlt> list = new ArrayList<IGeoPositionWithAlt>();
+    ArrayList<IGeoPositionWithAlt> list = new ArrayList<IGeoPositionWithAlt>(getTrkSize());
     if (listTrkseg != null) {
+      computeDistance();
       for (Trkseg seg : listTrkseg) {
-        if (seg.getListPoints() != null) {
-          for (Wpt p : seg.getListPoints()) {
-            list.add(p);
-          }
-        }
+        list.addAll(seg.getPoints());
       }
-      computeDistance(list);
     }
     return list;
   }
@@ -184,23 +180,27 @@ public class Trk extends AbstractGeoRoute {
    * Mis &agrave; jour des distances.
    */
   private void computeDistance() {
-    if (!isComputeDistanceDone) {
-      getAllPoints();
-    }
-  }
-
-  /**
-   * Mis &agrave; jour des distances.
-   */
-  private void computeDistance(List<IGeoPositionWithAlt> list) {
-    if (isComputeDistanceDone) {
+    if (isComputeDistanceDone || listTrkseg == null) {
       return;
     }
 
+    // par colonne, les segments se suivent
     double distance = 0;
-    for (int i = 1; i < list.size(); i++) {
-      distance += GeoUtil.computeDistance(list.get(i - 1), list.get(i));
-      ((Wpt) list.get(i)).setDistanceMeters(distance);
+    TrackPointBuffer prev = null;
+    int prevIndex = 0;
+    for (Trkseg seg : listTrkseg) {
+      TrackPointBuffer points = seg.getTrackPointBuffer();
+      for (int i = 0; i < seg.getTrkSize(); i++) {
+        if (prev != null) {
+          distance += TrackPointBuffer.computeDistance(prev,
+                                                       prevIndex,
+                                                       points,
+                                                       i);
+          seg.setDistance(i, distance);
+        }
+        prev = points;
+        prevIndex = i;
+      }
     }
     isComputeDistanceDone = true;
   }
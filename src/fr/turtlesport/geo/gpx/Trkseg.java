@@ -1,20 +1,34 @@
 package fr.turtlesport.geo.gpx;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
 
 import fr.turtlesport.geo.IGeoPositionWithAlt;
+import fr.turtlesport.geo.TrackPointBuffer;
 
 /**
+ * Segment d'une piste.
+ * <p>
+ * Les points sont stock&eacute;s par colonne dans un
+ * {@link TrackPointBuffer}. Les rares points nomm&eacute;s conservent en plus
+ * leur {@link Wpt} pour le nom et la description : la vue sur le point est
+ * alors le {@link Wpt}.
+ * 
  * @author Denis Apparicio
  * 
  */
 public class Trkseg extends AbstractGpxSegment {
-  private List<Wpt> listPoints;
+  private TrackPointBuffer  buffer;
+
+  /** Points nommes par index. */
+  private Map<Integer, Wpt> namedPoints;
 
-  private String    name;
+  private String            name;
 
-  private String    desc;
+  private String            desc;
 
   /**
    * 
@@ -29,13 +43,7 @@ public class Trkseg extends AbstractGpxSegment {
    * @see fr.turtlesport.geo.IGeoSegment#getPoints()
    */
   public List<IGeoPositionWithAlt> getPoints() {
-    List<IGeoPositionWithAlt> list = new ArrayList<IGeoPositionWithAlt>();
-    if (listPoints != null) {
-      for (Wpt p : listPoints) {
-        list.add(p);
-      }
-    }
-    return list;
+    return new PointList();
   }
 
   /**
@@ -77,12 +85,12 @@ public class Trkseg extends AbstractGpxSegment {
   }
 
   /**
-   * Restitue la liste des points.
+   * Restitue les points, pour un acc&egrave;s par colonne.
    * 
-   * @return la liste des points.
+   * @return les points ou <code>null</code> si pas de points.
    */
-  public List<Wpt> getListPoints() {
-    return listPoints;
+  public TrackPointBuffer getTrackPointBuffer() {
+    return buffer;
   }
 
   /**
@@ -92,12 +100,18 @@ public class Trkseg extends AbstractGpxSegment {
     if (point == null) {
       throw new IllegalArgumentException();
     }
-    if (listPoints == null) {
+    if (buffer == null) {
       synchronized (Trkseg.class) {
-        listPoints = new ArrayList<Wpt>();
+        buffer = new TrackPointBuffer();
       }
     }
-    listPoints.add(point);
+    int index = buffer.add(point);
+    if (point.getName() != null || point.getDesc() != null) {
+      if (namedPoints == null) {
+        namedPoints = new HashMap<Integer, Wpt>();
+      }
+      namedPoints.put(index, point);
+    }
   }
 
   /**
@@ -106,7 +120,7 @@ public class Trkseg extends AbstractGpxSegment {
    * @return
    */
   public int getTrkSize() {
-    return (listPoints == null) ? 0 : listPoints.size();
+    return (buffer == null) ? 0 : buffer.size();
   }
 
   /**
@@ -114,11 +128,71 @@ public class Trkseg extends AbstractGpxSegment {
    * 
    * @return le point &agrave; l'index sp&eacute;cifi&eacute;.
    */
-  public Wpt getTrk(int index) {
-    if (listPoints == null) {
+  public IGeoPositionWithAlt getTrk(int index) {
+    if (buffer == null) {
       throw new IndexOutOfBoundsException("Index: " + index + ", Size: 0");
     }
-    return listPoints.get(index);
+    if (namedPoints != null) {
+      Wpt p = namedPoints.get(index);
+      if (p != null) {
+        return p;
+      }
+    }
+    return buffer.get(index);
+  }
+
+  /**
+   * Valorise la distance d'un point.
+   * 
+   * @param index
+   *          l'index du point.
+   * @param distance
+   *          la distance en m&egrave;tres.
+   */
+  protected void setDistance(int index, double distance) {
+    buffer.setDistance(index, (float) distance);
+    if (namedPoints != null) {
+      Wpt p = namedPoints.get(index);
+      if (p != null) {
+        p.setDistanceMeters(distance);
+      }
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.geo.gpx.AbstractGpxSegment#pointSize()
+   */
+  @Override
+  protected int pointSize() {
+    return getTrkSize();
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.geo.gpx.AbstractGpxSegment#heartRate(int)
+   */
+  @Override
+  protected int heartRate(int index) {
+    return buffer.getHeartRate(index);
+  }
+
+  /**
+   * Liste des points du segment.
+   */
+  private class PointList extends AbstractList<IGeoPositionWithAlt> implements
+                                                                   RandomAccess {
+    @Override
+    public IGeoPositionWithAlt get(int index) {
+      return getTrk(index);
+    }
+
+    @Override
+    public int size() {
+      return getTrkSize();
+    }
   }
 
 }
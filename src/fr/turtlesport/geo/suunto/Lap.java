@@ -1,12 +1,12 @@
 package fr.turtlesport.geo.suunto;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
 import fr.turtlesport.geo.AbstractGeoSegment;
 import fr.turtlesport.geo.IGeoPositionWithAlt;
-import fr.turtlesport.util.GeoUtil;
+import fr.turtlesport.geo.TrackPointBuffer;
 
 /**
  * @author Denis Apparicio
@@ -24,7 +24,7 @@ public class Lap extends AbstractGeoSegment {
 
   private int                 maximumHeartRateBpm = 0;
 
-  protected List<SuuntoPoint> listPoints;
+  protected TrackPointBuffer  listPoints;
 
   private int                 avgHeartRate        = -1;
 
@@ -54,43 +54,44 @@ public class Lap extends AbstractGeoSegment {
 
   protected void compute() {
     if (listPoints != null && listPoints.size() > 0) {
-      SuuntoPoint pointBegin = listPoints.get(0);
-      SuuntoPoint pointEnd = listPoints.get(listPoints.size() - 1);
+      int last = listPoints.size() - 1;
+      long timeBegin = listPoints.getTime(0);
+      long timeEnd = listPoints.getTime(last);
 
       // Suppression des points GPS
-      List<SuuntoPoint> newList = new ArrayList<SuuntoPoint>();
-      newList.add(listPoints.get(0));
+      TrackPointBuffer newList = new TrackPointBuffer(listPoints.size());
+      newList.add(listPoints, 0);
 
       int indexBegin = 0;
-      double distance = listPoints.get(0).getDistanceMeters();
+      double distance = listPoints.getDistance(0);
       double diff;
       final int ephe = 5;
-      for (int i = 0; i < listPoints.size() - 2; i++) {
-        diff = GeoUtil.computeDistance(listPoints.get(indexBegin),
-                                       listPoints.get(i + 1));
+      for (int i = 0; i < last - 1; i++) {
+        diff = listPoints.computeDistance(indexBegin, i + 1);
         if (diff > ephe) {
           distance += diff;
           indexBegin = i + 1;
-          listPoints.get(i + 1).setDistanceMeters(distance);
-          newList.add(listPoints.get(i + 1));
+          listPoints.setDistance(i + 1, (float) distance);
+          newList.add(listPoints, i + 1);
         }
       }
-      distance += GeoUtil.computeDistance(listPoints.get(listPoints.size()- 2),
-                                          listPoints.get(listPoints.size()- 1));
-      listPoints.get(listPoints.size()- 1).setDistanceMeters(distance);
-      newList.add(listPoints.get(listPoints.size() - 1));
+      if (last > 0) {
+        distance += listPoints.computeDistance(last - 1, last);
+        listPoints.setDistance(last, (float) distance);
+        newList.add(listPoints, last);
+      }
 
+      newList.trimToSize();
       listPoints = newList;
-      
+
       // Temps
-      setStartTime(pointBegin.getDate());
+      setStartTime(new Date(timeBegin));
 
       // Temps total
-      setTotalTimeSeconds((pointEnd.getDate().getTime() - pointBegin.getDate()
-          .getTime()) / 1000.0);
-      
+      setTotalTimeSeconds((timeEnd - timeBegin) / 1000.0);
+
       // Distance total
-      distanceMeters = distance - listPoints.get(0).getDistanceMeters();
+      distanceMeters = distance - listPoints.getDistance(0);
     }
   }
   
@@ -133,12 +134,11 @@ public class Lap extends AbstractGeoSegment {
     if (averageHeartRateBpm == 0) {
       if (avgHeartRate == -1) {
         avgHeartRate = 0;
-        List<IGeoPositionWithAlt> list = getPoints();
-        if (list != null) {
+        if (listPoints != null) {
           int nb = 0;
-          for (IGeoPositionWithAlt geo : list) {
-            if (geo.getHeartRate() > 0) {
-              avgHeartRate += geo.getHeartRate();
+          for (int i = 0; i < listPoints.size(); i++) {
+            if (listPoints.getHeartRate(i) > 0) {
+              avgHeartRate += listPoints.getHeartRate(i);
               nb++;
             }
           }
@@ -162,12 +162,9 @@ public class Lap extends AbstractGeoSegment {
     if (maximumHeartRateBpm == 0) {
       if (maxHeartRate == -1) {
         maxHeartRate = 0;
-        List<IGeoPositionWithAlt> list = getPoints();
-        if (list != null) {
-          for (IGeoPositionWithAlt geo : list) {
-            if (geo.getHeartRate() > maxHeartRate) {
-              maxHeartRate = geo.getHeartRate();
-            }
+        if (listPoints != null) {
+          for (int i = 0; i < listPoints.size(); i++) {
+            maxHeartRate = Math.max(maxHeartRate, listPoints.getHeartRate(i));
           }
         }
       }
@@ -192,13 +189,10 @@ public class Lap extends AbstractGeoSegment {
    * @see fr.turtlesport.geo.IGeoSegment#getPoints()
    */
   public List<IGeoPositionWithAlt> getPoints() {
-    List<IGeoPositionWithAlt> list = new ArrayList<IGeoPositionWithAlt>();
-    if (listPoints != null) {
-      for (SuuntoPoint p : listPoints) {
-        list.add(p);
-      }
+    if (listPoints == null) {
+      return Collections.emptyList();
     }
-    return list;
+    return listPoints.asList();
   }
 
   /**
@@ -340,18 +334,20 @@ public class Lap extends AbstractGeoSegment {
   }
 
   /**
-   * Ajoute un point.
+   * Ajoute une copie d'un point.
    * 
-   * @param p
-   *          le point.
+   * @param points
+   *          les points.
+   * @param index
+   *          l'index du point.
    */
-  public void addPoint(SuuntoPoint p) {
+  public void addPoint(TrackPointBuffer points, int index) {
     if (listPoints == null) {
       synchronized (Lap.class) {
-        listPoints = new ArrayList<SuuntoPoint>();
+        listPoints = new TrackPointBuffer();
       }
     }
-    listPoints.add(p);
+    listPoints.add(points, index);
   }
 
 }
@@ -4,7 +4,6 @@ import fr.turtlesport.device.IProductDevice;
 import fr.turtlesport.geo.*;
 import fr.turtlesport.log.TurtleLogger;
 import fr.turtlesport.unit.TemperatureUnit;
-import fr.turtlesport.util.GeoUtil;
 import fr.turtlesport.util.XmlUtil;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
@@ -17,13 +16,14 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 
 /**
  * @author Denis Apparicio
  * 
  */
-public class SuuntoFile implements IGeoFile {
+public class SuuntoFile implements IGeoInputStreamFile {
   private static TurtleLogger  log;
   static {
     log = (TurtleLogger) TurtleLogger.getLogger(SuuntoFile.class);
@@ -55,12 +55,27 @@ public class SuuntoFile implements IGeoFile {
   @Override
   public IGeoRoute[] load(File file, IProductDevice productDevice) throws GeoLoadException,
                                     FileNotFoundException {
+    // Lecture
+    FileInputStream fis = new FileInputStream(file);
+    try {
+      return load(fis, productDevice);
+    }
+    finally {
+      try {
+        fis.close();
+      }
+      catch (IOException e) {
+        log.error("", e);
+      }
+    }
+  }
+
+  @Override
+  public IGeoRoute[] load(InputStream fis, IProductDevice productDevice) throws GeoLoadException {
     log.debug(">>load");
 
     IGeoRoute[] rep;
 
-    // Lecture
-    FileInputStream fis = new FileInputStream(file);
     SuuntoInputStream in = new SuuntoInputStream(fis);
 
     SuuntoHandler handler = null;
@@ -91,16 +106,6 @@ public class SuuntoFile implements IGeoFile {
       log.error("", e);
       throw new GeoLoadException(e);
     }
-    finally {
-      if (fis != null) {
-        try {
-          fis.close();
-        }
-        catch (IOException e) {
-          log.error("", e);
-        }
-      }
-    }
 
     log.debug("<<load");
     return rep;
@@ -115,7 +120,8 @@ public class SuuntoFile implements IGeoFile {
 
     private List<Lap>         listLap    = new ArrayList<Lap>();
 
-    private List<SuuntoPoint> listPoints = new ArrayList<SuuntoPoint>();
+    /** Echantillons ; currentSample n'est qu'un objet de lecture. */
+    private TrackPointBuffer  listPoints = new TrackPointBuffer();
 
     private Lap               currentLap;
 
@@ -149,35 +155,33 @@ public class SuuntoFile implements IGeoFile {
       double distance = 0;
       double distGeo = 0;
       int indexBegin = -1;
-      List<SuuntoPoint> newList = new ArrayList<SuuntoPoint>();
+      TrackPointBuffer newList = new TrackPointBuffer(Math.max(len, 1));
       for (int i = 0; i < len; i++) {
-        if (!listPoints.get(i).isInvalidPosition()) {
+        if (!listPoints.isInvalidPosition(i)) {
           int nearIndex = (i < len - 1) ? (i + 1) : (i - 1);
           // HR
-          if (!listPoints.get(i).isValidHeartRate()) {
-            listPoints.get(i).setHeartRate(listPoints.get(nearIndex)
-                .getHeartRate());
+          int hr = listPoints.getHeartRate(i);
+          if (hr < 10 || hr >= 230) {
+            listPoints.setHeartRate(i, listPoints.getHeartRate(nearIndex));
           }
           // Altitude
-          if (!listPoints.get(i).isValidElevation()) {
-            listPoints.get(i).setElevation(listPoints.get(nearIndex)
-                .getElevation());
+          if (Float.isNaN(listPoints.getAltitude(i))) {
+            listPoints.setAltitude(i, listPoints.getAltitude(nearIndex));
           }
 
           if (indexBegin != -1) {
-            distGeo = GeoUtil.computeDistance(listPoints.get(indexBegin),
-                                              listPoints.get(i));
+            distGeo = listPoints.computeDistance(indexBegin, i);
             if (distGeo > ephe) {
               distance += distGeo;
-              listPoints.get(i).setDistanceMeters(distance);
+              listPoints.setDistance(i, (float) distance);
               indexBegin = i;
-              newList.add(listPoints.get(i));
+              newList.add(listPoints, i);
             }
           }
           else {
             indexBegin = i;
-            listPoints.get(i).setDistanceMeters(0);
-            newList.add(listPoints.get(i));
+            listPoints.setDistance(i, 0);
+            newList.add(listPoints, i);
           }
         }
       }
@@ -187,9 +191,9 @@ public class SuuntoFile implements IGeoFile {
 
       // On reordonne les laps
       if (listLap == null || listLap.size() == 0) {
-        Lap lap = new Lap(listPoints.get(0).getDate(), 0);
-        for (SuuntoPoint p : listPoints) {
-          lap.addPoint(p);
+        Lap lap = new Lap(listPoints.getDate(0), 0);
+        for (int i = 0; i < listPoints.size(); i++) {
+          lap.addPoint(listPoints, i);
         }
         if (listLap == null) {
           listLap = new ArrayList<Lap>();
@@ -206,9 +210,9 @@ public class SuuntoFile implements IGeoFile {
             log.info("timeEnd=" + timeEnd);
           }
           for (; i < len; i++) {
-            long time = listPoints.get(i).getDate().getTime();
+            long time = listPoints.getTime(i);
             if (time <= timeEnd) {
-              lap.addPoint(listPoints.get(i));
+              lap.addPoint(listPoints, i);
             }
             else {
               break;
@@ -279,6 +283,7 @@ public class SuuntoFile implements IGeoFile {
       if (localName.equals("sample") || localName.equals("Sample")) {
         isSample = false;
         listPoints.add(currentSample);
+        currentSample = null;
       }
       else if (localName.equals("Laps")) {
         isLaps = false;
@@ -350,8 +355,8 @@ public class SuuntoFile implements IGeoFile {
 
           if (listLap.size() == 0) {
             if (listPoints != null && listPoints.size() > 0) {
-              diffLap = (int) Math.round((dateLap.getTime() - listPoints.get(0)
-                  .getDate().getTime()) / 3600000.0);
+              diffLap = (int) Math.round((dateLap.getTime() - listPoints
+                  .getTime(0)) / 3600000.0);
             }
           }
           currentLap.setStartTime(convertDate(XmlUtil.getTime(stBuffer
@@ -49,6 +49,17 @@ public abstract class AbstractTileFactoryExtended extends AbstractTileFactory {
    */
   public abstract boolean isConnected();
 
+  /**
+   * D&eacute;termine si le fournisseur autorise le t&eacute;l&eacute;chargement
+   * en masse des tuiles pour un usage hors connexion.
+   * 
+   * @return <code>true</code> si le t&eacute;l&eacute;chargement est
+   *         autoris&eacute;, <code>false</code> sinon.
+   */
+  public boolean isPrefetchAllowed() {
+    return false;
+  }
+
   /**
    * @return Restitue l'icone de cette map.
    */
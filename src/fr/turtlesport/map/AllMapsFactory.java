@@ -68,6 +68,9 @@ public final class AllMapsFactory implements AddDeleteMapListener {
                      null,
                      null);
 
+    // Carte de chaleur des courses
+    hashMap.put(HeatmapTileFactory.NAME, new HeatmapTileFactory());
+
     // User map define
     for (DataMap map : MapConfiguration.getConfig().getMaps().getMaps()) {
       addUserMap(map);
@@ -206,7 +209,13 @@ public final class AllMapsFactory implements AddDeleteMapListener {
    */
   public void cleanCache() {
     for (String key : hashMap.keySet()) {
-      hashMap.get(key).getTileCache().needMoreMemory();
+      TileCache cache = hashMap.get(key).getTileCache();
+      if (cache instanceof DiskTitleCache) {
+        ((DiskTitleCache) cache).clear();
+      }
+      else if (cache != null) {
+        cache.needMoreMemory();
+      }
     }
 
     // Effacement des residus de la version 0.1.12
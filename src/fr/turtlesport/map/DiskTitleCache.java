@@ -1,25 +1,37 @@
 package fr.turtlesport.map;
 
 import java.awt.image.BufferedImage;
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 
 import javax.imageio.ImageIO;
 
 import org.jdesktop.swingx.mapviewer.TileCache;
 import org.jdesktop.swingx.mapviewer.TileFactoryInfo;
 
+import fr.turtlesport.Configuration;
 import fr.turtlesport.log.TurtleLogger;
 import fr.turtlesport.util.FileUtil;
 
 /**
+ * Cache des tuiles &agrave; deux niveaux.
+ * <ul>
+ * <li>en m&eacute;moire : les images d&eacute;cod&eacute;es les plus
+ * r&eacute;cemment utilis&eacute;es, born&eacute;es en octets de pixels.</li>
+ * <li>sur disque : les fichiers PNG regroup&eacute;s dans un
+ * {@link PackedTileStore}, born&eacute;s en octets et en &acirc;ge.</li>
+ * </ul>
+ * L'ancien cache (un fichier par tuile) est import&eacute; en t&acirc;che de
+ * fond.
+ *
  * @author Denis Apparicio
- * 
+ *
  */
 public class DiskTitleCache extends TileCache {
   private static TurtleLogger log;
@@ -27,16 +39,33 @@ public class DiskTitleCache extends TileCache {
     log = (TurtleLogger) TurtleLogger.getLogger(DiskTitleCache.class);
   }
 
+  /** Taille par d&eacute;faut du cache m&eacute;moire en Mo. */
+  private static final int                    DEFAULT_MEMORY_SIZE = 16;
+
+  /** Taille par d&eacute;faut du cache disque en Mo. */
+  private static final int                    DEFAULT_DISK_SIZE   = 256;
+
   /** * Repertoire du cache. */
-  private File                dirCache;
+  private File                                dirCache;
 
   /** Max age du cache en jour. */
-  private int                 maxAge = 10;
+  private int                                 maxAge              = 10;
+
+  /** Taille max du cache m&eacute;moire en octets ([map] memoryCacheSize). */
+  private final long                          maxMemorySize;
 
-  /** Taille courante du cache */
-  private long                currentSize;
+  /** Taille courante du cache m&eacute;moire. */
+  private long                                currentMemorySize;
 
-  private TileFactoryInfo     tileProviderInfo;
+  /** Cache disque. */
+  private final PackedTileStore               store;
+
+  /** Images d&eacute;cod&eacute;es, de la moins &agrave; la plus r&eacute;cente. */
+  private final LinkedHashMap<URI, BufferedImage> images          = new LinkedHashMap<URI, BufferedImage>(64,
+                                                                                                          0.75f,
+                                                                                                          true);
+
+  private TileFactoryInfo                     tileProviderInfo;
 
   /**
    * @param dirCache
@@ -48,13 +77,13 @@ public class DiskTitleCache extends TileCache {
     if (!dirCache.exists()) {
       dirCache.mkdir();
     }
-    cleanCache();
-    
-    if (log.isInfoEnabled()) {
-      currentSize = FileUtil.dirLength(dirCache);
-      log.error("currentSize=" + currentSize / 1024.0 / 1024.0 + " mo");
-    }
-
+    maxMemorySize = 1024L * 1024L * Configuration.getConfig()
+        .getPropertyAsInt("map", "memoryCacheSize", DEFAULT_MEMORY_SIZE);
+    store = new PackedTileStore(dirCache);
+    store.setMaxAge(1000L * 60 * 60 * 24 * maxAge);
+    store.setMaxSize(1024L * 1024L * Configuration.getConfig()
+        .getPropertyAsInt("map", "diskCacheSize", DEFAULT_DISK_SIZE));
+    store.importFiles();
   }
 
   /**
@@ -78,22 +107,34 @@ public class DiskTitleCache extends TileCache {
   public void setMaxAge(int maxAge) {
     if (maxAge > 1) {
       this.maxAge = maxAge;
+      store.setMaxAge(1000L * 60 * 60 * 24 * maxAge);
     }
   }
 
   /*
    * (non-Javadoc)
-   * 
+   *
    * @see org.jdesktop.swingx.mapviewer.TileCache#needMoreMemory()
    */
   @Override
-  public void needMoreMemory() {
+  public synchronized void needMoreMemory() {
+    // seules les images decodees sont liberees
+    images.clear();
+    currentMemorySize = 0;
+  }
+
+  /**
+   * Efface le cache m&eacute;moire et le cache disque.
+   */
+  public void clear() {
+    needMoreMemory();
+    store.clear();
     FileUtil.deleteDirectory(dirCache);
   }
 
   /*
    * (non-Javadoc)
-   * 
+   *
    * @see org.jdesktop.swingx.mapviewer.TileCache#get(java.net.URI)
    */
   @Override
@@ -102,24 +143,35 @@ public class DiskTitleCache extends TileCache {
       return null;
     }
 
+    synchronized (this) {
+      BufferedImage img = images.get(uri);
+      if (img != null) {
+        return img;
+      }
+    }
+
     // Recuperation de la cle
     String key = makeKey(uri);
     if (key == null) {
       return null;
     }
 
-    File file = new File(dirCache, key);
-
     // Restitue l'image.
-    if (exist(file)) {
+    byte[] bytes = store.get(key);
+    if (bytes != null) {
       try {
-        if (log.isInfoEnabled()) {
-          log.info("get Cache image: " + file.getPath());
+        if (log.isDebugEnabled()) {
+          log.debug("get Cache image: " + uri);
         }
-        return ImageIO.read(file);
+        BufferedImage img = ImageIO.read(new ByteArrayInputStream(bytes));
+        if (img != null) {
+          putMemory(uri, img);
+        }
+        return img;
       }
       catch (IOException e) {
         log.warn("Echec cache : " + e);
+        store.remove(key);
       }
     }
 
@@ -129,7 +181,7 @@ public class DiskTitleCache extends TileCache {
 
   /*
    * (non-Javadoc)
-   * 
+   *
    * @see org.jdesktop.swingx.mapviewer.TileCache#put(java.net.URI, byte[],
    * java.awt.image.BufferedImage)
    */
@@ -145,26 +197,63 @@ public class DiskTitleCache extends TileCache {
       return;
     }
 
+    putMemory(uri, img);
+
     // Copie de l'image.
-    dirCache.mkdirs();
+    if (bimg != null) {
+      store.put(key, bimg);
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("put cache image: " + uri);
+    }
+  }
 
-    File file = new File(dirCache, key);
-    copyFile(bimg, file);
-    log.info("put cache image: " + file);
+  /**
+   * D&eacute;termine si une tuile est dans le cache disque.
+   *
+   * @param uri
+   *          l'url de la tuile.
+   */
+  public boolean contains(URI uri) {
+    String key = makeKey(uri);
+    return key != null && store.contains(key);
+  }
+
+  /**
+   * Ajout d'une tuile dans le cache disque seulement, sans la
+   * d&eacute;coder.
+   *
+   * @param uri
+   *          l'url de la tuile.
+   * @param bytes
+   *          l'image.
+   */
+  public void putBytes(URI uri, byte[] bytes) {
+    String key = makeKey(uri);
+    if (key != null && bytes != null) {
+      store.put(key, bytes);
+    }
+  }
+
+  /**
+   * Restitue le r&eacute;pertoire du cache.
+   */
+  public File getDirectory() {
+    return dirCache;
   }
 
   /**
    * Restitue la taille du cahce en octects.
-   * 
+   *
    * @return la taille du cahce en octects.
    */
   public long length() {
-    return FileUtil.dirLength(dirCache);
+    return store.length();
   }
 
   /**
    * Restitue la cl&eacute; pour le cache d'une url.
-   * 
+   *
    * @param url
    *          l'url.
    * @return la cl&eacute;.
@@ -207,55 +296,24 @@ public class DiskTitleCache extends TileCache {
     return new String(chars);
   }
 
-  /**
-   * Determine si ce fichier est trop vieux.
-   */
-  private boolean exist(File file) {
-    if (!file.isFile()) {
-      return false;
+  private synchronized void putMemory(URI uri, BufferedImage img) {
+    BufferedImage old = images.put(uri, img);
+    if (old != null) {
+      currentMemorySize -= imageSize(old);
     }
-
-    long lNow = System.currentTimeMillis();
-    long lHistory = lNow - 1000L * 60 * 60 * 24 * maxAge;
-    boolean isTooOld = (file.lastModified() < lHistory);
-    if (isTooOld) {
-      file.delete();
-    }
-    return true;
+    currentMemorySize += imageSize(img);
+    evictMemory();
   }
 
-  /**
-   * Copie un tableau de byte dans un fichier.
-   */
-  private void copyFile(byte[] bytes, File outFile) {
-    FileOutputStream fos = null;
-    try {
-      fos = new FileOutputStream(outFile);
-      BufferedOutputStream os = new BufferedOutputStream(fos);
-      os.write(bytes, 0, bytes.length);
-      os.flush();
-      os.close();
-    }
-    catch (IOException e) {
-      log.error("", e);
-    }
-    finally {
-      if (fos != null) {
-        try {
-          fos.close();
-        }
-        catch (Exception e) {
-        }
-      }
+  private void evictMemory() {
+    Iterator<BufferedImage> it = images.values().iterator();
+    while (currentMemorySize > maxMemorySize && it.hasNext()) {
+      currentMemorySize -= imageSize(it.next());
+      it.remove();
     }
   }
 
-  private void cleanCache() {
-    File[] files = dirCache.listFiles();
-    if (files != null) {
-      for (File f : files) {
-        exist(f);
-      }
-    }
+  private static long imageSize(BufferedImage img) {
+    return 4L * img.getWidth() * img.getHeight();
   }
 }
@@ -138,6 +138,14 @@ public class GeoBounds {
     return rv;
   }
 
+  /**
+   * Gets the rectangles (longitude, latitude) of this bounds, two when the
+   * bounds cross the date line.
+   */
+  Rectangle2D[] getRects() {
+    return rects;
+  }
+
   /**
    * Gets the north west position.
    * 
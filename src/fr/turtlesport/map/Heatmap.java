@@ -0,0 +1,483 @@
+package fr.turtlesport.map;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import fr.turtlesport.db.RunChangeListener;
+import fr.turtlesport.db.RunTableManager;
+import fr.turtlesport.db.RunTrkTableManager;
+import fr.turtlesport.log.TurtleLogger;
+import fr.turtlesport.util.Location;
+
+/**
+ * Carte de chaleur de toutes les courses.
+ * <p>
+ * Les cellules de chaque course sont calcul&eacute;es une seule fois
+ * &agrave; partir des points (table RUNTRK) puis conserv&eacute;es dans le
+ * fichier <code>heatmap.dat</code> : la grille est recalcul&eacute;e au
+ * d&eacute;marrage sans relire les points et l'affichage ne lit jamais la
+ * base. Les courses ajout&eacute;es ou supprim&eacute;es sont
+ * int&eacute;gr&eacute;es au fil de l'eau ; un recalcul complet utilise tous
+ * les processeurs.
+ * <p>
+ * Le fichier est enregistr&eacute; au plus une fois par {@link #SAVE_DELAY}
+ * ms quel que soit le nombre de courses modifi&eacute;es (import ou
+ * suppression de plusieurs courses), et &agrave; l'arr&ecirc;t par
+ * {@link #flush()}.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public final class Heatmap implements RunChangeListener {
+  private static TurtleLogger             log;
+  static {
+    log = (TurtleLogger) TurtleLogger.getLogger(Heatmap.class);
+  }
+
+  private static final int                VERSION   = 1;
+
+  /** D&eacute;lai d'enregistrement du fichier en ms. */
+  private static final long               SAVE_DELAY = 10000;
+
+  private static Heatmap                  singleton = new Heatmap();
+
+  private final File                      file      = new File(Location
+                                                          .userLocation(),
+                                                      "heatmap.dat");
+
+  private final HeatmapGrid               grid      = new HeatmapGrid();
+
+  /** Cellules de chaque course. */
+  private final Map<Integer, long[]>      runs      = new HashMap<Integer, long[]>();
+
+  /** T&acirc;ches s&eacute;quentielles : chargement, mises &agrave; jour. */
+  private final ScheduledExecutorService  executor;
+
+  /** Modifications non enregistr&eacute;es. */
+  private boolean                         isDirty;
+
+  private volatile int                    version;
+
+  private final List<Runnable>            listeners = new ArrayList<Runnable>();
+
+  private volatile boolean                isStarted;
+
+  private Heatmap() {
+    executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "Heatmap");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+      }
+    });
+  }
+
+  /**
+   * Restitue l'instance.
+   */
+  public static Heatmap getInstance() {
+    return singleton;
+  }
+
+  /**
+   * Restitue la grille de densit&eacute;.
+   */
+  public HeatmapGrid getGrid() {
+    return grid;
+  }
+
+  /**
+   * Restitue la version de la grille, incr&eacute;ment&eacute;e &agrave;
+   * chaque modification.
+   */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * Ajout d'un listener notifi&eacute; (hors EDT) &agrave; chaque
+   * modification.
+   */
+  public void addChangeListener(Runnable r) {
+    synchronized (listeners) {
+      listeners.add(r);
+    }
+  }
+
+  /**
+   * Suppression d'un listener.
+   */
+  public void removeChangeListener(Runnable r) {
+    synchronized (listeners) {
+      listeners.remove(r);
+    }
+  }
+
+  /**
+   * Chargement du fichier et synchronisation avec la base, en t&acirc;che de
+   * fond ; sans effet apr&egrave;s le premier appel.
+   */
+  public synchronized void start() {
+    if (isStarted) {
+      return;
+    }
+    isStarted = true;
+    executor.execute(new Runnable() {
+      public void run() {
+        load();
+        synchronize();
+        fireChange();
+      }
+    });
+  }
+
+  /**
+   * D&eacute;termine si la carte de chaleur est utilis&eacute;e ; sinon les
+   * modifications seront prises en compte par la synchronisation du
+   * d&eacute;marrage.
+   */
+  private boolean isInUse() {
+    if (!isStarted && file.isFile()) {
+      start();
+    }
+    return isStarted;
+  }
+
+  /**
+   * Une course a &eacute;t&eacute; ajout&eacute;e ou ses points
+   * modifi&eacute;s.
+   *
+   * @param id
+   *          l'id de la course.
+   */
+  public void runStored(final int id) {
+    if (!isInUse()) {
+      return;
+    }
+    executor.execute(new Runnable() {
+      public void run() {
+        try {
+          if (setRun(id, HeatmapGrid.cells(RunTrkTableManager.getInstance()
+              .getPositions(id)))) {
+            fireChange();
+          }
+          markDirty();
+        }
+        catch (SQLException e) {
+          log.error("", e);
+        }
+      }
+    });
+  }
+
+  /**
+   * Des courses ont &eacute;t&eacute; ajout&eacute;es.
+   */
+  public void runsStored() {
+    if (!isInUse()) {
+      return;
+    }
+    executor.execute(new Runnable() {
+      public void run() {
+        if (synchronize()) {
+          fireChange();
+        }
+      }
+    });
+  }
+
+  /**
+   * Une course a &eacute;t&eacute; supprim&eacute;e ; les points ne sont
+   * pas relus.
+   *
+   * @param id
+   *          l'id de la course.
+   */
+  public void runDeleted(final int id) {
+    if (!isInUse()) {
+      return;
+    }
+    executor.execute(new Runnable() {
+      public void run() {
+        if (setRun(id, null)) {
+          fireChange();
+        }
+        markDirty();
+      }
+    });
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.db.RunChangeListener#runUpdated(int)
+   */
+  public void runUpdated(int idRun) {
+  }
+
+  /**
+   * Recalcul complet &agrave; partir des points de toutes les courses.
+   */
+  public void rebuild() {
+    synchronized (this) {
+      isStarted = true;
+    }
+    executor.execute(new Runnable() {
+      public void run() {
+        synchronized (runs) {
+          runs.clear();
+          grid.clear();
+        }
+        version++;
+        synchronize();
+        fireChange();
+      }
+    });
+  }
+
+  /**
+   * Ajout des courses absentes et suppression des courses disparues ; les
+   * listeners ne sont pas notifi&eacute;s.
+   * 
+   * @return <code>true</code> si la grille a &eacute;t&eacute;
+   *         modifi&eacute;e.
+   */
+  private boolean synchronize() {
+    long deb = System.currentTimeMillis();
+    int[] ids;
+    try {
+      ids = RunTableManager.getInstance().retreiveIds();
+    }
+    catch (SQLException e) {
+      log.error("", e);
+      return false;
+    }
+
+    Set<Integer> toRemove;
+    List<Integer> toAdd = new ArrayList<Integer>();
+    synchronized (runs) {
+      toRemove = new HashSet<Integer>(runs.keySet());
+      for (int id : ids) {
+        if (!toRemove.remove(id)) {
+          toAdd.add(id);
+        }
+      }
+    }
+    boolean isChanged = false;
+    for (int id : toRemove) {
+      isChanged |= setRun(id, null);
+    }
+
+    if (!toAdd.isEmpty()) {
+      isChanged |= compute(toAdd);
+    }
+    if (!toAdd.isEmpty() || !toRemove.isEmpty()) {
+      markDirty();
+    }
+
+    if (log.isInfoEnabled()) {
+      log.info("synchronize add=" + toAdd.size() + " remove="
+               + toRemove.size() + " (ms) --> "
+               + (System.currentTimeMillis() - deb));
+    }
+    return isChanged;
+  }
+
+  /**
+   * Calcul des cellules sur tous les processeurs.
+   */
+  private boolean compute(List<Integer> ids) {
+    boolean isChanged = false;
+    int nbThreads = Runtime.getRuntime().availableProcessors();
+    ExecutorService pool = Executors.newFixedThreadPool(nbThreads,
+                                                        new ThreadFactory() {
+                                                          public Thread newThread(Runnable r) {
+                                                            Thread t = new Thread(r,
+                                                                                  "Heatmap-compute");
+                                                            t.setDaemon(true);
+                                                            t.setPriority(Thread.MIN_PRIORITY);
+                                                            return t;
+                                                          }
+                                                        });
+    try {
+      List<Future<long[]>> futures = new ArrayList<Future<long[]>>(ids.size());
+      for (final int id : ids) {
+        futures.add(pool.submit(new Callable<long[]>() {
+          public long[] call() throws Exception {
+            return HeatmapGrid.cells(RunTrkTableManager.getInstance()
+                .getPositions(id));
+          }
+        }));
+      }
+      for (int i = 0; i < ids.size(); i++) {
+        try {
+          isChanged |= setRun(ids.get(i), futures.get(i).get());
+        }
+        catch (ExecutionException e) {
+          log.error("run " + ids.get(i), e.getCause());
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    finally {
+      pool.shutdown();
+    }
+    return isChanged;
+  }
+
+  /**
+   * Mise &agrave; jour des cellules d'une course, sans notification.
+   */
+  private boolean setRun(int id, long[] cells) {
+    synchronized (runs) {
+      long[] old = (cells == null) ? runs.remove(id) : runs.put(id, cells);
+      if (old != null) {
+        grid.add(old, -1);
+      }
+      if (cells != null) {
+        grid.add(cells, 1);
+      }
+      if (old == null && cells == null) {
+        return false;
+      }
+    }
+    version++;
+    return true;
+  }
+
+  private void fireChange() {
+    List<Runnable> list;
+    synchronized (listeners) {
+      list = new ArrayList<Runnable>(listeners);
+    }
+    for (Runnable r : list) {
+      r.run();
+    }
+  }
+
+  private void load() {
+    if (!file.isFile()) {
+      return;
+    }
+    long deb = System.currentTimeMillis();
+    try {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      try {
+        if (in.readInt() != VERSION) {
+          return;
+        }
+        int nbRuns = in.readInt();
+        for (int r = 0; r < nbRuns; r++) {
+          int id = in.readInt();
+          long[] cells = new long[in.readInt()];
+          for (int i = 0; i < cells.length; i++) {
+            cells[i] = in.readLong();
+          }
+          synchronized (runs) {
+            runs.put(id, cells);
+            grid.add(cells, 1);
+          }
+        }
+      }
+      finally {
+        in.close();
+      }
+    }
+    catch (IOException e) {
+      log.error("", e);
+      synchronized (runs) {
+        runs.clear();
+        grid.clear();
+      }
+    }
+    version++;
+
+    if (log.isInfoEnabled()) {
+      log.info("load runs=" + runs.size() + " (ms) --> "
+               + (System.currentTimeMillis() - deb));
+    }
+  }
+
+  /**
+   * Enregistrement diff&eacute;r&eacute; : les modifications suivantes sont
+   * enregistr&eacute;es ensemble.
+   */
+  private synchronized void markDirty() {
+    if (isDirty) {
+      // enregistrement deja planifie
+      return;
+    }
+    isDirty = true;
+    executor.schedule(new Runnable() {
+      public void run() {
+        flush();
+      }
+    }, SAVE_DELAY, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Enregistrement imm&eacute;diat des modifications en attente.
+   */
+  public synchronized void flush() {
+    if (!isDirty) {
+      return;
+    }
+    isDirty = false;
+    save();
+  }
+
+  private void save() {
+    File tmp = new File(file.getPath() + ".tmp");
+    try {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+      try {
+        synchronized (runs) {
+          out.writeInt(VERSION);
+          out.writeInt(runs.size());
+          for (Map.Entry<Integer, long[]> e : runs.entrySet()) {
+            out.writeInt(e.getKey());
+            out.writeInt(e.getValue().length);
+            for (long cell : e.getValue()) {
+              out.writeLong(cell);
+            }
+          }
+        }
+      }
+      finally {
+        out.close();
+      }
+      file.delete();
+      if (!tmp.renameTo(file)) {
+        log.error("rename " + tmp);
+      }
+    }
+    catch (IOException e) {
+      log.error("", e);
+    }
+  }
+
+}
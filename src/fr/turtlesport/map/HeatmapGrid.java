@@ -0,0 +1,307 @@
+package fr.turtlesport.map;
+
+import java.util.Arrays;
+
+/**
+ * Grille de densit&eacute; des courses par niveau de zoom.
+ * <p>
+ * Le monde est d&eacute;coup&eacute; en cellules de {@link #CELL_SIZE}
+ * pixels &agrave; chaque niveau de zoom OpenStreetMap de 0 &agrave;
+ * {@link #BASE_ZOOM}. Chaque cellule compte le nombre de courses qui la
+ * traversent ; une course est ajout&eacute;e ou retir&eacute;e &agrave;
+ * partir de ses seules cellules au niveau le plus fin.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public class HeatmapGrid {
+
+  /** Niveau de zoom OpenStreetMap le plus fin. */
+  public static final int BASE_ZOOM = 16;
+
+  /** Taille d'une cellule en pixels. */
+  public static final int CELL_SIZE = 4;
+
+  private final CellMap[] levels    = new CellMap[BASE_ZOOM + 1];
+
+  private final int[]     max       = new int[BASE_ZOOM + 1];
+
+  private final boolean[] isMaxDirty = new boolean[BASE_ZOOM + 1];
+
+  /**
+   *
+   */
+  public HeatmapGrid() {
+    super();
+    for (int z = 0; z <= BASE_ZOOM; z++) {
+      levels[z] = new CellMap();
+    }
+  }
+
+  /**
+   * Restitue la cl&eacute; d'une cellule.
+   */
+  public static long key(int cx, int cy) {
+    return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Calcul des cellules du niveau le plus fin travers&eacute;es par un
+   * trac&eacute;.
+   *
+   * @param positions
+   *          latitude et longitude en semicircles : lat0, lon0, lat1, lon1...
+   * @return les cl&eacute;s tri&eacute;es et sans doublon des cellules.
+   */
+  public static long[] cells(int[] positions) {
+    int n = positions.length / 2;
+    long[] keys = new long[Math.max(16, n * 2)];
+    int size = 0;
+
+    double worldSize = 256.0 * (1 << BASE_ZOOM);
+    double maxGap = worldSize / 40075016.0 * 2000; // 2 km a l'equateur
+    double prevX = 0;
+    double prevY = 0;
+    for (int i = 0; i < n; i++) {
+      double lat = positions[2 * i] * (180.0 / 0x80000000L);
+      double lon = positions[2 * i + 1] * (180.0 / 0x80000000L);
+      double x = (lon + 180.0) / 360.0 * worldSize;
+      double sin = Math.sin(Math.toRadians(Math.max(-85, Math.min(85, lat))));
+      double y = (0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI))
+                 * worldSize;
+
+      int steps = 0;
+      if (i > 0) {
+        double dist = Math.hypot(x - prevX, y - prevY);
+        // pas d'interpolation sur un trou GPS
+        if (dist <= maxGap) {
+          steps = (int) (dist / (CELL_SIZE / 2.0));
+        }
+      }
+      if (size + steps + 1 > keys.length) {
+        keys = Arrays.copyOf(keys, Math.max(keys.length * 2, size + steps + 1));
+      }
+      for (int k = 1; k <= steps; k++) {
+        double px = prevX + (x - prevX) * k / (steps + 1);
+        double py = prevY + (y - prevY) * k / (steps + 1);
+        keys[size++] = key((int) px / CELL_SIZE, (int) py / CELL_SIZE);
+      }
+      keys[size++] = key((int) x / CELL_SIZE, (int) y / CELL_SIZE);
+      prevX = x;
+      prevY = y;
+    }
+    return distinct(keys, size);
+  }
+
+  /**
+   * Ajout ou retrait d'une course.
+   *
+   * @param cells
+   *          les cellules de la course au niveau le plus fin.
+   * @param delta
+   *          <code>1</code> pour un ajout, <code>-1</code> pour un retrait.
+   */
+  public synchronized void add(long[] cells, int delta) {
+    long[] keys = cells.clone();
+    for (int z = BASE_ZOOM; z >= 0; z--) {
+      int shift = BASE_ZOOM - z;
+      for (int i = 0; i < keys.length; i++) {
+        int cx = (int) (cells[i] >> 32) >> shift;
+        int cy = (int) cells[i] >> shift;
+        keys[i] = key(cx, cy);
+      }
+      // une course compte une seule fois par cellule
+      long[] distinct = distinct(keys.clone(), keys.length);
+      CellMap map = levels[z];
+      for (long key : distinct) {
+        map.add(key, delta);
+      }
+      isMaxDirty[z] = true;
+    }
+  }
+
+  /**
+   * Suppression de toutes les courses.
+   */
+  public synchronized void clear() {
+    for (int z = 0; z <= BASE_ZOOM; z++) {
+      levels[z] = new CellMap();
+      max[z] = 0;
+      isMaxDirty[z] = false;
+    }
+  }
+
+  /**
+   * Restitue le nombre de courses d'une cellule.
+   */
+  public synchronized int get(int zoom, int cx, int cy) {
+    return levels[zoom].get(key(cx, cy));
+  }
+
+  /**
+   * Lecture d'un bloc de cellules.
+   *
+   * @param zoom
+   *          le niveau de zoom OpenStreetMap.
+   * @param cx
+   *          la premi&egrave;re colonne.
+   * @param cy
+   *          la premi&egrave;re ligne.
+   * @param n
+   *          le nombre de cellules par c&ocirc;t&eacute;.
+   * @param counts
+   *          le r&eacute;sultat, ligne par ligne.
+   * @return le nombre de cellules non vides.
+   */
+  public synchronized int get(int zoom, int cx, int cy, int n, int[] counts) {
+    CellMap map = levels[zoom];
+    int nb = 0;
+    for (int j = 0; j < n; j++) {
+      for (int i = 0; i < n; i++) {
+        int c = map.get(key(cx + i, cy + j));
+        counts[j * n + i] = c;
+        if (c > 0) {
+          nb++;
+        }
+      }
+    }
+    return nb;
+  }
+
+  /**
+   * Restitue le nombre max de courses d'une cellule d'un niveau.
+   */
+  public synchronized int getMax(int zoom) {
+    if (isMaxDirty[zoom]) {
+      max[zoom] = levels[zoom].max();
+      isMaxDirty[zoom] = false;
+    }
+    return max[zoom];
+  }
+
+  /**
+   * Restitue le nombre de cellules non vides d'un niveau.
+   */
+  public synchronized int size(int zoom) {
+    return levels[zoom].size();
+  }
+
+  private static long[] distinct(long[] keys, int size) {
+    Arrays.sort(keys, 0, size);
+    int n = 0;
+    for (int i = 0; i < size; i++) {
+      if (n == 0 || keys[i] != keys[n - 1]) {
+        keys[n++] = keys[i];
+      }
+    }
+    return Arrays.copyOf(keys, n);
+  }
+
+  /**
+   * Table de hachage cl&eacute; longue vers compteur, &agrave; adressage
+   * ouvert.
+   */
+  private static class CellMap {
+    private static final long EMPTY = -1;
+
+    private long[]            keys;
+
+    private int[]             values;
+
+    /** Nombre de cases occup&eacute;es, compteurs nuls compris. */
+    private int               used;
+
+    private int               size;
+
+    CellMap() {
+      keys = new long[64];
+      values = new int[64];
+      Arrays.fill(keys, EMPTY);
+    }
+
+    int get(long key) {
+      int mask = keys.length - 1;
+      int i = hash(key) & mask;
+      while (true) {
+        long k = keys[i];
+        if (k == key) {
+          return values[i];
+        }
+        if (k == EMPTY) {
+          return 0;
+        }
+        i = (i + 1) & mask;
+      }
+    }
+
+    void add(long key, int delta) {
+      if ((used + 1) * 4 > keys.length * 3) {
+        rehash();
+      }
+      int mask = keys.length - 1;
+      int i = hash(key) & mask;
+      while (keys[i] != EMPTY && keys[i] != key) {
+        i = (i + 1) & mask;
+      }
+      if (keys[i] == EMPTY) {
+        if (delta <= 0) {
+          return;
+        }
+        keys[i] = key;
+        used++;
+      }
+      int old = values[i];
+      values[i] = Math.max(0, old + delta);
+      if (old == 0 && values[i] > 0) {
+        size++;
+      }
+      else if (old > 0 && values[i] == 0) {
+        size--;
+      }
+    }
+
+    int max() {
+      int m = 0;
+      for (int v : values) {
+        m = Math.max(m, v);
+      }
+      return m;
+    }
+
+    int size() {
+      return size;
+    }
+
+    /** Agrandissement, les compteurs nuls sont supprim&eacute;s. */
+    private void rehash() {
+      long[] oldKeys = keys;
+      int[] oldValues = values;
+      int capacity = 64;
+      while (capacity * 3 < (size + 1) * 8) {
+        capacity *= 2;
+      }
+      keys = new long[capacity];
+      values = new int[capacity];
+      Arrays.fill(keys, EMPTY);
+      used = 0;
+      int mask = capacity - 1;
+      for (int j = 0; j < oldKeys.length; j++) {
+        if (oldKeys[j] != EMPTY && oldValues[j] > 0) {
+          int i = hash(oldKeys[j]) & mask;
+          while (keys[i] != EMPTY) {
+            i = (i + 1) & mask;
+          }
+          keys[i] = oldKeys[j];
+          values[i] = oldValues[j];
+          used++;
+        }
+      }
+    }
+
+    private static int hash(long key) {
+      long h = key * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32));
+    }
+  }
+
+}
@@ -0,0 +1,241 @@
+package fr.turtlesport.map;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.swing.ImageIcon;
+
+import org.jdesktop.swingx.mapviewer.Tile;
+import org.jdesktop.swingx.mapviewer.TileFactoryInfo;
+
+/**
+ * Carte de chaleur de toutes les courses.
+ * <p>
+ * Les tuiles sont dessin&eacute;es &agrave; partir de la grille de
+ * densit&eacute; en m&eacute;moire ({@link Heatmap}) puis
+ * conserv&eacute;es jusqu'&agrave; la prochaine modification de la grille.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public class HeatmapTileFactory extends AbstractTileFactoryExtended {
+
+  /** Nom de la map. */
+  public static final String            NAME           = "heatmap";
+
+  private static final ImageIcon        ICON           = new ImageIcon(AbstractTileFactoryExtended.class
+                                                           .getResource("map-off14.png"));
+
+  private static final int              TOP_ZOOM_LEVEL = 19;
+
+  private static final int              TILE_SIZE      = 256;
+
+  /** Nombre de tuiles conserv&eacute;es. */
+  private static final int              MAX_TILES      = 64;
+
+  private static final int              BACKGROUND     = 0x202020;
+
+  /** Palette : bleu, rouge, jaune puis blanc. */
+  private static final int[]            PALETTE        = new int[256];
+  static {
+    Color[] colors = { new Color(BACKGROUND),
+        new Color(0x2040C0),
+        new Color(0xE02020),
+        new Color(0xFFD000),
+        Color.WHITE };
+    for (int i = 0; i < PALETTE.length; i++) {
+      double t = i / 255.0 * (colors.length - 1);
+      int k = Math.min(colors.length - 2, (int) t);
+      double f = t - k;
+      Color c1 = colors[k];
+      Color c2 = colors[k + 1];
+      int r = (int) (c1.getRed() + (c2.getRed() - c1.getRed()) * f);
+      int g = (int) (c1.getGreen() + (c2.getGreen() - c1.getGreen()) * f);
+      int b = (int) (c1.getBlue() + (c2.getBlue() - c1.getBlue()) * f);
+      PALETTE[i] = (r << 16) | (g << 8) | b;
+    }
+  }
+
+  private final Map<Long, BufferedImage> images        = new LinkedHashMap<Long, BufferedImage>(MAX_TILES + 1,
+                                                                                                 0.75f,
+                                                                                                 true) {
+                                                         @Override
+                                                         protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+                                                           return size() > MAX_TILES;
+                                                         }
+                                                       };
+
+  private int                           version        = -1;
+
+  private int[]                         counts;
+
+  private int[]                         pixels         = new int[TILE_SIZE
+                                                                 * TILE_SIZE];
+
+  /**
+   *
+   */
+  public HeatmapTileFactory() {
+    super(new TileFactoryInfo(NAME,
+                              1,
+                              TOP_ZOOM_LEVEL - 2,
+                              TOP_ZOOM_LEVEL,
+                              TILE_SIZE,
+                              true,
+                              true,
+                              "",
+                              "x",
+                              "y",
+                              "z"));
+    setSmallIcon(ICON);
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.map.AbstractTileFactoryExtended#getBaseURL()
+   */
+  @Override
+  public String getBaseURL() {
+    return null;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.map.AbstractTileFactoryExtended#getName()
+   */
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.map.AbstractTileFactoryExtended#isConnected()
+   */
+  @Override
+  public boolean isConnected() {
+    return false;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.map.AbstractTileFactoryExtended#isEditable()
+   */
+  @Override
+  public boolean isEditable() {
+    return false;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see org.jdesktop.swingx.mapviewer.TileFactory#getTile(int, int, int)
+   */
+  @Override
+  public Tile getTile(int x, int y, int zoom) {
+    Heatmap.getInstance().start();
+
+    int nbTiles = getMapSize(zoom).width;
+    final int tileX = ((x % nbTiles) + nbTiles) % nbTiles;
+    final int tileY = y;
+    final int osmZoom = TOP_ZOOM_LEVEL - zoom;
+    return new Tile(tileX, tileY, zoom) {
+
+      public boolean isLoaded() {
+        return true;
+      }
+
+      public BufferedImage getImage() {
+        return image(tileX, tileY, osmZoom);
+      }
+
+    };
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see
+   * org.jdesktop.swingx.mapviewer.TileFactory#startLoading(org.jdesktop.swingx
+   * .mapviewer.Tile)
+   */
+  @Override
+  protected void startLoading(Tile tile) {
+  }
+
+  /**
+   * Restitue l'image d'une tuile.
+   *
+   * @param x
+   *          la colonne.
+   * @param y
+   *          la ligne.
+   * @param zoom
+   *          le niveau de zoom OpenStreetMap.
+   */
+  private synchronized BufferedImage image(int x, int y, int zoom) {
+    Heatmap heatmap = Heatmap.getInstance();
+    int currentVersion = heatmap.getVersion();
+    if (currentVersion != version) {
+      images.clear();
+      version = currentVersion;
+    }
+    long key = ((long) zoom << 48) | ((long) x << 24) | (y & 0xFFFFFF);
+    BufferedImage img = images.get(key);
+    if (img == null) {
+      img = render(heatmap.getGrid(), x, y, zoom);
+      images.put(key, img);
+    }
+    return img;
+  }
+
+  private BufferedImage render(HeatmapGrid grid, int x, int y, int zoom) {
+    int level = Math.min(zoom, HeatmapGrid.BASE_ZOOM);
+    int cellSize = HeatmapGrid.CELL_SIZE << (zoom - level);
+    int n = TILE_SIZE / cellSize;
+    if (counts == null || counts.length < n * n) {
+      counts = new int[n * n];
+    }
+
+    Arrays.fill(pixels, BACKGROUND);
+    int nb = (y < 0 || y >= (1 << zoom)) ? 0 : grid.get(level,
+                                                       x * n,
+                                                       y * n,
+                                                       n,
+                                                       counts);
+    if (nb > 0) {
+      double max = Math.log1p(Math.max(1, grid.getMax(level)));
+      for (int j = 0; j < n; j++) {
+        for (int i = 0; i < n; i++) {
+          int c = counts[j * n + i];
+          if (c == 0) {
+            continue;
+          }
+          // echelle logarithmique, une course reste visible
+          int index = 64 + (int) (191 * Math.log1p(c) / max);
+          int color = PALETTE[Math.min(255, index)];
+          for (int py = j * cellSize; py < (j + 1) * cellSize; py++) {
+            Arrays.fill(pixels,
+                        py * TILE_SIZE + i * cellSize,
+                        py * TILE_SIZE + (i + 1) * cellSize,
+                        color);
+          }
+        }
+      }
+    }
+
+    BufferedImage img = new BufferedImage(TILE_SIZE,
+                                          TILE_SIZE,
+                                          BufferedImage.TYPE_INT_RGB);
+    img.setRGB(0, 0, TILE_SIZE, TILE_SIZE, pixels, 0, TILE_SIZE);
+    return img;
+  }
+
+}
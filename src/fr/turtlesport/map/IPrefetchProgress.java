@@ -0,0 +1,43 @@
+package fr.turtlesport.map;
+
+/**
+ * Progression du t&eacute;l&eacute;chargement des tuiles.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public interface IPrefetchProgress {
+
+  /**
+   * Annule le t&eacute;l&eacute;chargement.
+   */
+  boolean abortPrefetch();
+
+  /**
+   * D&eacute;but du t&eacute;l&eacute;chargement.
+   *
+   * @param nbTiles
+   *          le nombre de tuiles.
+   */
+  void beginPrefetch(int nbTiles);
+
+  /**
+   * Une tuile a &eacute;t&eacute; trait&eacute;e.
+   *
+   * @param done
+   *          le nombre de tuiles trait&eacute;es.
+   * @param nbFailed
+   *          le nombre de tuiles en &eacute;chec.
+   */
+  void prefetch(int done, int nbFailed);
+
+  /**
+   * Fin du t&eacute;l&eacute;chargement.
+   *
+   * @param isComplete
+   *          <code>false</code> si le t&eacute;l&eacute;chargement a
+   *          &eacute;t&eacute; annul&eacute;.
+   */
+  void endPrefetch(boolean isComplete);
+
+}
@@ -51,6 +51,17 @@ public final class OpenStreetMapTileFactory extends AbstractTileFactoryExtended
     return true;
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.map.AbstractTileFactoryExtended#isPrefetchAllowed()
+   */
+  @Override
+  public boolean isPrefetchAllowed() {
+    // interdit par les conditions d'utilisation des serveurs OSM
+    return false;
+  }
+
   /*
    * (non-Javadoc)
    * 
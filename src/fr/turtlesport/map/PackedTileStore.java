@@ -0,0 +1,702 @@
+package fr.turtlesport.map;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import fr.turtlesport.log.TurtleLogger;
+
+/**
+ * Stockage des tuiles d'un fournisseur dans un seul fichier.
+ * <p>
+ * Les tuiles sont ajout&eacute;es &agrave; la fin d'un fichier de donn&eacute;es
+ * (<code>tiles-N.pack</code>) et chaque ajout ou suppression est
+ * enregistr&eacute; &agrave; la fin d'un index (<code>tiles-N.idx</code>)
+ * relu au d&eacute;marrage. Le fichier de donn&eacute;es est projet&eacute;
+ * en m&eacute;moire une seule fois par ouverture ; les tuiles ajout&eacute;es
+ * ensuite sont lues par le canal. Quand la place perdue par les
+ * tuiles supprim&eacute;es d&eacute;passe la place utile, les tuiles sont
+ * recopi&eacute;es en t&acirc;che de fond dans une nouvelle
+ * g&eacute;n&eacute;ration <code>N+1</code>.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public class PackedTileStore {
+  private static TurtleLogger                 log;
+  static {
+    log = (TurtleLogger) TurtleLogger.getLogger(PackedTileStore.class);
+  }
+
+  /** Place perdue minimum avant compactage. */
+  private static final long                   MIN_COMPACT_SIZE = 4L * 1024 * 1024;
+
+  private static final Pattern                PATTERN_FILE     = Pattern
+                                                                   .compile("tiles-(\\d+)\\.(pack|idx|tmp)");
+
+  /** Nom des fichiers de l'ancien cache (une tuile par fichier). */
+  private static final Pattern                PATTERN_OLD_FILE = Pattern
+                                                                   .compile("[0-9A-F]{32}");
+
+  private static ExecutorService              executor;
+
+  private final File                          dir;
+
+  /** Index : offset, taille et date de chaque tuile, de la moins &agrave; la plus r&eacute;cemment utilis&eacute;e. */
+  private final LinkedHashMap<String, long[]> index            = new LinkedHashMap<String, long[]>(256,
+                                                                                                    0.75f,
+                                                                                                    true);
+
+  private int                                 generation;
+
+  private RandomAccessFile                    pack;
+
+  private FileChannel                         channel;
+
+  private MappedByteBuffer                    mapped;
+
+  private boolean                             isMapped;
+
+  private DataOutputStream                    idxOut;
+
+  /** Taille des tuiles valides. */
+  private long                                liveSize;
+
+  /** Taille des tuiles supprim&eacute;es. */
+  private long                                deadSize;
+
+  /** Taille max en octets. */
+  private long                                maxSize          = Long.MAX_VALUE;
+
+  /** Age max en ms. */
+  private long                                maxAge           = Long.MAX_VALUE;
+
+  private boolean                             isOpen;
+
+  private boolean                             isCompacting;
+
+  /**
+   * @param dir
+   *          le r&eacute;pertoire du fournisseur.
+   */
+  public PackedTileStore(File dir) {
+    super();
+    this.dir = dir;
+  }
+
+  /**
+   * Valorise la taille max en octets.
+   */
+  public synchronized void setMaxSize(long maxSize) {
+    this.maxSize = maxSize;
+    evict();
+  }
+
+  /**
+   * Valorise l'&acirc;ge max des tuiles en ms.
+   */
+  public synchronized void setMaxAge(long maxAge) {
+    this.maxAge = maxAge;
+  }
+
+  /**
+   * Restitue la taille des tuiles en octets.
+   */
+  public synchronized long length() {
+    ensureOpen();
+    return liveSize;
+  }
+
+  /**
+   * Restitue le nombre de tuiles.
+   */
+  public synchronized int size() {
+    ensureOpen();
+    return index.size();
+  }
+
+  /**
+   * D&eacute;termine si une tuile est pr&eacute;sente et valide.
+   *
+   * @param key
+   *          la cl&eacute; de la tuile.
+   */
+  public synchronized boolean contains(String key) {
+    if (!ensureOpen()) {
+      return false;
+    }
+    long[] entry = index.get(key);
+    return entry != null && !isTooOld(entry[2]);
+  }
+
+  /**
+   * Restitue une tuile.
+   *
+   * @param key
+   *          la cl&eacute; de la tuile.
+   * @return la tuile ou <code>null</code> si absente ou trop vieille.
+   */
+  public synchronized byte[] get(String key) {
+    if (!ensureOpen()) {
+      return null;
+    }
+    long[] entry = index.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (isTooOld(entry[2])) {
+      remove(key);
+      return null;
+    }
+    try {
+      int length = (int) entry[1];
+      byte[] bytes = new byte[length];
+      if (!isMapped) {
+        // projection unique : pas de nouvelle projection a chaque ajout
+        long size = Math.min(channel.size(), Integer.MAX_VALUE);
+        mapped = (size > 0) ? channel.map(FileChannel.MapMode.READ_ONLY,
+                                          0,
+                                          size) : null;
+        isMapped = true;
+      }
+      if (mapped == null || entry[0] + length > mapped.capacity()) {
+        // tuile ajoutee apres la projection
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        while (buf.hasRemaining()) {
+          if (channel.read(buf, entry[0] + buf.position()) < 0) {
+            throw new EOFException();
+          }
+        }
+        return bytes;
+      }
+      ByteBuffer buf = mapped.duplicate();
+      buf.position((int) entry[0]);
+      buf.get(bytes);
+      return bytes;
+    }
+    catch (IOException e) {
+      log.error("", e);
+      remove(key);
+      return null;
+    }
+  }
+
+  /**
+   * Ajout d'une tuile.
+   *
+   * @param key
+   *          la cl&eacute; de la tuile.
+   * @param bytes
+   *          la tuile.
+   */
+  public void put(String key, byte[] bytes) {
+    put(key, bytes, System.currentTimeMillis());
+  }
+
+  private synchronized void put(String key, byte[] bytes, long time) {
+    if (!ensureOpen()) {
+      return;
+    }
+    try {
+      long offset = channel.size();
+      ByteBuffer buf = ByteBuffer.wrap(bytes);
+      long pos = offset;
+      while (buf.hasRemaining()) {
+        pos += channel.write(buf, pos);
+      }
+      writeIndex(idxOut, key, offset, bytes.length, time);
+      idxOut.flush();
+
+      long[] old = index.put(key, new long[] { offset, bytes.length, time });
+      if (old != null) {
+        liveSize -= old[1];
+        deadSize += old[1];
+      }
+      liveSize += bytes.length;
+      evict();
+    }
+    catch (IOException e) {
+      log.error("", e);
+    }
+  }
+
+  /**
+   * Suppression d'une tuile.
+   */
+  public synchronized void remove(String key) {
+    if (!ensureOpen()) {
+      return;
+    }
+    long[] entry = index.remove(key);
+    if (entry == null) {
+      return;
+    }
+    liveSize -= entry[1];
+    deadSize += entry[1];
+    try {
+      writeIndex(idxOut, key, entry[0], -1, 0);
+      idxOut.flush();
+    }
+    catch (IOException e) {
+      log.error("", e);
+    }
+    compactIfNeeded();
+  }
+
+  /**
+   * Suppression de toutes les tuiles et des fichiers.
+   */
+  public synchronized void clear() {
+    close();
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File f : files) {
+        if (PATTERN_FILE.matcher(f.getName()).matches()) {
+          f.delete();
+        }
+      }
+    }
+    index.clear();
+    liveSize = 0;
+    deadSize = 0;
+    generation++;
+  }
+
+  /**
+   * Fermeture des fichiers.
+   */
+  public synchronized void close() {
+    if (!isOpen) {
+      return;
+    }
+    isOpen = false;
+    if (mapped != null) {
+      unmap(mapped);
+      mapped = null;
+    }
+    isMapped = false;
+    try {
+      idxOut.close();
+    }
+    catch (IOException e) {
+    }
+    try {
+      pack.close();
+    }
+    catch (IOException e) {
+    }
+  }
+
+  /**
+   * Import en t&acirc;che de fond de l'ancien cache : une tuile par fichier
+   * nomm&eacute; par le MD5 de l'url.
+   */
+  public void importFiles() {
+    String[] names = dir.list();
+    if (names == null) {
+      return;
+    }
+    boolean isFound = false;
+    for (String name : names) {
+      if (PATTERN_OLD_FILE.matcher(name).matches()) {
+        isFound = true;
+        break;
+      }
+    }
+    if (!isFound) {
+      return;
+    }
+
+    getExecutor().execute(new Runnable() {
+      public void run() {
+        long deb = System.currentTimeMillis();
+        int nb = 0;
+        File[] files = dir.listFiles();
+        if (files == null) {
+          return;
+        }
+        for (File f : files) {
+          if (!f.isFile() || !PATTERN_OLD_FILE.matcher(f.getName()).matches()) {
+            continue;
+          }
+          long time = f.lastModified();
+          if (!isTooOld(time)) {
+            try {
+              byte[] bytes = readFile(f);
+              synchronized (PackedTileStore.this) {
+                if (!index.containsKey(f.getName())) {
+                  put(f.getName(), bytes, time);
+                  nb++;
+                }
+              }
+            }
+            catch (IOException e) {
+              log.warn("import " + f + " : " + e);
+            }
+          }
+          f.delete();
+        }
+        if (log.isInfoEnabled()) {
+          log.info(dir.getName() + " import " + nb + " tuiles (ms) --> "
+                   + (System.currentTimeMillis() - deb));
+        }
+      }
+    });
+  }
+
+  private boolean isTooOld(long time) {
+    return maxAge != Long.MAX_VALUE
+           && time < System.currentTimeMillis() - maxAge;
+  }
+
+  /**
+   * Suppression des tuiles les moins r&eacute;cemment utilis&eacute;es
+   * au-del&agrave; de la taille max.
+   */
+  private void evict() {
+    if (liveSize > maxSize) {
+      List<String> keys = new ArrayList<String>();
+      long size = liveSize;
+      Iterator<Map.Entry<String, long[]>> it = index.entrySet().iterator();
+      while (size > maxSize && it.hasNext()) {
+        Map.Entry<String, long[]> e = it.next();
+        keys.add(e.getKey());
+        size -= e.getValue()[1];
+      }
+      for (String key : keys) {
+        remove(key);
+      }
+    }
+    compactIfNeeded();
+  }
+
+  private void compactIfNeeded() {
+    if (!isCompacting && deadSize > MIN_COMPACT_SIZE && deadSize > liveSize) {
+      isCompacting = true;
+      getExecutor().execute(new Runnable() {
+        public void run() {
+          try {
+            compact();
+          }
+          catch (IOException e) {
+            log.error("", e);
+          }
+          finally {
+            synchronized (PackedTileStore.this) {
+              isCompacting = false;
+            }
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Recopie des tuiles valides dans une nouvelle g&eacute;n&eacute;ration.
+   * La copie est faite sans verrou ; seules les tuiles ajout&eacute;es
+   * pendant la copie sont recopi&eacute;es sous verrou.
+   */
+  private void compact() throws IOException {
+    long deb = System.currentTimeMillis();
+
+    Map<String, long[]> snapshot;
+    FileChannel oldChannel;
+    int newGeneration;
+    synchronized (this) {
+      if (!isOpen) {
+        return;
+      }
+      snapshot = new HashMap<String, long[]>(index.size());
+      for (Map.Entry<String, long[]> e : index.entrySet()) {
+        snapshot.put(e.getKey(), e.getValue());
+      }
+      oldChannel = channel;
+      newGeneration = generation + 1;
+    }
+
+    File newPackFile = new File(dir, "tiles-" + newGeneration + ".pack");
+    File tmpFile = new File(dir, "tiles-" + newGeneration + ".tmp");
+    RandomAccessFile newPack = null;
+    boolean isSwapped = false;
+    try {
+      newPack = new RandomAccessFile(newPackFile, "rw");
+      newPack.setLength(0);
+      FileChannel newChannel = newPack.getChannel();
+      Map<String, Long> copied = new HashMap<String, Long>(snapshot.size());
+      for (Map.Entry<String, long[]> e : snapshot.entrySet()) {
+        long[] entry = e.getValue();
+        copied.put(e.getKey(), copy(oldChannel, entry, newChannel));
+      }
+
+      synchronized (this) {
+        if (!isOpen || channel != oldChannel) {
+          // cache efface pendant la copie
+          return;
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+        LinkedHashMap<String, long[]> newIndex = new LinkedHashMap<String, long[]>(index.size(),
+                                                                                   0.75f,
+                                                                                   true);
+        try {
+          for (Map.Entry<String, long[]> e : index.entrySet()) {
+            long[] entry = e.getValue();
+            long[] old = snapshot.get(e.getKey());
+            long offset = (old == entry) ? copied.get(e.getKey())
+                : copy(channel, entry, newChannel);
+            writeIndex(out, e.getKey(), offset, (int) entry[1], entry[2]);
+            newIndex.put(e.getKey(), new long[] { offset, entry[1], entry[2] });
+          }
+        }
+        finally {
+          out.close();
+        }
+        newChannel.force(false);
+
+        File idxFile = new File(dir, "tiles-" + newGeneration + ".idx");
+        if (!tmpFile.renameTo(idxFile)) {
+          throw new IOException("rename " + tmpFile);
+        }
+
+        // bascule sur la nouvelle generation
+        close();
+        int oldGeneration = generation;
+        generation = newGeneration;
+        pack = newPack;
+        channel = newChannel;
+        isSwapped = true;
+        idxOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(idxFile,
+                                                                                    true)));
+        isOpen = true;
+        index.clear();
+        index.putAll(newIndex);
+        deadSize = 0;
+
+        // si la projection n'a pu etre liberee (Windows) les fichiers
+        // restants seront supprimes a la prochaine ouverture
+        new File(dir, "tiles-" + oldGeneration + ".idx").delete();
+        new File(dir, "tiles-" + oldGeneration + ".pack").delete();
+      }
+    }
+    finally {
+      if (!isSwapped) {
+        // copie interrompue (cache efface, erreur) : generation abandonnee
+        if (newPack != null) {
+          try {
+            newPack.close();
+          }
+          catch (IOException e) {
+            log.warn(e);
+          }
+        }
+        newPackFile.delete();
+        tmpFile.delete();
+      }
+    }
+
+    if (log.isInfoEnabled()) {
+      log.info(dir.getName() + " compactage " + snapshot.size()
+               + " tuiles (ms) --> " + (System.currentTimeMillis() - deb));
+    }
+  }
+
+  private static long copy(FileChannel src, long[] entry, FileChannel dst) throws IOException {
+    long offset = dst.size();
+    long pos = 0;
+    while (pos < entry[1]) {
+      pos += src.transferTo(entry[0] + pos, entry[1] - pos, dst.position(offset
+                                                                          + pos));
+    }
+    return offset;
+  }
+
+  /**
+   * Ouverture des fichiers de la derni&egrave;re g&eacute;n&eacute;ration et
+   * lecture de l'index.
+   */
+  private boolean ensureOpen() {
+    if (isOpen) {
+      return true;
+    }
+    try {
+      open();
+      isOpen = true;
+      evict();
+    }
+    catch (IOException e) {
+      log.error("", e);
+    }
+    return isOpen;
+  }
+
+  private void open() throws IOException {
+    dir.mkdirs();
+
+    // derniere generation, suppression des autres
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File f : files) {
+        Matcher m = PATTERN_FILE.matcher(f.getName());
+        if (m.matches() && "idx".equals(m.group(2))) {
+          generation = Math.max(generation, Integer.parseInt(m.group(1)));
+        }
+      }
+      for (File f : files) {
+        Matcher m = PATTERN_FILE.matcher(f.getName());
+        if (m.matches() && Integer.parseInt(m.group(1)) != generation) {
+          f.delete();
+        }
+      }
+    }
+
+    File packFile = new File(dir, "tiles-" + generation + ".pack");
+    File idxFile = new File(dir, "tiles-" + generation + ".idx");
+    pack = new RandomAccessFile(packFile, "rw");
+    channel = pack.getChannel();
+    long packSize = channel.size();
+
+    index.clear();
+    liveSize = 0;
+    deadSize = 0;
+    long validLength = 0;
+    if (idxFile.isFile()) {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(idxFile)));
+      try {
+        while (true) {
+          String key = in.readUTF();
+          long offset = in.readLong();
+          int length = in.readInt();
+          long time = in.readLong();
+          // cles ASCII : un octet par caractere
+          validLength += 2 + key.length() + 8 + 4 + 8;
+
+          long[] old = (length < 0) ? index.remove(key) : index.put(key,
+                                                                    new long[] {
+                                                                        offset,
+                                                                        length,
+                                                                        time });
+          if (old != null) {
+            liveSize -= old[1];
+          }
+          if (length >= 0) {
+            if (offset + length > packSize || isTooOld(time)) {
+              index.remove(key);
+            }
+            else {
+              liveSize += length;
+            }
+          }
+        }
+      }
+      catch (EOFException e) {
+        // fin de l'index
+      }
+      finally {
+        in.close();
+      }
+
+      // enregistrement incomplet (arret brutal)
+      if (validLength < idxFile.length()) {
+        RandomAccessFile raf = new RandomAccessFile(idxFile, "rw");
+        try {
+          raf.setLength(validLength);
+        }
+        finally {
+          raf.close();
+        }
+      }
+    }
+    deadSize = Math.max(0, packSize - liveSize);
+    idxOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(idxFile,
+                                                                                true)));
+    mapped = null;
+    isMapped = false;
+
+    if (log.isInfoEnabled()) {
+      log.info(dir.getName() + " generation=" + generation + " tuiles="
+               + index.size() + " taille=" + liveSize + " perdue=" + deadSize);
+    }
+  }
+
+  private static void writeIndex(DataOutputStream out,
+                                 String key,
+                                 long offset,
+                                 int length,
+                                 long time) throws IOException {
+    out.writeUTF(key);
+    out.writeLong(offset);
+    out.writeInt(length);
+    out.writeLong(time);
+  }
+
+  /**
+   * Lib&eacute;ration imm&eacute;diate d'une projection m&eacute;moire : sous
+   * Windows le fichier projet&eacute; ne peut &ecirc;tre supprim&eacute;.
+   * Sans acc&egrave;s au <code>cleaner</code>, la projection est
+   * lib&eacute;r&eacute;e par le ramasse-miettes.
+   */
+  private static void unmap(MappedByteBuffer buffer) {
+    try {
+      Method getCleaner = buffer.getClass().getMethod("cleaner");
+      getCleaner.setAccessible(true);
+      Object cleaner = getCleaner.invoke(buffer);
+      if (cleaner != null) {
+        Method clean = cleaner.getClass().getMethod("clean");
+        clean.setAccessible(true);
+        clean.invoke(cleaner);
+      }
+    }
+    catch (Throwable e) {
+      log.debug("unmap " + e);
+    }
+  }
+
+  private static byte[] readFile(File f) throws IOException {
+    byte[] bytes = new byte[(int) f.length()];
+    DataInputStream in = new DataInputStream(new FileInputStream(f));
+    try {
+      in.readFully(bytes);
+    }
+    finally {
+      in.close();
+    }
+    return bytes;
+  }
+
+  private static synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "PackedTileStore");
+          t.setDaemon(true);
+          t.setPriority(Thread.MIN_PRIORITY);
+          return t;
+        }
+      });
+    }
+    return executor;
+  }
+
+}
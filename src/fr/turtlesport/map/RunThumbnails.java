@@ -0,0 +1,413 @@
+package fr.turtlesport.map;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.imageio.ImageIO;
+import javax.swing.SwingUtilities;
+
+import fr.turtlesport.db.RunChangeListener;
+import fr.turtlesport.db.RunTrkTableManager;
+import fr.turtlesport.geo.DouglasPeucker;
+import fr.turtlesport.log.TurtleLogger;
+import fr.turtlesport.util.Location;
+
+/**
+ * Vignettes des courses.
+ * <p>
+ * Chaque vignette est le trac&eacute; simplifi&eacute; de la course sur un
+ * fond fixe (sans tuile), enregistr&eacute;e en PNG dans le r&eacute;pertoire
+ * <code>thumbnails</code> sous le nom <code>id-version.png</code> : la
+ * version des points est relue avant chaque premi&egrave;re utilisation et
+ * une course modifi&eacute;e est redessin&eacute;e. Les vignettes sont
+ * calcul&eacute;es en t&acirc;che de fond, la derni&egrave;re demande en
+ * premier : les lignes visibles, redemand&eacute;es &agrave; chaque
+ * d&eacute;filement, passent avant celles qui ne le sont plus.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public final class RunThumbnails implements RunChangeListener {
+  private static TurtleLogger              log;
+  static {
+    log = (TurtleLogger) TurtleLogger.getLogger(RunThumbnails.class);
+  }
+
+  /** Largeur des vignettes. */
+  public static final int                  WIDTH       = 120;
+
+  /** Hauteur des vignettes. */
+  public static final int                  HEIGHT      = 90;
+
+  /** Nombre maximal de demandes en attente. */
+  private static final int                 MAX_PENDING = 256;
+
+  private static final int                 MARGIN      = 8;
+
+  private static RunThumbnails             singleton   = new RunThumbnails();
+
+  private final File                       dir         = new File(Location
+                                                           .userLocation(),
+                                                       "thumbnails");
+
+  /** Vignettes disponibles. */
+  private final Map<Integer, File>         files       = new HashMap<Integer, File>();
+
+  /** Courses sans point GPS. */
+  private final Set<Integer>               noTrack     = new HashSet<Integer>();
+
+  /** Demandes en attente, la derni&egrave;re en fin. */
+  private final LinkedHashMap<Integer, List<Runnable>> pending = new LinkedHashMap<Integer, List<Runnable>>();
+
+  private BufferedImage                    background;
+
+  private Thread                           worker;
+
+  private RunThumbnails() {
+    super();
+  }
+
+  /**
+   * Restitue l'instance.
+   */
+  public static RunThumbnails getInstance() {
+    return singleton;
+  }
+
+  /**
+   * Restitue le fichier de la vignette d'une course si elle est
+   * disponible, sans acc&egrave;s disque ni base.
+   *
+   * @param idRun
+   *          l'id de la course.
+   * @return le fichier ou <code>null</code>.
+   */
+  public synchronized File getFile(int idRun) {
+    return files.get(idRun);
+  }
+
+  /**
+   * Demande la vignette d'une course.
+   *
+   * @param idRun
+   *          l'id de la course.
+   * @param onReady
+   *          ex&eacute;cut&eacute; sur l'EDT quand la vignette est
+   *          disponible ou <code>null</code>.
+   * @return le fichier si la vignette est d&eacute;j&agrave; disponible ou
+   *         <code>null</code>.
+   */
+  public synchronized File request(int idRun, Runnable onReady) {
+    File file = files.get(idRun);
+    if (file != null || noTrack.contains(idRun)) {
+      return file;
+    }
+
+    // la derniere demande passe en tete
+    List<Runnable> callbacks = pending.remove(idRun);
+    if (callbacks == null) {
+      callbacks = new ArrayList<Runnable>(1);
+    }
+    if (onReady != null) {
+      callbacks.add(onReady);
+    }
+    pending.put(idRun, callbacks);
+    if (pending.size() > MAX_PENDING) {
+      Iterator<Integer> it = pending.keySet().iterator();
+      it.next();
+      it.remove();
+    }
+
+    if (worker == null) {
+      worker = new Thread(new Runnable() {
+        public void run() {
+          work();
+        }
+      }, "RunThumbnails");
+      worker.setDaemon(true);
+      worker.setPriority(Thread.MIN_PRIORITY);
+      worker.start();
+    }
+    notifyAll();
+    return null;
+  }
+
+  /**
+   * Restitue l'infobulle HTML affichant la vignette d'une course, la
+   * vignette est demand&eacute;e si elle n'est pas disponible.
+   *
+   * @param idRun
+   *          l'id de la course.
+   * @return l'infobulle ou <code>null</code>.
+   */
+  public String getToolTip(int idRun) {
+    File file = request(idRun, null);
+    if (file == null) {
+      return null;
+    }
+    return "<html><body><img src=\"" + file.toURI() + "\" width=" + WIDTH
+           + " height=" + HEIGHT + "></body></html>";
+  }
+
+  /**
+   * Les points d'une course ont &eacute;t&eacute; modifi&eacute;s.
+   */
+  public synchronized void runStored(int idRun) {
+    files.remove(idRun);
+    noTrack.remove(idRun);
+  }
+
+  /**
+   * Une course a &eacute;t&eacute; supprim&eacute;e.
+   */
+  public void runDeleted(int idRun) {
+    runStored(idRun);
+    deleteFiles(idRun, null);
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.db.RunChangeListener#runsStored()
+   */
+  public void runsStored() {
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.db.RunChangeListener#runUpdated(int)
+   */
+  public void runUpdated(int idRun) {
+  }
+
+  private void work() {
+    while (true) {
+      int idRun;
+      List<Runnable> callbacks;
+      synchronized (this) {
+        while (pending.isEmpty()) {
+          try {
+            wait();
+          }
+          catch (InterruptedException e) {
+            return;
+          }
+        }
+        Map.Entry<Integer, List<Runnable>> last = null;
+        for (Map.Entry<Integer, List<Runnable>> e : pending.entrySet()) {
+          last = e;
+        }
+        idRun = last.getKey();
+        callbacks = last.getValue();
+        pending.remove(idRun);
+      }
+
+      File file = null;
+      boolean isError = false;
+      try {
+        file = compute(idRun);
+      }
+      catch (Throwable e) {
+        log.error("idRun=" + idRun, e);
+        isError = true;
+      }
+
+      synchronized (this) {
+        if (file != null) {
+          files.put(idRun, file);
+        }
+        else if (!isError) {
+          noTrack.add(idRun);
+        }
+      }
+      if (file != null) {
+        for (Runnable r : callbacks) {
+          SwingUtilities.invokeLater(r);
+        }
+      }
+    }
+  }
+
+  private File compute(int idRun) throws SQLException, IOException {
+    long version = RunTrkTableManager.getInstance().getDataVersion(idRun);
+    if (version == 0) {
+      return null;
+    }
+    final String name = idRun + "-" + Long.toHexString(version) + ".png";
+    File file = new File(dir, name);
+    if (file.isFile()) {
+      return file;
+    }
+
+    int[] positions = RunTrkTableManager.getInstance().getPositions(idRun);
+    if (positions.length < 4) {
+      return null;
+    }
+
+    long deb = System.currentTimeMillis();
+    BufferedImage img = render(positions);
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("mkdirs " + dir);
+    }
+    File tmp = new File(dir, name + ".tmp");
+    ImageIO.write(img, "png", tmp);
+    if (!tmp.renameTo(file)) {
+      tmp.delete();
+      throw new IOException("rename " + tmp);
+    }
+    // anciennes versions
+    deleteFiles(idRun, name);
+
+    if (log.isDebugEnabled()) {
+      log.debug("compute idRun=" + idRun + " (ms) --> "
+                + (System.currentTimeMillis() - deb));
+    }
+    return file;
+  }
+
+  private void deleteFiles(int idRun, final String keep) {
+    final String prefix = idRun + "-";
+    File[] olds = dir.listFiles(new FilenameFilter() {
+      public boolean accept(File d, String n) {
+        return n.startsWith(prefix) && !n.equals(keep);
+      }
+    });
+    if (olds != null) {
+      for (File f : olds) {
+        f.delete();
+      }
+    }
+  }
+
+  /**
+   * Dessin de la vignette.
+   */
+  private BufferedImage render(int[] positions) {
+    int n = positions.length / 2;
+    double[] x = new double[n];
+    double[] y = new double[n];
+    double minX = Double.MAX_VALUE;
+    double minY = Double.MAX_VALUE;
+    double maxX = -Double.MAX_VALUE;
+    double maxY = -Double.MAX_VALUE;
+    for (int i = 0; i < n; i++) {
+      double lat = positions[2 * i] * (180.0 / 0x80000000L);
+      double lon = positions[2 * i + 1] * (180.0 / 0x80000000L);
+      double sin = Math.sin(Math.toRadians(Math.max(-85, Math.min(85, lat))));
+      x[i] = lon;
+      y[i] = -Math.toDegrees(0.5 * Math.log((1 + sin) / (1 - sin)));
+      minX = Math.min(minX, x[i]);
+      maxX = Math.max(maxX, x[i]);
+      minY = Math.min(minY, y[i]);
+      maxY = Math.max(maxY, y[i]);
+    }
+
+    double scale = Math.min((WIDTH - 2 * MARGIN)
+                            / Math.max(1e-9, maxX - minX),
+                            (HEIGHT - 2 * MARGIN)
+                                / Math.max(1e-9, maxY - minY));
+    double offX = (WIDTH - (maxX - minX) * scale) / 2;
+    double offY = (HEIGHT - (maxY - minY) * scale) / 2;
+
+    // points utiles a la resolution de la vignette
+    double[] significance = DouglasPeucker.significance(x, y, null);
+    int[] indexes = DouglasPeucker.select(significance, 0.5 / scale);
+
+    Path2D.Float path = new Path2D.Float();
+    for (int k = 0; k < indexes.length; k++) {
+      int i = indexes[k];
+      float px = (float) (offX + (x[i] - minX) * scale);
+      float py = (float) (offY + (y[i] - minY) * scale);
+      if (k == 0) {
+        path.moveTo(px, py);
+      }
+      else {
+        path.lineTo(px, py);
+      }
+    }
+
+    BufferedImage img = new BufferedImage(WIDTH,
+                                          HEIGHT,
+                                          BufferedImage.TYPE_INT_RGB);
+    Graphics2D g2 = img.createGraphics();
+    try {
+      g2.drawImage(getBackground(), 0, 0, null);
+      g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                          RenderingHints.VALUE_ANTIALIAS_ON);
+      g2.setStroke(new BasicStroke(2f,
+                                   BasicStroke.CAP_ROUND,
+                                   BasicStroke.JOIN_ROUND));
+      g2.setColor(new Color(0xD02020));
+      g2.draw(path);
+
+      // depart et arrivee
+      int first = indexes[0];
+      int last = indexes[indexes.length - 1];
+      g2.setColor(new Color(0x20A020));
+      g2.fillOval((int) (offX + (x[first] - minX) * scale) - 3,
+                  (int) (offY + (y[first] - minY) * scale) - 3,
+                  6,
+                  6);
+      g2.setColor(Color.BLACK);
+      g2.fillOval((int) (offX + (x[last] - minX) * scale) - 3,
+                  (int) (offY + (y[last] - minY) * scale) - 3,
+                  6,
+                  6);
+    }
+    finally {
+      g2.dispose();
+    }
+    return img;
+  }
+
+  /**
+   * Fond commun &agrave; toutes les vignettes, dessin&eacute; une fois.
+   */
+  private BufferedImage getBackground() {
+    if (background == null) {
+      background = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+      Graphics2D g2 = background.createGraphics();
+      try {
+        g2.setPaint(new GradientPaint(0,
+                                      0,
+                                      new Color(0xF4F1EA),
+                                      0,
+                                      HEIGHT,
+                                      new Color(0xE2DED4)));
+        g2.fillRect(0, 0, WIDTH, HEIGHT);
+        g2.setColor(new Color(0xD6D1C4));
+        for (int i = 15; i < WIDTH; i += 15) {
+          g2.drawLine(i, 0, i, HEIGHT);
+        }
+        for (int i = 15; i < HEIGHT; i += 15) {
+          g2.drawLine(0, i, WIDTH, i);
+        }
+        g2.setColor(Color.GRAY);
+        g2.drawRect(0, 0, WIDTH - 1, HEIGHT - 1);
+      }
+      finally {
+        g2.dispose();
+      }
+    }
+    return background;
+  }
+
+}
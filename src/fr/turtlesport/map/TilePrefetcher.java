@@ -0,0 +1,439 @@
+package fr.turtlesport.map;
+
+import java.awt.Dimension;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.jdesktop.swingx.mapviewer.GeoPosition;
+import org.jdesktop.swingx.mapviewer.TileCache;
+
+import fr.turtlesport.Configuration;
+import fr.turtlesport.Version;
+import fr.turtlesport.geo.IGeoPosition;
+import fr.turtlesport.log.TurtleLogger;
+
+/**
+ * T&eacute;l&eacute;chargement des tuiles d'une zone dans le cache disque
+ * pour un usage hors connexion.
+ * <p>
+ * La zone est un rectangle ({@link GeoBounds}) ou un couloir autour d'un
+ * trac&eacute;, pour une plage de niveaux de zoom. Les tuiles d&eacute;j&agrave;
+ * en cache sont ignor&eacute;es et le d&eacute;bit est limit&eacute;
+ * (<code>[map] prefetchRate</code>, en tuiles par seconde). Les tuiles
+ * restantes sont enregistr&eacute;es dans le r&eacute;pertoire du cache :
+ * un t&eacute;l&eacute;chargement interrompu est repris par
+ * {@link #resume()}.
+ * <p>
+ * Seuls les fournisseurs qui l'autorisent sont t&eacute;l&eacute;charg&eacute;s
+ * ({@link AbstractTileFactoryExtended#isPrefetchAllowed()}) : les serveurs
+ * OpenStreetMap l'interdisent.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public class TilePrefetcher {
+  private static TurtleLogger               log;
+  static {
+    log = (TurtleLogger) TurtleLogger.getLogger(TilePrefetcher.class);
+  }
+
+  /** D&eacute;bit par d&eacute;faut en tuiles par seconde. */
+  private static final double               DEFAULT_RATE  = 2;
+
+  /** Nombre max de tuiles par d&eacute;faut. */
+  private static final int                  DEFAULT_MAX   = 20000;
+
+  private static final double               EARTH_RADIUS  = 6371000.0;
+
+  private static final String               FILE_TODO     = "prefetch.todo";
+
+  private static final int                  SAVE_INTERVAL = 100;
+
+  private static final String               USER_AGENT    = "TurtleSport/"
+                                                            + Version.VERSION
+                                                            + " (+http://turtlesport.sourceforge.net)";
+
+  private final AbstractTileFactoryExtended tileFactory;
+
+  private final DiskTitleCache              cache;
+
+  /** Tuiles : zoom, x, y. */
+  private final LinkedHashSet<Long>         tiles         = new LinkedHashSet<Long>();
+
+  private double                            rate;
+
+  private int                               maxTiles;
+
+  /**
+   * @param tileFactory
+   *          le fournisseur de tuiles.
+   * @throws IllegalArgumentException
+   *           si le fournisseur n'a pas de cache disque ou n'autorise pas le
+   *           t&eacute;l&eacute;chargement en masse.
+   */
+  public TilePrefetcher(AbstractTileFactoryExtended tileFactory) {
+    super();
+    if (!tileFactory.isPrefetchAllowed()) {
+      throw new IllegalArgumentException("telechargement non autorise : "
+                                         + tileFactory.getName());
+    }
+    TileCache tileCache = tileFactory.getTileCache();
+    if (!(tileCache instanceof DiskTitleCache)) {
+      throw new IllegalArgumentException("pas de cache disque : "
+                                         + tileFactory.getName());
+    }
+    this.tileFactory = tileFactory;
+    this.cache = (DiskTitleCache) tileCache;
+
+    String value = Configuration.getConfig().getProperty("map",
+                                                         "prefetchRate",
+                                                         Double
+                                                             .toString(DEFAULT_RATE));
+    try {
+      rate = Double.parseDouble(value);
+    }
+    catch (NumberFormatException e) {
+      rate = DEFAULT_RATE;
+    }
+    maxTiles = Configuration.getConfig().getPropertyAsInt("map",
+                                                          "prefetchMaxTiles",
+                                                          DEFAULT_MAX);
+  }
+
+  /**
+   * Valorise le d&eacute;bit en tuiles par seconde.
+   */
+  public void setRate(double rate) {
+    this.rate = rate;
+  }
+
+  /**
+   * Restitue le nombre de tuiles &agrave; t&eacute;l&eacute;charger.
+   */
+  public int getTileCount() {
+    return tiles.size();
+  }
+
+  /**
+   * Ajout des tuiles d'un rectangle.
+   *
+   * @param bounds
+   *          le rectangle.
+   * @param minZoom
+   *          le niveau de zoom le plus d&eacute;taill&eacute;.
+   * @param maxZoom
+   *          le niveau de zoom le moins d&eacute;taill&eacute;.
+   */
+  public void addBounds(GeoBounds bounds, int minZoom, int maxZoom) {
+    for (int zoom = maxZoom; zoom >= minZoom; zoom--) {
+      int tileSize = tileFactory.getTileSize(zoom);
+      for (Rectangle2D r : bounds.getRects()) {
+        Point2D nw = tileFactory.geoToPixel(new GeoPosition(r.getMaxY(), r
+            .getMinX()), zoom);
+        Point2D se = tileFactory.geoToPixel(new GeoPosition(r.getMinY(), r
+            .getMaxX()), zoom);
+        addTiles(zoom,
+                 (int) (nw.getX() / tileSize),
+                 (int) (nw.getY() / tileSize),
+                 (int) (se.getX() / tileSize),
+                 (int) (se.getY() / tileSize));
+      }
+    }
+    checkSize();
+  }
+
+  /**
+   * Ajout des tuiles d'un couloir autour d'un trac&eacute;.
+   *
+   * @param points
+   *          le trac&eacute;.
+   * @param buffer
+   *          la demi-largeur du couloir en m&egrave;tres.
+   * @param minZoom
+   *          le niveau de zoom le plus d&eacute;taill&eacute;.
+   * @param maxZoom
+   *          le niveau de zoom le moins d&eacute;taill&eacute;.
+   */
+  public void addCorridor(List<? extends IGeoPosition> points,
+                          double buffer,
+                          int minZoom,
+                          int maxZoom) {
+    List<GeoPosition> positions = new ArrayList<GeoPosition>(points.size());
+    for (IGeoPosition p : points) {
+      if (!p.isInvalidPosition()) {
+        positions.add(new GeoPosition(p.getLatitude(), p.getLongitude()));
+      }
+    }
+    if (positions.isEmpty()) {
+      return;
+    }
+
+    for (int zoom = maxZoom; zoom >= minZoom; zoom--) {
+      int tileSize = tileFactory.getTileSize(zoom);
+      double worldWidth = tileFactory.getMapSize(zoom).getWidth() * tileSize;
+      double step = tileSize / 2.0;
+
+      Point2D prev = null;
+      for (GeoPosition g : positions) {
+        Point2D p = tileFactory.geoToPixel(g, zoom);
+        double metersPerPixel = 2 * Math.PI * EARTH_RADIUS
+                                * Math.cos(Math.toRadians(g.getLatitude()))
+                                / worldWidth;
+        double b = buffer / Math.max(metersPerPixel, 1e-6);
+        if (prev == null) {
+          addCircle(zoom, tileSize, p.getX(), p.getY(), b);
+        }
+        else {
+          // echantillonnage du segment tous les demi-tuiles
+          double dx = p.getX() - prev.getX();
+          double dy = p.getY() - prev.getY();
+          int n = (int) Math.ceil(Math.hypot(dx, dy) / step);
+          for (int k = 1; k <= n; k++) {
+            addCircle(zoom,
+                      tileSize,
+                      prev.getX() + dx * k / n,
+                      prev.getY() + dy * k / n,
+                      b);
+          }
+        }
+        prev = p;
+      }
+    }
+    checkSize();
+  }
+
+  private void addCircle(int zoom, int tileSize, double x, double y, double b) {
+    addTiles(zoom,
+             (int) ((x - b) / tileSize),
+             (int) ((y - b) / tileSize),
+             (int) ((x + b) / tileSize),
+             (int) ((y + b) / tileSize));
+  }
+
+  private void addTiles(int zoom, int x1, int y1, int x2, int y2) {
+    Dimension mapSize = tileFactory.getMapSize(zoom);
+    x1 = Math.max(0, x1);
+    y1 = Math.max(0, y1);
+    x2 = Math.min(mapSize.width - 1, x2);
+    y2 = Math.min(mapSize.height - 1, y2);
+    // controle avant l'ajout : un grand rectangle epuiserait la memoire
+    long n = (long) Math.max(0, x2 - x1 + 1) * Math.max(0, y2 - y1 + 1);
+    if (tiles.size() + n > maxTiles) {
+      throw new IllegalArgumentException("trop de tuiles : "
+                                         + (tiles.size() + n) + " > "
+                                         + maxTiles);
+    }
+    for (int x = x1; x <= x2; x++) {
+      for (int y = y1; y <= y2; y++) {
+        tiles.add(key(zoom, x, y));
+      }
+    }
+  }
+
+  private void checkSize() {
+    if (tiles.size() > maxTiles) {
+      throw new IllegalArgumentException("trop de tuiles : " + tiles.size()
+                                         + " > " + maxTiles);
+    }
+  }
+
+  /**
+   * D&eacute;termine s'il reste des tuiles d'un t&eacute;l&eacute;chargement
+   * interrompu.
+   */
+  public boolean canResume() {
+    return new File(cache.getDirectory(), FILE_TODO).isFile();
+  }
+
+  /**
+   * Chargement des tuiles restantes d'un t&eacute;l&eacute;chargement
+   * interrompu.
+   *
+   * @return <code>true</code> s'il reste des tuiles.
+   */
+  public boolean resume() throws IOException {
+    File file = new File(cache.getDirectory(), FILE_TODO);
+    if (!file.isFile()) {
+      return false;
+    }
+    BufferedReader reader = new BufferedReader(new FileReader(file));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (line.length() > 0) {
+          tiles.add(Long.parseLong(line));
+        }
+      }
+    }
+    catch (NumberFormatException e) {
+      log.warn("resume " + e);
+    }
+    finally {
+      reader.close();
+    }
+    return !tiles.isEmpty();
+  }
+
+  /**
+   * T&eacute;l&eacute;chargement des tuiles ; appel bloquant.
+   *
+   * @param progress
+   *          la progression.
+   */
+  public void run(IPrefetchProgress progress) {
+    if (log.isDebugEnabled()) {
+      log.debug(">>run " + tileFactory.getName() + " tiles=" + tiles.size());
+    }
+    long deb = System.currentTimeMillis();
+
+    int total = tiles.size();
+    int done = 0;
+    int nbFailed = 0;
+    int nbDownload = 0;
+    long interval = (rate > 0) ? (long) (1000 / rate) : 0;
+    long next = 0;
+
+    progress.beginPrefetch(total);
+    save();
+
+    boolean isComplete = true;
+    Iterator<Long> it = tiles.iterator();
+    while (it.hasNext()) {
+      if (progress.abortPrefetch()) {
+        isComplete = false;
+        break;
+      }
+      long key = it.next();
+      int zoom = (int) (key >>> 48);
+      int x = (int) ((key >>> 24) & 0xFFFFFF);
+      int y = (int) (key & 0xFFFFFF);
+
+      try {
+        URI uri = new URI(tileFactory.getInfo().getTileUrl(x, y, zoom));
+        if (!cache.contains(uri)) {
+          // debit limite
+          long wait = next - System.currentTimeMillis();
+          if (wait > 0) {
+            Thread.sleep(wait);
+          }
+          next = System.currentTimeMillis() + interval;
+
+          cache.putBytes(uri, download(uri));
+          nbDownload++;
+        }
+        it.remove();
+      }
+      catch (InterruptedException e) {
+        isComplete = false;
+        break;
+      }
+      catch (URISyntaxException e) {
+        log.error("", e);
+        it.remove();
+        nbFailed++;
+      }
+      catch (IOException e) {
+        // conservee pour une reprise
+        log.warn(e);
+        nbFailed++;
+      }
+
+      done++;
+      progress.prefetch(done, nbFailed);
+      if (done % SAVE_INTERVAL == 0) {
+        save();
+      }
+    }
+
+    save();
+    progress.endPrefetch(isComplete);
+
+    if (log.isInfoEnabled()) {
+      log.info(tileFactory.getName() + " prefetch " + done + "/" + total
+               + " download=" + nbDownload + " failed=" + nbFailed + " (ms) --> "
+               + (System.currentTimeMillis() - deb));
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("<<run");
+    }
+  }
+
+  /**
+   * Enregistrement des tuiles restantes.
+   */
+  private void save() {
+    File file = new File(cache.getDirectory(), FILE_TODO);
+    if (tiles.isEmpty()) {
+      file.delete();
+      return;
+    }
+    file.getParentFile().mkdirs();
+    try {
+      PrintWriter writer = new PrintWriter(new FileWriter(file));
+      try {
+        for (long key : tiles) {
+          writer.println(key);
+        }
+      }
+      finally {
+        writer.close();
+      }
+    }
+    catch (IOException e) {
+      log.error("", e);
+    }
+  }
+
+  private byte[] download(URI uri) throws IOException {
+    HttpURLConnection cnx = (HttpURLConnection) uri.toURL().openConnection();
+    cnx.setInstanceFollowRedirects(true);
+    cnx.setConnectTimeout(5000);
+    cnx.setReadTimeout(10000);
+    cnx.addRequestProperty("User-Agent", USER_AGENT);
+    try {
+      if (cnx.getResponseCode() != HttpURLConnection.HTTP_OK) {
+        throw new IOException(uri + " : " + cnx.getResponseCode());
+      }
+      InputStream in = cnx.getInputStream();
+      try {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16384);
+        byte[] buf = new byte[4096];
+        int len;
+        while ((len = in.read(buf)) > 0) {
+          out.write(buf, 0, len);
+        }
+        if (out.size() == 0) {
+          throw new IOException(uri + " : vide");
+        }
+        return out.toByteArray();
+      }
+      finally {
+        in.close();
+      }
+    }
+    finally {
+      cnx.disconnect();
+    }
+  }
+
+  private static long key(int zoom, int x, int y) {
+    return ((long) zoom << 48) | ((long) x << 24) | y;
+  }
+
+}
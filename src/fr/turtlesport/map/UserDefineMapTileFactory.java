@@ -10,6 +10,10 @@ public final class UserDefineMapTileFactory extends AbstractTileFactoryExtended
   private static final ImageIcon ICON = new ImageIcon(AbstractTileFactoryExtended.class
                                           .getResource("map14.png"));
 
+  /** Serveurs interdisant le t&eacute;l&eacute;chargement en masse. */
+  private static final String[]  HOSTS_NO_PREFETCH = { "openstreetmap.org",
+      "opencyclemap.org", "thunderforest.com"     };
+
   private String                 baseURL;
 
   /**
@@ -41,6 +45,25 @@ public final class UserDefineMapTileFactory extends AbstractTileFactoryExtended
     return true;
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.map.AbstractTileFactoryExtended#isPrefetchAllowed()
+   */
+  @Override
+  public boolean isPrefetchAllowed() {
+    if (baseURL == null) {
+      return false;
+    }
+    String url = baseURL.toLowerCase();
+    for (String host : HOSTS_NO_PREFETCH) {
+      if (url.contains(host)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /*
    * (non-Javadoc)
    * 
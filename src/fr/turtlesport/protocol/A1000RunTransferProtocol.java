@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Hashtable;
 
 import fr.turtlesport.UsbPacket;
+import fr.turtlesport.UsbPacketInputStream;
 import fr.turtlesport.UsbProtocolException;
 import fr.turtlesport.device.garmin.GarminUsbDevice;
 import fr.turtlesport.log.TurtleLogger;
@@ -54,6 +55,9 @@ public class A1000RunTransferProtocol extends AbstractTransfertProtocol {
   /** Liste des run. */
   private ArrayList<AbstractRunType> listRunType;
 
+  /** Filtre des run a transferer. */
+  private IRunTypeFilter             filter;
+
   /**
    * 
    */
@@ -98,6 +102,17 @@ public class A1000RunTransferProtocol extends AbstractTransfertProtocol {
     return listRunType.remove(run);
   }
 
+  /**
+   * Valorise le filtre des courses : les points des courses refus&eacute;es
+   * ne sont pas r&eacute;cup&eacute;r&eacute;s.
+   * 
+   * @param filter
+   *          le filtre ou <code>null</code>.
+   */
+  public void setFilter(IRunTypeFilter filter) {
+    this.filter = filter;
+  }
+
   /**
    * Restitue le nombre de course.
    * 
@@ -114,6 +129,23 @@ public class A1000RunTransferProtocol extends AbstractTransfertProtocol {
    *           si erreur.
    */
   public void retrieve(IRunTransfertProgress progress) throws UsbProtocolException {
+    retrieve(progress, null);
+  }
+
+  /**
+   * R&eacute;cup&egrave;re les courses du garmin.
+   * <p>
+   * Chaque course est transmise &agrave; <code>consumer</code> d&egrave;s
+   * que ses points sont re&ccedil;us, sans attendre la fin du transfert.
+   * 
+   * @param progress
+   * @param consumer
+   *          le consommateur des courses ou <code>null</code>.
+   * @throws UsbProtocolException
+   *           si erreur.
+   */
+  public void retrieve(IRunTransfertProgress progress,
+                       IRunTypeConsumer consumer) throws UsbProtocolException {
     log.debug(">>retrieve");
 
     int nbPacket;
@@ -122,6 +154,8 @@ public class A1000RunTransferProtocol extends AbstractTransfertProtocol {
     if (progress == null) {
       progress = new RunTransfertProgressAdaptor();
     }
+    // mesure du temps passe dans les notifications
+    progress = getStats().wrap(progress);
 
     Hashtable<Integer, AbstractRunType> hashRunType = new Hashtable<Integer, AbstractRunType>();
     try {
@@ -154,6 +188,9 @@ public class A1000RunTransferProtocol extends AbstractTransfertProtocol {
       // transfert
       retrievePidLap(nbPacket, progress);
 
+      // courses deja synchronisees
+      applyFilter(hashRunType);
+
       // Recuperation k a m-1 (cf. 6.19 A1006)
       // --------------------------------------------------------------
       if (progress.abortTransfert()) {
@@ -167,7 +204,7 @@ public class A1000RunTransferProtocol extends AbstractTransfertProtocol {
 
       // Notification debut transfert
       progress.beginTransfertPoint(nbPacket);
-      retrievePidTracks(nbPacket, hashRunType, progress);
+      retrievePidTracks(nbPacket, hashRunType, progress, consumer);
 
       // Notification fin transfert
       progress.endTransfert();
@@ -238,8 +275,10 @@ public class A1000RunTransferProtocol extends AbstractTransfertProtocol {
 
       if (packet.getPacketType() == PACKET_TYPE_APP_LAYER
           && packet.getPacketID() == PID_RUN) {
+        long t = System.nanoTime();
         runType = AbstractRunType.newInstance();
         runType.parse(packet);
+        getStats().addParse(System.nanoTime() - t);
         if (log.isInfoEnabled()) {
           StringBuilder st = new StringBuilder();
           st.append("AbstractRunType trackIndex=");
@@ -320,8 +359,10 @@ public class A1000RunTransferProtocol extends AbstractTransfertProtocol {
 
       if (packet.getPacketType() == PACKET_TYPE_APP_LAYER
           && packet.getPacketID() == PID_LAP) {
+        long t = System.nanoTime();
         lapType = AbstractLapType.newInstance();
         lapType.parse(packet);
+        getStats().addParse(System.nanoTime() - t);
         addLapType(lapType, progress);
 
         nbPacketLapType++;
@@ -370,12 +411,17 @@ public class A1000RunTransferProtocol extends AbstractTransfertProtocol {
    */
   private void retrievePidTracks(int nbPaquet,
                                  Hashtable<Integer, AbstractRunType> hashRunType,
-                                 IRunTransfertProgress progress) throws UsbProtocolException {
+                                 IRunTransfertProgress progress,
+                                 IRunTypeConsumer consumer) throws UsbProtocolException {
     log.info(">>retrievePidTracks nbPaquet=" + nbPaquet);
 
     UsbPacket packet;
     D311TrkHdrType d311 = null;
-    AbstractTrkPointType trkPointType;
+    AbstractRunType currentRunType = null;
+    // decodeur et lecteur reutilises pour tous les points
+    AbstractTrkPointType decoder = null;
+    UsbPacketInputStream input = new UsbPacketInputStream();
+    TransfertStats stats = getStats();
     int nbPacketRead = 0;
     int nbPacketTrkPointType = 0;
     int nbPacketD311 = 0;
@@ -398,11 +444,17 @@ public class A1000RunTransferProtocol extends AbstractTransfertProtocol {
           AbstractRunType runType = hashRunType.get(d311.getIndex());
           if (runType != null) {
             progress.endTransfertCourse(runType);
+            if (consumer != null) {
+              consumer.consume(runType);
+            }
           }
         }
 
+        long t = System.nanoTime();
         d311 = new D311TrkHdrType();
         d311.parse(packet);
+        stats.addParse(System.nanoTime() - t);
+        currentRunType = hashRunType.get(d311.getIndex());
         nbPacketD311++;
         log.info("D311TrkHdrType index=" + d311.getIndex());
       }
@@ -412,19 +464,21 @@ public class A1000RunTransferProtocol extends AbstractTransfertProtocol {
           log.warn("d311 est null");
         }
         else {
-          trkPointType = AbstractTrkPointType.newInstance();
-          trkPointType.parse(packet);
-          // ajout du point au run
-          AbstractRunType runType = hashRunType.get(d311.getIndex());
-          if (runType != null) {
-            runType.addTrkPointType(trkPointType);
+          // ajout du point au run (pas de decodage pour un run ignore)
+          if (currentRunType != null) {
+            if (decoder == null) {
+              decoder = AbstractTrkPointType.newInstance();
+            }
+            long t = System.nanoTime();
+            input.reset(packet);
+            currentRunType.addTrkPoint(decoder, input);
+            stats.addParse(System.nanoTime() - t);
           }
           nbPacketTrkPointType++;
-          log.debug("AbstractRunType time=" + trkPointType.getTime());
 
           // notification
           if (nbPacketTrkPointType % progress.intervalNotify() == 0) {
-            progress.transfertPoint(runType);
+            progress.transfertPoint(currentRunType);
           }
         }
       }
@@ -449,6 +503,10 @@ public class A1000RunTransferProtocol extends AbstractTransfertProtocol {
       AbstractRunType runType = hashRunType.get(d311.getIndex());
       if (runType != null) {
         progress.endTransfertCourse(runType);
+        // course incomplete si annulation
+        if (consumer != null && !progress.abortTransfert()) {
+          consumer.consume(runType);
+        }
       }
     }
 
@@ -469,6 +527,26 @@ public class A1000RunTransferProtocol extends AbstractTransfertProtocol {
     log.info("<<retrievePidCourseTracks");
   }
 
+  /**
+   * Retire les courses refus&eacute;es par le filtre : leurs points seront
+   * ignor&eacute;s sans &ecirc;tre d&eacute;cod&eacute;s.
+   */
+  private void applyFilter(Hashtable<Integer, AbstractRunType> hashRunType) {
+    if (filter == null || listRunType == null) {
+      return;
+    }
+
+    int nbSkip = 0;
+    for (AbstractRunType runType : new ArrayList<AbstractRunType>(listRunType)) {
+      if (!filter.accept(runType)) {
+        hashRunType.remove(runType.getTrackIndex());
+        listRunType.remove(runType);
+        nbSkip++;
+      }
+    }
+    log.info("applyFilter skip=" + nbSkip + " ; run=" + listRunType.size());
+  }
+
   /**
    * Ajoute un tour interm&eacute;diaire.
    * 
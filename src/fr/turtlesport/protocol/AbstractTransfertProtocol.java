@@ -34,6 +34,9 @@ public abstract class AbstractTransfertProtocol {
 
   private boolean             isInit                = false;
 
+  /** Mesures du dernier transfert. */
+  private TransfertStats      stats;
+
   /**
    * Initialisation avant r&eacute;cup&eacute;ration des courses.
    * 
@@ -53,6 +56,10 @@ public abstract class AbstractTransfertProtocol {
       throw new UsbProtocolException(UsbProtocolException.ERR_NO_PROTOCOL);
     }
 
+    // mesures du transfert
+    getStats().begin();
+    GarminUsbDevice.getDevice().setStats(stats);
+
     isInit = true;
   }
 
@@ -98,6 +105,7 @@ public abstract class AbstractTransfertProtocol {
     packet.setData(ByteUtil.to2Bytes(getCommandIdType()));
 
     // envoie du packet
+    getStats().beginCommand(getCommandIdType());
     GarminUsbDevice.getDevice().send(packet);
 
     log.debug("<<sendCommand");
@@ -117,6 +125,7 @@ public abstract class AbstractTransfertProtocol {
     packet.setData(ByteUtil.to2Bytes(commandId));
 
     // envoie du packet
+    getStats().beginCommand(commandId);
     GarminUsbDevice.getDevice().send(packet);
 
     log.debug("<<sendCommand");
@@ -194,6 +203,26 @@ public abstract class AbstractTransfertProtocol {
    */
   protected void end() {
     isInit = false;
+    if (stats != null) {
+      // le device reste ouvert si la session continue
+      if (GarminUsbDevice.isInit()) {
+        GarminUsbDevice.getDevice().removeStats(stats);
+      }
+      stats.end();
+      stats.log();
+    }
+  }
+
+  /**
+   * Restitue les mesures du dernier transfert.
+   * 
+   * @return les mesures du dernier transfert.
+   */
+  public synchronized TransfertStats getStats() {
+    if (stats == null) {
+      stats = new TransfertStats(getProtocolName());
+    }
+    return stats;
   }
 
   /**
@@ -0,0 +1,678 @@
+package fr.turtlesport.protocol;
+
+import java.io.FileNotFoundException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import fr.turtlesport.Configuration;
+import fr.turtlesport.UsbDecodeException;
+import fr.turtlesport.UsbProtocolException;
+import fr.turtlesport.db.DataRun;
+import fr.turtlesport.db.DataRunLap;
+import fr.turtlesport.db.DataRunTrk;
+import fr.turtlesport.db.RunLapTableManager;
+import fr.turtlesport.db.RunTrkTableManager;
+import fr.turtlesport.geo.DouglasPeucker;
+import fr.turtlesport.geo.GeoLoadException;
+import fr.turtlesport.geo.GeoRouteSummary;
+import fr.turtlesport.geo.IGeoPositionWithAlt;
+import fr.turtlesport.geo.IGeoRoute;
+import fr.turtlesport.geo.IGeoRouteHandler;
+import fr.turtlesport.geo.IGeoSegment;
+import fr.turtlesport.geo.TrackPointBuffer;
+import fr.turtlesport.geo.gpx.Wpt;
+import fr.turtlesport.log.TurtleLogger;
+import fr.turtlesport.protocol.data.AbstractTrkPointType;
+import fr.turtlesport.protocol.data.D1006CourseType;
+import fr.turtlesport.protocol.data.D1007CourseLapType;
+import fr.turtlesport.protocol.data.D1012CoursePointType;
+import fr.turtlesport.protocol.data.D1013CourseLimitsType;
+import fr.turtlesport.protocol.data.D304TrkPointType;
+import fr.turtlesport.protocol.data.PositionType;
+import fr.turtlesport.protocol.progress.ICourseProgress;
+import fr.turtlesport.util.GeoUtil;
+
+/**
+ * Construction d'un parcours &agrave; partir d'une course enregistr&eacute;e
+ * ou d'une route import&eacute;e.
+ * <p>
+ * Les points sont r&eacute;duits aux limites de la montre (
+ * {@link A1009CourseLimits}) par simplification de Douglas-Peucker : seuls
+ * les points qui s'&eacute;cartent de plus de la tol&eacute;rance du trac&eacute;
+ * simplifi&eacute; sont conserv&eacute;s ; si la montre en accepte moins, la
+ * tol&eacute;rance est relev&eacute;e jusqu'&agrave; la limite. Les
+ * d&eacute;buts et fins de tours et les points de parcours sont toujours
+ * conserv&eacute;s.
+ * <p>
+ * Les points nomm&eacute;s d'une route (<code>rtept</code> GPX) deviennent
+ * des points de parcours ; {@link #addAltitudePoints(String, String)} ajoute
+ * le sommet et le point le plus bas.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public class CourseBuilder {
+  private static TurtleLogger            log;
+  static {
+    log = (TurtleLogger) TurtleLogger.getLogger(CourseBuilder.class);
+  }
+
+  /** Limites par d&eacute;faut si la montre ne les restitue pas. */
+  private static final int               DEFAULT_MAX_TRK_PNT = 500;
+
+  private static final int               DEFAULT_MAX_LAPS    = 20;
+
+  private static final int               DEFAULT_MAX_PNT     = 50;
+
+  /** Vitesse des routes sans date (m/s). */
+  private static final double            DEFAULT_SPEED       = 3.0;
+
+  private static final double            EARTH_RADIUS        = 6371000.0;
+
+  private static final double            SEMICIRCLE_TO_RAD   = Math.PI / 2147483648.0;
+
+  private String                         name;
+
+  private TrackPointBuffer               points              = new TrackPointBuffer();
+
+  /** Index du premier point de chaque tour. */
+  private List<Integer>                  lapStarts           = new ArrayList<Integer>();
+
+  private List<D1012CoursePointType>     coursePoints        = new ArrayList<D1012CoursePointType>();
+
+  private List<Integer>                  coursePointIndexes  = new ArrayList<Integer>();
+
+  private boolean                        isNewLap            = true;
+
+  private double                         distance;
+
+  private double                         maxError;
+
+  /**
+   * @param name
+   *          le nom du parcours.
+   */
+  public CourseBuilder(String name) {
+    super();
+    this.name = (name == null) ? "" : name;
+  }
+
+  /**
+   * Construction d'un parcours &agrave; partir d'une course
+   * enregistr&eacute;e.
+   *
+   * @param run
+   *          la course.
+   * @param name
+   *          le nom du parcours.
+   * @throws SQLException
+   */
+  public static CourseBuilder newInstance(DataRun run, String name) throws SQLException {
+    log.debug(">>newInstance run=" + run.getId());
+
+    CourseBuilder builder = new CourseBuilder(name);
+
+    DataRunLap[] laps = RunLapTableManager.getInstance().findLaps(run.getId());
+    List<DataRunTrk> trks = RunTrkTableManager.getInstance().getAllTrks(run
+        .getId());
+
+    int lap = 0;
+    for (DataRunTrk trk : trks) {
+      if (!trk.isValidGps()) {
+        continue;
+      }
+      long time = trk.getTime().getTime();
+      while (lap < laps.length
+             && time >= laps[lap].getStartTime().getTime()) {
+        if (lap > 0) {
+          builder.newLap();
+        }
+        lap++;
+      }
+      builder.addPoint(time,
+                       trk.getLatitude(),
+                       trk.getLongitude(),
+                       trk.getAltitude(),
+                       trk.isValidDistance() ? trk.getDistance() : Float.NaN,
+                       trk.getHeartRate(),
+                       trk.getCadence());
+    }
+
+    log.debug("<<newInstance");
+    return builder;
+  }
+
+  /**
+   * Construction d'un parcours &agrave; partir d'une route import&eacute;e.
+   * Les points d'une route lue en flux sont relus depuis son fichier.
+   *
+   * @param route
+   *          la route.
+   * @param name
+   *          le nom du parcours.
+   * @throws GeoLoadException
+   * @throws FileNotFoundException
+   */
+  public static CourseBuilder newInstance(IGeoRoute route, String name) throws GeoLoadException,
+                                                                        FileNotFoundException {
+    log.debug(">>newInstance route");
+
+    final CourseBuilder builder = new CourseBuilder(name);
+
+    if (route instanceof GeoRouteSummary) {
+      final GeoRouteSummary summary = (GeoRouteSummary) route;
+      summary.getGeoFile().load(summary.getFile(),
+                                summary.getProductDevice(),
+                                new IGeoRouteHandler() {
+                                  private boolean isCurrent;
+
+                                  public void beginRoute(IGeoRoute r) {
+                                    isCurrent = (((GeoRouteSummary) r)
+                                        .index() == summary.index());
+                                  }
+
+                                  public void point(IGeoRoute r,
+                                                    IGeoPositionWithAlt p) {
+                                    if (isCurrent) {
+                                      builder.addPoint(p);
+                                    }
+                                  }
+
+                                  public void endSegment(IGeoRoute r,
+                                                         IGeoSegment s) {
+                                    if (isCurrent) {
+                                      builder.newLap();
+                                    }
+                                  }
+
+                                  public void endRoute(IGeoRoute r) {
+                                    isCurrent = false;
+                                  }
+                                });
+    }
+    else if (route.getSegmentSize() > 0) {
+      for (IGeoSegment seg : route.getSegments()) {
+        for (IGeoPositionWithAlt p : seg.getPoints()) {
+          builder.addPoint(p);
+        }
+        builder.newLap();
+      }
+    }
+    else {
+      for (IGeoPositionWithAlt p : route.getAllPoints()) {
+        builder.addPoint(p);
+      }
+    }
+
+    log.debug("<<newInstance");
+    return builder;
+  }
+
+  /**
+   * Restitue la tol&eacute;rance de simplification en m&egrave;tres.
+   */
+  public static int getTolerance() {
+    return Configuration.getConfig().getPropertyAsInt("Course",
+                                                      "tolerance",
+                                                      5);
+  }
+
+  /**
+   * Restitue les limites de la montre connect&eacute;e ou les limites par
+   * d&eacute;faut si la montre ne supporte pas le protocole A1009.
+   *
+   * @throws UsbProtocolException
+   * @throws UsbDecodeException
+   */
+  public static D1013CourseLimitsType retreiveLimits() throws UsbProtocolException,
+                                                      UsbDecodeException {
+    A1009CourseLimits a1009 = new A1009CourseLimits();
+    try {
+      a1009.init();
+    }
+    catch (UsbProtocolException e) {
+      if (e.getErrorCode() != UsbProtocolException.ERR_NO_PROTOCOL) {
+        throw e;
+      }
+      log.warn("pas de protocole A1009 : limites par defaut");
+      D1013CourseLimitsType limits = new D1013CourseLimitsType();
+      limits.setMaxCourses(1);
+      limits.setMaxCourseLaps(DEFAULT_MAX_LAPS);
+      limits.setMaxCoursePnt(DEFAULT_MAX_PNT);
+      limits.setMaxCourseTrkPnt(DEFAULT_MAX_TRK_PNT);
+      return limits;
+    }
+    a1009.retreive();
+    return a1009.getData();
+  }
+
+  /**
+   * Le prochain point d&eacute;bute un nouveau tour.
+   */
+  public void newLap() {
+    isNewLap = true;
+  }
+
+  /**
+   * Ajoute un point ; un point nomm&eacute; est aussi un point de parcours.
+   *
+   * @param p
+   *          le point.
+   */
+  public void addPoint(IGeoPositionWithAlt p) {
+    if (p.isInvalidPosition()) {
+      return;
+    }
+    Date date = p.getDate();
+    addPoint((date == null) ? Long.MIN_VALUE : date.getTime(),
+             GeoUtil.makeLatitudeFromGeo(p.getLatitude()),
+             GeoUtil.makeLongitudeFromGeo(p.getLongitude()),
+             p.isValidElevation() ? (float) p.getElevation() : Float.NaN,
+             p.isValidDistance() ? (float) p.getDistanceMeters() : Float.NaN,
+             p.getHeartRate(),
+             p.getCadence());
+
+    if (p instanceof Wpt) {
+      String pointName = ((Wpt) p).getName();
+      if (pointName != null && !"".equals(pointName.trim())) {
+        addCoursePoint(pointName.trim(), D1012CoursePointType.POINT_TYPE_GENERIC);
+      }
+    }
+  }
+
+  /**
+   * Ajoute un point au format Garmin (semi-cercles).
+   */
+  public void addPoint(long time,
+                       int latitude,
+                       int longitude,
+                       float altitude,
+                       float dist,
+                       int heartRate,
+                       int cadence) {
+    int n = points.size();
+    if (n > 0) {
+      distance += planarDistance(points.getGarminLatitude(n - 1),
+                                 points.getGarminLongitude(n - 1),
+                                 latitude,
+                                 longitude);
+    }
+    if (isNewLap) {
+      isNewLap = false;
+      if (lapStarts.isEmpty() || lapStarts.get(lapStarts.size() - 1) != n) {
+        lapStarts.add(n);
+      }
+    }
+    points.addGarmin(time,
+                     latitude,
+                     longitude,
+                     altitude,
+                     Float.isNaN(dist) ? (float) distance : dist,
+                     heartRate,
+                     cadence,
+                     0,
+                     false);
+  }
+
+  /**
+   * Ajoute un point de parcours sur le dernier point ajout&eacute;.
+   *
+   * @param pointName
+   *          le nom du point.
+   * @param pointType
+   *          le type du point (cf. D1012).
+   */
+  public void addCoursePoint(String pointName, byte pointType) {
+    if (points.size() == 0) {
+      throw new IllegalStateException("pas de point");
+    }
+    addCoursePoint(points.size() - 1, pointName, pointType);
+  }
+
+  /**
+   * Ajoute un point de parcours.
+   *
+   * @param index
+   *          l'index du point.
+   * @param pointName
+   *          le nom du point.
+   * @param pointType
+   *          le type du point (cf. D1012).
+   */
+  public void addCoursePoint(int index, String pointName, byte pointType) {
+    if (index < 0 || index >= points.size()) {
+      throw new IndexOutOfBoundsException("index=" + index);
+    }
+    D1012CoursePointType point = new D1012CoursePointType();
+    point.setName(truncate(pointName, 10));
+    point.setPointType(pointType);
+
+    // points de parcours dans l'ordre du trace
+    int pos = coursePointIndexes.size();
+    while (pos > 0 && coursePointIndexes.get(pos - 1) > index) {
+      pos--;
+    }
+    coursePoints.add(pos, point);
+    coursePointIndexes.add(pos, index);
+  }
+
+  /**
+   * Ajoute le point le plus haut et le point le plus bas comme points de
+   * parcours (si le trac&eacute; a un d&eacute;nivel&eacute;).
+   *
+   * @param summitName
+   *          le nom du sommet.
+   * @param valleyName
+   *          le nom du point le plus bas.
+   */
+  public void addAltitudePoints(String summitName, String valleyName) {
+    int max = -1;
+    int min = -1;
+    for (int i = 0; i < points.size(); i++) {
+      float alt = points.getAltitude(i);
+      if (Float.isNaN(alt)) {
+        continue;
+      }
+      if (max < 0 || alt > points.getAltitude(max)) {
+        max = i;
+      }
+      if (min < 0 || alt < points.getAltitude(min)) {
+        min = i;
+      }
+    }
+    if (max < 0 || points.getAltitude(max) <= points.getAltitude(min)) {
+      return;
+    }
+    addCoursePoint(max, summitName, D1012CoursePointType.POINT_TYPE_SUMMIT);
+    addCoursePoint(min, valleyName, D1012CoursePointType.POINT_TYPE_VALLEY);
+  }
+
+  /**
+   * Restitue le nombre de points de parcours.
+   */
+  public int coursePointSize() {
+    return coursePoints.size();
+  }
+
+  /**
+   * Restitue le nombre de points avant r&eacute;duction.
+   */
+  public int size() {
+    return points.size();
+  }
+
+  /**
+   * Restitue l'&eacute;cart maximum en m&egrave;tres entre le trac&eacute;
+   * d'origine et le dernier parcours construit.
+   */
+  public double getMaxError() {
+    return maxError;
+  }
+
+  /**
+   * Construction du parcours r&eacute;duit aux limites de la montre.
+   *
+   * @param limits
+   *          les limites de la montre.
+   * @return le parcours.
+   */
+  public D1006CourseType build(D1013CourseLimitsType limits) {
+    log.debug(">>build");
+
+    int n = points.size();
+    if (n < 2) {
+      throw new IllegalStateException("nombre de points insuffisant : " + n);
+    }
+
+    int maxTrkPnt = (limits.getMaxCourseTrkPnt() > 1) ? limits
+        .getMaxCourseTrkPnt() : DEFAULT_MAX_TRK_PNT;
+    int maxLaps = (limits.getMaxCourseLaps() > 0) ? limits.getMaxCourseLaps()
+        : DEFAULT_MAX_LAPS;
+
+    // tours et points de parcours dans les limites
+    // (2 points par tour au moins)
+    int nbLaps = Math.max(1, Math.min(lapStarts.size(),
+                                      Math.min(maxLaps, maxTrkPnt / 2)));
+    int nbCoursePoints = Math.min(coursePoints.size(),
+                                  Math.max(0, limits.getMaxCoursePnt()));
+    nbCoursePoints = Math.min(nbCoursePoints, maxTrkPnt - 2 * nbLaps);
+    if (nbLaps < lapStarts.size() || nbCoursePoints < coursePoints.size()) {
+      log.warn("limites : tours=" + nbLaps + "/" + lapStarts.size()
+               + " points=" + nbCoursePoints + "/" + coursePoints.size());
+    }
+
+    // points conserves
+    int[] laps = new int[nbLaps + 1];
+    for (int i = 0; i < nbLaps; i++) {
+      laps[i] = (i == 0) ? 0 : lapStarts.get(i);
+    }
+    laps[nbLaps] = n;
+
+    boolean[] isForced = new boolean[n];
+    for (int i = 0; i < nbLaps; i++) {
+      isForced[laps[i]] = true;
+      isForced[laps[i + 1] - 1] = true;
+    }
+    for (int i = 0; i < nbCoursePoints; i++) {
+      isForced[coursePointIndexes.get(i)] = true;
+    }
+
+    // importance de chaque point
+    double[] significance = significance(isForced);
+
+    // selection
+    double tolerance = getTolerance();
+    int nbForced = 0;
+    int nbOver = 0;
+    for (int i = 0; i < n; i++) {
+      if (isForced[i]) {
+        nbForced++;
+      }
+      else if (significance[i] > tolerance) {
+        nbOver++;
+      }
+    }
+    double threshold = tolerance;
+    int budget = maxTrkPnt - nbForced;
+    if (nbOver > budget) {
+      double[] sorted = new double[n - nbForced];
+      int k = 0;
+      for (int i = 0; i < n; i++) {
+        if (!isForced[i]) {
+          sorted[k++] = significance[i];
+        }
+      }
+      Arrays.sort(sorted);
+      threshold = (budget > 0) ? sorted[sorted.length - budget] : Double.MAX_VALUE;
+    }
+
+    boolean[] isKept = new boolean[n];
+    int nbKept = 0;
+    maxError = 0;
+    // au-dessus du seuil puis egalites dans l'ordre du trace
+    for (int i = 0; i < n; i++) {
+      if (isForced[i] || significance[i] > threshold) {
+        isKept[i] = true;
+        nbKept++;
+      }
+    }
+    for (int i = 0; i < n; i++) {
+      if (isKept[i]) {
+        continue;
+      }
+      if (nbKept < maxTrkPnt && significance[i] == threshold
+          && threshold > tolerance) {
+        isKept[i] = true;
+        nbKept++;
+      }
+      else {
+        maxError = Math.max(maxError, significance[i]);
+      }
+    }
+
+    if (log.isInfoEnabled()) {
+      log.info("build " + name + " points=" + n + " --> " + nbKept
+               + " ; maxError=" + maxError + "m ; laps=" + nbLaps
+               + " ; coursePoints=" + nbCoursePoints);
+    }
+
+    // construction du parcours
+    D1006CourseType course = new D1006CourseType();
+    course.setCourseName(truncate(name, 15));
+
+    long startTime = points.getTime(0);
+    if (startTime == Long.MIN_VALUE) {
+      startTime = System.currentTimeMillis();
+    }
+    for (int i = 0; i < n; i++) {
+      if (isKept[i]) {
+        course.addTrkPointType(newTrkPoint(i, startTime));
+      }
+    }
+
+    for (int l = 0; l < nbLaps; l++) {
+      course.addCourseLapType(newLap(laps[l], laps[l + 1] - 1, startTime));
+    }
+
+    for (int i = 0; i < nbCoursePoints; i++) {
+      D1012CoursePointType point = coursePoints.get(i);
+      point.setCourseIndex(course.getIndex());
+      point.setTrackPointTime(new Date(time(coursePointIndexes.get(i),
+                                            startTime)));
+      course.addPointType(point);
+    }
+
+    log.debug("<<build");
+    return course;
+  }
+
+  /**
+   * Envoi du parcours &agrave; la montre, r&eacute;duit &agrave; ses limites.
+   *
+   * @param progress
+   *          la progression.
+   * @throws UsbProtocolException
+   * @throws UsbDecodeException
+   * @throws GarminProtocolException
+   */
+  public void send(ICourseProgress progress) throws UsbProtocolException,
+                                            UsbDecodeException,
+                                            GarminProtocolException {
+    log.debug(">>send");
+
+    prepareSend().send(progress);
+
+    log.debug("<<send");
+  }
+
+  /**
+   * Pr&eacute;pare l'envoi du parcours r&eacute;duit aux limites de la
+   * montre connect&eacute;e.
+   *
+   * @return le protocole initialis&eacute;, pr&ecirc;t pour
+   *         {@link A1006Course#send(ICourseProgress)}.
+   * @throws UsbProtocolException
+   * @throws UsbDecodeException
+   */
+  public A1006Course prepareSend() throws UsbProtocolException,
+                                  UsbDecodeException {
+    D1006CourseType course = build(retreiveLimits());
+
+    A1006Course a1006 = new A1006Course();
+    a1006.init();
+    a1006.addCourseType(course);
+    return a1006;
+  }
+
+  /**
+   * Calcul de l'importance de chaque point (cf. {@link DouglasPeucker}).
+   */
+  private double[] significance(boolean[] isForced) {
+    int n = points.size();
+
+    // projection locale en metres
+    double lat0 = points.getGarminLatitude(0) * SEMICIRCLE_TO_RAD;
+    double cos0 = Math.cos(lat0);
+    double[] x = new double[n];
+    double[] y = new double[n];
+    for (int i = 0; i < n; i++) {
+      x[i] = points.getGarminLongitude(i) * SEMICIRCLE_TO_RAD * cos0
+             * EARTH_RADIUS;
+      y[i] = points.getGarminLatitude(i) * SEMICIRCLE_TO_RAD * EARTH_RADIUS;
+    }
+
+    return DouglasPeucker.significance(x, y, isForced);
+  }
+
+  private static double planarDistance(int lat1, int lon1, int lat2, int lon2) {
+    double phi1 = lat1 * SEMICIRCLE_TO_RAD;
+    double phi2 = lat2 * SEMICIRCLE_TO_RAD;
+    double dx = (lon2 - lon1) * SEMICIRCLE_TO_RAD
+                * Math.cos((phi1 + phi2) / 2);
+    double dy = phi2 - phi1;
+    return Math.sqrt(dx * dx + dy * dy) * EARTH_RADIUS;
+  }
+
+  /**
+   * Restitue la date d'un point ; les routes sans date sont parcourues
+   * &agrave; vitesse constante.
+   */
+  private long time(int index, long startTime) {
+    long time = points.getTime(index);
+    if (time == Long.MIN_VALUE) {
+      time = startTime + (long) (points.getDistance(index) / DEFAULT_SPEED * 1000);
+    }
+    return time;
+  }
+
+  private D304TrkPointType newTrkPoint(int index, long startTime) {
+    D304TrkPointType trk = new D304TrkPointType();
+    trk.setPosn(new PositionType(points.getGarminLatitude(index), points
+        .getGarminLongitude(index)));
+    trk.setTime(new Date(time(index, startTime)));
+    float alt = points.getAltitude(index);
+    trk.setAlt(Float.isNaN(alt) ? AbstractTrkPointType.INVALID_ALT : alt);
+    trk.setDistance(points.getDistance(index));
+    trk.setHeartRate(points.getHeartRate(index));
+    trk.setCadence(points.getCadence(index));
+    return trk;
+  }
+
+  private D1007CourseLapType newLap(int from, int to, long startTime) {
+    D1007CourseLapType lap = new D1007CourseLapType();
+
+    // temps en centiemes de seconde
+    lap.setTotalTime((int) ((time(to, startTime) - time(from, startTime)) / 10));
+    lap.setTotalDist(points.getDistance(to) - points.getDistance(from));
+    lap.setBegin(new PositionType(points.getGarminLatitude(from), points
+        .getGarminLongitude(from)));
+    lap.setEnd(new PositionType(points.getGarminLatitude(to), points
+        .getGarminLongitude(to)));
+
+    int sum = 0;
+    int nb = 0;
+    int max = 0;
+    for (int i = from; i <= to; i++) {
+      int hr = points.getHeartRate(i);
+      if (hr > 0) {
+        sum += hr;
+        nb++;
+        max = Math.max(max, hr);
+      }
+    }
+    lap.setAvgHeartRate((nb == 0) ? 0 : sum / nb);
+    lap.setMaxHeartRate(max);
+    return lap;
+  }
+
+  private static String truncate(String value, int len) {
+    if (value == null) {
+      return "";
+    }
+    return (value.length() > len) ? value.substring(0, len) : value;
+  }
+
+}
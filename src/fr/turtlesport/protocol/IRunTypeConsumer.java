@@ -0,0 +1,25 @@
+package fr.turtlesport.protocol;
+
+import fr.turtlesport.protocol.data.AbstractRunType;
+
+/**
+ * Consommateur des courses r&eacute;cup&eacute;r&eacute;es au fil du transfert
+ * USB.
+ * <p>
+ * Chaque course est transmise d&egrave;s que ses points sont re&ccedil;us,
+ * sur le thread de lecture USB : l'impl&eacute;mentation ne doit pas bloquer.
+ * 
+ * @author Denis Apparicio
+ * 
+ */
+public interface IRunTypeConsumer {
+
+  /**
+   * Course compl&egrave;te (tours et points re&ccedil;us).
+   * 
+   * @param runType
+   *          la course.
+   */
+  void consume(AbstractRunType runType);
+
+}
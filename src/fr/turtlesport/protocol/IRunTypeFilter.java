@@ -0,0 +1,27 @@
+package fr.turtlesport.protocol;
+
+import fr.turtlesport.protocol.data.AbstractRunType;
+
+/**
+ * Filtre des courses &agrave; transf&eacute;rer.
+ * <p>
+ * Le filtre est appliqu&eacute; d&egrave;s r&eacute;ception des courses et
+ * des tours : les points des courses refus&eacute;es ne sont ni
+ * d&eacute;cod&eacute;s ni conserv&eacute;s.
+ * 
+ * @author Denis Apparicio
+ * 
+ */
+public interface IRunTypeFilter {
+
+  /**
+   * D&eacute;termine si les points de la course doivent &ecirc;tre
+   * r&eacute;cup&eacute;r&eacute;s.
+   * 
+   * @param runType
+   *          la course (avec ses tours).
+   * @return <code>true</code> si la course doit &ecirc;tre transf&eacute;r&eacute;e.
+   */
+  boolean accept(AbstractRunType runType);
+
+}
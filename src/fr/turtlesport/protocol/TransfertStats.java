@@ -0,0 +1,390 @@
+package fr.turtlesport.protocol;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import fr.turtlesport.log.TurtleLogger;
+import fr.turtlesport.protocol.data.AbstractLapType;
+import fr.turtlesport.protocol.data.AbstractRunType;
+import fr.turtlesport.protocol.progress.IRunTransfertProgress;
+
+/**
+ * Mesures d'un transfert USB : d&eacute;bit, dur&eacute;e de chaque commande
+ * et r&eacute;partition du temps entre la lecture USB, le d&eacute;codage
+ * des paquets et les notifications de progression.
+ * <p>
+ * Les compteurs sont &eacute;crits par le seul thread du transfert et lus
+ * par l'interface pour affichage.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public class TransfertStats {
+  private static TurtleLogger          log;
+  static {
+    log = (TurtleLogger) TurtleLogger.getLogger(TransfertStats.class);
+  }
+
+  private String                       protocolName;
+
+  private volatile long                beginNanos;
+
+  private volatile long                endNanos;
+
+  private volatile int                 packetsRead;
+
+  private volatile int                 packetsSent;
+
+  private volatile long                bytesRead;
+
+  private volatile long                bytesSent;
+
+  private volatile long                readNanos;
+
+  private volatile long                sendNanos;
+
+  private volatile long                parseNanos;
+
+  private volatile long                progressNanos;
+
+  /** Dur&eacute;e (ns) et nombre de paquets par commande. */
+  private final Map<Integer, long[]>   commands = new LinkedHashMap<Integer, long[]>();
+
+  private int                          currentCommand;
+
+  private long                         currentCommandNanos;
+
+  private int                          currentCommandPackets;
+
+  /**
+   * @param protocolName
+   *          le nom du protocole.
+   */
+  public TransfertStats(String protocolName) {
+    super();
+    this.protocolName = protocolName;
+  }
+
+  /**
+   * D&eacute;but du transfert : remise &agrave; z&eacute;ro des compteurs.
+   */
+  public synchronized void begin() {
+    beginNanos = System.nanoTime();
+    endNanos = 0;
+    packetsRead = 0;
+    packetsSent = 0;
+    bytesRead = 0;
+    bytesSent = 0;
+    readNanos = 0;
+    sendNanos = 0;
+    parseNanos = 0;
+    progressNanos = 0;
+    commands.clear();
+    currentCommand = -1;
+  }
+
+  /**
+   * Fin du transfert.
+   */
+  public synchronized void end() {
+    if (beginNanos == 0 || endNanos != 0) {
+      return;
+    }
+    endCommand();
+    endNanos = System.nanoTime();
+  }
+
+  /**
+   * D&eacute;but d'une commande : la commande pr&eacute;c&eacute;dente est
+   * termin&eacute;e.
+   *
+   * @param commandId
+   *          l'identifiant de la commande.
+   */
+  public synchronized void beginCommand(int commandId) {
+    endCommand();
+    currentCommand = commandId;
+    currentCommandNanos = System.nanoTime();
+    currentCommandPackets = packetsRead;
+  }
+
+  private void endCommand() {
+    if (currentCommand == -1) {
+      return;
+    }
+    long[] value = commands.get(currentCommand);
+    if (value == null) {
+      value = new long[2];
+      commands.put(currentCommand, value);
+    }
+    value[0] += System.nanoTime() - currentCommandNanos;
+    value[1] += packetsRead - currentCommandPackets;
+    currentCommand = -1;
+  }
+
+  /**
+   * Lecture d'un paquet.
+   *
+   * @param bytes
+   *          la taille du paquet.
+   * @param nanos
+   *          la dur&eacute;e de la lecture.
+   */
+  public void addRead(int bytes, long nanos) {
+    packetsRead++;
+    bytesRead += bytes;
+    readNanos += nanos;
+  }
+
+  /**
+   * Envoi d'un paquet.
+   *
+   * @param bytes
+   *          la taille du paquet.
+   * @param nanos
+   *          la dur&eacute;e de l'envoi.
+   */
+  public void addSend(int bytes, long nanos) {
+    packetsSent++;
+    bytesSent += bytes;
+    sendNanos += nanos;
+  }
+
+  /**
+   * D&eacute;codage d'un paquet.
+   *
+   * @param nanos
+   *          la dur&eacute;e du d&eacute;codage.
+   */
+  public void addParse(long nanos) {
+    parseNanos += nanos;
+  }
+
+  /**
+   * Notification de progression.
+   *
+   * @param nanos
+   *          la dur&eacute;e de la notification.
+   */
+  public void addProgress(long nanos) {
+    progressNanos += nanos;
+  }
+
+  /**
+   * Restitue la dur&eacute;e du transfert en millisecondes.
+   */
+  public long getElapsedMillis() {
+    if (beginNanos == 0) {
+      return 0;
+    }
+    long end = (endNanos == 0) ? System.nanoTime() : endNanos;
+    return (end - beginNanos) / 1000000L;
+  }
+
+  /**
+   * Restitue le nombre de paquets lus.
+   */
+  public int getPacketsRead() {
+    return packetsRead;
+  }
+
+  /**
+   * Restitue le nombre de paquets envoy&eacute;s.
+   */
+  public int getPacketsSent() {
+    return packetsSent;
+  }
+
+  /**
+   * Restitue le nombre d'octets lus.
+   */
+  public long getBytesRead() {
+    return bytesRead;
+  }
+
+  /**
+   * Restitue le nombre d'octets envoy&eacute;s.
+   */
+  public long getBytesSent() {
+    return bytesSent;
+  }
+
+  /**
+   * Restitue le nombre de paquets lus et envoy&eacute;s par seconde.
+   */
+  public double getPacketsPerSecond() {
+    long ms = getElapsedMillis();
+    return (ms == 0) ? 0 : (packetsRead + packetsSent) * 1000.0 / ms;
+  }
+
+  /**
+   * Restitue le nombre d'octets lus et envoy&eacute;s par seconde.
+   */
+  public double getBytesPerSecond() {
+    long ms = getElapsedMillis();
+    return (ms == 0) ? 0 : (bytesRead + bytesSent) * 1000.0 / ms;
+  }
+
+  /**
+   * Restitue le temps pass&eacute; dans les lectures et envois USB en
+   * millisecondes.
+   */
+  public long getUsbMillis() {
+    return (readNanos + sendNanos) / 1000000L;
+  }
+
+  /**
+   * Restitue le temps pass&eacute; &agrave; d&eacute;coder les paquets en
+   * millisecondes.
+   */
+  public long getParseMillis() {
+    return parseNanos / 1000000L;
+  }
+
+  /**
+   * Restitue le temps pass&eacute; dans les notifications de progression en
+   * millisecondes.
+   */
+  public long getProgressMillis() {
+    return progressNanos / 1000000L;
+  }
+
+  /**
+   * Restitue la part du transfert (en %) pass&eacute;e dans une dur&eacute;e.
+   *
+   * @param millis
+   *          la dur&eacute;e.
+   */
+  public int percent(long millis) {
+    long ms = getElapsedMillis();
+    return (ms == 0) ? 0 : (int) Math.min(100, Math.round(millis * 100.0 / ms));
+  }
+
+  /**
+   * Restitue le r&eacute;sum&eacute; du transfert.
+   */
+  public synchronized String summary() {
+    StringBuilder st = new StringBuilder();
+    st.append(protocolName);
+    st.append(" : ");
+    st.append(getElapsedMillis());
+    st.append("ms ; read=");
+    st.append(packetsRead);
+    st.append(" paquets/");
+    st.append(bytesRead);
+    st.append(" octets ; send=");
+    st.append(packetsSent);
+    st.append(" paquets/");
+    st.append(bytesSent);
+    st.append(" octets ; ");
+    st.append(Math.round(getPacketsPerSecond()));
+    st.append(" paquets/s ; ");
+    st.append(Math.round(getBytesPerSecond()));
+    st.append(" octets/s ; usb=");
+    st.append(getUsbMillis());
+    st.append("ms (read=");
+    st.append(readNanos / 1000000L);
+    st.append("ms) ; parse=");
+    st.append(getParseMillis());
+    st.append("ms ; progress=");
+    st.append(getProgressMillis());
+    st.append("ms");
+    for (Map.Entry<Integer, long[]> e : commands.entrySet()) {
+      st.append(" ; command ");
+      st.append(e.getKey());
+      st.append("=");
+      st.append(e.getValue()[0] / 1000000L);
+      st.append("ms/");
+      st.append(e.getValue()[1]);
+      st.append(" paquets");
+    }
+    return st.toString();
+  }
+
+  /**
+   * Ecriture du r&eacute;sum&eacute; dans les traces.
+   */
+  public void log() {
+    if (log.isInfoEnabled()) {
+      log.info(summary());
+    }
+  }
+
+  /**
+   * Restitue une progression qui mesure le temps pass&eacute; dans chaque
+   * notification avant de la transmettre.
+   *
+   * @param progress
+   *          la progression.
+   * @return la progression mesur&eacute;e.
+   */
+  public IRunTransfertProgress wrap(final IRunTransfertProgress progress) {
+    return new IRunTransfertProgress() {
+      public boolean abortTransfert() {
+        long t = System.nanoTime();
+        boolean res = progress.abortTransfert();
+        addProgress(System.nanoTime() - t);
+        return res;
+      }
+
+      public void beginTransfert(int nbPacket) {
+        long t = System.nanoTime();
+        progress.beginTransfert(nbPacket);
+        addProgress(System.nanoTime() - t);
+      }
+
+      public void transfert() {
+        long t = System.nanoTime();
+        progress.transfert();
+        addProgress(System.nanoTime() - t);
+      }
+
+      public void endTransfert() {
+        long t = System.nanoTime();
+        progress.endTransfert();
+        addProgress(System.nanoTime() - t);
+      }
+
+      public void beginTransfertCourse(AbstractRunType run) {
+        long t = System.nanoTime();
+        progress.beginTransfertCourse(run);
+        addProgress(System.nanoTime() - t);
+      }
+
+      public void endTransfertCourse(AbstractRunType run) {
+        long t = System.nanoTime();
+        progress.endTransfertCourse(run);
+        addProgress(System.nanoTime() - t);
+      }
+
+      public void beginTransfertPoint(int nbPacket) {
+        long t = System.nanoTime();
+        progress.beginTransfertPoint(nbPacket);
+        addProgress(System.nanoTime() - t);
+      }
+
+      public void transfertPoint(AbstractRunType run) {
+        long t = System.nanoTime();
+        progress.transfertPoint(run);
+        addProgress(System.nanoTime() - t);
+      }
+
+      public void beginTransfertLap(int nbPacket) {
+        long t = System.nanoTime();
+        progress.beginTransfertLap(nbPacket);
+        addProgress(System.nanoTime() - t);
+      }
+
+      public void transfertLap(AbstractRunType run, AbstractLapType lapType) {
+        long t = System.nanoTime();
+        progress.transfertLap(run, lapType);
+        addProgress(System.nanoTime() - t);
+      }
+
+      public int intervalNotify() {
+        return progress.intervalNotify();
+      }
+    };
+  }
+
+}
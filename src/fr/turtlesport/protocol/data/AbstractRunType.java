@@ -1,6 +1,8 @@
 package fr.turtlesport.protocol.data;
 
+import fr.turtlesport.UsbPacketInputStream;
 import fr.turtlesport.device.garmin.GarminUsbDevice;
+import fr.turtlesport.geo.TrackPointBuffer;
 import fr.turtlesport.log.TurtleLogger;
 
 import java.util.*;
@@ -45,7 +47,7 @@ public abstract class AbstractRunType extends AbstractData {
   private ArrayList<AbstractLapType>  listLapType;
 
   /** Liste des points */
-  private ArrayList<AbstractTrkPointType> listTrkPointType;
+  private TrackPointBuffer            trkPoints;
 
   /** Date de debut */
   private Date                        computeStartTime;
@@ -91,16 +93,16 @@ public abstract class AbstractRunType extends AbstractData {
    * @return le nombre de points.
    */
   public int sizeTrkPointType() {
-    return (listTrkPointType == null) ? 0 : listTrkPointType.size();
+    return (trkPoints == null) ? 0 : trkPoints.size();
   }
 
   /**
-   * Restiitue la liste des points.
+   * Restitue les points.
    * 
-   * @return la liste des points.
+   * @return les points ou <code>null</code>.
    */
-  public List<AbstractTrkPointType> getListTrkPointType() {
-    return listTrkPointType;
+  public TrackPointBuffer getTrkPoints() {
+    return trkPoints;
   }
 
   /**
@@ -112,10 +114,27 @@ public abstract class AbstractRunType extends AbstractData {
     if (pt == null) {
       return;
     }
-    if (listTrkPointType == null) {
-      listTrkPointType = new ArrayList<AbstractTrkPointType>();
+    pt.addTo(points());
+  }
+
+  /**
+   * D&eacute;codage d'un point directement dans les points de la course.
+   * 
+   * @param decoder
+   *          le d&eacute;codeur du protocole.
+   * @param input
+   *          l'inputstream du packet.
+   */
+  public void addTrkPoint(AbstractTrkPointType decoder,
+                          UsbPacketInputStream input) {
+    decoder.parse(input, points());
+  }
+
+  private TrackPointBuffer points() {
+    if (trkPoints == null) {
+      trkPoints = new TrackPointBuffer();
     }
-    listTrkPointType.add(pt);
+    return trkPoints;
   }
 
   /**
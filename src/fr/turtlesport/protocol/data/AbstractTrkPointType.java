@@ -2,7 +2,9 @@ package fr.turtlesport.protocol.data;
 
 import java.util.Date;
 
+import fr.turtlesport.UsbPacketInputStream;
 import fr.turtlesport.device.garmin.GarminUsbDevice;
+import fr.turtlesport.geo.TrackPointBuffer;
 import fr.turtlesport.log.TurtleLogger;
 
 /**
@@ -82,6 +84,35 @@ public abstract class AbstractTrkPointType extends AbstractData {
    */
   public abstract String getProtocolName();
 
+  /**
+   * D&eacute;codage d'un point directement dans un buffer de points, sans
+   * cr&eacute;ation d'objet.
+   * 
+   * @param input
+   *          l'inputstream du packet.
+   * @param points
+   *          le buffer de points.
+   */
+  public abstract void parse(UsbPacketInputStream input, TrackPointBuffer points);
+
+  /**
+   * Ajoute ce point &agrave; un buffer de points.
+   * 
+   * @param points
+   *          le buffer de points.
+   */
+  public void addTo(TrackPointBuffer points) {
+    points.addGarmin(time.getTime(),
+                     posn.getLatitude(),
+                     posn.getLongitude(),
+                     altitude,
+                     distance,
+                     heartRate,
+                     cadence,
+                     temperature,
+                     sensor);
+  }
+
   /**
    * @return the alt
    */
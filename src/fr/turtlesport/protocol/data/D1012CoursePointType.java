@@ -3,7 +3,9 @@ package fr.turtlesport.protocol.data;
 import java.util.Date;
 
 import fr.turtlesport.UsbPacketInputStream;
+import fr.turtlesport.UsbPacketOutputStream;
 import fr.turtlesport.log.TurtleLogger;
+import fr.turtlesport.protocol.GarminProtocolException;
 
 // typedef struct
 // {
@@ -26,37 +28,37 @@ public class D1012CoursePointType extends AbstractData {
   }
 
   // Constante point type
-  private static final byte   POINT_TYPE_GENERIC         = 0;
+  public static final byte    POINT_TYPE_GENERIC         = 0;
 
-  private static final byte   POINT_TYPE_SUMMIT          = 1;
+  public static final byte    POINT_TYPE_SUMMIT          = 1;
 
-  private static final byte   POINT_TYPE_VALLEY          = 2;
+  public static final byte    POINT_TYPE_VALLEY          = 2;
 
-  private static final byte   POINT_TYPE_WATER           = 3;
+  public static final byte    POINT_TYPE_WATER           = 3;
 
-  private static final byte   POINT_TYPE_FOOD            = 4;
+  public static final byte    POINT_TYPE_FOOD            = 4;
 
-  private static final byte   POINT_TYPE_DANGER          = 5;
+  public static final byte    POINT_TYPE_DANGER          = 5;
 
-  private static final byte   POINT_TYPE_LEFT            = 6;
+  public static final byte    POINT_TYPE_LEFT            = 6;
 
-  private static final byte   POINT_TYPE_RIGHT           = 7;
+  public static final byte    POINT_TYPE_RIGHT           = 7;
 
-  private static final byte   POINT_TYPE_STRAIGHT        = 8;
+  public static final byte    POINT_TYPE_STRAIGHT        = 8;
 
-  private static final byte   POINT_TYPE_FIRST_AID       = 9;
+  public static final byte    POINT_TYPE_FIRST_AID       = 9;
 
-  private static final byte   POINT_TYPE_FOURTH_CATEGORY = 10;
+  public static final byte    POINT_TYPE_FOURTH_CATEGORY = 10;
 
-  private static final byte   POINT_TYPE_THIRD_CATEGORY  = 11;
+  public static final byte    POINT_TYPE_THIRD_CATEGORY  = 11;
 
-  private static final byte   POINT_TYPE_SECOND_CATEGORY = 12;
+  public static final byte    POINT_TYPE_SECOND_CATEGORY = 12;
 
-  private static final byte   POINT_TYPE_FIRST_CATEGORY  = 13;
+  public static final byte    POINT_TYPE_FIRST_CATEGORY  = 13;
 
-  private static final byte   POINT_TYPE_HORS_CATEGORY   = 14;
+  public static final byte    POINT_TYPE_HORS_CATEGORY   = 14;
 
-  private static final byte   POINT_TYPE_SPRINT          = 15;
+  public static final byte    POINT_TYPE_SPRINT          = 15;
 
   /** Nom */
   private String              name;
@@ -89,6 +91,25 @@ public class D1012CoursePointType extends AbstractData {
     log.debug("<<decode");
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.protocol.data.AbstractData#serialize(fr.turtlesport.UsbPacketOutputStream)
+   */
+  @Override
+  public void serialize(UsbPacketOutputStream output) throws GarminProtocolException {
+    log.debug(">>serialize");
+
+    output.write(name, 11);
+    output.writeUnused();
+    output.writeShort(courseIndex);
+    output.writeUnused(2);
+    output.writeTime(trackPointTime);
+    output.write(pointType);
+
+    log.debug("<<serialize");
+  }
+
   /**
    * @return the courseIndex
    */
@@ -1,6 +1,7 @@
 package fr.turtlesport.protocol.data;
 
 import fr.turtlesport.UsbPacketInputStream;
+import fr.turtlesport.geo.TrackPointBuffer;
 import fr.turtlesport.log.TurtleLogger;
 
 // typedef struct
@@ -40,6 +41,31 @@ public class D303TrkPointType extends AbstractTrkPointType {
     log.debug("<<decode");
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see
+   * fr.turtlesport.protocol.data.AbstractTrkPointType#parse(fr.turtlesport.
+   * UsbPacketInputStream, fr.turtlesport.geo.TrackPointBuffer)
+   */
+  @Override
+  public void parse(UsbPacketInputStream input, TrackPointBuffer points) {
+    int latitude = input.readInt();
+    int longitude = input.readInt();
+    long time = input.readTimeMillis();
+    float alt = input.readFloat();
+    int heartRate = input.read();
+    points.addGarmin(time,
+                     latitude,
+                     longitude,
+                     alt,
+                     0,
+                     heartRate,
+                     0xFF,
+                     0,
+                     false);
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -2,6 +2,7 @@ package fr.turtlesport.protocol.data;
 
 import fr.turtlesport.UsbPacketInputStream;
 import fr.turtlesport.UsbPacketOutputStream;
+import fr.turtlesport.geo.TrackPointBuffer;
 import fr.turtlesport.log.TurtleLogger;
 import fr.turtlesport.protocol.GarminProtocolException;
 
@@ -56,6 +57,34 @@ public class D304TrkPointType extends AbstractTrkPointType {
     log.debug("<<parse");
   }
 
+  /*
+   * (non-Javadoc)
+   * 
+   * @see
+   * fr.turtlesport.protocol.data.AbstractTrkPointType#parse(fr.turtlesport.
+   * UsbPacketInputStream, fr.turtlesport.geo.TrackPointBuffer)
+   */
+  @Override
+  public void parse(UsbPacketInputStream input, TrackPointBuffer points) {
+    int latitude = input.readInt();
+    int longitude = input.readInt();
+    long time = input.readTimeMillis();
+    float alt = input.readFloat();
+    float distance = input.readFloat();
+    int heartRate = input.read();
+    int cadence = input.read();
+    boolean sensor = input.readBoolean();
+    points.addGarmin(time,
+                     latitude,
+                     longitude,
+                     alt,
+                     distance,
+                     heartRate,
+                     cadence,
+                     0,
+                     sensor);
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -8,6 +8,7 @@ import java.util.ResourceBundle;
 
 import javax.swing.filechooser.FileFilter;
 
+import fr.turtlesport.geo.FactoryGeoLoad;
 import fr.turtlesport.geo.IGeoFileDesc;
 import fr.turtlesport.geo.energympro.CpoFile;
 import fr.turtlesport.geo.garmin.fit.FitFile;
@@ -111,6 +112,13 @@ public class ImportFileFilter extends FileFilter {
       st.append(s);
       st.append(',');
     }
+    // fichiers compresses et archives
+    for (String s : new String[] { FactoryGeoLoad.GZ, FactoryGeoLoad.ZIP }) {
+      list.add(s);
+      st.append("*.");
+      st.append(s);
+      st.append(',');
+    }
     
     ResourceBundle rb = ResourceBundleUtility.getBundle(LanguageManager
         .getManager().getCurrentLang(), MainGui.class);
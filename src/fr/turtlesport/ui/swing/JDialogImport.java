@@ -3,6 +3,7 @@ package fr.turtlesport.ui.swing;
 import fr.turtlesport.Configuration;
 import fr.turtlesport.db.*;
 import fr.turtlesport.db.progress.IGeoRouteStoreProgress;
+import fr.turtlesport.device.DeviceWatcher;
 import fr.turtlesport.device.FileDevice;
 import fr.turtlesport.geo.FactoryGeoLoad;
 import fr.turtlesport.geo.GeoLoadException;
@@ -170,6 +171,13 @@ public final class JDialogImport extends JDialog implements
    *
    */
   public static void prompt() {
+    // fichiers deja lus en tache de fond : la boite s'ouvre avec leurs
+    // courses, le bouton d'ajout permet de choisir d'autres fichiers
+    List<FileDevice> parsed = DeviceWatcher.getInstance().getParsedFiles();
+    if (!parsed.isEmpty()) {
+      prompt(parsed.toArray(new FileDevice[parsed.size()]));
+      return;
+    }
     prompt(getSelectedFiles());
   }
 
@@ -683,8 +691,11 @@ public final class JDialogImport extends JDialog implements
                                              GeoLoadException {
       boolean isAdd = false;
 
-      // Recuperation des routes
-      IGeoRoute[] routes = FactoryGeoLoad.getRoutes(file.getFile(), file);
+      // Recuperation des routes (deja lues en tache de fond ?)
+      IGeoRoute[] routes = DeviceWatcher.getInstance().takeRoutes(file);
+      if (routes == null) {
+        routes = FactoryGeoLoad.getRoutesSummary(file.getFile(), file);
+      }
       if (routes != null) {
         for (IGeoRoute r : routes) {
           // if (r.totalTime() < 1000) {
@@ -1628,10 +1639,13 @@ public final class JDialogImport extends JDialog implements
 
             // Sauvegarde des run
             long deb = System.currentTimeMillis();
-            RunTableManager.getInstance().store(listGeoRoute,
-                                                JDialogImport.this);
+            int[] ids = RunTableManager.getInstance()
+                .store(listGeoRoute, JDialogImport.this);
             log.warn("Temps pour sauvegarder " + listGeoRoute.size()
                      + " run (ms) --> " + (System.currentTimeMillis() - deb));
+
+            // Registre des fichiers importes
+            storeImportFiles(ids);
           }
           catch (SQLException sqle) {
             log.error("", sqle);
@@ -1673,6 +1687,29 @@ public final class JDialogImport extends JDialog implements
           return null;
         }
 
+        private void storeImportFiles(int[] ids) throws SQLException {
+          Map<File, List<Integer>> mapFiles = new LinkedHashMap<File, List<Integer>>();
+          int index = 0;
+          for (TableRowObject row : tableModel.listRows) {
+            if (row.isSave()) {
+              List<Integer> list = mapFiles.get(row.getFile());
+              if (list == null) {
+                list = new ArrayList<Integer>();
+                mapFiles.put(row.getFile(), list);
+              }
+              list.add(ids[index++]);
+            }
+          }
+
+          for (Map.Entry<File, List<Integer>> e : mapFiles.entrySet()) {
+            int[] idRuns = new int[e.getValue().size()];
+            for (int i = 0; i < idRuns.length; i++) {
+              idRuns[i] = e.getValue().get(i);
+            }
+            ImportFileTableManager.getInstance().store(e.getKey(), idRuns);
+          }
+        }
+
         @Override
         public void finished() {
           jButtonCancel.setEnabled(true);
@@ -1729,6 +1766,8 @@ public final class JDialogImport extends JDialog implements
           jProgressBar.setIndeterminate(true);
           boolean isAdd = false;
           for (FileDevice f : files) {
+            // les fichiers deja importes sont ecartes par les materiels
+            // (getNewFiles), un fichier choisi peut etre reimporte
             if (!tableModel.contains(f)) {
               try {
                 isAdd |= tableModel.addImportCourse(f);
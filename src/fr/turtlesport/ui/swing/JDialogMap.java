@@ -15,6 +15,7 @@ import javax.swing.SwingConstants;
 
 import fr.turtlesport.lang.LanguageManager;
 import fr.turtlesport.log.TurtleLogger;
+import fr.turtlesport.map.Heatmap;
 import fr.turtlesport.ui.swing.component.JShowMessage;
 import fr.turtlesport.ui.swing.component.JTurtleMapKit;
 import fr.turtlesport.ui.swing.model.ModelDialogMap;
@@ -66,6 +67,9 @@ public class JDialogMap extends JDialog {
     super.dispose();
     ModelMapkitManager.getInstance()
         .removeChangeListener(mapKit.getMapListener());
+    ModelMapkitManager.getInstance()
+        .removAddDeleteMapListener(mapKit.getMapListener());
+    Heatmap.getInstance().removeChangeListener(mapKit.getHeatmapListener());
   }
 
   /**
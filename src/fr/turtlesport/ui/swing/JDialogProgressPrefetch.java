@@ -0,0 +1,232 @@
+package fr.turtlesport.ui.swing;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.Frame;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.text.MessageFormat;
+import java.util.ResourceBundle;
+
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.SwingConstants;
+
+import fr.turtlesport.lang.LanguageManager;
+import fr.turtlesport.log.TurtleLogger;
+import fr.turtlesport.map.IPrefetchProgress;
+import fr.turtlesport.map.TilePrefetcher;
+import fr.turtlesport.util.ResourceBundleUtility;
+
+/**
+ * Progression du t&eacute;l&eacute;chargement des tuiles pour un usage hors
+ * connexion.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public class JDialogProgressPrefetch extends JDialog implements
+                                                    IPrefetchProgress {
+  private static TurtleLogger log;
+  static {
+    log = (TurtleLogger) TurtleLogger.getLogger(JDialogProgressPrefetch.class);
+  }
+
+  private JPanel              jContentPane;
+
+  private JButton             jButtonOK;
+
+  private JPanel              jPanelSouth;
+
+  private JProgressBar        jProgressBar;
+
+  private JLabel              jLabelProgress;
+
+  private ResourceBundle      rb;
+
+  private volatile boolean    isAbortPrefetch = false;
+
+  /**
+   * @param owner
+   */
+  public JDialogProgressPrefetch(Frame owner) {
+    super(owner, false);
+    initialize();
+  }
+
+  /**
+   * T&eacute;l&eacute;chargement des tuiles en t&acirc;che de fond.
+   *
+   * @param prefetcher
+   *          les tuiles &agrave; t&eacute;l&eacute;charger.
+   */
+  public static void prompt(final TilePrefetcher prefetcher) {
+    final JDialogProgressPrefetch dlg = new JDialogProgressPrefetch(MainGui
+        .getWindow());
+    dlg.setLocationRelativeTo(MainGui.getWindow());
+    dlg.setVisible(true);
+
+    new SwingWorker() {
+      @Override
+      public Object construct() {
+        try {
+          prefetcher.run(dlg);
+        }
+        catch (Throwable th) {
+          log.error("", th);
+          dlg.endPrefetch(false);
+        }
+        return null;
+      }
+    }.start();
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.map.IPrefetchProgress#abortPrefetch()
+   */
+  public boolean abortPrefetch() {
+    return isAbortPrefetch;
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.map.IPrefetchProgress#beginPrefetch(int)
+   */
+  public void beginPrefetch(int nbTiles) {
+    log.debug("beginPrefetch nbTiles=" + nbTiles);
+    jProgressBar.setIndeterminate(false);
+    jProgressBar.setMaximum(Math.max(1, nbTiles));
+    jProgressBar.setValue(0);
+    jProgressBar.setStringPainted(true);
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.map.IPrefetchProgress#prefetch(int, int)
+   */
+  public void prefetch(int done, int nbFailed) {
+    jProgressBar.setValue(done);
+    jLabelProgress.setText(MessageFormat.format(rb
+        .getString("jLabelProgressPrefetch"), done, jProgressBar
+        .getMaximum(), nbFailed));
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see fr.turtlesport.map.IPrefetchProgress#endPrefetch(boolean)
+   */
+  public void endPrefetch(boolean isComplete) {
+    jLabelProgress.setText(rb.getString(isComplete ? "jLabelProgressEnd"
+        : "jLabelProgressAbort"));
+    if (isComplete) {
+      jProgressBar.setValue(jProgressBar.getMaximum());
+    }
+    jButtonOK.setText(LanguageManager.getManager().getCurrentLang().ok());
+  }
+
+  /**
+   * This method initializes this
+   *
+   * @return void
+   */
+  private void initialize() {
+    rb = ResourceBundleUtility.getBundle(LanguageManager.getManager()
+        .getCurrentLang(), getClass());
+
+    this.setSize(340, 120);
+    this.setTitle(rb.getString("title"));
+    this.setContentPane(getJContentPane());
+    this.setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+    jLabelProgress.setText(rb.getString("jLabelProgressBegin"));
+
+    // evenements
+    jButtonOK.addActionListener(new ActionListener() {
+      public void actionPerformed(ActionEvent actionevent) {
+        // les tuiles restantes sont conservees pour une reprise
+        isAbortPrefetch = true;
+        dispose();
+      }
+    });
+  }
+
+  /**
+   * This method initializes jContentPane
+   *
+   * @return javax.swing.JPanel
+   */
+  private JPanel getJContentPane() {
+    if (jContentPane == null) {
+      jLabelProgress = new JLabel();
+      jLabelProgress.setPreferredSize(new Dimension(240, 20));
+      jLabelProgress.setHorizontalAlignment(SwingConstants.LEFT);
+      jLabelProgress.setVerticalAlignment(SwingConstants.TOP);
+      jLabelProgress.setVerticalTextPosition(SwingConstants.TOP);
+      jLabelProgress.setFont(GuiFont.FONT_PLAIN);
+
+      BorderLayout borderLayout = new BorderLayout(5, 5);
+      jContentPane = new JPanel();
+      jContentPane.setLayout(borderLayout);
+      jContentPane.add(new JLabel(" "), BorderLayout.NORTH);
+      jContentPane.add(new JLabel(" "), BorderLayout.WEST);
+      jContentPane.add(jLabelProgress, BorderLayout.CENTER);
+      jContentPane.add(getJPanelSouth(), BorderLayout.SOUTH);
+    }
+    return jContentPane;
+  }
+
+  /**
+   * This method initializes jPanelSouth
+   *
+   * @return javax.swing.JPanel
+   */
+  private JPanel getJPanelSouth() {
+    if (jPanelSouth == null) {
+      jPanelSouth = new JPanel();
+      jPanelSouth.setLayout(new FlowLayout(FlowLayout.RIGHT, 10, 5));
+      jPanelSouth.add(getJProgressBar(), null);
+      jPanelSouth.add(getJButtonOK(), null);
+    }
+    return jPanelSouth;
+  }
+
+  /**
+   * This method initializes jButton
+   *
+   * @return javax.swing.JButton
+   */
+  private JButton getJButtonOK() {
+    if (jButtonOK == null) {
+      jButtonOK = new JButton();
+      jButtonOK.setFont(GuiFont.FONT_PLAIN);
+      jButtonOK.setText(LanguageManager.getManager().getCurrentLang().cancel());
+    }
+    return jButtonOK;
+  }
+
+  /**
+   * This method initializes jProgressBar
+   *
+   * @return javax.swing.JProgressBar
+   */
+  private JProgressBar getJProgressBar() {
+    if (jProgressBar == null) {
+      jProgressBar = new JProgressBar();
+      jProgressBar.setPreferredSize(new Dimension(200, 18));
+      jProgressBar.setMaximumSize(new Dimension(200, 18));
+      jProgressBar.setMinimumSize(new Dimension(200, 18));
+      jProgressBar.setIndeterminate(true);
+      jProgressBar.setFont(GuiFont.FONT_PLAIN);
+    }
+    return jProgressBar;
+  }
+
+}
@@ -43,7 +43,9 @@ import fr.turtlesport.db.DataActivityOther;
 import fr.turtlesport.db.DataEquipement;
 import fr.turtlesport.db.DataRunExtra;
 import fr.turtlesport.db.DataUser;
+import fr.turtlesport.db.DeviceSyncTableManager;
 import fr.turtlesport.db.EquipementTableManager;
+import fr.turtlesport.db.RunStorePipeline;
 import fr.turtlesport.db.RunTableManager;
 import fr.turtlesport.db.UserActivityTableManager;
 import fr.turtlesport.db.UserTableManager;
@@ -51,6 +53,7 @@ import fr.turtlesport.db.progress.IRunStoreProgress;
 import fr.turtlesport.lang.LanguageManager;
 import fr.turtlesport.log.TurtleLogger;
 import fr.turtlesport.protocol.A1000RunTransferProtocol;
+import fr.turtlesport.protocol.TransfertStats;
 import fr.turtlesport.protocol.data.AbstractLapType;
 import fr.turtlesport.protocol.data.AbstractRunType;
 import fr.turtlesport.protocol.progress.IRunTransfertProgress;
@@ -105,6 +108,9 @@ public class JDialogProgressRun extends JDialog implements
 
   private A1000RunTransferProtocol a1000;
 
+  /** Dernier affichage des mesures du transfert. */
+  private long                     lastStatsTime;
+
   private SaveActionListener       saveActionListener;
 
   private CancelActionListener     cancelActionListener;
@@ -134,6 +140,9 @@ public class JDialogProgressRun extends JDialog implements
 
   private IProductDevice           productDevice;
 
+  /** Enregistrement au fil du transfert. */
+  private RunStorePipeline         pipeline;
+
   /**
    * @param owner
    * @param modal
@@ -203,18 +212,99 @@ public class JDialogProgressRun extends JDialog implements
       this.productDevice = productDevice;
       // Recuperation des run.
       deb = System.currentTimeMillis();
-      a1000.retrieve(this);
+      if (RunStorePipeline.isEnabled()) {
+        pipeline = new RunStorePipeline(productDevice);
+        pipeline.start();
+      }
+      if (DeviceSyncTableManager.isEnabled() && productDevice != null) {
+        a1000.setFilter(DeviceSyncTableManager.getInstance()
+            .newFilter(productDevice.id()));
+      }
+      a1000.retrieve(this, pipeline);
       log.warn("Temps pour recuperer les run (ms) --> "
                + (System.currentTimeMillis() - deb));
     }
     catch (Throwable th) {
       log.error("", th);
+      cancelPipeline();
       dispose();
       JShowMessage.error(th.getMessage());
     }
 
   }
 
+  /**
+   * Les nouvelles courses ont &eacute;t&eacute; enregistr&eacute;es au fil
+   * du transfert : suppression des courses non s&eacute;lectionn&eacute;es,
+   * mise &agrave; jour des choix de l'utilisateur et enregistrement des
+   * courses existantes s&eacute;lectionn&eacute;es.
+   */
+  private void storePipeline() throws SQLException {
+    log.debug(">>storePipeline");
+
+    beginStore(tableModelRun.listRun.size());
+    pipeline.finish();
+
+    RunTableManager manager = RunTableManager.getInstance();
+    int nbSave = 0;
+    for (TableRowObject row : tableModelRun.listRun) {
+      int id = pipeline.getId(row.runType);
+      if (id != -1) {
+        if (!row.isSave()) {
+          manager.delete(id);
+        }
+        else {
+          DataRunExtra extra = (DataRunExtra) row.runType.getExtra();
+          manager.updateUser(id, extra.getIdUser());
+          manager.updateComments(id, extra.getComments());
+          manager.updateEquipment(id, extra.getEquipement());
+        }
+      }
+      else if (row.isSave() && pipeline.isDeferred(row.runType)) {
+        manager.store(row.runType, productDevice);
+      }
+      store(++nbSave, tableModelRun.listRun.size());
+      endStore(row.runType);
+    }
+    pipeline = null;
+    endStore();
+
+    log.debug("<<storePipeline");
+  }
+
+  /**
+   * Annulation : suppression des courses d&eacute;j&agrave;
+   * enregistr&eacute;es au fil du transfert.
+   */
+  private void cancelPipeline() {
+    if (pipeline == null) {
+      return;
+    }
+    final RunStorePipeline p = pipeline;
+    pipeline = null;
+    p.abort();
+
+    new Thread("RunStorePipeline-cancel") {
+      @Override
+      public void run() {
+        try {
+          p.finish();
+        }
+        catch (SQLException e) {
+          log.error("", e);
+        }
+        for (int id : p.getIds()) {
+          try {
+            RunTableManager.getInstance().delete(id);
+          }
+          catch (SQLException e) {
+            log.error("", e);
+          }
+        }
+      }
+    }.start();
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -257,6 +347,36 @@ public class JDialogProgressRun extends JDialog implements
    */
   public void transfert() {
     jProgressBar.setValue(jProgressBar.getValue() + intervalNotify());
+
+    long now = System.currentTimeMillis();
+    if (now - lastStatsTime > 1000) {
+      lastStatsTime = now;
+      showStats();
+    }
+  }
+
+  /**
+   * Affichage des mesures du transfert : d&eacute;bit et part du temps
+   * pass&eacute;e dans la lecture USB, le d&eacute;codage et l'affichage.
+   */
+  private void showStats() {
+    if (a1000 == null) {
+      return;
+    }
+    TransfertStats stats = a1000.getStats();
+    jLabelNorth.setText("  "
+                        + MessageFormat.format(rb.getString("jLabelStats"),
+                                               Math.round(stats
+                                                   .getPacketsPerSecond()),
+                                               Math.round(stats
+                                                   .getBytesPerSecond() / 1024),
+                                               stats.percent(stats
+                                                   .getUsbMillis()),
+                                               stats.percent(stats
+                                                   .getParseMillis()),
+                                               stats.percent(stats
+                                                   .getProgressMillis())));
+    jLabelNorth.setToolTipText(stats.summary());
   }
 
   /*
@@ -281,6 +401,7 @@ public class JDialogProgressRun extends JDialog implements
     jLabelProgress.setText(rb.getString("jLabelProgressEndTransfer"));
     jProgressBar.setIndeterminate(false);
     jProgressBar.setValue(jProgressBar.getMaximum());
+    showStats();
 
     isEndTransfert = true;
   }
@@ -1329,6 +1450,7 @@ public class JDialogProgressRun extends JDialog implements
      */
     public void actionPerformed(ActionEvent actionevent) {
       isAbortTransfert = true;
+      cancelPipeline();
       dispose();
     }
   }
@@ -1383,6 +1505,12 @@ public class JDialogProgressRun extends JDialog implements
         public Object construct() {
           ArrayList<String> listEquipement = new ArrayList<String>();
 
+          // Courses transferees (synchronisation incrementale)
+          ArrayList<AbstractRunType> listSync = new ArrayList<AbstractRunType>();
+          if (a1000.getListRunType() != null) {
+            listSync.addAll(a1000.getListRunType());
+          }
+
           // On ne garde que les run selectionne et on recupere les equipements.
           for (TableRowObject row : tableModelRun.listRun) {
             if (!row.isSave()) {
@@ -1397,11 +1525,21 @@ public class JDialogProgressRun extends JDialog implements
           // Sauvegarde des run
           try {
             long deb = System.currentTimeMillis();
-            RunTableManager.getInstance().store(a1000,
-                                                JDialogProgressRun.this,
-                                                productDevice);
+            if (pipeline != null) {
+              storePipeline();
+            }
+            else {
+              RunTableManager.getInstance().store(a1000,
+                                                  JDialogProgressRun.this,
+                                                  productDevice);
+            }
             log.warn("Temps pour sauvegarder " + a1000.getListRunTypeSize()
                      + " run (ms) --> " + (System.currentTimeMillis() - deb));
+
+            if (productDevice != null) {
+              DeviceSyncTableManager.getInstance().store(productDevice.id(),
+                                                         listSync);
+            }
           }
           catch (SQLException sqle) {
             log.error("", sqle);
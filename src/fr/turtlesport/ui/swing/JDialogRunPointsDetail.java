@@ -22,6 +22,8 @@ import javax.swing.table.AbstractTableModel;
 
 import fr.turtlesport.db.DataRun;
 import fr.turtlesport.db.DataRunTrk;
+import fr.turtlesport.filter.RunSeries;
+import fr.turtlesport.filter.RunSeriesManager;
 import fr.turtlesport.lang.CommonLang;
 import fr.turtlesport.lang.LanguageManager;
 import fr.turtlesport.log.TurtleLogger;
@@ -92,7 +94,11 @@ public class JDialogRunPointsDetail extends JDialog {
 
     view.getJLabelTitle().setText(value);
 
+    RunSeries series = null;
     try {
+      // Vitesse et allure
+      series = RunSeriesManager.getInstance().getSeries(dataRun.getId());
+
       // Distance tot
       view.getJLabelValDistanceTot()
           .setText(DistanceUnit.formatWithUnit(dataRun.getComputeDistanceTot()));
@@ -104,7 +110,7 @@ public class JDialogRunPointsDetail extends JDialog {
     catch (SQLException e) {
       log.error("", e);
     }
-    view.tableModel.updateData(listTrks);
+    view.tableModel.updateData(listTrks, series);
 
     // show
     view.pack();
@@ -271,6 +277,8 @@ public class JDialogRunPointsDetail extends JDialog {
 
     public List<DataRunTrk> listTrks;
 
+    private RunSeries       series;
+
     public TableModelPoints() {
 
       for (int i = 0; i < columnNames.length; i++) {
@@ -420,12 +428,13 @@ public class JDialogRunPointsDetail extends JDialog {
           return (data.getHeartRate() == 0) ? "-" : data.getHeartRate();
 
         case 5: // km/h
-          if (rowIndex != 0) {
+          if (rowIndex != 0 && series != null
+              && rowIndex < series.size()) {
+            double speed = series.getSpeed()[rowIndex];
             if (DistanceUnit.isDefaultUnitKm()) {
-              return SpeedUnit.format(data.getSpeed());
+              return SpeedUnit.format(speed);
             }
-            return SpeedUnit.format(DistanceUnit.convertKmToMile(data
-                .getSpeed()));
+            return SpeedUnit.format(DistanceUnit.convertKmToMile(speed));
           }
           return " ";
 
@@ -433,11 +442,13 @@ public class JDialogRunPointsDetail extends JDialog {
           // if (data.getPace() == 0) {
           // return "-";
           // }
-          if (rowIndex != 0) {
+          if (rowIndex != 0 && series != null
+              && rowIndex < series.size()) {
+            double pace = series.getPace()[rowIndex];
             if (DistanceUnit.isDefaultUnitKm()) {
-              return PaceUnit.format(data.getSpeed());
+              return PaceUnit.format(pace);
             }
-            return PaceUnit.convertMnperkmToMnpermile(data.getSpeed());
+            return PaceUnit.convertMnperkmToMnpermile(pace);
           }
           return " ";
 
@@ -463,10 +474,14 @@ public class JDialogRunPointsDetail extends JDialog {
     /**
      * Mis a jour des donnees de la table.
      * 
-     * @param runLaps
+     * @param listTrks
+     *          les points.
+     * @param series
+     *          les s&eacute;ries d&eacute;riv&eacute;es des points.
      */
-    public void updateData(List<DataRunTrk> listTrks) {
+    public void updateData(List<DataRunTrk> listTrks, RunSeries series) {
       this.listTrks = listTrks;
+      this.series = series;
       jTable.packAll();
     }
   }
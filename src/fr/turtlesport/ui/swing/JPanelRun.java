@@ -58,6 +58,7 @@ import fr.turtlesport.lang.LanguageListener;
 import fr.turtlesport.lang.LanguageManager;
 import fr.turtlesport.log.TurtleLogger;
 import fr.turtlesport.mail.Mail;
+import fr.turtlesport.ui.swing.action.CourseSendActionListener;
 import fr.turtlesport.ui.swing.action.DeleteActionListener;
 import fr.turtlesport.ui.swing.action.DetailActionListener;
 import fr.turtlesport.ui.swing.action.DetailPointsActionListener;
@@ -188,6 +189,8 @@ public class JPanelRun extends JPanelRight implements LanguageListener,
 
   private JMenuItemTurtle         jMenuItemRunEmail;
 
+  private JMenuItemTurtle         jMenuItemRunSendCourse;
+
   private JMenuItemTurtle         jMenuItemRunDelete;
 
   private JMenuItemTurtle         jMenuItemRunExportGoogleEarth;
@@ -404,6 +407,7 @@ public class JPanelRun extends JPanelRight implements LanguageListener,
     if (jMenuItemRunEmail != null) {
       jMenuItemRunEmail.setEnabled(b);
     }
+    getJMenuItemRunSendCourse().setEnabled(b);
     getJMenuRunExport().setEnabled(b);
     getJMenuItemRunExportGpx().setEnabled(b);
     getJMenuItemRunExportGoogleEarth().setEnabled(b);
@@ -509,6 +513,7 @@ public class JPanelRun extends JPanelRight implements LanguageListener,
     if (jMenuItemRunEmail != null) {
       jMenuItemRunEmail.setText(rb.getString("jMenuItemRunEmail"));
     }
+    jMenuItemRunSendCourse.setText(rb.getString("jMenuItemRunSendCourse"));
     jMenuRunExport.setText(rb.getString("jMenuRunExport"));
     jMenuItemRunExportGpx.setText(rb.getString("jMenuItemRunExportGpx"));
     jMenuItemRunExportGoogleEarth.setText(rb
@@ -630,6 +635,9 @@ public class JPanelRun extends JPanelRight implements LanguageListener,
     getJMenuItemRunMap().addActionListener(action);
     MainGui.getWindow().getJMenuItemRunMap().addActionListener(action);
 
+    getJMenuItemRunSendCourse()
+        .addActionListener(new CourseSendActionListener());
+
     jTabbedPaneRace.addChangeListener(new ChangeListener() {
       public void stateChanged(ChangeEvent e) {
         if (jTabbedPaneRace.getSelectedComponent() instanceof ChartPanel) {
@@ -809,6 +817,7 @@ public class JPanelRun extends JPanelRight implements LanguageListener,
         jMenuItemRunEmail.setEnabled(false);
         jPopupMenu.add(jMenuItemRunEmail);
       }
+      jPopupMenu.add(getJMenuItemRunSendCourse());
       jPopupMenu.add(getJMenuRunExport());
       jPopupMenu.add(getJMenuItemRunDelete());
     }
@@ -909,6 +918,22 @@ public class JPanelRun extends JPanelRight implements LanguageListener,
     return jMenuItemRunEmail;
   }
 
+  /**
+   * This method initializes jMenuItemRunSendCourse.
+   * 
+   * @return javax.swing.JMenuItem
+   */
+  protected JMenuItemTurtle getJMenuItemRunSendCourse() {
+    if (jMenuItemRunSendCourse == null) {
+      jMenuItemRunSendCourse = new JMenuItemTurtle();
+      jMenuItemRunSendCourse.setFont(GuiFont.FONT_PLAIN);
+      jMenuItemRunSendCourse.setAccelerator(MainGui.getWindow()
+          .getMenuProperties(), "jMenuItemRunSendCourse");
+      jMenuItemRunSendCourse.setEnabled(false);
+    }
+    return jMenuItemRunSendCourse;
+  }
+
   /**
    * This method initializes jMenuRunExport.
    * 
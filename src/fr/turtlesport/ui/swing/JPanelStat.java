@@ -9,6 +9,7 @@ import fr.turtlesport.ui.swing.component.JFileSaver;
 import fr.turtlesport.ui.swing.component.JShowMessage;
 import fr.turtlesport.ui.swing.img.ImagesRepository;
 import fr.turtlesport.ui.swing.model.ActivityComboBoxModel;
+import fr.turtlesport.ui.swing.model.ModelStatManager;
 import fr.turtlesport.unit.DistanceUnit;
 import fr.turtlesport.unit.PaceUnit;
 import fr.turtlesport.unit.SpeedPaceUnit;
@@ -105,6 +106,9 @@ public class JPanelStat extends JPanelRight implements LanguageListener,
 
   private IDataStat[] dataStat;
 
+  /** Derni&egrave;re demande de graphique. */
+  private int                   chartRequest;
+
 
   /**
    *
@@ -195,34 +199,63 @@ public class JPanelStat extends JPanelRight implements LanguageListener,
         .computeFormatAllureWithUnit(runTot.distanceTot, runTot.timeTot));
   }
 
+  /**
+   * Mis &agrave; jour du graphique, le graphique courant reste
+   * affich&eacute; jusqu'&agrave; ce que le nouveau soit calcul&eacute;.
+   */
   private void updateChart() {
     java.util.ResourceBundle rb = ResourceBundleUtility.getBundle(LanguageManager
         .getManager().getCurrentLang(), getClass());
-    String libRace = rb.getString("titleChart");
+    final String libRace = rb.getString("titleChart");
 
     final String[] criter1 = { "createChartDistance",
         "createChartTime",
         "createChartRaceNumber" };
     final String[] criter2 = { "Day", "DayOfWeek", "Week", "Month", "Year" };
 
-    String methodName = criter1[jComboxBoxCriter1.getSelectedIndex()]
-                        + criter2[jComboxBoxCriter2.getSelectedIndex()];
-
-    int sportType = modelActivities.getSportType();
+    final String methodName = criter1[jComboxBoxCriter1.getSelectedIndex()]
+                              + criter2[jComboxBoxCriter2.getSelectedIndex()];
+
+    final int sportType = modelActivities.getSportType();
+    final int idUserChart = idUser;
+    final int request = ++chartRequest;
+
+    ModelStatManager.getInstance().execute(new Runnable() {
+      public void run() {
+        StatChart statChart = null;
+        try {
+          Method method = JPanelStat.class.getMethod(methodName,
+                                                     Integer.class,
+                                                     String.class,
+                                                     Integer.class);
+          statChart = (StatChart) method.invoke(JPanelStat.this,
+                                                idUserChart,
+                                                libRace,
+                                                sportType);
+        }
+        catch (Throwable e) {
+          log.error("", e);
+        }
+        if (statChart == null) {
+          return;
+        }
 
-    try {
-      Method method = getClass().getMethod(methodName,
-                                           String.class,
-                                           Integer.class);
-      chart = (JFreeChart) method.invoke(this, libRace, sportType);
-    }
-    catch (Throwable e) {
-      log.error("", e);
-    }
+        final StatChart result = statChart;
+        javax.swing.SwingUtilities.invokeLater(new Runnable() {
+          public void run() {
+            // une demande plus recente est en cours
+            if (request == chartRequest) {
+              showChart(result);
+            }
+          }
+        });
+      }
+    });
+  }
 
-    if (chart == null) {
-      return;
-    }
+  private void showChart(StatChart statChart) {
+    chart = statChart.chart;
+    dataStat = statChart.dataStat;
 
     chart.setBackgroundPaint(jPanelSummary.getBackground());
 
@@ -250,11 +283,13 @@ public class JPanelStat extends JPanelRight implements LanguageListener,
     }
   }
 
-  public JFreeChart createChartTimeDayOfWeek(String libRace, Integer sportType) throws SQLException {
-    DataStatWeek[] resDayOfWeek = RunLapTableManager.getInstance()
+  public StatChart createChartTimeDayOfWeek(Integer idUser,
+                                            String libRace,
+                                            Integer sportType) throws SQLException {
+    DataStatWeek[] resDayOfWeek = ModelStatManager.getInstance()
         .statByDayOfWeek(idUser, sportType);
 
-    dataStat = resDayOfWeek;
+    IDataStat[] dataStat = resDayOfWeek;
 
     DateAxis dateAxis = new DateAxis("");
     dateAxis.setDateFormatOverride(new java.text.SimpleDateFormat("EEEE"));
@@ -291,15 +326,16 @@ public class JPanelStat extends JPanelRight implements LanguageListener,
 
     TimePeriodValuesCollection dataset = new TimePeriodValuesCollection();
     dataset.addSeries(s1);
-    return createChartTime(dataset, dateAxis);
+    return new StatChart(createChartTime(dataset, dateAxis), dataStat);
   }
 
-  public JFreeChart createChartDistanceDayOfWeek(String libRace,
-                                                 Integer sportType) throws SQLException {
-    DataStatWeek[] resDayOfWeek = RunLapTableManager.getInstance()
+  public StatChart createChartDistanceDayOfWeek(Integer idUser,
+                                                String libRace,
+                                                Integer sportType) throws SQLException {
+    DataStatWeek[] resDayOfWeek = ModelStatManager.getInstance()
         .statByDayOfWeek(idUser, sportType);
 
-    dataStat = resDayOfWeek;
+    IDataStat[] dataStat = resDayOfWeek;
 
     DateAxis dateAxis = new DateAxis("");
     dateAxis.setDateFormatOverride(new java.text.SimpleDateFormat("EEEE"));
@@ -340,13 +376,15 @@ public class JPanelStat extends JPanelRight implements LanguageListener,
 
     TimePeriodValuesCollection dataset = new TimePeriodValuesCollection();
     dataset.addSeries(s1);
-    return createChartDistance(dataset, dateAxis);
+    return new StatChart(createChartDistance(dataset, dateAxis), dataStat);
   }
 
-  public JFreeChart createChartDistanceYear(String libRace, Integer sportType) throws SQLException {
-    DataStatYear[] resYear = RunLapTableManager.getInstance()
+  public StatChart createChartDistanceYear(Integer idUser,
+                                           String libRace,
+                                           Integer sportType) throws SQLException {
+    DataStatYear[] resYear = ModelStatManager.getInstance()
         .statByYear(idUser, sportType);
-    dataStat = resYear;
+    IDataStat[] dataStat = resYear;
 
     DateAxis dateAxis = new DateAxis("");
     dateAxis.setTickUnit(new DateTickUnit(DateTickUnitType.YEAR, 1));
@@ -374,13 +412,15 @@ public class JPanelStat extends JPanelRight implements LanguageListener,
     final TimePeriodValuesCollection dataset = new TimePeriodValuesCollection();
     dataset.addSeries(sYear);
 
-    return createChartDistance(dataset, dateAxis);
+    return new StatChart(createChartDistance(dataset, dateAxis), dataStat);
   }
 
-  public JFreeChart createChartTimeYear(String libRace, Integer sportType) throws SQLException {
-    DataStatYear[] resYear = RunLapTableManager.getInstance()
+  public StatChart createChartTimeYear(Integer idUser,
+                                       String libRace,
+                                       Integer sportType) throws SQLException {
+    DataStatYear[] resYear = ModelStatManager.getInstance()
         .statByYear(idUser, sportType);
-    dataStat = resYear;
+    IDataStat[] dataStat = resYear;
 
     DateAxis dateAxis = new DateAxis("");
     dateAxis.setTickUnit(new DateTickUnit(DateTickUnitType.YEAR, 1));
@@ -407,13 +447,15 @@ public class JPanelStat extends JPanelRight implements LanguageListener,
     final TimePeriodValuesCollection dataset = new TimePeriodValuesCollection();
     dataset.addSeries(sYear);
 
-    return createChartTime(dataset, dateAxis);
+    return new StatChart(createChartTime(dataset, dateAxis), dataStat);
   }
 
-  public JFreeChart createChartDistanceMonth(String libRace, Integer sportType) throws SQLException {
-    DataStatYearMonth[] resMonth = RunLapTableManager.getInstance()
+  public StatChart createChartDistanceMonth(Integer idUser,
+                                            String libRace,
+                                            Integer sportType) throws SQLException {
+    DataStatYearMonth[] resMonth = ModelStatManager.getInstance()
         .statByMonth(idUser, sportType);
-    dataStat = resMonth;
+    IDataStat[] dataStat = resMonth;
 
     DateAxis dateAxis = new DateAxis("");
     dateAxis.setTickUnit(new DateTickUnit(DateTickUnitType.MONTH, 1));
@@ -442,13 +484,15 @@ public class JPanelStat extends JPanelRight implements LanguageListener,
     }
     final TimePeriodValuesCollection dataset = new TimePeriodValuesCollection();
     dataset.addSeries(sMonth);
-    return createChartDistance(dataset, dateAxis);
+    return new StatChart(createChartDistance(dataset, dateAxis), dataStat);
   }
 
-  public JFreeChart createChartTimeMonth(String libRace, Integer sportType) throws SQLException {
-    DataStatYearMonth[] resMonth = RunLapTableManager.getInstance()
+  public StatChart createChartTimeMonth(Integer idUser,
+                                        String libRace,
+                                        Integer sportType) throws SQLException {
+    DataStatYearMonth[] resMonth = ModelStatManager.getInstance()
         .statByMonth(idUser, sportType);
-    dataStat = resMonth;
+    IDataStat[] dataStat = resMonth;
 
     DateAxis dateAxis = new DateAxis("");
     dateAxis.setTickUnit(new DateTickUnit(DateTickUnitType.MONTH, 1));
@@ -477,13 +521,15 @@ public class JPanelStat extends JPanelRight implements LanguageListener,
 
     final TimePeriodValuesCollection dataset = new TimePeriodValuesCollection();
     dataset.addSeries(sMonth);
-    return createChartTime(dataset, dateAxis);
+    return new StatChart(createChartTime(dataset, dateAxis), dataStat);
   }
 
-  public JFreeChart createChartDistanceWeek(String libRace, Integer sportType) throws SQLException {
-    DataStatYearWeek[] resWeek = RunLapTableManager.getInstance()
+  public StatChart createChartDistanceWeek(Integer idUser,
+                                           String libRace,
+                                           Integer sportType) throws SQLException {
+    DataStatYearWeek[] resWeek = ModelStatManager.getInstance()
         .statByWeek(idUser, sportType);
-    dataStat = resWeek;
+    IDataStat[] dataStat = resWeek;
 
     DateAxis dateAxis = new DateAxis("");
     dateAxis.setDateFormatOverride(new java.text.SimpleDateFormat("w-yyyy",
@@ -514,13 +560,15 @@ public class JPanelStat extends JPanelRight implements LanguageListener,
 
     final TimePeriodValuesCollection dataset = new TimePeriodValuesCollection();
     dataset.addSeries(s1);
-    return createChartDistance(dataset, dateAxis);
+    return new StatChart(createChartDistance(dataset, dateAxis), dataStat);
   }
 
-  public JFreeChart createChartTimeWeek(String libRace, Integer sportType) throws SQLException {
-    DataStatYearWeek[] resWeek = RunLapTableManager.getInstance()
+  public StatChart createChartTimeWeek(Integer idUser,
+                                       String libRace,
+                                       Integer sportType) throws SQLException {
+    DataStatYearWeek[] resWeek = ModelStatManager.getInstance()
         .statByWeek(idUser, sportType);
-    dataStat = resWeek;
+    IDataStat[] dataStat = resWeek;
 
     DateAxis dateAxis = new DateAxis("");
     dateAxis.setDateFormatOverride(new java.text.SimpleDateFormat("w-yyyy",
@@ -549,13 +597,15 @@ public class JPanelStat extends JPanelRight implements LanguageListener,
 
     final TimePeriodValuesCollection dataset = new TimePeriodValuesCollection();
     dataset.addSeries(s1);
-    return createChartTime(dataset, dateAxis);
+    return new StatChart(createChartTime(dataset, dateAxis), dataStat);
   }
 
-  public JFreeChart createChartDistanceDay(String libRace, Integer sportType) throws SQLException {
-    List<DataRun> listRun = RunTableManager.getInstance().retreive(idUser,
-                                                                   sportType);
-    dataStat = new DataStatRun[listRun.size()];
+  public StatChart createChartDistanceDay(Integer idUser,
+                                          String libRace,
+                                          Integer sportType) throws SQLException {
+    List<DataRun> listRun = ModelStatManager.getInstance()
+        .retreive(idUser, sportType);
+    IDataStat[] dataStat = new DataStatRun[listRun.size()];
 
     DateAxis dateAxis = new DateAxis("");
     dateAxis.setDateFormatOverride(LanguageManager.getManager()
@@ -580,13 +630,15 @@ public class JPanelStat extends JPanelRight implements LanguageListener,
 
     TimePeriodValuesCollection dataset = new TimePeriodValuesCollection();
     dataset.addSeries(s1);
-    return createChartDistance(dataset, dateAxis);
+    return new StatChart(createChartDistance(dataset, dateAxis), dataStat);
   }
 
-  public JFreeChart createChartTimeDay(String libRace, Integer sportType) throws SQLException {
-    List<DataRun> listRun = RunTableManager.getInstance().retreive(idUser,
-                                                                   sportType);
-    dataStat = new DataStatRun[listRun.size()];
+  public StatChart createChartTimeDay(Integer idUser,
+                                      String libRace,
+                                      Integer sportType) throws SQLException {
+    List<DataRun> listRun = ModelStatManager.getInstance()
+        .retreive(idUser, sportType);
+    IDataStat[] dataStat = new DataStatRun[listRun.size()];
 
     DateAxis dateAxis = new DateAxis("");
     dateAxis.setDateFormatOverride(LanguageManager.getManager()
@@ -615,7 +667,7 @@ public class JPanelStat extends JPanelRight implements LanguageListener,
 
     TimePeriodValuesCollection dataset = new TimePeriodValuesCollection();
     dataset.addSeries(s1);
-    return createChartTime(dataset, dateAxis);
+    return new StatChart(createChartTime(dataset, dateAxis), dataStat);
   }
 
   private JFreeChart createChartDistance(final XYDataset dataset,
@@ -712,11 +764,13 @@ public class JPanelStat extends JPanelRight implements LanguageListener,
     return new JFreeChart("", plot);
   }
 
-  public JFreeChart createChartRaceNumberMonth(String libRace, Integer sportType) throws SQLException {
-    DataStatYearMonth[] resMonth = RunLapTableManager.getInstance()
+  public StatChart createChartRaceNumberMonth(Integer idUser,
+                                              String libRace,
+                                              Integer sportType) throws SQLException {
+    DataStatYearMonth[] resMonth = ModelStatManager.getInstance()
         .statByMonth(idUser, sportType);
 
-    dataStat = resMonth;
+    IDataStat[] dataStat = resMonth;
 
     DateAxis dateAxis = new DateAxis("");
     dateAxis.setTickUnit(new DateTickUnit(DateTickUnitType.MONTH, 1));
@@ -743,12 +797,15 @@ public class JPanelStat extends JPanelRight implements LanguageListener,
     }
     final TimePeriodValuesCollection dataset = new TimePeriodValuesCollection();
     dataset.addSeries(sMonth);
-    return createChartRaceNumber(dataset, dateAxis);
+    return new StatChart(createChartRaceNumber(dataset, dateAxis), dataStat);
   }
 
-  public JFreeChart createChartRaceNumberDay(String libRace, Integer sportType) throws SQLException {
-    List<DataRun> listRun = RunTableManager.getInstance().retreive(idUser,
-                                                                   sportType);
+  public StatChart createChartRaceNumberDay(Integer idUser,
+                                            String libRace,
+                                            Integer sportType) throws SQLException {
+    List<DataRun> listRun = ModelStatManager.getInstance()
+        .retreive(idUser, sportType);
+    IDataStat[] dataStat = new DataStatRun[listRun.size()];
 
     DateAxis dateAxis = new DateAxis("");
     dateAxis.setDateFormatOverride(LanguageManager.getManager()
@@ -771,13 +828,15 @@ public class JPanelStat extends JPanelRight implements LanguageListener,
 
     TimePeriodValuesCollection dataset = new TimePeriodValuesCollection();
     dataset.addSeries(s1);
-    return createChartRaceNumber(dataset, dateAxis);
+    return new StatChart(createChartRaceNumber(dataset, dateAxis), dataStat);
   }
 
-  public JFreeChart createChartRaceNumberWeek(String libRace, Integer sportType) throws SQLException {
-    DataStatYearWeek[] resWeek = RunLapTableManager.getInstance()
+  public StatChart createChartRaceNumberWeek(Integer idUser,
+                                             String libRace,
+                                             Integer sportType) throws SQLException {
+    DataStatYearWeek[] resWeek = ModelStatManager.getInstance()
         .distanceByWeek(idUser, sportType);
-    dataStat = resWeek;
+    IDataStat[] dataStat = resWeek;
 
     DateAxis dateAxis = new DateAxis("");
     dateAxis.setDateFormatOverride(new java.text.SimpleDateFormat("w-yyyy",
@@ -805,14 +864,15 @@ public class JPanelStat extends JPanelRight implements LanguageListener,
 
     final TimePeriodValuesCollection dataset = new TimePeriodValuesCollection();
     dataset.addSeries(s1);
-    return createChartRaceNumber(dataset, dateAxis);
+    return new StatChart(createChartRaceNumber(dataset, dateAxis), dataStat);
   }
 
-  public JFreeChart createChartRaceNumberDayOfWeek(String libRace,
-                                                   Integer sportType) throws SQLException {
-    DataStatWeek[] resDayOfWeek = RunLapTableManager.getInstance()
+  public StatChart createChartRaceNumberDayOfWeek(Integer idUser,
+                                                  String libRace,
+                                                  Integer sportType) throws SQLException {
+    DataStatWeek[] resDayOfWeek = ModelStatManager.getInstance()
         .distanceByDayOfWeek(idUser, sportType);
-    dataStat = resDayOfWeek;
+    IDataStat[] dataStat = resDayOfWeek;
 
     DateAxis dateAxis = new DateAxis("");
     dateAxis.setDateFormatOverride(new java.text.SimpleDateFormat("EEEE"));
@@ -846,13 +906,15 @@ public class JPanelStat extends JPanelRight implements LanguageListener,
 
     TimePeriodValuesCollection dataset = new TimePeriodValuesCollection();
     dataset.addSeries(s1);
-    return createChartRaceNumber(dataset, dateAxis);
+    return new StatChart(createChartRaceNumber(dataset, dateAxis), dataStat);
   }
 
-  public JFreeChart createChartRaceNumberYear(String libRace, Integer sportType) throws SQLException {
-    DataStatYear[] resYear = RunLapTableManager.getInstance()
+  public StatChart createChartRaceNumberYear(Integer idUser,
+                                             String libRace,
+                                             Integer sportType) throws SQLException {
+    DataStatYear[] resYear = ModelStatManager.getInstance()
         .distanceByYear(idUser, sportType);
-    dataStat = resYear;
+    IDataStat[] dataStat = resYear;
 
     DateAxis dateAxis = new DateAxis("");
     dateAxis.setTickUnit(new DateTickUnit(DateTickUnitType.YEAR, 1));
@@ -878,7 +940,7 @@ public class JPanelStat extends JPanelRight implements LanguageListener,
     final TimePeriodValuesCollection dataset = new TimePeriodValuesCollection();
     dataset.addSeries(sYear);
 
-    return createChartRaceNumber(dataset, dateAxis);
+    return new StatChart(createChartRaceNumber(dataset, dateAxis), dataStat);
   }
 
   public JFreeChart createChartRaceNumber(final XYDataset dataset,
@@ -1257,6 +1319,20 @@ public class JPanelStat extends JPanelRight implements LanguageListener,
     return DistanceUnit.convertKmToMile(distance / 1000.0);
   }
 
+  /**
+   * Graphique et donn&eacute;es export&eacute;es.
+   */
+  private static class StatChart {
+    final JFreeChart  chart;
+
+    final IDataStat[] dataStat;
+
+    StatChart(JFreeChart chart, IDataStat[] dataStat) {
+      this.chart = chart;
+      this.dataStat = dataStat;
+    }
+  }
+
   private class DataRunTot {
     String unitDistance = DistanceUnit.unitKm();
 
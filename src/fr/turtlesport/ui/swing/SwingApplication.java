@@ -18,9 +18,15 @@ import fr.turtlesport.ConfigurationException;
 import fr.turtlesport.ProxyConfiguration;
 import fr.turtlesport.db.DatabaseManager;
 import fr.turtlesport.db.RunTableManager;
+import fr.turtlesport.device.DeviceWatcher;
+import fr.turtlesport.filter.RunSeriesManager;
 import fr.turtlesport.lang.LanguageManager;
 import fr.turtlesport.log.TurtleLogger;
+import fr.turtlesport.map.Heatmap;
+import fr.turtlesport.map.RunThumbnails;
 import fr.turtlesport.ui.swing.component.JShowMessage;
+import fr.turtlesport.ui.swing.component.MapTrackLod;
+import fr.turtlesport.ui.swing.model.ModelStatManager;
 import fr.turtlesport.update.Update;
 import fr.turtlesport.util.Location;
 import fr.turtlesport.util.LocationException;
@@ -108,6 +114,14 @@ public class SwingApplication {
     try {
       DatabaseManager.initDatabase(splash);
       RunTableManager.getInstance().exist(0);
+
+      // caches mis a jour a chaque modification des courses
+      RunTableManager rtm = RunTableManager.getInstance();
+      rtm.addRunChangeListener(Heatmap.getInstance());
+      rtm.addRunChangeListener(RunThumbnails.getInstance());
+      rtm.addRunChangeListener(RunSeriesManager.getInstance());
+      rtm.addRunChangeListener(ModelStatManager.getInstance());
+      rtm.addRunChangeListener(MapTrackLod.getRunChangeListener());
     }
     catch (SQLException e) {
       log.error("Initialisation", e);
@@ -138,6 +152,9 @@ public class SwingApplication {
       stopIt();
     }
 
+    // Surveillance des montres
+    DeviceWatcher.getInstance().start();
+
     // Affichage de l'IHM
     if (!futureHasUpdate.isDone()) {
       splash.updateProgress(rb.getString("splashUpdate"));
@@ -164,6 +181,11 @@ public class SwingApplication {
    * Stop de l'application.
    */
   public void stopIt() {
+    DeviceWatcher.getInstance().stop();
+
+    // enregistrement differe de la carte de chaleur
+    Heatmap.getInstance().flush();
+
     // fermeture de la database
     try {
       DriverManager.getConnection("jdbc:derby:;shutdown=true");
@@ -0,0 +1,101 @@
+package fr.turtlesport.ui.swing.action;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.ResourceBundle;
+
+import fr.turtlesport.db.DataRun;
+import fr.turtlesport.lang.LanguageManager;
+import fr.turtlesport.log.TurtleLogger;
+import fr.turtlesport.protocol.A1006Course;
+import fr.turtlesport.protocol.CourseBuilder;
+import fr.turtlesport.ui.swing.JDialogProgressRoutes;
+import fr.turtlesport.ui.swing.JPanelRun;
+import fr.turtlesport.ui.swing.MainGui;
+import fr.turtlesport.ui.swing.SwingWorker;
+import fr.turtlesport.ui.swing.component.JShowMessage;
+import fr.turtlesport.ui.swing.model.ModelPointsManager;
+import fr.turtlesport.util.ResourceBundleUtility;
+
+/**
+ * Envoi de la course courante &agrave; la montre comme parcours.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public class CourseSendActionListener implements ActionListener {
+  private static TurtleLogger log;
+  static {
+    log = (TurtleLogger) TurtleLogger
+        .getLogger(CourseSendActionListener.class);
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see
+   * java.awt.event.ActionListener#actionPerformed(java.awt.event.ActionEvent)
+   */
+  public void actionPerformed(ActionEvent e) {
+    final DataRun dataRun = ModelPointsManager.getInstance().getDataRun();
+    if (dataRun == null) {
+      return;
+    }
+    final ResourceBundle rb = ResourceBundleUtility.getBundle(LanguageManager
+        .getManager().getCurrentLang(), JPanelRun.class);
+
+    MainGui.getWindow().beforeRunnableSwing();
+
+    new SwingWorker() {
+      @Override
+      public Object construct() {
+        try {
+          CourseBuilder builder = CourseBuilder.newInstance(dataRun,
+                                                            courseName(dataRun));
+          if (builder.size() < 2) {
+            JShowMessage.error(rb.getString("errorCourseNoGps"));
+            return null;
+          }
+          builder.addAltitudePoints(rb.getString("courseSummit"), rb
+              .getString("courseValley"));
+
+          A1006Course a1006 = builder.prepareSend();
+
+          JDialogProgressRoutes dlg = new JDialogProgressRoutes(MainGui
+              .getWindow(), false, false);
+          dlg.setLocationRelativeTo(MainGui.getWindow());
+          dlg.setVisible(true);
+          dlg.send(a1006);
+        }
+        catch (SQLException e) {
+          log.error("", e);
+          JShowMessage.error(rb.getString("errorDatabase"));
+        }
+        catch (Throwable th) {
+          log.error("", th);
+          JShowMessage.error(th.getMessage());
+        }
+        return null;
+      }
+
+      @Override
+      public void finished() {
+        MainGui.getWindow().afterRunnableSwing();
+      }
+    }.start();
+  }
+
+  /**
+   * Nom du parcours : le lieu de la course ou sa date.
+   */
+  private static String courseName(DataRun dataRun) {
+    String location = dataRun.getLocation();
+    if (location != null && !"".equals(location.trim())) {
+      return location.trim();
+    }
+    return new SimpleDateFormat("yy-MM-dd HH:mm").format(dataRun.getTime());
+  }
+
+}
@@ -0,0 +1,122 @@
+package fr.turtlesport.ui.swing.component;
+
+import java.util.Arrays;
+
+/**
+ * Enveloppe des courbes d'un diagramme par colonne de pixels.
+ * <p>
+ * Pour chaque colonne et chaque courbe sont conserv&eacute;s le minimum, le
+ * maximum, la premi&egrave;re et la derni&egrave;re valeur des points de la
+ * colonne : l'affichage co&ucirc;te une ligne verticale par colonne quel que
+ * soit le nombre de points, les pics restent visibles et les colonnes sont
+ * reli&eacute;es comme les points d'origine.
+ *
+ * @author Denis Apparicio
+ *
+ */
+final class DiagramEnvelope {
+
+  /** Nombre de courbes. */
+  static final int       NB_CURVES = 4;
+
+  private final Object[] key;
+
+  private final int      width;
+
+  private final int[]    counts;
+
+  private final double[] min;
+
+  private final double[] max;
+
+  private final double[] first;
+
+  private final double[] last;
+
+  /**
+   * @param key
+   *          les param&egrave;tres de calcul de l'enveloppe.
+   * @param width
+   *          le nombre de colonnes.
+   */
+  DiagramEnvelope(Object[] key, int width) {
+    this.key = key;
+    this.width = width;
+    counts = new int[width];
+    min = new double[width * NB_CURVES];
+    max = new double[width * NB_CURVES];
+    first = new double[width * NB_CURVES];
+    last = new double[width * NB_CURVES];
+  }
+
+  /**
+   * D&eacute;termine si l'enveloppe a &eacute;t&eacute; calcul&eacute;e avec
+   * ces param&egrave;tres.
+   */
+  boolean isValid(Object[] key) {
+    return Arrays.equals(this.key, key);
+  }
+
+  /**
+   * Ajout d'un point, les points sont ajout&eacute;s dans l'ordre.
+   *
+   * @param column
+   *          la colonne.
+   * @param values
+   *          les valeurs des courbes.
+   */
+  void add(int column, double[] values) {
+    int offset = column * NB_CURVES;
+    if (counts[column] == 0) {
+      for (int k = 0; k < NB_CURVES; k++) {
+        min[offset + k] = values[k];
+        max[offset + k] = values[k];
+        first[offset + k] = values[k];
+        last[offset + k] = values[k];
+      }
+    }
+    else {
+      for (int k = 0; k < NB_CURVES; k++) {
+        if (values[k] < min[offset + k]) {
+          min[offset + k] = values[k];
+        }
+        if (values[k] > max[offset + k]) {
+          max[offset + k] = values[k];
+        }
+        last[offset + k] = values[k];
+      }
+    }
+    counts[column]++;
+  }
+
+  /**
+   * Restitue le nombre de colonnes.
+   */
+  int getWidth() {
+    return width;
+  }
+
+  /**
+   * D&eacute;termine si une colonne contient des points.
+   */
+  boolean hasPoints(int column) {
+    return counts[column] != 0;
+  }
+
+  double getMin(int column, int curve) {
+    return min[column * NB_CURVES + curve];
+  }
+
+  double getMax(int column, int curve) {
+    return max[column * NB_CURVES + curve];
+  }
+
+  double getFirst(int column, int curve) {
+    return first[column * NB_CURVES + curve];
+  }
+
+  double getLast(int column, int curve) {
+    return last[column * NB_CURVES + curve];
+  }
+
+}
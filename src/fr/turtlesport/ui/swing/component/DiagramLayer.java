@@ -0,0 +1,109 @@
+package fr.turtlesport.ui.swing.component;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.image.BufferedImage;
+
+import javax.swing.JComponent;
+
+/**
+ * Fond d'un diagramme (grille, courbes, axes) dessin&eacute; hors
+ * &eacute;cran.
+ * <p>
+ * Le fond n'est redessin&eacute; qu'apr&egrave;s {@link #invalidate()} ou un
+ * changement de taille : le d&eacute;placement du curseur ne co&ucirc;te que
+ * la recopie de la zone modifi&eacute;e et le dessin du curseur.
+ *
+ * @author Denis Apparicio
+ *
+ */
+abstract class DiagramLayer {
+
+  /** Demi-largeur de la bande redessin&eacute;e autour du curseur. */
+  static final int      CURSOR_WIDTH = 60;
+
+  private BufferedImage image;
+
+  private boolean       isValid;
+
+  /**
+   *
+   */
+  DiagramLayer() {
+    super();
+  }
+
+  /**
+   * Dessin du fond.
+   *
+   * @param g2
+   *          le contexte graphique.
+   */
+  protected abstract void paintLayer(Graphics2D g2);
+
+  /**
+   * Le fond doit &ecirc;tre redessin&eacute;.
+   */
+  void invalidate() {
+    isValid = false;
+  }
+
+  /**
+   * Affichage du fond.
+   *
+   * @param g
+   *          le contexte graphique du composant.
+   * @param c
+   *          le composant.
+   */
+  void paint(Graphics g, JComponent c) {
+    int w = c.getWidth();
+    int h = c.getHeight();
+    if (w <= 0 || h <= 0) {
+      return;
+    }
+
+    if (image == null || image.getWidth() != w || image.getHeight() != h) {
+      GraphicsConfiguration gc = c.getGraphicsConfiguration();
+      image = (gc == null) ? new BufferedImage(w,
+                                               h,
+                                               BufferedImage.TYPE_INT_RGB)
+          : gc.createCompatibleImage(w, h);
+      isValid = false;
+    }
+
+    if (!isValid) {
+      Graphics2D g2 = image.createGraphics();
+      try {
+        g2.setBackground(c.getBackground());
+        g2.clearRect(0, 0, w, h);
+        paintLayer(g2);
+      }
+      finally {
+        g2.dispose();
+      }
+      isValid = true;
+    }
+
+    g.drawImage(image, 0, 0, null);
+  }
+
+  /**
+   * R&eacute;affichage de la bande verticale couvrant l'ancienne et la
+   * nouvelle position du curseur.
+   *
+   * @param c
+   *          le composant.
+   * @param oldX
+   *          l'ancienne position.
+   * @param newX
+   *          la nouvelle position.
+   */
+  static void repaintCursor(JComponent c, int oldX, int newX) {
+    int x1 = Math.min(oldX, newX) - CURSOR_WIDTH;
+    int x2 = Math.max(oldX, newX) + CURSOR_WIDTH;
+    c.repaint(x1, 0, x2 - x1, c.getHeight());
+  }
+
+}
@@ -27,6 +27,35 @@ public class GeoPositionMapKit extends GeoPosition {
     heartRate = p.getHeartRate();
   }
 
+  /**
+   * Position interm&eacute;diaire entre deux points.
+   * 
+   * @param latitude
+   *          la latitude.
+   * @param longitude
+   *          la longitude.
+   * @param index
+   *          l'index du point pr&eacute;c&eacute;dent.
+   * @param time
+   *          le temps.
+   * @param distance
+   *          la distance.
+   * @param heartRate
+   *          la fr&eacute;quence cardiaque.
+   */
+  public GeoPositionMapKit(double latitude,
+                           double longitude,
+                           int index,
+                           long time,
+                           float distance,
+                           int heartRate) {
+    super(latitude, longitude);
+    this.index = index;
+    this.time = time;
+    this.distance = distance;
+    this.heartRate = heartRate;
+  }
+
   /**
    * @return the time
    */
@@ -7,18 +7,15 @@ import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Polygon;
-import java.awt.Toolkit;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
-import java.awt.image.BufferedImage;
 import java.text.DecimalFormat;
 import java.util.List;
 
 import javax.swing.JPanel;
-import javax.swing.RepaintManager;
 
 import fr.turtlesport.Configuration;
 import fr.turtlesport.db.DataRunTrk;
@@ -35,13 +32,12 @@ import fr.turtlesport.unit.TimeUnit;
  * 
  */
 public class JDiagramCompareComponent extends JPanel {
-  private BufferedImage               bimg;
-
-  private Toolkit                     toolkit;
-
-  private int                         biw, bih;
-
-  private boolean                     clearOnce;
+  /** Fond : grille, courbes et axes. */
+  private final DiagramLayer          layer          = new DiagramLayer() {
+    protected void paintLayer(Graphics2D g2) {
+      renderLayer(g2);
+    }
+  };
 
   // Mouse position
   public int                          mouseX         = 0;
@@ -107,7 +103,6 @@ public class JDiagramCompareComponent extends JPanel {
    * Coordonnees max des points.
    */
   private void initialize() {
-    toolkit = getToolkit();
     setDoubleBuffered(true);
     setIgnoreRepaint(true);
 
@@ -120,26 +115,6 @@ public class JDiagramCompareComponent extends JPanel {
     performedLanguage(LanguageManager.getManager().getCurrentLang());
   }
 
-  /*
-   * (non-Javadoc)
-   * 
-   * @see javax.swing.JComponent#paintImmediately(int, int, int, int)
-   */
-  public void paintImmediately(int x, int y, int w, int h) {
-    RepaintManager repaintManager = null;
-    boolean save = true;
-    if (!isDoubleBuffered()) {
-      repaintManager = RepaintManager.currentManager(this);
-      save = repaintManager.isDoubleBufferingEnabled();
-      repaintManager.setDoubleBufferingEnabled(false);
-    }
-    super.paintImmediately(x, y, w, h);
-
-    if (repaintManager != null) {
-      repaintManager.setDoubleBufferingEnabled(save);
-    }
-  }
-
   /*
    * (non-Javadoc)
    * 
@@ -147,53 +122,12 @@ public class JDiagramCompareComponent extends JPanel {
    */
   @Override
   public void paint(Graphics g) {
-    Dimension d = getSize();
-
-    if (bimg == null || biw != d.width || bih != d.height) {
-      bimg = (BufferedImage) ((Graphics2D) g).getDeviceConfiguration()
-          .createCompatibleImage(d.width, d.height);
-      biw = d.width;
-      bih = d.height;
-      clearOnce = true;
-    }
-
-    Graphics2D g2 = createGraphics2D(d.width, d.height, bimg, g);
-    render(d.width, d.height, g2);
-    g2.dispose();
-
-    if (bimg != null) {
-      g.drawImage(bimg, 0, 0, null);
-      toolkit.sync();
-    }
-  }
-
-  private Graphics2D createGraphics2D(int width,
-                                      int height,
-                                      BufferedImage bi,
-                                      Graphics g) {
-    Graphics2D g2 = null;
-
-    if (bi != null) {
-      g2 = bi.createGraphics();
-    }
-    else {
-      g2 = (Graphics2D) g;
-    }
-
-    g2.setBackground(getBackground());
-
-    if (clearOnce) {
-      g2.clearRect(0, 0, width, height);
-      clearOnce = false;
-    }
-
-    return g2;
-  }
+    layer.paint(g, this);
 
-  private void render(int w, int h, Graphics2D g2) {
-    paintGrid(g2);
+    // curseur
     if (model != null && model.indexX2 != 0) {
-      paintPoints(g2);
+      Graphics2D g2 = (Graphics2D) g;
+      g2.setFont(GuiFont.FONT_PLAIN_SMALL);
       if (model.hasMouseMotionListener()) {
         paintExtra(g2);
       }
@@ -201,9 +135,29 @@ public class JDiagramCompareComponent extends JPanel {
         paintPoint(g2);
       }
     }
+  }
+
+  /**
+   * Dessin du fond, sans le curseur.
+   */
+  private void renderLayer(Graphics2D g2) {
+    paintGrid(g2);
+    if (model != null && model.indexX2 != 0) {
+      paintPoints(g2);
+    }
     paintYAxis(g2);
   }
 
+  /**
+   * R&eacute;affichage du curseur apr&egrave;s un d&eacute;placement, le fond
+   * n'est pas redessin&eacute;.
+   */
+  private void repaintCursor(int oldMouseX) {
+    DiagramLayer.repaintCursor(this, oldMouseX, mouseX);
+    // valeurs sur les axes y
+    repaint(0, 0, WIDTH_TITLE_1 + PAD + 1, getHeight());
+  }
+
   /**
    * Afficher le repere orthonorme.
    */
@@ -611,6 +565,7 @@ public class JDiagramCompareComponent extends JPanel {
 
     public void changeVisible() {
       revalidate();
+      layer.invalidate();
       repaint();
     }
 
@@ -716,6 +671,7 @@ public class JDiagramCompareComponent extends JPanel {
       if (points1 == null || points1.size() == 0 || points2 == null || points2.size() == 0) {
         initialize();
         revalidate();
+        layer.invalidate();
         repaint();
         return;
       }
@@ -783,6 +739,7 @@ public class JDiagramCompareComponent extends JPanel {
       }
 
       revalidate();
+      layer.invalidate();
       repaint();
     }
 
@@ -894,6 +851,7 @@ public class JDiagramCompareComponent extends JPanel {
       }
 
       revalidate();
+      layer.invalidate();
       repaint();
     }
   }
@@ -912,13 +870,13 @@ public class JDiagramCompareComponent extends JPanel {
     public void mouseMoved(MouseEvent e) {
       final int x = e.getX();
       setMouseX(x);
-      revalidate();
-      repaint();
     }
   }
 
   private void setMouseX(int mouseX) {
+    int oldMouseX = this.mouseX;
     this.mouseX = mouseX;
+    repaintCursor(oldMouseX);
   }
 
   /**
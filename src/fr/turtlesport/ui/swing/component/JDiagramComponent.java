@@ -7,7 +7,6 @@ import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Polygon;
-import java.awt.Toolkit;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
@@ -24,14 +23,13 @@ import java.util.List;
 
 import javax.imageio.ImageIO;
 import javax.swing.JPanel;
-import javax.swing.RepaintManager;
 import javax.swing.SwingUtilities;
 
 import fr.turtlesport.Configuration;
 import fr.turtlesport.db.DataRun;
 import fr.turtlesport.db.DataRunLap;
 import fr.turtlesport.db.DataRunTrk;
-import fr.turtlesport.filter.SavitzkyGolay;
+import fr.turtlesport.filter.RunSeries;
 import fr.turtlesport.lang.CommonLang;
 import fr.turtlesport.lang.ILanguage;
 import fr.turtlesport.lang.LanguageEvent;
@@ -57,13 +55,12 @@ import fr.turtlesport.unit.event.UnitManager;
  */
 public class JDiagramComponent extends JPanel implements LanguageListener,
                                              UnitListener {
-  private BufferedImage               bimg;
-
-  private Toolkit                     toolkit;
-
-  private int                         biw, bih;
-
-  private boolean                     clearOnce;
+  /** Fond : grille, courbes et axes. */
+  private final DiagramLayer          layer           = new DiagramLayer() {
+    protected void paintLayer(Graphics2D g2) {
+      renderLayer(g2);
+    }
+  };
 
   // Mouse position
   private int                         mouseX          = 0;
@@ -199,7 +196,6 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
    * Coordonnees max des points.
    */
   private void initialize() {
-    toolkit = getToolkit();
     setDoubleBuffered(true);
     setIgnoreRepaint(true);
 
@@ -281,26 +277,6 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
     }
   }
 
-  /*
-   * (non-Javadoc)
-   * 
-   * @see javax.swing.JComponent#paintImmediately(int, int, int, int)
-   */
-  public void paintImmediately(int x, int y, int w, int h) {
-    RepaintManager repaintManager = null;
-    boolean save = true;
-    if (!isDoubleBuffered()) {
-      repaintManager = RepaintManager.currentManager(this);
-      save = repaintManager.isDoubleBufferingEnabled();
-      repaintManager.setDoubleBufferingEnabled(false);
-    }
-    super.paintImmediately(x, y, w, h);
-
-    if (repaintManager != null) {
-      repaintManager.setDoubleBufferingEnabled(save);
-    }
-  }
-
   /*
    * (non-Javadoc)
    * 
@@ -308,55 +284,12 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
    */
   @Override
   public void paint(Graphics g) {
-    Dimension d = getSize();
-
-    if (bimg == null || biw != d.width || bih != d.height) {
-      bimg = (BufferedImage) ((Graphics2D) g).getDeviceConfiguration()
-          .createCompatibleImage(d.width, d.height);
-      biw = d.width;
-      bih = d.height;
-      clearOnce = true;
-    }
-
-    Graphics2D g2 = createGraphics2D(d.width, d.height, bimg, g);
-    render(d.width, d.height, g2);
-    g2.dispose();
-
-    if (bimg != null) {
-      g.drawImage(bimg, 0, 0, null);
-      toolkit.sync();
-    }
-  }
-
-  private Graphics2D createGraphics2D(int width,
-                                      int height,
-                                      BufferedImage bi,
-                                      Graphics g) {
-
-    Graphics2D g2 = null;
-
-    if (bi != null) {
-      g2 = bi.createGraphics();
-    }
-    else {
-      g2 = (Graphics2D) g;
-    }
-
-    g2.setBackground(getBackground());
+    layer.paint(g, this);
 
-    if (clearOnce) {
-      g2.clearRect(0, 0, width, height);
-      clearOnce = false;
-    }
-
-    return g2;
-  }
-
-  private void render(int w, int h, Graphics2D g2) {
-    paintGrid(g2);
+    // curseur
     if (model != null && model.indexX2 != 0) {
-      paintPoints(g2);
-      paintInterval(g2);
+      Graphics2D g2 = (Graphics2D) g;
+      g2.setFont(GuiFont.FONT_PLAIN_SMALL);
       if (model.hasMouseMotionListener()) {
         paintExtra(g2);
       }
@@ -364,9 +297,34 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
         paintPoint(g2);
       }
     }
+  }
+
+  /**
+   * Dessin du fond, sans le curseur.
+   */
+  private void renderLayer(Graphics2D g2) {
+    paintGrid(g2);
+    if (model != null && model.indexX2 != 0) {
+      paintPoints(g2);
+      paintInterval(g2);
+    }
     paintYAxis(g2);
   }
 
+  /**
+   * R&eacute;affichage du curseur apr&egrave;s un d&eacute;placement, le fond
+   * n'est pas redessin&eacute;.
+   */
+  private void repaintCursor(int oldMouseX) {
+    DiagramLayer.repaintCursor(this, oldMouseX, mouseX);
+    // valeurs sur les axes y
+    repaint(0, 0, WIDTH_LEFT + PAD + 1, getHeight());
+    repaint(getWidth() - WIDTH_RIGHT - PAD - 1,
+            0,
+            WIDTH_RIGHT + PAD + 1,
+            getHeight());
+  }
+
   /**
    * Afficher le repere orthonorme.
    */
@@ -550,6 +508,10 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
 
   /**
    * Affiche la courbe.
+   * <p>
+   * Les courbes sont dessin&eacute;es &agrave; partir de l'enveloppe par
+   * colonne de pixels du mod&egrave;le : le co&ucirc;t ne d&eacute;pend que
+   * de la largeur du diagramme.
    */
   private void paintPoints(Graphics2D g2) {
     if (!model.isVisibleY1() && !model.isVisibleY2() && !model.isVisibleY3()
@@ -561,60 +523,78 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
       return;
     }
 
-    int x1, x2 = 0, y1, y2;
-    int ya1, ya2;
-
-    int tot = getHeight() - HEIGHT_TITLE_2;
-    Polygon pol = new Polygon();
-    pol.addPoint(computeRelativeX(model.getX(model.indexX1)), tot);
-
-    for (int i = model.indexX1; i < model.indexX2 - 1; i++) {
-      x1 = computeRelativeX(model.getX(i));
-      x2 = computeRelativeX(model.getX(i + 1));
-
-      if (model.isVisibleY1()) {
-        g2.setColor(COLORY1);
-        y1 = computeRelativeY1(model.getY1(i));
-        y2 = computeRelativeY1(model.getY1(i + 1));
-        g2.drawLine(x1, y1, x2, y2);
-      }
-
-      if (model.isVisibleY2()) {
-        // trace la courbe
-        g2.setColor(COLORY2);
-        ya1 = computeRelativeY2(model.getY2(i));
-        ya2 = computeRelativeY2(model.getY2(i + 1));
-        g2.drawLine(x1, ya1, x2, ya2);
-
-        // remplissage
-        pol.addPoint(x1, ya1);
-        pol.addPoint(x2, ya2);
-      }
-
-      if (model.isVisibleY3()) {
-        g2.setColor(COLORY3);
-        y1 = computeRelativeY3(model.getY3(i));
-        y2 = computeRelativeY3(model.getY3(i + 1));
-        g2.drawLine(x1, y1, x2, y2);
-      }
-
-      if (model.isVisibleY4()) {
-        g2.setColor(COLORY4);
-        y1 = computeRelativeY4(model.getY4(i));
-        y2 = computeRelativeY4(model.getY4(i + 1));
-        g2.drawLine(x1, y1, x2, y2);
-      }
+    DiagramEnvelope envelope = model.getEnvelope(getWidth() - WIDTH_LEFT
+                                                 - WIDTH_RIGHT);
+    if (envelope == null) {
+      return;
+    }
 
+    if (model.isVisibleY1()) {
+      paintEnvelope(g2, envelope, 1, COLORY1);
     }
     if (model.isVisibleY2()) {
+      paintEnvelope(g2, envelope, 2, COLORY2);
+    }
+    if (model.isVisibleY3()) {
+      paintEnvelope(g2, envelope, 3, COLORY3);
+    }
+    if (model.isVisibleY4()) {
+      paintEnvelope(g2, envelope, 4, COLORY4);
+    }
+
+    if (model.isVisibleY2()) {
+      // remplissage
+      int tot = getHeight() - HEIGHT_TITLE_2;
+      Polygon pol = new Polygon();
+      int x = 0;
+      for (int c = 0; c < envelope.getWidth(); c++) {
+        if (envelope.hasPoints(c)) {
+          x = WIDTH_LEFT + c;
+          if (pol.npoints == 0) {
+            pol.addPoint(x, tot);
+          }
+          pol.addPoint(x, computeRelativeY(2, envelope.getMax(c, 1)));
+        }
+      }
+      pol.addPoint(x, tot);
       g2.setColor(COLORY2);
-      pol.addPoint(x2, tot);
       g2.setComposite(AC_TRANSPARENT);
       g2.fillPolygon(pol);
       g2.setComposite(AlphaComposite.SrcOver);
     }
   }
 
+  /**
+   * Affiche une courbe : une ligne verticale du minimum au maximum de chaque
+   * colonne, reli&eacute;e &agrave; la colonne pr&eacute;c&eacute;dente.
+   */
+  private void paintEnvelope(Graphics2D g2,
+                             DiagramEnvelope envelope,
+                             int curve,
+                             Color color) {
+    g2.setColor(color);
+    int prevX = -1, prevY = 0;
+    for (int c = 0; c < envelope.getWidth(); c++) {
+      if (!envelope.hasPoints(c)) {
+        continue;
+      }
+      int x = WIDTH_LEFT + c;
+      if (prevX != -1) {
+        g2.drawLine(prevX,
+                    prevY,
+                    x,
+                    computeRelativeY(curve, envelope.getFirst(c, curve - 1)));
+      }
+      int yMin = computeRelativeY(curve, envelope.getMin(c, curve - 1));
+      int yMax = computeRelativeY(curve, envelope.getMax(c, curve - 1));
+      if (yMin != yMax) {
+        g2.drawLine(x, yMin, x, yMax);
+      }
+      prevX = x;
+      prevY = computeRelativeY(curve, envelope.getLast(c, curve - 1));
+    }
+  }
+
   /**
    * Affiche l'intervalle.
    */
@@ -688,6 +668,22 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
                                                      .getGridY4Min()));
   }
 
+  /**
+   * Calcule la coordonnee relative y d'une courbe.
+   */
+  private int computeRelativeY(int curve, double y) {
+    switch (curve) {
+      case 1:
+        return computeRelativeY1(y);
+      case 2:
+        return computeRelativeY2(y);
+      case 3:
+        return computeRelativeY3(y);
+      default:
+        return computeRelativeY4(y);
+    }
+  }
+
   /**
    * Calcule la coordonnee relative x.
    */
@@ -971,7 +967,11 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
     private String           unit                   = DistanceUnit
                                                         .getDefaultUnit();
 
-    private DataRunTrk[]     pointsFilter;
+    private RunSeries        series;
+
+    private double[]         speed;
+
+    private double[]         pace;
 
     private List<DataRunTrk> points;
 
@@ -1059,6 +1059,8 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
 
     private DecimalFormat    dfDistance             = new DecimalFormat("#.###");
 
+    private DiagramEnvelope  envelope;
+
     /**
      * 
      */
@@ -1101,9 +1103,6 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
         Configuration.getConfig().addProperty("Diagram",
                                               "isFilter",
                                               Boolean.toString(isFilter));
-        if (isFilter && points != null && pointsFilter == null) {
-          applyFilterSavitzyGolay();
-        }
         changeVisible();
       }
     }
@@ -1111,9 +1110,6 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
     public void setFilterAltitude(boolean isFilterAltitude) {
       if (this.isFilterAltitude != isFilterAltitude) {
         this.isFilterAltitude = isFilterAltitude;
-        if (isFilterAltitude && points != null && pointsFilter == null) {
-          applyFilterSavitzyGolay();
-        }
         changeVisible();
       }
     }
@@ -1217,7 +1213,9 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
         gridXDistance[i] = value;
         gridXTime[i] = i * 225 * 2 * 1000;
       }
-      pointsFilter = null;
+      series = null;
+      speed = null;
+      pace = null;
       currentZoom = 0;
     }
 
@@ -1278,6 +1276,7 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
         this.intervalX1 = (int) inter[0];
         this.intervalX2 = (int) inter[1];
         revalidate();
+        layer.invalidate();
         repaint();
       }
 
@@ -1293,10 +1292,10 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
     public void changedPoint(ChangePointsEvent e) {
       if (e.hasPoints() && model != null) {
         int index = e.getTrkIndexCurrentPoint();
+        int oldMouseX = mouseX;
         if (e.isCurrentLastPoint()) {
           mouseX = computeRelativeX(model.getGridXMax());
-          revalidate();
-          repaint();
+          repaintCursor(oldMouseX);
         }
         else {
           mouseX = computeRelativeX(model.getX(index));
@@ -1319,8 +1318,7 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
             currentY4 = getY4(index);
             tabMouseY[3] = computeRelativeY4(currentY4);
           }
-          revalidate();
-          repaint();
+          repaintCursor(oldMouseX);
         }
       }
     }
@@ -1360,9 +1358,69 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
 
     public void changeVisible() {
       revalidate();
+      layer.invalidate();
       repaint();
     }
 
+    /**
+     * Restitue l'enveloppe des courbes visibles par colonne de pixels,
+     * recalcul&eacute;e quand la plage, la largeur, les axes ou les courbes
+     * visibles changent.
+     *
+     * @param width
+     *          la largeur en pixels.
+     * @return l'enveloppe ou <code>null</code>.
+     */
+    protected DiagramEnvelope getEnvelope(int width) {
+      if (points == null || width <= 0 || indexX2 <= indexX1) {
+        return null;
+      }
+
+      Object[] key = { points,
+          series,
+          indexX1,
+          indexX2,
+          width,
+          getGridXMin(),
+          getGridXMax(),
+          gridY1,
+          gridY2,
+          gridY4,
+          gridY3Speed,
+          gridY3Pace,
+          isAxisXDistance,
+          isFilter,
+          isFilterAltitude,
+          isVisibleY1,
+          isVisibleY2,
+          visibleY3,
+          isVisibleY4 };
+      if (envelope != null && envelope.isValid(key)) {
+        return envelope;
+      }
+
+      DiagramEnvelope env = new DiagramEnvelope(key, width);
+      double xMin = getGridXMin();
+      double scale = width / (getGridXMax() - xMin);
+      double[] values = new double[DiagramEnvelope.NB_CURVES];
+      for (int i = indexX1; i < indexX2; i++) {
+        int c = (int) ((getX(i) - xMin) * scale);
+        if (c < 0) {
+          c = 0;
+        }
+        else if (c >= width) {
+          c = width - 1;
+        }
+        values[0] = isVisibleY1() ? getY1(i) : 0;
+        values[1] = isVisibleY2() ? getY2(i) : 0;
+        values[2] = isVisibleY3() ? getY3(i) : 0;
+        values[3] = isVisibleY4() ? getY4(i) : 0;
+        env.add(c, values);
+      }
+      envelope = env;
+      return envelope;
+    }
+
     protected double getX(int i) {
       return (isAxisXDistance) ? points.get(i).getDistance() / 1000
           : points.get(i).getTime().getTime()
@@ -1391,7 +1449,7 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
     }
 
     protected double getY1(int i) {
-      int value = (model.isFilter()) ? pointsFilter[i].getHeartRate() : points
+      double value = (model.isFilter()) ? series.getHeartRate()[i] : points
           .get(i).getHeartRate();
       if (value < getGridY1Min()) {
         return getGridY1Min();
@@ -1403,7 +1461,7 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
     }
 
     protected double getY2(int i) {
-      float value = (model.isFilterAltitude()) ? pointsFilter[i].getAltitude()
+      double value = (model.isFilterAltitude()) ? series.getAltitude()[i]
           : points.get(i).getAltitude();
       if (value < getGridY2Min()) {
         return getGridY2Min();
@@ -1415,8 +1473,7 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
     }
 
     protected double getY3(int i) {
-      double value = isVisibleSpeed() ? points.get(i).getSpeed() : points
-          .get(i).getPace();
+      double value = isVisibleSpeed() ? speed[i] : pace[i];
       if (value < getGridY3Min()) {
         return getGridY3Min();
       }
@@ -1427,8 +1484,7 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
     }
 
     protected double getY4(int i) {
-      int value = (model.isFilter()) ? pointsFilter[i].getCadence() : points
-          .get(i).getCadence();
+      int value = points.get(i).getCadence();
       if (value < getGridY4Min()) {
         return getGridY4Min();
       }
@@ -1537,7 +1593,9 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
     private void fireChangedAllPoints() {
       intervalX1 = -1;
       intervalX2 = -1;
-      pointsFilter = null;
+      series = null;
+      speed = null;
+      pace = null;
       indexX2 = 0;
       gridY3Pace = null;
       gridY3Speed = null;
@@ -1552,6 +1610,7 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
         }
         initialize();
         revalidate();
+        layer.invalidate();
         repaint();
         return;
       }
@@ -1616,17 +1675,19 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
         if (p.getCadence() < minY4) {
           minY4 = p.getCadence();
         }
-        if (p.getSpeed() > maxY3Speed) {
-          maxY3Speed = p.getSpeed();
+      }
+      for (int i = 0; i < speed.length; i++) {
+        if (speed[i] > maxY3Speed) {
+          maxY3Speed = speed[i];
         }
-        if (p.getSpeed() < minY3Speed) {
-          minY3Speed = p.getSpeed();
+        if (speed[i] < minY3Speed) {
+          minY3Speed = speed[i];
         }
-        if (p.getPace() > maxY3Pace) {
-          maxY3Pace = p.getPace();
+        if (pace[i] > maxY3Pace) {
+          maxY3Pace = pace[i];
         }
-        if (p.getPace() < minY3Pace) {
-          minY3Pace = p.getPace();
+        if (pace[i] < minY3Pace) {
+          minY3Pace = pace[i];
         }
       }
       if (ModelPointsManager.getInstance().hasHeartPoints()) {
@@ -1721,41 +1782,36 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
       currentZoom = 0;
       maxZoom = (int) (Math.log(max) / Math.log(2));
 
-      // filtre
-      if (model.isFilter() || model.isFilterAltitude()) {
-        applyFilterSavitzyGolay();
-      }
-
       revalidate();
+      layer.invalidate();
       repaint();
     }
 
+    /**
+     * Vitesse et allure dans l'unit&eacute; courante, issues des
+     * s&eacute;ries calcul&eacute;es une fois par course.
+     */
     private void computeSpeedPace() {
-      for (int i = 0; i < points.size() - 1; i++) {
-        long time = points.get(i + 1).getTime().getTime()
-                    - points.get(i).getTime().getTime();
-        float dist = points.get(i + 1).getDistance()
-                     - points.get(i).getDistance();
-
-        double speed = (time == 0) ? 0.D : (dist / time) * 3600;
-        points.get(i + 1).setSpeed(speed);
+      try {
+        series = ModelPointsManager.getInstance().getSeries();
       }
-      points.get(0).setSpeed(points.get(1).getSpeed());
-
-      // courbe 3
-      double[] y = new double[points.size()];
-      for (int i = 0; i < points.size(); i++) {
-        y[i] = points.get(i).getSpeed();
-
+      catch (SQLException e) {
+        series = null;
       }
-      double[] yFilter = SavitzkyGolay.filter(y);
-      for (int i = 0; i < points.size(); i++) {
-        if (yFilter[i] < 0) {
-          yFilter[i] = 0;
-        }
-        points.get(i).setSpeed(yFilter[i]);
-        double value = (yFilter[i] <= 0) ? 0 : (60 / yFilter[i]);
-        points.get(i).setPace(value);
+      // series en km/h
+      String unitSeries = DistanceUnit.unitKm();
+      if (series == null || series.size() != points.size()) {
+        // calcul local, les distances sont deja dans l'unite courante
+        series = RunSeries.compute(points);
+        unitSeries = unit;
+      }
+
+      double[] seriesSpeed = series.getSpeed();
+      speed = new double[seriesSpeed.length];
+      pace = new double[seriesSpeed.length];
+      for (int i = 0; i < speed.length; i++) {
+        speed[i] = DistanceUnit.convert(unitSeries, unit, seriesSpeed[i]);
+        pace[i] = (speed[i] <= 0) ? 0 : (60 / speed[i]);
       }
     }
 
@@ -1764,62 +1820,11 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
         return;
       }
 
-      if (model.isFilter()) {
-        applyFilterSavitzyGolay();
-      }
       revalidate();
+      layer.invalidate();
       repaint();
     }
 
-    private void applyFilterSavitzyGolay() {
-      if (pointsFilter != null) {
-        return;
-      }
-
-      pointsFilter = new DataRunTrk[points.size()];
-
-      // courbe 1
-      double[] y = new double[points.size()];
-      for (int i = 0; i < points.size(); i++) {
-        y[i] = points.get(i).getHeartRate();
-        pointsFilter[i] = new DataRunTrk();
-      }
-      double[] yFilter = SavitzkyGolay.filter(y);
-      for (int i = 0; i < points.size(); i++) {
-        pointsFilter[i].setDistance(points.get(i).getDistance());
-        if (yFilter[i] < gridY1[0]) {
-          yFilter[i] = gridY1[0];
-        }
-        else if (yFilter[i] > gridY1[gridY1.length - 1]) {
-          yFilter[i] = gridY1[gridY1.length - 1];
-        }
-        pointsFilter[i].setHeartRate((int) yFilter[i]);
-      }
-
-      // courbe 2
-      for (int i = 0; i < points.size(); i++) {
-        y[i] = points.get(i).getAltitude();
-      }
-      yFilter = SavitzkyGolay.filter(y);
-      for (int i = 0; i < points.size(); i++) {
-        if (yFilter[i] < 0) {
-          yFilter[i] = 0;
-        }
-        pointsFilter[i].setAltitude((float) yFilter[i]);
-      }
-
-      // courbe 3
-      for (int i = 0; i < points.size(); i++) {
-        pointsFilter[i].setSpeed(points.get(i).getSpeed());
-      }
-
-      // courbe 4
-      for (int i = 0; i < points.size(); i++) {
-        pointsFilter[i].setCadence(points.get(i).getCadence());
-      }
-
-    }
-
     public void zoomPlus() {
       bZoom = true;
     }
@@ -1908,17 +1913,17 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
         if (points.get(i).getAltitude() < minY2) {
           minY2 = points.get(i).getAltitude();
         }
-        if (points.get(i).getSpeed() > maxY3Speed) {
-          maxY3Speed = points.get(i).getSpeed();
+        if (speed[i] > maxY3Speed) {
+          maxY3Speed = speed[i];
         }
-        if (points.get(i).getSpeed() < minY3Speed) {
-          minY3Speed = points.get(i).getSpeed();
+        if (speed[i] < minY3Speed) {
+          minY3Speed = speed[i];
         }
-        if (points.get(i).getPace() > maxY3Pace) {
-          maxY3Pace = points.get(i).getPace();
+        if (pace[i] > maxY3Pace) {
+          maxY3Pace = pace[i];
         }
-        if (points.get(i).getPace() < minY3Pace) {
-          minY3Pace = points.get(i).getPace();
+        if (pace[i] < minY3Pace) {
+          minY3Pace = pace[i];
         }
       }
 
@@ -1960,6 +1965,7 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
       }
 
       revalidate();
+      layer.invalidate();
       repaint();
     }
   }
@@ -1976,9 +1982,9 @@ public class JDiagramComponent extends JPanel implements LanguageListener,
      * java.awt.event.MouseMotionAdapter#mouseMoved(java.awt.event.MouseEvent)
      */
     public void mouseMoved(MouseEvent e) {
+      int oldMouseX = mouseX;
       mouseX = e.getX();
-      revalidate();
-      repaint();
+      repaintCursor(oldMouseX);
     }
   }
 
@@ -4,6 +4,7 @@ import fr.turtlesport.Configuration;
 import fr.turtlesport.db.DataRun;
 import fr.turtlesport.db.DataRunLap;
 import fr.turtlesport.db.DataRunTrk;
+import fr.turtlesport.filter.RunSeries;
 import fr.turtlesport.filter.SavitzkyGolay;
 import fr.turtlesport.lang.CommonLang;
 import fr.turtlesport.lang.ILanguage;
@@ -18,7 +19,6 @@ import fr.turtlesport.unit.TimeUnit;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.awt.image.BufferedImage;
 import java.sql.SQLException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
@@ -29,13 +29,12 @@ import java.util.List;
  * 
  */
 public class JDiagramOneComponent extends JPanel {
-  private BufferedImage               bimg;
-
-  private Toolkit                     toolkit;
-
-  private int                         biw, bih;
-
-  private boolean                     clearOnce;
+  /** Fond : grille, courbes et axes. */
+  private final DiagramLayer          layer          = new DiagramLayer() {
+    protected void paintLayer(Graphics2D g2) {
+      renderLayer(g2);
+    }
+  };
 
   // Mouse position
   public int                          mouseX         = 0;
@@ -149,7 +148,6 @@ public class JDiagramOneComponent extends JPanel {
    * Coordonnees max des points.
    */
   private void initialize() {
-    toolkit = getToolkit();
     setDoubleBuffered(true);
     setIgnoreRepaint(true);
 
@@ -166,26 +164,6 @@ public class JDiagramOneComponent extends JPanel {
     performedLanguage(LanguageManager.getManager().getCurrentLang());
   }
 
-  /*
-   * (non-Javadoc)
-   * 
-   * @see javax.swing.JComponent#paintImmediately(int, int, int, int)
-   */
-  public void paintImmediately(int x, int y, int w, int h) {
-    RepaintManager repaintManager = null;
-    boolean save = true;
-    if (!isDoubleBuffered()) {
-      repaintManager = RepaintManager.currentManager(this);
-      save = repaintManager.isDoubleBufferingEnabled();
-      repaintManager.setDoubleBufferingEnabled(false);
-    }
-    super.paintImmediately(x, y, w, h);
-
-    if (repaintManager != null) {
-      repaintManager.setDoubleBufferingEnabled(save);
-    }
-  }
-
   /*
    * (non-Javadoc)
    * 
@@ -193,55 +171,12 @@ public class JDiagramOneComponent extends JPanel {
    */
   @Override
   public void paint(Graphics g) {
-    Dimension d = getSize();
-
-    if (bimg == null || biw != d.width || bih != d.height) {
-      bimg = (BufferedImage) ((Graphics2D) g).getDeviceConfiguration()
-          .createCompatibleImage(d.width, d.height);
-      biw = d.width;
-      bih = d.height;
-      clearOnce = true;
-    }
-
-    Graphics2D g2 = createGraphics2D(d.width, d.height, bimg, g);
-    render(d.width, d.height, g2);
-    g2.dispose();
+    layer.paint(g, this);
 
-    if (bimg != null) {
-      g.drawImage(bimg, 0, 0, null);
-      toolkit.sync();
-    }
-  }
-
-  private Graphics2D createGraphics2D(int width,
-                                      int height,
-                                      BufferedImage bi,
-                                      Graphics g) {
-
-    Graphics2D g2 = null;
-
-    if (bi != null) {
-      g2 = bi.createGraphics();
-    }
-    else {
-      g2 = (Graphics2D) g;
-    }
-
-    g2.setBackground(getBackground());
-
-    if (clearOnce) {
-      g2.clearRect(0, 0, width, height);
-      clearOnce = false;
-    }
-
-    return g2;
-  }
-
-  private void render(int w, int h, Graphics2D g2) {
-    paintGrid(g2);
+    // curseur
     if (model != null && model.indexX2 != 0) {
-      paintPoints(g2);
-      paintInterval(g2);
+      Graphics2D g2 = (Graphics2D) g;
+      g2.setFont(GuiFont.FONT_PLAIN_SMALL);
       if (model.hasMouseMotionListener()) {
         paintExtra(g2);
       }
@@ -249,8 +184,28 @@ public class JDiagramOneComponent extends JPanel {
         paintPoint(g2);
       }
     }
+  }
+
+  /**
+   * Dessin du fond, sans le curseur.
+   */
+  private void renderLayer(Graphics2D g2) {
+    paintGrid(g2);
+    if (model != null && model.indexX2 != 0) {
+      paintPoints(g2);
+      paintInterval(g2);
+    }
     paintYAxis(g2);
+  }
 
+  /**
+   * R&eacute;affichage du curseur apr&egrave;s un d&eacute;placement, le fond
+   * n'est pas redessin&eacute;.
+   */
+  private void repaintCursor(int oldMouseX) {
+    DiagramLayer.repaintCursor(this, oldMouseX, mouseX);
+    // valeurs sur les axes y
+    repaint(0, 0, WIDTH_TITLE_1 + PAD + 1, getHeight());
   }
 
   /**
@@ -609,6 +564,10 @@ public class JDiagramOneComponent extends JPanel {
 
     private DataRunTrk[]     pointsFilter;
 
+    private double[]         speed;
+
+    private double[]         pace;
+
     private List<DataRunTrk> points;
 
     private double           minX;
@@ -774,6 +733,7 @@ public class JDiagramOneComponent extends JPanel {
         this.intervalX1 = (int) inter[0];
         this.intervalX2 = (int) inter[1];
         revalidate();
+        layer.invalidate();
         repaint();
       }
 
@@ -789,10 +749,10 @@ public class JDiagramOneComponent extends JPanel {
     public void changedPoint(ChangePointsEvent e) {
       if (e.hasPoints() && model != null) {
         int index = e.getTrkIndexCurrentPoint();
+        int oldMouseX = mouseX;
         if (e.isCurrentLastPoint()) {
           mouseX = computeRelativeX(model.getGridXMax());
-          revalidate();
-          repaint();
+          repaintCursor(oldMouseX);
         }
         else {
           mouseX = computeRelativeX(model.getX(index));
@@ -802,8 +762,7 @@ public class JDiagramOneComponent extends JPanel {
           currentY1 = getY(index);
 
           tabMouseY = computeRelativeY(currentY1);
-          revalidate();
-          repaint();
+          repaintCursor(oldMouseX);
         }
       }
     }
@@ -843,6 +802,7 @@ public class JDiagramOneComponent extends JPanel {
 
     public void changeVisible() {
       revalidate();
+      layer.invalidate();
       repaint();
     }
 
@@ -880,8 +840,7 @@ public class JDiagramOneComponent extends JPanel {
               .get(i).getHeartRate();
           return (value < minY)?minY:value;
         case SPEED:
-          return isVisibleSpeed() ? points.get(i).getSpeed() : points.get(i)
-              .getPace();
+          return isVisibleSpeed() ? speed[i] : pace[i];
         case ALTITUDE:
           return (model.isFilter()) ? pointsFilter[i].getAltitude() : points
               .get(i).getAltitude();
@@ -983,12 +942,15 @@ public class JDiagramOneComponent extends JPanel {
       intervalX1 = -1;
       intervalX2 = -1;
       pointsFilter = null;
+      speed = null;
+      pace = null;
       points = null;
       indexX2 = 0;
 
       if (newPoints == null || newPoints.size() == 0) {
         initialize();
         revalidate();
+        layer.invalidate();
         repaint();
         return;
       }
@@ -1119,18 +1081,18 @@ public class JDiagramOneComponent extends JPanel {
           break;
         case SPEED:
           computeSpeedPace();
-          for (DataRunTrk p : newPoints) {
-            if (p.getSpeed() > maxYSpeed) {
-              maxYSpeed = p.getSpeed();
+          for (int i = 0; i < speed.length; i++) {
+            if (speed[i] > maxYSpeed) {
+              maxYSpeed = speed[i];
             }
-            if (p.getSpeed() < minYSpeed) {
-              minYSpeed = p.getSpeed();
+            if (speed[i] < minYSpeed) {
+              minYSpeed = speed[i];
             }
-            if (p.getPace() > maxYPace) {
-              maxYPace = p.getPace();
+            if (pace[i] > maxYPace) {
+              maxYPace = pace[i];
             }
-            if (p.getPace() < minYPace) {
-              minYPace = p.getPace();
+            if (pace[i] < minYPace) {
+              minYPace = pace[i];
             }
           }
           break;
@@ -1212,36 +1174,27 @@ public class JDiagramOneComponent extends JPanel {
       applyFilterSavitzyGolay();
 
       revalidate();
+      layer.invalidate();
       repaint();
     }
 
+    /**
+     * Vitesse et allure issues des s&eacute;ries calcul&eacute;es une fois
+     * par course.
+     */
     private void computeSpeedPace() {
-      for (int i = 0; i < points.size() - 1; i++) {
-        long time = points.get(i + 1).getTime().getTime()
-                    - points.get(i).getTime().getTime();
-        float dist = points.get(i + 1).getDistance()
-                     - points.get(i).getDistance();
-
-        double speed = (time == 0) ? 0.D : (dist / time) * 3600;
-        points.get(i + 1).setSpeed(speed);
+      RunSeries series;
+      try {
+        series = ModelPointsManager.getInstance().getSeries();
       }
-      points.get(0).setSpeed(points.get(1).getSpeed());
-
-      // courbe 3
-      double[] y = new double[points.size()];
-      for (int i = 0; i < points.size(); i++) {
-        y[i] = points.get(i).getSpeed();
-
+      catch (SQLException e) {
+        series = null;
       }
-      double[] yFilter = SavitzkyGolay.filter(y);
-      for (int i = 0; i < points.size(); i++) {
-        if (yFilter[i] < 0) {
-          yFilter[i] = 0;
-        }
-        points.get(i).setSpeed(yFilter[i]);
-        double value = (yFilter[i] <= 0) ? 0 : (60 / yFilter[i]);
-        points.get(i).setPace(value);
+      if (series == null || series.size() != points.size()) {
+        series = RunSeries.compute(points);
       }
+      speed = series.getSpeed();
+      pace = series.getPace();
     }
 
     public void changeFilter() {
@@ -1253,6 +1206,7 @@ public class JDiagramOneComponent extends JPanel {
         applyFilterSavitzyGolay();
       }
       revalidate();
+      layer.invalidate();
       repaint();
     }
 
@@ -1293,11 +1247,6 @@ public class JDiagramOneComponent extends JPanel {
         pointsFilter[i].setAltitude((float) yFilter[i]);
       }
 
-      // courbe 3
-      for (int i = 0; i < points.size(); i++) {
-        pointsFilter[i].setSpeed(points.get(i).getSpeed());
-      }
-
       // courbe 4
       for (int i = 0; i < points.size(); i++) {
         int cadence = (points.get(i).isValidCadence()) ? points.get(i)
@@ -1430,6 +1379,7 @@ public class JDiagramOneComponent extends JPanel {
       }
 
       revalidate();
+      layer.invalidate();
       repaint();
     }
   }
@@ -1448,19 +1398,17 @@ public class JDiagramOneComponent extends JPanel {
     public void mouseMoved(MouseEvent e) {
       final int x = e.getX();
       setMouseX(x);
-      revalidate();
-      repaint();
 
       for (JDiagramOneComponent d : listDiagrams) {
         d.setMouseX(x);
-        d.revalidate();
-        d.repaint();
       }
     }
   }
 
   private void setMouseX(int mouseX) {
+    int oldMouseX = this.mouseX;
     this.mouseX = mouseX;
+    repaintCursor(oldMouseX);
   }
 
   /**
@@ -233,7 +233,9 @@ public class JMediaMapKit extends JXPanel {
     // TimeUnit.MILLISECONDS);
 
     timerActionListener = new TimerActionListener();
-    timer = new Timer(300, timerActionListener);
+    timer = new Timer(1000 / ModelMapkitManager.FRAME_RATE,
+                      timerActionListener);
+    timer.setCoalesce(true);
   }
 
   /**
@@ -337,6 +339,7 @@ public class JMediaMapKit extends JXPanel {
       timerActionListener.init();
       ModelMapkitManager.getInstance().beginPoint(this);
     }
+    timerActionListener.lastTick = 0;
     timer.start();
     jButtonPlay.setIcon(ICON_PAUSE);
     jButtonPlay.setRolloverIcon(ICON_PAUSE_ROLLOVER);
@@ -355,8 +358,23 @@ public class JMediaMapKit extends JXPanel {
   private class TimerActionListener implements ActionListener {
     ModelMapkitManager modelMap = ModelMapkitManager.getInstance();
 
+    /** Date de la derni&egrave;re image (ns). */
+    long               lastTick;
+
     public void actionPerformed(ActionEvent e) {
-      modelMap.nextPoint(this);
+      long now = System.nanoTime();
+      long elapsed = (lastTick == 0) ? timer.getDelay()
+          : (now - lastTick) / 1000000;
+      lastTick = now;
+      modelMap.advance(this, elapsed);
+
+      if (modelMap.isRunning()) {
+        // position interpolee entre deux points
+        GeoPositionMapKit p = modelMap.getCurrentPosition();
+        model.time(p);
+        model.extra(p);
+        mapkit.getMainMap().repaint();
+      }
     }
 
     public void init() {
@@ -229,7 +229,9 @@ public class JMediaMapKitCompare extends JXPanel {
     // TimeUnit.MILLISECONDS);
 
     timerActionListener = new TimerActionListener();
-    timer = new Timer(300, timerActionListener);
+    timer = new Timer(1000 / ModelMapkitManager.FRAME_RATE,
+                      timerActionListener);
+    timer.setCoalesce(true);
   }
 
   private JScrollPane getJPanelTable() {
@@ -361,6 +363,7 @@ public class JMediaMapKitCompare extends JXPanel {
       timerActionListener.init();
       ModelMapkitManager.getInstance().beginPoint(this);
     }
+    timerActionListener.lastTick = 0;
     timer.start();
     jButtonPlay.setIcon(ICON_PAUSE);
     jButtonPlay.setRolloverIcon(ICON_PAUSE_ROLLOVER);
@@ -379,8 +382,24 @@ public class JMediaMapKitCompare extends JXPanel {
   private class TimerActionListener implements ActionListener {
     ModelMapkitManager modelMap = ModelMapkitManager.getInstance();
 
+    /** Date de la derni&egrave;re image (ns). */
+    long               lastTick;
+
     public void actionPerformed(ActionEvent e) {
-      modelMap.nextPoint(this);
+      long now = System.nanoTime();
+      long elapsed = (lastTick == 0) ? timer.getDelay()
+          : (now - lastTick) / 1000000;
+      lastTick = now;
+      modelMap.advance(this, elapsed);
+
+      if (modelMap.isRunning()) {
+        // position interpolee entre deux points
+        GeoPositionMapKit p = modelMap.getCurrentPosition();
+        model.time(p);
+        model.extra(p);
+        // seuls les marqueurs sont redessines, les traces sont en cache
+        mapkit.getMainMap().repaint();
+      }
     }
 
     public void init() {
@@ -15,14 +15,16 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
+import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
-import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.ResourceBundle;
 
 import javax.swing.BorderFactory;
 import javax.swing.DefaultListCellRenderer;
@@ -31,7 +33,10 @@ import javax.swing.JButton;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JList;
+import javax.swing.JMenuItem;
 import javax.swing.JPanel;
+import javax.swing.JPopupMenu;
+import javax.swing.SwingUtilities;
 import javax.swing.border.EtchedBorder;
 
 import org.jdesktop.swingx.JXMapViewer;
@@ -39,9 +44,17 @@ import org.jdesktop.swingx.JXPanel;
 import org.jdesktop.swingx.mapviewer.GeoPosition;
 import org.jdesktop.swingx.painter.Painter;
 
+import fr.turtlesport.lang.LanguageManager;
+import fr.turtlesport.log.TurtleLogger;
 import fr.turtlesport.map.AbstractTileFactoryExtended;
 import fr.turtlesport.map.AllMapsFactory;
+import fr.turtlesport.map.DiskTitleCache;
+import fr.turtlesport.map.GeoBounds;
+import fr.turtlesport.map.Heatmap;
+import fr.turtlesport.map.HeatmapTileFactory;
+import fr.turtlesport.map.TilePrefetcher;
 import fr.turtlesport.ui.swing.GuiFont;
+import fr.turtlesport.ui.swing.JDialogProgressPrefetch;
 import fr.turtlesport.ui.swing.img.ImagesRepository;
 import fr.turtlesport.ui.swing.img.diagram.ImagesDiagramRepository;
 import fr.turtlesport.ui.swing.model.AddDeleteMapEvent;
@@ -53,12 +66,17 @@ import fr.turtlesport.ui.swing.model.ModelMapkitManager;
 import fr.turtlesport.ui.swing.model.ModelPointsManager;
 import fr.turtlesport.unit.TimeUnit;
 import fr.turtlesport.util.GeoUtil;
+import fr.turtlesport.util.ResourceBundleUtility;
 
 /**
  * @author Denis Apparicio
  * 
  */
 public class JTurtleMapKit extends JXPanel {
+  private static TurtleLogger      log;
+  static {
+    log = (TurtleLogger) TurtleLogger.getLogger(JTurtleMapKit.class);
+  }
 
   /** Localisation par defaut PARIS */
   private static final GeoPosition DEFAULT_GEO  = new GeoPosition(48.856638,
@@ -93,6 +111,8 @@ public class JTurtleMapKit extends JXPanel {
   // model
   private MapKitChangeMapListener  mapListener;
 
+  private Runnable                 heatmapListener;
+
   // private ModelMapkitManager model;
 
   private GeoMouseMotionListener   geoMouseMotionListener;
@@ -101,6 +121,17 @@ public class JTurtleMapKit extends JXPanel {
 
   private Color                    COLOR_TRACE  = Color.RED;
 
+  /** Epaisseur des traits de la trace et du tour. */
+  private static final int[]       OFFSETS_TRACE = { 0, 1, 2 };
+
+  private static final int[]       OFFSETS_LAP   = { -1, 0, 1, 2 };
+
+  /** Niveaux de zoom d&eacute;taill&eacute;s de la zone visible. */
+  private static final int         PREFETCH_LEVELS   = 3;
+
+  /** Demi-largeur en m&egrave;tres du couloir autour du trac&eacute;. */
+  private static final double      PREFETCH_CORRIDOR = 250;
+
   private JLabel                   jLabelMapIcon;
 
   /**
@@ -138,6 +169,13 @@ public class JTurtleMapKit extends JXPanel {
     return mapListener;
   }
 
+  /**
+   * @return the heatmapListener
+   */
+  public Runnable getHeatmapListener() {
+    return heatmapListener;
+  }
+
   /**
    * Affiche les informations de geo localisation.
    * 
@@ -222,7 +260,21 @@ public class JTurtleMapKit extends JXPanel {
     GridBagConstraints gridBagConstraints;
 
     mainMap = new JTurtleMapViewer();
+    // carte de chaleur mise a jour en tache de fond
+    heatmapListener = new Runnable() {
+      public void run() {
+        if (mainMap.getTileFactory() instanceof HeatmapTileFactory) {
+          SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+              mainMap.repaint();
+            }
+          });
+        }
+      }
+    };
+    Heatmap.getInstance().addChangeListener(heatmapListener);
 
+    mainMap.addMouseListener(new PrefetchMouseListener());
     mainMap.setLayout(new GridBagLayout());
     mainMap.setBorder(BorderFactory.createEtchedBorder(EtchedBorder.LOWERED));
 
@@ -426,6 +478,118 @@ public class JTurtleMapKit extends JXPanel {
     return jButtonResize;
   }
 
+  /**
+   * Menu de t&eacute;l&eacute;chargement des tuiles pour un usage hors
+   * connexion : zone visible ou couloir autour du trac&eacute;.
+   */
+  private class PrefetchMouseListener extends MouseAdapter {
+    @Override
+    public void mousePressed(MouseEvent e) {
+      showPopup(e);
+    }
+
+    @Override
+    public void mouseReleased(MouseEvent e) {
+      showPopup(e);
+    }
+
+    private void showPopup(MouseEvent e) {
+      if (!e.isPopupTrigger()
+          || !(mainMap.getTileFactory() instanceof AbstractTileFactoryExtended)) {
+        return;
+      }
+      final AbstractTileFactoryExtended tileFactory = (AbstractTileFactoryExtended) mainMap
+          .getTileFactory();
+      if (!tileFactory.isPrefetchAllowed()
+          || !(tileFactory.getTileCache() instanceof DiskTitleCache)) {
+        return;
+      }
+      final ResourceBundle rb = ResourceBundleUtility
+          .getBundle(LanguageManager.getManager().getCurrentLang(),
+                     JDialogProgressPrefetch.class);
+      final int zoom = mainMap.getZoom();
+      final int minZoom = tileFactory.getInfo().getMinimumZoomLevel();
+
+      JPopupMenu popup = new JPopupMenu();
+
+      JMenuItem item = new JMenuItem(rb.getString("prefetchVisible"));
+      item.setFont(GuiFont.FONT_PLAIN);
+      item.addActionListener(new ActionListener() {
+        public void actionPerformed(ActionEvent ae) {
+          Rectangle rect = mainMap.getViewportBounds();
+          GeoPosition nw = tileFactory.pixelToGeo(new Point(rect.x, rect.y),
+                                                  zoom);
+          GeoPosition se = tileFactory.pixelToGeo(new Point(rect.x
+                                                            + rect.width,
+                                                            rect.y
+                                                                + rect.height),
+                                                  zoom);
+          TilePrefetcher prefetcher = new TilePrefetcher(tileFactory);
+          try {
+            prefetcher.addBounds(new GeoBounds(se.getLatitude(),
+                                               nw.getLongitude(),
+                                               nw.getLatitude(),
+                                               se.getLongitude()),
+                                 Math.max(minZoom, zoom - PREFETCH_LEVELS),
+                                 zoom);
+          }
+          catch (IllegalArgumentException iae) {
+            log.warn(iae.getMessage());
+            JShowMessage.error(rb.getString("errorTooManyTiles"));
+            return;
+          }
+          JDialogProgressPrefetch.prompt(prefetcher);
+        }
+      });
+      popup.add(item);
+
+      item = new JMenuItem(rb.getString("prefetchTrack"));
+      item.setFont(GuiFont.FONT_PLAIN);
+      item.setEnabled(ModelPointsManager.getInstance().hasPoints());
+      item.addActionListener(new ActionListener() {
+        public void actionPerformed(ActionEvent ae) {
+          List<fr.turtlesport.geo.GeoPosition> track = new ArrayList<fr.turtlesport.geo.GeoPosition>();
+          for (GeoPositionMapKit g : ModelPointsManager.getInstance()
+              .getListGeo()) {
+            track.add(new fr.turtlesport.geo.GeoPosition(g.getLatitude(), g
+                .getLongitude()));
+          }
+          TilePrefetcher prefetcher = new TilePrefetcher(tileFactory);
+          try {
+            prefetcher.addCorridor(track, PREFETCH_CORRIDOR, minZoom, zoom);
+          }
+          catch (IllegalArgumentException iae) {
+            log.warn(iae.getMessage());
+            JShowMessage.error(rb.getString("errorTooManyTiles"));
+            return;
+          }
+          JDialogProgressPrefetch.prompt(prefetcher);
+        }
+      });
+      popup.add(item);
+
+      final TilePrefetcher resume = new TilePrefetcher(tileFactory);
+      item = new JMenuItem(rb.getString("prefetchResume"));
+      item.setFont(GuiFont.FONT_PLAIN);
+      item.setEnabled(resume.canResume());
+      item.addActionListener(new ActionListener() {
+        public void actionPerformed(ActionEvent ae) {
+          try {
+            if (resume.resume()) {
+              JDialogProgressPrefetch.prompt(resume);
+            }
+          }
+          catch (IOException ioe) {
+            log.error("", ioe);
+          }
+        }
+      });
+      popup.add(item);
+
+      popup.show(e.getComponent(), e.getX(), e.getY());
+    }
+  }
+
   /**
    * @author Denis Apparicio
    * 
@@ -492,6 +656,14 @@ public class JTurtleMapKit extends JXPanel {
 
       final GeoPositionMapKit[] tab = new GeoPositionMapKit[listGeoMap.size()];
       listGeoMap.toArray(tab);
+      final MapTrackPixels pixels = new MapTrackPixels(tab);
+      // trace simplifiee selon le zoom, calculee en tache de fond
+      pixels.setLod(MapTrackLod.getInstance(ModelPointsManager.getInstance()
+          .getDataRun().getId(), tab, new Runnable() {
+        public void run() {
+          mainMap.repaint();
+        }
+      }));
 
       mainMap.setOverlayPainter(new Painter<JXMapViewer>() {
         public void paint(Graphics2D g, JXMapViewer map, int w, int h) {
@@ -500,99 +672,57 @@ public class JTurtleMapKit extends JXPanel {
           // convert from viewport to world bitmap
           Rectangle rect = map.getViewportBounds();
           g2.translate(-rect.x, -rect.y);
+
+          // coordonnees calculees une fois par zoom
+          pixels.setZoom(map.getTileFactory(), map.getZoom());
+
           g2.setColor(COLOR_TRACE);
+          pixels.drawPolyline(g2, rect, 0, tab.length - 1, OFFSETS_TRACE);
+          pixels.fillPoints(g2, rect, 1, tab.length - 1, 3);
 
-          int deb = -1;
-          int end = -1;
+          // tour
           GeoPosition lapDeb = ModelPointsManager.getInstance()
               .getGeoPositionLapDeb();
           GeoPosition lapEnd = ModelPointsManager.getInstance()
               .getGeoPositionLapEnd();
-
-          int current = ModelMapkitManager.getInstance()
-              .getMapIndexCurrentPoint();
-          GeoPosition geoCurrentPoint = null;
-          g2.setColor(COLOR_TRACE);
-          for (int i = 0; i < tab.length - 1; i++) {
-            if (current != -1 && current == tab[i].getIndex()) {
-              geoCurrentPoint = tab[i];
-            }
-            Point2D p1 = map.getTileFactory().geoToPixel(tab[i], map.getZoom());
-            Point2D p2 = map.getTileFactory().geoToPixel(tab[i + 1],
-                                                         map.getZoom());
-            if (lapDeb != null && lapEnd != null) {
-              if (lapDeb.equals(tab[i])) {
-                deb = i;
-              }
-              else if (lapEnd.equals(tab[i])) {
-                end = i;
-              }
-            }
-            Line2D line = new Line2D.Double();
-            line.setLine(p1, p2);
-            g2.draw(line);
-            line.setLine(p1.getX(), p1.getY() + 1, p2.getX(), p2.getY() + 1);
-            g2.draw(line);
-            line.setLine(p1.getX(), p1.getY() + 2, p2.getX(), p2.getY() + 2);
-            g2.draw(line);
-            // line.setLine(p1.getX(), p1.getY() - 1, p2.getX(), p2.getY() - 1);
-            // g2.draw(line);
-            g2.fillRect((int) p2.getX() - 1, (int) p2.getY() - 1, 3, 3);
-          }
-
-          if (ModelPointsManager.getInstance().getGeoPositionLapDeb() != null
-              && ModelPointsManager.getInstance().getGeoPositionLapEnd() != null
-              && end == -1
-              && ModelPointsManager.getInstance().getGeoPositionLapEnd()
-                  .equals(tab[tab.length - 1])) {
-            end = tab.length - 2;
-          }
-          if (deb != -1 && end != -1) {
-            for (int i = deb; i <= end; i++) {
-              Point2D p1 = map.getTileFactory().geoToPixel(tab[i],
-                                                           map.getZoom());
-              Point2D p2 = map.getTileFactory().geoToPixel(tab[i + 1],
-                                                           map.getZoom());
+          if (lapDeb instanceof GeoPositionMapKit
+              && lapEnd instanceof GeoPositionMapKit) {
+            int deb = ((GeoPositionMapKit) lapDeb).getIndex();
+            int end = Math.min(((GeoPositionMapKit) lapEnd).getIndex(),
+                               tab.length - 2);
+            if (deb >= 0 && deb <= end) {
               g2.setColor(Color.yellow);
-              Line2D line = new Line2D.Double();
-              line.setLine(p1, p2);
-              g2.draw(line);
-              line.setLine(p1.getX(), p1.getY() + 1, p2.getX(), p2.getY() + 1);
-              g2.draw(line);
-              line.setLine(p1.getX(), p1.getY() + 2, p2.getX(), p2.getY() + 2);
-              g2.draw(line);
-              line.setLine(p1.getX(), p1.getY() - 1, p2.getX(), p2.getY() - 1);
-              g2.draw(line);
-
+              pixels.drawPolyline(g2, rect, deb, end + 1, OFFSETS_LAP);
             }
           }
 
           // start
-          Point2D p = map.getTileFactory().geoToPixel(tab[0], map.getZoom());
           g2.drawImage(imgStart,
-                       (int) (p.getX() - (imgStart.getWidth() / 2)),
-                       (int) (p.getY() - imgStart.getHeight()),
+                       pixels.getX(0) - (imgStart.getWidth() / 2),
+                       pixels.getY(0) - imgStart.getHeight(),
                        imgStart.getWidth(),
                        imgStart.getHeight(),
                        null);
 
           // stop
-          p = map.getTileFactory().geoToPixel(tab[tab.length - 1],
-                                              map.getZoom());
           g2.drawImage(imgStop,
-                       (int) (p.getX() - (imgStop.getWidth() / 2)),
-                       (int) (p.getY() - imgStop.getHeight()),
+                       pixels.getX(tab.length - 1) - (imgStop.getWidth() / 2),
+                       pixels.getY(tab.length - 1) - imgStop.getHeight(),
                        imgStop.getWidth(),
                        imgStop.getHeight(),
                        null);
 
-          // currentPoint
-          p = null;
-          if (geoCurrentPoint != null && geoCurrentPoint != tab[0]) {
-            p = map.getTileFactory().geoToPixel(geoCurrentPoint, map.getZoom());
+          // currentPoint : position interpolee a l'horloge de lecture
+          ModelMapkitManager modelMap = ModelMapkitManager.getInstance();
+          int current = modelMap.getMapIndexCurrentPoint();
+          GeoPositionMapKit p = modelMap.getCurrentPosition();
+          if (p != null && (current > 0 || modelMap.getElapsedTime() > 0)
+              && current < tab.length) {
+            Point2D pt = map.getTileFactory().geoToPixel(p, map.getZoom());
             g2.drawImage(imgPoint,
-                         (int) (p.getX() - (imgPoint.getWidth() / 2)),
-                         (int) (p.getY() - imgPoint.getHeight()),
+                         (int) Math.round(pt.getX())
+                             - (imgPoint.getWidth() / 2),
+                         (int) Math.round(pt.getY()) - imgPoint.getHeight(),
                          imgPoint.getWidth(),
                          imgPoint.getHeight(),
                          null);
@@ -14,7 +14,6 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
-import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.sql.SQLException;
@@ -50,6 +49,7 @@ import fr.turtlesport.ui.swing.model.ChangeMapEvent;
 import fr.turtlesport.ui.swing.model.ChangePointsEvent;
 import fr.turtlesport.ui.swing.model.ModelMapkitManager;
 import fr.turtlesport.ui.swing.model.ModelPointsManager;
+import fr.turtlesport.ui.swing.model.TrackTimeIndex;
 import fr.turtlesport.unit.TimeUnit;
 import fr.turtlesport.util.GeoUtil;
 
@@ -90,8 +90,13 @@ public class JTurtleMapKitCompare extends JXPanel {
 
   private BufferedImage           imgStart;
 
+  private BufferedImage           imgPoint;
+
   private int                     widthImg;
 
+  /** Epaisseur des traits des traces. */
+  private static final int[]      OFFSETS_TRACE = { -1, 0, 1, 2 };
+
   // model
   private MapKitChangeMapListener mapListener;
 
@@ -106,6 +111,7 @@ public class JTurtleMapKitCompare extends JXPanel {
     initialize();
     imgStop = ImagesRepository.getImage("flag_red24.png");
     imgStart = ImagesRepository.getImage("flag_green24.png");
+    imgPoint = ImagesRepository.getImage("marker-blue.png");
     widthImg = imgStop.getWidth();
 
     mapListener = new MapKitChangeMapListener();
@@ -445,6 +451,9 @@ public class JTurtleMapKitCompare extends JXPanel {
 
     private List<List<DataRunTrk>> listListTrk = new ArrayList<List<DataRunTrk>>();
 
+    /** Traces et drapeaux dessin&eacute;s une fois par zoom. */
+    private MapTrackLayer          layer;
+
     public MapKitChangeMapListener() {
       super();
     }
@@ -464,10 +473,12 @@ public class JTurtleMapKitCompare extends JXPanel {
 
       runs.add(dataRun);
       try {
-        List<DataRunTrk> listTrks = RunTrkTableManager.getInstance()
-            .getValidTrks(dataRun.getId());
-        if (listTrks != null && listTrks.size() > 0) {
-          listListTrk.add(DataRunTrk.cloneList(listTrks, 3000));
+        // memes points que la carte de la course : le trace simplifie
+        // est partage
+        List<DataRunTrk> listTrks = DataRunTrk.cloneList(RunTrkTableManager
+            .getInstance().getAllTrks(dataRun.getId()));
+        if (listTrks.size() > 0) {
+          listListTrk.add(listTrks);
         }
         else {
           runs.remove(dataRun);
@@ -516,83 +527,119 @@ public class JTurtleMapKitCompare extends JXPanel {
         gp = mainMap.getTileFactory().pixelToGeo(p, mainMap.getZoom());
       }
 
-      final List<GeoPositionMapKit[]> listGeoTab = new ArrayList<GeoPositionMapKit[]>();
-      for (List<GeoPositionMapKit> listGeo : listListGeoMap) {
+      final List<MapTrackPixels> listPixels = new ArrayList<MapTrackPixels>();
+      final List<TrackTimeIndex> listIndex = new ArrayList<TrackTimeIndex>();
+      Runnable repaint = new Runnable() {
+        public void run() {
+          // trace simplifiee disponible
+          if (layer != null) {
+            layer.invalidate();
+          }
+          mainMap.repaint();
+        }
+      };
+      for (int i = 0; i < listListGeoMap.size(); i++) {
+        List<GeoPositionMapKit> listGeo = listListGeoMap.get(i);
         GeoPositionMapKit[] tab = new GeoPositionMapKit[listGeo.size()];
         listGeo.toArray(tab);
-        listGeoTab.add(tab);
+        MapTrackPixels pixels = new MapTrackPixels(tab);
+        pixels.setLod(MapTrackLod.getInstance(runs.get(i).getId(),
+                                              tab,
+                                              repaint));
+        listPixels.add(pixels);
+        listIndex.add(new TrackTimeIndex(tab));
       }
 
-      mainMap.setOverlayPainter(new Painter<JXMapViewer>() {
-        public void paint(Graphics2D g, JXMapViewer map, int w, int h) {
-          Graphics2D g2 = (Graphics2D) g.create();
-
-          // convert from viewport to world bitmap
-          Rectangle rect = map.getViewportBounds();
-          g2.translate(-rect.x, -rect.y);
+      // les courses affichees ont change : nouveau calque
+      if (layer != null) {
+        layer.dispose();
+      }
+      layer = new MapTrackLayer() {
+        @Override
+        protected Rectangle computeBounds() {
+          Rectangle bounds = null;
+          for (MapTrackPixels pixels : listPixels) {
+            bounds = (bounds == null) ? pixels.getBounds() : bounds
+                .union(pixels.getBounds());
+          }
+          if (bounds == null) {
+            return new Rectangle();
+          }
+          // drapeaux et epaisseur des traits
+          bounds.grow(widthImg + 2, widthImg + 2);
+          return bounds;
+        }
 
-          for (int i = 0; i < listGeoTab.size(); i++) {
-            // g2.setColor((i%2==0)?Color.BLUE: Color.RED);
-            g2.setColor(Color.RED);
-            paintPoints(g2, map, listGeoTab.get(i));
+        @Override
+        protected void paintLayer(Graphics2D g2, Rectangle clip) {
+          g2.setColor(Color.RED);
+          for (MapTrackPixels pixels : listPixels) {
+            pixels.drawPolyline(g2, clip, 0, pixels.size() - 1, OFFSETS_TRACE);
           }
 
-          for (GeoPositionMapKit[] tab : listGeoTab) {
+          for (MapTrackPixels pixels : listPixels) {
+            int last = pixels.size() - 1;
             // start
-            Point2D p = map.getTileFactory().geoToPixel(tab[0], map.getZoom());
             g2.drawImage(imgStart,
-                         (int) p.getX(),
-                         (int) p.getY() - widthImg,
-                         widthImg,
-                         widthImg,
-                         null);
-            p = map.getTileFactory().geoToPixel(tab[0], map.getZoom());
-            g2.drawImage(imgStart,
-                         (int) p.getX(),
-                         (int) p.getY() - widthImg,
+                         pixels.getX(0),
+                         pixels.getY(0) - widthImg,
                          widthImg,
                          widthImg,
                          null);
             // stop
-            p = map.getTileFactory().geoToPixel(tab[tab.length - 1],
-                                                map.getZoom());
             g2.drawImage(imgStop,
-                         (int) p.getX(),
-                         (int) p.getY() - widthImg,
-                         widthImg,
-                         widthImg,
-                         null);
-            p = map.getTileFactory().geoToPixel(tab[tab.length - 1],
-                                                map.getZoom());
-            g2.drawImage(imgStop,
-                         (int) p.getX(),
-                         (int) p.getY() - widthImg,
+                         pixels.getX(last),
+                         pixels.getY(last) - widthImg,
                          widthImg,
                          widthImg,
                          null);
           }
-          g.dispose();
         }
+      };
 
-        private void paintPoints(Graphics2D g2,
-                                 JXMapViewer map,
-                                 GeoPositionMapKit[] tab) {
-          for (int i = 0; i < tab.length - 1; i++) {
-            Point2D p1 = map.getTileFactory().geoToPixel(tab[i], map.getZoom());
-            Point2D p2 = map.getTileFactory().geoToPixel(tab[i + 1],
-                                                         map.getZoom());
-            Line2D line = new Line2D.Double();
-            line.setLine(p1, p2);
-            g2.draw(line);
-            line.setLine(p1.getX(), p1.getY() + 1, p2.getX(), p2.getY() + 1);
-            g2.draw(line);
-            line.setLine(p1.getX(), p1.getY() + 2, p2.getX(), p2.getY() + 2);
-            g2.draw(line);
-            line.setLine(p1.getX(), p1.getY() - 1, p2.getX(), p2.getY() - 1);
-            g2.draw(line);
+      final MapTrackLayer currentLayer = layer;
+      mainMap.setOverlayPainter(new Painter<JXMapViewer>() {
+        public void paint(Graphics2D g, JXMapViewer map, int w, int h) {
+          Graphics2D g2 = (Graphics2D) g.create();
+
+          // convert from viewport to world bitmap
+          Rectangle rect = map.getViewportBounds();
+          g2.translate(-rect.x, -rect.y);
+
+          for (MapTrackPixels pixels : listPixels) {
+            // coordonnees calculees une fois par zoom
+            pixels.setZoom(map.getTileFactory(), map.getZoom());
           }
-        }
 
+          // partie fixe
+          currentLayer.paint(g2, map);
+
+          // marqueurs : une seule horloge pour toutes les courses
+          long elapsed = ModelMapkitManager.getInstance().getElapsedTime();
+          if (elapsed > 0) {
+            for (int i = 0; i < listPixels.size(); i++) {
+              MapTrackPixels pixels = listPixels.get(i);
+              TrackTimeIndex timeIndex = listIndex.get(i);
+              long time = timeIndex.getStartTime() + elapsed;
+              int index = timeIndex.indexAt(time);
+              double f = timeIndex.fraction(index, time);
+              int next = Math.min(index + 1, pixels.size() - 1);
+              int x = (int) Math.round(pixels.getX(index)
+                                       + (pixels.getX(next) - pixels
+                                           .getX(index)) * f);
+              int y = (int) Math.round(pixels.getY(index)
+                                       + (pixels.getY(next) - pixels
+                                           .getY(index)) * f);
+              g2.drawImage(imgPoint,
+                           x - (imgPoint.getWidth() / 2),
+                           y - imgPoint.getHeight(),
+                           imgPoint.getWidth(),
+                           imgPoint.getHeight(),
+                           null);
+            }
+          }
+          g2.dispose();
+        }
       });
     }
 
@@ -0,0 +1,163 @@
+package fr.turtlesport.ui.swing.component;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+import org.jdesktop.swingx.JXMapViewer;
+import org.jdesktop.swingx.mapviewer.TileFactory;
+
+/**
+ * Calque transparent des parties fixes d'une carte (traces, drapeaux).
+ * <p>
+ * Le calque est dessin&eacute; une seule fois par niveau de zoom dans une
+ * image hors &eacute;cran, puis simplement recopi&eacute; &agrave; chaque
+ * r&eacute;affichage : pendant la lecture, seuls les marqueurs mobiles sont
+ * redessin&eacute;s. Quand les traces d&eacute;passent {@link #MAX_PIXELS}
+ * au zoom courant, l'image couvre la zone visible &eacute;largie et
+ * n'est redessin&eacute;e que lorsque la zone visible en sort.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public abstract class MapTrackLayer {
+
+  /** Taille maximale de l'image en pixels. */
+  private static final int MAX_PIXELS = 2048 * 2048;
+
+  private BufferedImage    image;
+
+  /** Zone du monde couverte par l'image. */
+  private Rectangle        area;
+
+  /** Rectangle englobant des traces au zoom courant. */
+  private Rectangle        bounds;
+
+  private TileFactory      tileFactory;
+
+  private int              zoom       = Integer.MIN_VALUE;
+
+  /**
+   *
+   */
+  public MapTrackLayer() {
+    super();
+  }
+
+  /**
+   * Restitue le rectangle englobant du calque (rep&egrave;re du monde) au
+   * zoom courant.
+   */
+  protected abstract Rectangle computeBounds();
+
+  /**
+   * Dessin du calque.
+   *
+   * @param g2
+   *          le contexte graphique (rep&egrave;re du monde).
+   * @param clip
+   *          la zone &agrave; dessiner.
+   */
+  protected abstract void paintLayer(Graphics2D g2, Rectangle clip);
+
+  /**
+   * Le calque doit &ecirc;tre redessin&eacute;.
+   */
+  public void invalidate() {
+    area = null;
+    bounds = null;
+  }
+
+  /**
+   * Lib&egrave;re l'image.
+   */
+  public void dispose() {
+    invalidate();
+    image = null;
+  }
+
+  /**
+   * Affichage du calque.
+   *
+   * @param g2
+   *          le contexte graphique (rep&egrave;re du monde).
+   * @param map
+   *          la carte.
+   */
+  public void paint(Graphics2D g2, JXMapViewer map) {
+    if (map.getTileFactory() != tileFactory || map.getZoom() != zoom) {
+      tileFactory = map.getTileFactory();
+      zoom = map.getZoom();
+      invalidate();
+    }
+    if (bounds == null) {
+      bounds = computeBounds();
+    }
+
+    Rectangle viewport = map.getViewportBounds();
+    Rectangle visible = viewport.intersection(bounds);
+    if (visible.isEmpty()) {
+      return;
+    }
+
+    if (area == null || !area.contains(visible)) {
+      Rectangle newArea;
+      if ((long) bounds.width * bounds.height <= MAX_PIXELS) {
+        newArea = new Rectangle(bounds);
+      }
+      else {
+        newArea = new Rectangle(viewport);
+        newArea.grow(viewport.width / 2, viewport.height / 2);
+        newArea = newArea.intersection(bounds);
+      }
+      if ((long) newArea.width * newArea.height > MAX_PIXELS) {
+        // zone visible trop grande : pas de cache
+        area = null;
+        paintLayer(g2, visible);
+        return;
+      }
+      render(newArea, map.getGraphicsConfiguration());
+    }
+
+    g2.drawImage(image,
+                 area.x,
+                 area.y,
+                 area.x + area.width,
+                 area.y + area.height,
+                 0,
+                 0,
+                 area.width,
+                 area.height,
+                 null);
+  }
+
+  private void render(Rectangle newArea, GraphicsConfiguration gc) {
+    if (image == null || image.getWidth() < newArea.width
+        || image.getHeight() < newArea.height) {
+      int w = Math.max(newArea.width, (image == null) ? 0 : image.getWidth());
+      int h = Math.max(newArea.height, (image == null) ? 0 : image.getHeight());
+      image = (gc == null) ? new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB)
+          : gc.createCompatibleImage(w, h, Transparency.TRANSLUCENT);
+    }
+
+    Graphics2D g2 = image.createGraphics();
+    try {
+      g2.setComposite(AlphaComposite.Clear);
+      g2.fillRect(0, 0, image.getWidth(), image.getHeight());
+      g2.setComposite(AlphaComposite.SrcOver);
+      g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                          RenderingHints.VALUE_ANTIALIAS_OFF);
+      g2.translate(-newArea.x, -newArea.y);
+      paintLayer(g2, newArea);
+    }
+    finally {
+      g2.dispose();
+    }
+    area = newArea;
+  }
+
+}
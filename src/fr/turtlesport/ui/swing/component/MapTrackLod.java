@@ -0,0 +1,264 @@
+package fr.turtlesport.ui.swing.component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.SwingUtilities;
+
+import org.jdesktop.swingx.mapviewer.GeoPosition;
+import org.jdesktop.swingx.mapviewer.TileFactory;
+
+import fr.turtlesport.db.RunChangeListener;
+import fr.turtlesport.geo.DouglasPeucker;
+import fr.turtlesport.log.TurtleLogger;
+
+/**
+ * Trac&eacute; multi-r&eacute;solution d'une course.
+ * <p>
+ * L'importance Douglas-Peucker de chaque point est calcul&eacute;e une seule
+ * fois, en t&acirc;che de fond, puis conserv&eacute;e avec la course. Pour
+ * chaque niveau de zoom, seuls les points qui s'&eacute;cartent de plus d'un
+ * demi-pixel du trac&eacute; simplifi&eacute; sont restitu&eacute;s.
+ * <p>
+ * Les trac&eacute;s sont index&eacute;s par l'id de la course et
+ * supprim&eacute;s quand ses points sont modifi&eacute;s
+ * ({@link #getRunChangeListener()}).
+ *
+ * @author Denis Apparicio
+ *
+ */
+public final class MapTrackLod {
+  private static TurtleLogger                  log;
+  static {
+    log = (TurtleLogger) TurtleLogger.getLogger(MapTrackLod.class);
+  }
+
+  /** Nombre de courses conserv&eacute;es. */
+  private static final int                     MAX_RUNS        = 16;
+
+  /** Tol&eacute;rance en pixels. */
+  private static final double                  PIXEL_TOLERANCE = 0.5;
+
+  private static final double                  EARTH_RADIUS    = 6371000.0;
+
+  private static final Map<Object, MapTrackLod> CACHE          = new LinkedHashMap<Object, MapTrackLod>(MAX_RUNS + 1,
+                                                                                                      0.75f,
+                                                                                                      true) {
+                                                                 @Override
+                                                                 protected boolean removeEldestEntry(Map.Entry<Object, MapTrackLod> eldest) {
+                                                                   return size() > MAX_RUNS;
+                                                                 }
+                                                               };
+
+  private static ExecutorService               executor;
+
+  /** Suppression des trac&eacute;s des courses modifi&eacute;es. */
+  private static final RunChangeListener       RUN_LISTENER    = new RunChangeListener() {
+                                                                 public void runStored(int idRun) {
+                                                                   remove(idRun);
+                                                                 }
+
+                                                                 public void runsStored() {
+                                                                 }
+
+                                                                 public void runDeleted(int idRun) {
+                                                                   remove(idRun);
+                                                                 }
+
+                                                                 public void runUpdated(int idRun) {
+                                                                 }
+                                                               };
+
+  private final GeoPosition[]                  positions;
+
+  private volatile double[]                    significance;
+
+  /** Cos de la latitude moyenne (projection locale). */
+  private double                               cosLatitude     = 1;
+
+  private final List<Runnable>                 listeners       = new ArrayList<Runnable>();
+
+  /** Points par niveau de zoom. */
+  private final Map<Integer, int[]>            levels          = new HashMap<Integer, int[]>();
+
+  private TileFactory                          tileFactory;
+
+  private MapTrackLod(GeoPosition[] positions) {
+    super();
+    this.positions = positions;
+  }
+
+  /**
+   * Restitue le trac&eacute; multi-r&eacute;solution d'une course ; le
+   * calcul est lanc&eacute; en t&acirc;che de fond au premier appel.
+   *
+   * @param key
+   *          l'id de la course.
+   * @param positions
+   *          les positions de la course.
+   * @param onReady
+   *          ex&eacute;cut&eacute; sur l'EDT quand le trac&eacute; est
+   *          pr&ecirc;t ou <code>null</code>.
+   * @return le trac&eacute; multi-r&eacute;solution.
+   */
+  public static MapTrackLod getInstance(Object key,
+                                        GeoPosition[] positions,
+                                        Runnable onReady) {
+    MapTrackLod lod;
+    boolean isNew = false;
+    synchronized (CACHE) {
+      lod = CACHE.get(key);
+      if (lod == null || lod.positions.length != positions.length) {
+        lod = new MapTrackLod(positions);
+        CACHE.put(key, lod);
+        isNew = true;
+      }
+    }
+    if (onReady != null) {
+      lod.addListener(onReady);
+    }
+    if (isNew) {
+      final MapTrackLod l = lod;
+      getExecutor().execute(new Runnable() {
+        public void run() {
+          l.compute();
+        }
+      });
+    }
+    return lod;
+  }
+
+  /**
+   * Restitue le listener &agrave; enregistrer aupr&egrave;s de
+   * {@link fr.turtlesport.db.RunTableManager}.
+   */
+  public static RunChangeListener getRunChangeListener() {
+    return RUN_LISTENER;
+  }
+
+  /**
+   * Suppression du trac&eacute; d'une course.
+   *
+   * @param key
+   *          l'id de la course.
+   */
+  public static void remove(Object key) {
+    synchronized (CACHE) {
+      CACHE.remove(key);
+    }
+  }
+
+  private static synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "MapTrackLod");
+          t.setDaemon(true);
+          t.setPriority(Thread.MIN_PRIORITY);
+          return t;
+        }
+      });
+    }
+    return executor;
+  }
+
+  /**
+   * D&eacute;termine si le trac&eacute; est calcul&eacute;.
+   */
+  public boolean isReady() {
+    return significance != null;
+  }
+
+  /**
+   * Restitue les index des points &agrave; tracer pour un niveau de zoom.
+   *
+   * @param tileFactory
+   *          le fournisseur de tuiles.
+   * @param zoom
+   *          le niveau de zoom.
+   * @return les index croissants des points ou <code>null</code> si le
+   *         trac&eacute; n'est pas encore calcul&eacute;.
+   */
+  public synchronized int[] getIndexes(TileFactory tileFactory, int zoom) {
+    double[] sig = significance;
+    if (sig == null) {
+      return null;
+    }
+    if (tileFactory != this.tileFactory) {
+      this.tileFactory = tileFactory;
+      levels.clear();
+    }
+    int[] indexes = levels.get(zoom);
+    if (indexes == null) {
+      double worldWidth = tileFactory.getMapSize(zoom).getWidth()
+                          * tileFactory.getTileSize(zoom);
+      double metersPerPixel = 2 * Math.PI * EARTH_RADIUS * cosLatitude
+                              / worldWidth;
+      indexes = DouglasPeucker.select(sig, PIXEL_TOLERANCE * metersPerPixel);
+      levels.put(zoom, indexes);
+      if (log.isDebugEnabled()) {
+        log.debug("zoom=" + zoom + " points=" + indexes.length + "/"
+                  + positions.length);
+      }
+    }
+    return indexes;
+  }
+
+  private void addListener(Runnable r) {
+    boolean isReady;
+    synchronized (listeners) {
+      isReady = isReady();
+      if (!isReady) {
+        listeners.add(r);
+      }
+    }
+    if (isReady) {
+      SwingUtilities.invokeLater(r);
+    }
+  }
+
+  private void compute() {
+    long deb = System.currentTimeMillis();
+
+    int n = positions.length;
+    double lat = 0;
+    for (GeoPosition p : positions) {
+      lat += p.getLatitude();
+    }
+    double cos = (n == 0) ? 1 : Math.cos(Math.toRadians(lat / n));
+
+    // projection locale en metres
+    double[] x = new double[n];
+    double[] y = new double[n];
+    for (int i = 0; i < n; i++) {
+      x[i] = Math.toRadians(positions[i].getLongitude()) * cos * EARTH_RADIUS;
+      y[i] = Math.toRadians(positions[i].getLatitude()) * EARTH_RADIUS;
+    }
+    double[] sig = DouglasPeucker.significance(x, y, null);
+
+    List<Runnable> list;
+    synchronized (this) {
+      cosLatitude = cos;
+    }
+    synchronized (listeners) {
+      significance = sig;
+      list = new ArrayList<Runnable>(listeners);
+      listeners.clear();
+    }
+    for (Runnable r : list) {
+      SwingUtilities.invokeLater(r);
+    }
+
+    if (log.isInfoEnabled()) {
+      log.info("compute points=" + n + " (ms) --> "
+               + (System.currentTimeMillis() - deb));
+    }
+  }
+
+}
@@ -0,0 +1,331 @@
+package fr.turtlesport.ui.swing.component;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jdesktop.swingx.mapviewer.GeoPosition;
+import org.jdesktop.swingx.mapviewer.TileFactory;
+
+/**
+ * Coordonn&eacute;es en pixels (rep&egrave;re du monde) d'une trace,
+ * calcul&eacute;es une seule fois par niveau de zoom.
+ * <p>
+ * Le trac&eacute; ne convertit plus les positions &agrave; chaque
+ * r&eacute;affichage : les segments hors de la zone visible sont
+ * ignor&eacute;s et les segments visibles cons&eacute;cutifs sont
+ * trac&eacute;s en une seule polyligne. Avec un trac&eacute;
+ * multi-r&eacute;solution ({@link MapTrackLod}), seuls les points utiles au
+ * zoom courant sont trac&eacute;s.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public class MapTrackPixels {
+
+  /** Nombre de niveaux de zoom conserv&eacute;s. */
+  private static final int          MAX_ZOOMS = 4;
+
+  private final GeoPosition[]       positions;
+
+  private TileFactory               tileFactory;
+
+  private final Map<Integer, int[]> cache     = new LinkedHashMap<Integer, int[]>(MAX_ZOOMS + 1,
+                                                                                0.75f,
+                                                                                true) {
+                                                @Override
+                                                protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+                                                  return size() > MAX_ZOOMS;
+                                                }
+                                              };
+
+  /** Coordonn&eacute;es au zoom courant : x0, y0, x1, y1... */
+  private int[]                     xy;
+
+  private int                       zoom      = Integer.MIN_VALUE;
+
+  private MapTrackLod               lod;
+
+  /** Index des points trac&eacute;s au zoom courant ou <code>null</code>. */
+  private int[]                     lodIndexes;
+
+  private int[]                     bufferX;
+
+  private int[]                     bufferY;
+
+  /**
+   * @param positions
+   *          les positions de la trace.
+   */
+  public MapTrackPixels(GeoPosition[] positions) {
+    super();
+    this.positions = positions;
+  }
+
+  /**
+   * Restitue le nombre de points.
+   */
+  public int size() {
+    return positions.length;
+  }
+
+  /**
+   * Restitue les positions de la trace.
+   */
+  public GeoPosition[] getPositions() {
+    return positions;
+  }
+
+  /**
+   * Valorise le trac&eacute; multi-r&eacute;solution.
+   *
+   * @param lod
+   *          le trac&eacute; multi-r&eacute;solution ou <code>null</code>.
+   */
+  public void setLod(MapTrackLod lod) {
+    this.lod = lod;
+    lodIndexes = null;
+  }
+
+  /**
+   * Positionne le niveau de zoom : les coordonn&eacute;es ne sont
+   * calcul&eacute;es qu'au premier passage &agrave; ce niveau.
+   *
+   * @param tileFactory
+   *          le fournisseur de tuiles.
+   * @param zoom
+   *          le niveau de zoom.
+   */
+  public void setZoom(TileFactory tileFactory, int zoom) {
+    if (tileFactory != this.tileFactory) {
+      this.tileFactory = tileFactory;
+      cache.clear();
+      this.zoom = Integer.MIN_VALUE;
+    }
+    lodIndexes = (lod == null) ? null : lod.getIndexes(tileFactory, zoom);
+    if (zoom == this.zoom) {
+      return;
+    }
+    this.zoom = zoom;
+    xy = cache.get(zoom);
+    if (xy == null) {
+      xy = new int[positions.length * 2];
+      for (int i = 0; i < positions.length; i++) {
+        Point2D p = tileFactory.geoToPixel(positions[i], zoom);
+        xy[2 * i] = (int) Math.round(p.getX());
+        xy[2 * i + 1] = (int) Math.round(p.getY());
+      }
+      cache.put(zoom, xy);
+    }
+  }
+
+  /**
+   * Restitue l'abscisse d'un point au zoom courant.
+   */
+  public int getX(int index) {
+    return xy[2 * index];
+  }
+
+  /**
+   * Restitue l'ordonn&eacute;e d'un point au zoom courant.
+   */
+  public int getY(int index) {
+    return xy[2 * index + 1];
+  }
+
+  /**
+   * Restitue le rectangle englobant de la trace au zoom courant.
+   */
+  public Rectangle getBounds() {
+    if (xy == null || xy.length == 0) {
+      return new Rectangle();
+    }
+    int minX = Integer.MAX_VALUE;
+    int minY = Integer.MAX_VALUE;
+    int maxX = Integer.MIN_VALUE;
+    int maxY = Integer.MIN_VALUE;
+    for (int i = 0; i < xy.length; i += 2) {
+      minX = Math.min(minX, xy[i]);
+      maxX = Math.max(maxX, xy[i]);
+      minY = Math.min(minY, xy[i + 1]);
+      maxY = Math.max(maxY, xy[i + 1]);
+    }
+    return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+  }
+
+  /**
+   * Trac&eacute; des segments visibles entre deux points.
+   *
+   * @param g2
+   *          le contexte graphique (rep&egrave;re du monde).
+   * @param viewport
+   *          la zone visible.
+   * @param from
+   *          index du premier point.
+   * @param to
+   *          index du dernier point.
+   * @param offsetsY
+   *          d&eacute;calages verticaux de chaque trait.
+   */
+  public void drawPolyline(Graphics2D g2,
+                           Rectangle viewport,
+                           int from,
+                           int to,
+                           int[] offsetsY) {
+    if (xy == null || from >= to) {
+      return;
+    }
+    ensureBuffer(to - from + 1);
+
+    int margin = 4;
+    int xmin = viewport.x - margin;
+    int ymin = viewport.y - margin;
+    int xmax = viewport.x + viewport.width + margin;
+    int ymax = viewport.y + viewport.height + margin;
+
+    int n = 0;
+    int k = firstLodIndex(from);
+    int code1 = outCode(getX(from), getY(from), xmin, ymin, xmax, ymax);
+    for (int i = from; i < to;) {
+      int j = i + 1;
+      if (lodIndexes != null) {
+        while (k < lodIndexes.length && lodIndexes[k] <= i) {
+          k++;
+        }
+        j = (k < lodIndexes.length && lodIndexes[k] < to) ? lodIndexes[k] : to;
+      }
+      int x1 = getX(i);
+      int y1 = getY(i);
+      int x2 = getX(j);
+      int y2 = getY(j);
+      int code2 = outCode(x2, y2, xmin, ymin, xmax, ymax);
+
+      if ((code1 & code2) != 0) {
+        // segment hors de la zone visible
+        flush(g2, n, offsetsY);
+        n = 0;
+      }
+      else {
+        if (n == 0) {
+          bufferX[0] = x1;
+          bufferY[0] = y1;
+          n = 1;
+        }
+        if (x2 != bufferX[n - 1] || y2 != bufferY[n - 1]) {
+          bufferX[n] = x2;
+          bufferY[n] = y2;
+          n++;
+        }
+      }
+      code1 = code2;
+      i = j;
+    }
+    flush(g2, n, offsetsY);
+  }
+
+  /**
+   * Trac&eacute; d'un carr&eacute; sur chaque point visible.
+   *
+   * @param g2
+   *          le contexte graphique (rep&egrave;re du monde).
+   * @param viewport
+   *          la zone visible.
+   * @param from
+   *          index du premier point.
+   * @param to
+   *          index du dernier point.
+   * @param size
+   *          la taille du carr&eacute;.
+   */
+  public void fillPoints(Graphics2D g2,
+                         Rectangle viewport,
+                         int from,
+                         int to,
+                         int size) {
+    if (xy == null) {
+      return;
+    }
+    int half = size / 2;
+    int lastX = Integer.MIN_VALUE;
+    int lastY = Integer.MIN_VALUE;
+    int k = firstLodIndex(from);
+    for (int i = from; i <= to; i++) {
+      if (lodIndexes != null) {
+        if (k >= lodIndexes.length || lodIndexes[k] > to) {
+          break;
+        }
+        i = lodIndexes[k++];
+      }
+      int x = getX(i);
+      int y = getY(i);
+      if ((x == lastX && y == lastY) || x < viewport.x - size
+          || y < viewport.y - size || x > viewport.x + viewport.width + size
+          || y > viewport.y + viewport.height + size) {
+        continue;
+      }
+      g2.fillRect(x - half, y - half, size, size);
+      lastX = x;
+      lastY = y;
+    }
+  }
+
+  private void flush(Graphics2D g2, int n, int[] offsetsY) {
+    if (n < 2) {
+      return;
+    }
+    for (int dy : offsetsY) {
+      if (dy != 0) {
+        g2.translate(0, dy);
+      }
+      g2.drawPolyline(bufferX, bufferY, n);
+      if (dy != 0) {
+        g2.translate(0, -dy);
+      }
+    }
+  }
+
+  /**
+   * Restitue la position du premier point trac&eacute; &agrave; partir d'un
+   * index.
+   */
+  private int firstLodIndex(int from) {
+    if (lodIndexes == null) {
+      return 0;
+    }
+    int k = Arrays.binarySearch(lodIndexes, from);
+    return (k >= 0) ? k : -k - 1;
+  }
+
+  private void ensureBuffer(int size) {
+    if (bufferX == null || bufferX.length < size) {
+      bufferX = new int[size];
+      bufferY = new int[size];
+    }
+  }
+
+  private static int outCode(int x,
+                             int y,
+                             int xmin,
+                             int ymin,
+                             int xmax,
+                             int ymax) {
+    int code = 0;
+    if (x < xmin) {
+      code |= 1;
+    }
+    else if (x > xmax) {
+      code |= 2;
+    }
+    if (y < ymin) {
+      code |= 4;
+    }
+    else if (y > ymax) {
+      code |= 8;
+    }
+    return code;
+  }
+
+}
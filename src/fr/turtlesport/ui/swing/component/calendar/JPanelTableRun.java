@@ -2,6 +2,8 @@ package fr.turtlesport.ui.swing.component.calendar;
 
 import java.awt.BorderLayout;
 import java.awt.Component;
+import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.datatransfer.DataFlavor;
 import java.awt.datatransfer.Transferable;
 import java.awt.event.MouseAdapter;
@@ -24,7 +26,10 @@ import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingUtilities;
+import javax.swing.ToolTipManager;
 import javax.swing.TransferHandler;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 import javax.swing.table.AbstractTableModel;
@@ -40,6 +45,7 @@ import fr.turtlesport.lang.LanguageListener;
 import fr.turtlesport.lang.LanguageManager;
 import fr.turtlesport.log.TurtleLogger;
 import fr.turtlesport.mail.Mail;
+import fr.turtlesport.map.RunThumbnails;
 import fr.turtlesport.ui.swing.GuiFont;
 import fr.turtlesport.ui.swing.JPanelRun;
 import fr.turtlesport.ui.swing.MainGui;
@@ -261,6 +267,12 @@ public class JPanelTableRun extends JPanel implements IListDateRunFire,
 
     JScrollPane scrollPane = new JScrollPane();
     scrollPane.setViewportView(getJTable());
+    // vignettes des lignes visibles
+    scrollPane.getViewport().addChangeListener(new ChangeListener() {
+      public void stateChanged(ChangeEvent e) {
+        requestVisibleThumbnails();
+      }
+    });
 
     setLayout(new BorderLayout(0, 0));
     add(scrollPane, BorderLayout.CENTER);
@@ -575,7 +587,13 @@ public class JPanelTableRun extends JPanel implements IListDateRunFire,
   private JTableCustom getJTable() {
     if (jTable == null) {
       getJPopupMenu();
-      jTable = new JTableCustom();
+      jTable = new JTableCustom() {
+        @Override
+        public String getToolTipText(MouseEvent e) {
+          return thumbnailToolTip(rowAtPoint(e.getPoint()));
+        }
+      };
+      ToolTipManager.sharedInstance().registerComponent(jTable);
       jTable.setModel(tableModel);
       jTable.setFont(GuiFont.FONT_PLAIN);
       jTable.setShowGrid(false);
@@ -746,10 +764,46 @@ public class JPanelTableRun extends JPanel implements IListDateRunFire,
     if (listRun != null) {
       tableModel.fireTableDataChanged();
       jTable.packAll();
+      requestVisibleThumbnails();
     }
     updateNumCourse();
   }
 
+  /**
+   * Demande les vignettes des lignes visibles, la premi&egrave;re ligne en
+   * priorit&eacute;.
+   */
+  private void requestVisibleThumbnails() {
+    if (tableModel.listRows == null || tableModel.getRowCount() == 0) {
+      return;
+    }
+    Rectangle rect = jTable.getVisibleRect();
+    int first = jTable.rowAtPoint(rect.getLocation());
+    int last = jTable.rowAtPoint(new Point(rect.x, rect.y + rect.height - 1));
+    if (first < 0) {
+      return;
+    }
+    if (last < 0) {
+      last = jTable.getRowCount() - 1;
+    }
+    for (int row = last; row >= first; row--) {
+      DataRun run = tableModel.listRows
+          .get(jTable.convertRowIndexToModel(row));
+      RunThumbnails.getInstance().request(run.getId(), null);
+    }
+  }
+
+  /**
+   * Restitue l'infobulle d'une ligne : la vignette de la course.
+   */
+  private String thumbnailToolTip(int row) {
+    if (row < 0 || tableModel.listRows == null) {
+      return null;
+    }
+    DataRun run = tableModel.listRows.get(jTable.convertRowIndexToModel(row));
+    return RunThumbnails.getInstance().getToolTip(run.getId());
+  }
+
   public void removeDate(Date date) {
   }
 
@@ -29,6 +29,7 @@ import javax.swing.JTable;
 import javax.swing.JTree;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingUtilities;
+import javax.swing.ToolTipManager;
 import javax.swing.TransferHandler;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
@@ -53,6 +54,7 @@ import fr.turtlesport.lang.LanguageListener;
 import fr.turtlesport.lang.LanguageManager;
 import fr.turtlesport.log.TurtleLogger;
 import fr.turtlesport.mail.Mail;
+import fr.turtlesport.map.RunThumbnails;
 import fr.turtlesport.ui.swing.GuiFont;
 import fr.turtlesport.ui.swing.JPanelRun;
 import fr.turtlesport.ui.swing.MainGui;
@@ -681,7 +683,25 @@ public class JPanelTreeRun extends JPanel implements IListDateRunFire,
     if (jTreeTable == null) {
       synchronized (JPanelTreeRun.class) {
         if (jTreeTable == null) {
-          jTreeTable = new JXTreeTable();
+          jTreeTable = new JXTreeTable() {
+            @Override
+            public String getToolTipText(MouseEvent e) {
+              // vignette de la course
+              int row = rowAtPoint(e.getPoint());
+              TreePath path = (row < 0) ? null : getPathForRow(row);
+              if (path != null
+                  && path.getLastPathComponent() instanceof DefaultMutableTreeTableNode) {
+                Object obj = ((DefaultMutableTreeTableNode) path
+                    .getLastPathComponent()).getUserObject();
+                if (obj instanceof DataRun) {
+                  return RunThumbnails.getInstance()
+                      .getToolTip(((DataRun) obj).getId());
+                }
+              }
+              return null;
+            }
+          };
+          ToolTipManager.sharedInstance().registerComponent(jTreeTable);
           jTreeTable.setEditable(false);
           jTreeTable.setFont(GuiFont.FONT_PLAIN);
           jTreeTable.setShowGrid(false);
@@ -9,10 +9,23 @@ import fr.turtlesport.ui.swing.component.GeoPositionMapKit;
 import fr.turtlesport.unit.TimeUnit;
 
 /**
+ * Mod&egrave;le de la carte et de la lecture des points.
+ * <p>
+ * La lecture est pilot&eacute;e par une horloge : le temps
+ * &eacute;coul&eacute; depuis le premier point avance &agrave; chaque image
+ * selon la vitesse, le point courant est retrouv&eacute; par recherche
+ * dichotomique et la position est interpol&eacute;e entre deux points.
+ * 
  * @author Denis Apparicio
  * 
  */
 public class ModelMapkitManager implements ChangePointsListener {
+  /** Nombre d'images par seconde de la lecture. */
+  public static final int               FRAME_RATE               = 25;
+
+  /** D&eacute;lai historique d'avance d'un point &agrave; la vitesse 1 (ms). */
+  private static final int              POINT_DELAY              = 300;
+
   protected transient ChangeMapEvent    changeEvent;
 
   protected transient ChangePointsEvent changePointsEvent;
@@ -25,6 +38,9 @@ public class ModelMapkitManager implements ChangePointsListener {
 
   private boolean                       isRunning                = false;
 
+  /** Temps &eacute;coul&eacute; depuis le premier point (ms). */
+  private long                          elapsedTime              = 0;
+
   private AbstractTileFactoryExtended   tileFactory;
 
   private static ModelMapkitManager     singleton                = new ModelMapkitManager();
@@ -40,6 +56,13 @@ public class ModelMapkitManager implements ChangePointsListener {
 
   @Override
   public void changedPoint(ChangePointsEvent e) {
+    // point choisi hors lecture : l'horloge se recale sur le point
+    TrackTimeIndex index = ModelPointsManager.getInstance().getTimeIndex();
+    int current = getMapIndexCurrentPoint();
+    if (index != null && current >= 0 && current < index.size()
+        && index.indexAt(index.getStartTime() + elapsedTime) != current) {
+      elapsedTime = index.getTime(current) - index.getStartTime();
+    }
   }
 
   @Override
@@ -50,6 +73,7 @@ public class ModelMapkitManager implements ChangePointsListener {
   public void changedAllPoints(ChangePointsEvent changeEvent) {
     // changement de map
     isRunning = false;
+    elapsedTime = 0;
   }
 
   /**
@@ -120,11 +144,72 @@ public class ModelMapkitManager implements ChangePointsListener {
         || ModelPointsManager.getInstance().getMapIndexCurrentPoint() == -1) {
       return "00:00";
     }
-    long elapsed = ModelPointsManager.getInstance().getMapCurrentPoint()
-        .getTime()
-                   - ModelPointsManager.getInstance().getListGeo().get(0)
-                       .getTime();
-    return TimeUnit.formatHundredSecondeTimeWithoutHour(elapsed / 10);
+    return TimeUnit.formatHundredSecondeTimeWithoutHour(elapsedTime / 10);
+  }
+
+  /**
+   * Restitue le temps &eacute;coul&eacute; depuis le premier point.
+   * 
+   * @return le temps &eacute;coul&eacute; en ms.
+   */
+  public final long getElapsedTime() {
+    return elapsedTime;
+  }
+
+  /**
+   * Restitue la position interpol&eacute;e au temps courant.
+   * 
+   * @return la position interpol&eacute;e ou <code>null</code>.
+   */
+  public final GeoPositionMapKit getCurrentPosition() {
+    TrackTimeIndex index = ModelPointsManager.getInstance().getTimeIndex();
+    return (index == null) ? null : index.interpolate(index.getStartTime()
+                                                      + elapsedTime);
+  }
+
+  /**
+   * Avance l'horloge de la lecture.
+   * 
+   * @param source
+   *          la source.
+   * @param elapsedMillis
+   *          le temps r&eacute;el &eacute;coul&eacute; depuis la
+   *          derni&egrave;re image (ms).
+   */
+  public final void advance(Object source, long elapsedMillis) {
+    TrackTimeIndex index = ModelPointsManager.getInstance().getTimeIndex();
+    if (index == null) {
+      return;
+    }
+    // meme allure qu'un point toutes les POINT_DELAY ms a la vitesse 1
+    double rate = speed * index.getMeanInterval() / POINT_DELAY;
+    long time = elapsedTime + Math.round(elapsedMillis * rate);
+    if (time > index.getDuration()) {
+      seek(source, 0);
+      pause();
+    }
+    else {
+      seek(source, time);
+    }
+  }
+
+  /**
+   * Positionne l'horloge de la lecture.
+   * 
+   * @param source
+   *          la source.
+   * @param time
+   *          le temps &eacute;coul&eacute; depuis le premier point (ms).
+   */
+  public final void seek(Object source, long time) {
+    TrackTimeIndex index = ModelPointsManager.getInstance().getTimeIndex();
+    if (index == null) {
+      return;
+    }
+    elapsedTime = Math.max(0, Math.min(time, index.getDuration()));
+    ModelPointsManager.getInstance()
+        .setMapCurrentPoint(source,
+                            index.indexAt(index.getStartTime() + elapsedTime));
   }
 
   /**
@@ -159,6 +244,7 @@ public class ModelMapkitManager implements ChangePointsListener {
    * 
    */
   public final void beginPoint(Object source) {
+    elapsedTime = 0;
     ModelPointsManager.getInstance().setMapCurrentPoint(source, 0);
   }
 
@@ -11,6 +11,8 @@ import fr.turtlesport.db.DataRunLap;
 import fr.turtlesport.db.DataRunTrk;
 import fr.turtlesport.db.RunLapTableManager;
 import fr.turtlesport.db.RunTrkTableManager;
+import fr.turtlesport.filter.RunSeries;
+import fr.turtlesport.filter.RunSeriesManager;
 import fr.turtlesport.ui.swing.component.GeoPositionMapKit;
 
 /**
@@ -23,6 +25,8 @@ public final class ModelPointsManager {
 
   private List<GeoPositionMapKit>       listGeo;
 
+  private TrackTimeIndex                timeIndex;
+
   private List<DataRunTrk>              listTrksOriginal;
 
   private List<DataRunTrk>              listTrks;
@@ -127,6 +131,15 @@ public final class ModelPointsManager {
     return listGeo;
   }
 
+  /**
+   * Restitue l'index temporel des geo position.
+   * 
+   * @return l'index temporel ou <code>null</code>.
+   */
+  public final TrackTimeIndex getTimeIndex() {
+    return timeIndex;
+  }
+
   /**
    * Restitue la liste des points.
    * 
@@ -136,6 +149,21 @@ public final class ModelPointsManager {
     return listTrks;
   }
 
+  /**
+   * Restitue les s&eacute;ries d&eacute;riv&eacute;es des points (vitesse,
+   * allure, valeurs liss&eacute;es).
+   * 
+   * @return les s&eacute;ries ou <code>null</code>.
+   * @throws SQLException
+   */
+  public final RunSeries getSeries() throws SQLException {
+    if (dataRun == null || listTrksOriginal == null) {
+      return null;
+    }
+    return RunSeriesManager.getInstance().getSeries(dataRun.getId(),
+                                                    listTrksOriginal);
+  }
+
   /**
    * Restitue les tours interm&eacute;m&eacute;diares.
    * 
@@ -182,6 +210,7 @@ public final class ModelPointsManager {
 
     this.dataRun = dataRun;
     listGeo = null;
+    timeIndex = null;
     listTrks = null;
     lapGeoBegin = null;
     lapGeoEnd = null;
@@ -195,6 +224,9 @@ public final class ModelPointsManager {
           .getAllTrks(dataRun.getId());
       listTrks = DataRunTrk.cloneList(listTrksOriginal);
 
+      // Les series derivees en tache de fond
+      RunSeriesManager.getInstance().request(dataRun.getId(), listTrksOriginal);
+
       // Les Laps
       runLaps = RunLapTableManager.getInstance().findLaps(dataRun.getId());
 
@@ -206,6 +238,7 @@ public final class ModelPointsManager {
         GeoPositionMapKit geo = new GeoPositionMapKit(listTrks.get(i), i);
         listGeo.add(geo);
       }
+      timeIndex = new TrackTimeIndex(listGeo);
     }
 
     fireAllPointsChanged(source);
@@ -227,24 +260,18 @@ public final class ModelPointsManager {
     lapGeoBegin = null;
     lapGeoEnd = null;
     if (runLaps != null) {
-      long searchTime = runLaps[lapIndex].getStartTime().getTime();
-      int i = 0;
-      for (i = 0; i < listGeo.size(); i++) {
-        long l = searchTime - listGeo.get(i).getTime();
-        if (l <= 0) {
-          lapGeoBegin = listGeo.get(i);
-          break;
-        }
+      // recherche dichotomique
+      int i = timeIndex.indexAtOrAfter(runLaps[lapIndex].getStartTime()
+          .getTime());
+      if (i >= 0) {
+        lapGeoBegin = listGeo.get(i);
       }
       if (lapGeoBegin != null) {
         if (lapIndex < runLaps.length - 1) {
-          searchTime = runLaps[lapIndex + 1].getStartTime().getTime();
-          for (; i < listGeo.size(); i++) {
-            long l = searchTime - listGeo.get(i).getTime();
-            if (l <= 0) {
-              lapGeoEnd = listGeo.get(i);
-              break;
-            }
+          i = timeIndex.indexAtOrAfter(runLaps[lapIndex + 1].getStartTime()
+              .getTime());
+          if (i >= 0) {
+            lapGeoEnd = listGeo.get(i);
           }
         }
         else {
@@ -31,6 +31,7 @@ import fr.turtlesport.db.DataSpeedZone;
 import fr.turtlesport.db.RunLapTableManager;
 import fr.turtlesport.db.RunTableManager;
 import fr.turtlesport.db.UserActivityTableManager;
+import fr.turtlesport.filter.RunSeries;
 import fr.turtlesport.lang.LanguageManager;
 import fr.turtlesport.log.TurtleLogger;
 import fr.turtlesport.ui.swing.GuiFont;
@@ -609,6 +610,10 @@ public class ModelRun {
     float dsz[] = new float[sz.length];
 
     List<DataRunTrk> trks = ModelPointsManager.getInstance().getListTrks();
+    RunSeries series = ModelPointsManager.getInstance().getSeries();
+    // serie d'une autre version des points
+    double[] speed = (series == null || trks == null || series.size() != trks
+        .size()) ? null : series.getSpeed();
     if (trks != null) {
       for (int i = 0; i < trks.size() - 1; i++) {
         // heart
@@ -628,7 +633,7 @@ public class ModelRun {
           }
         }
         // speed
-        double s = trks.get(i).getSpeed();
+        double s = (speed == null) ? 0 : speed[i];
         if (s <= 0) {
           continue;
         }
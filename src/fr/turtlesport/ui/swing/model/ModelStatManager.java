@@ -0,0 +1,219 @@
+package fr.turtlesport.ui.swing.model;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import fr.turtlesport.db.DataRun;
+import fr.turtlesport.db.RunChangeListener;
+import fr.turtlesport.db.DataStatWeek;
+import fr.turtlesport.db.DataStatYear;
+import fr.turtlesport.db.DataStatYearMonth;
+import fr.turtlesport.db.DataStatYearWeek;
+import fr.turtlesport.db.RunLapTableManager;
+import fr.turtlesport.db.RunTableManager;
+
+/**
+ * Donn&eacute;es des statistiques.
+ * <p>
+ * Les requ&ecirc;tes des graphiques sont m&eacute;moris&eacute;es par
+ * utilisateur, activit&eacute; et type de requ&ecirc;te et
+ * ex&eacute;cut&eacute;es hors de l'EDT par {@link #execute(Runnable)}
+ * : changer de graphique ou revenir aux statistiques ne relit pas la base.
+ * Toute modification des courses vide le cache.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public final class ModelStatManager implements RunChangeListener {
+
+  /** Nombre de requ&ecirc;tes conserv&eacute;es. */
+  private static final int         MAX_ENTRIES = 64;
+
+  private static ModelStatManager  singleton   = new ModelStatManager();
+
+  private final Map<String, Object> cache      = new LinkedHashMap<String, Object>(MAX_ENTRIES + 1,
+                                                                                   0.75f,
+                                                                                   true) {
+                                                  @Override
+                                                  protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                                                    return size() > MAX_ENTRIES;
+                                                  }
+                                                };
+
+  /** Incr&eacute;ment&eacute; &agrave; chaque modification des courses. */
+  private int                      version;
+
+  private final ExecutorService    executor;
+
+  private ModelStatManager() {
+    executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "ModelStat");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+
+  /**
+   * Restitue l'instance.
+   */
+  public static ModelStatManager getInstance() {
+    return singleton;
+  }
+
+  /**
+   * Ex&eacute;cution d'une t&acirc;che hors de l'EDT, les t&acirc;ches
+   * sont ex&eacute;cut&eacute;es dans l'ordre.
+   */
+  public void execute(Runnable task) {
+    executor.execute(task);
+  }
+
+  /**
+   * Les courses ont &eacute;t&eacute; modifi&eacute;es.
+   */
+  public synchronized void runsChanged() {
+    cache.clear();
+    version++;
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.db.RunChangeListener#runStored(int)
+   */
+  public void runStored(int idRun) {
+    runsChanged();
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.db.RunChangeListener#runsStored()
+   */
+  public void runsStored() {
+    runsChanged();
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.db.RunChangeListener#runDeleted(int)
+   */
+  public void runDeleted(int idRun) {
+    runsChanged();
+  }
+
+  /*
+   * (non-Javadoc)
+   * 
+   * @see fr.turtlesport.db.RunChangeListener#runUpdated(int)
+   */
+  public void runUpdated(int idRun) {
+    runsChanged();
+  }
+
+  public DataStatWeek[] statByDayOfWeek(final int idUser, final int sportType) throws SQLException {
+    return (DataStatWeek[]) get("statByDayOfWeek", idUser, sportType, new Callable<Object>() {
+      public Object call() throws SQLException {
+        return RunLapTableManager.getInstance().statByDayOfWeek(idUser, sportType);
+      }
+    });
+  }
+
+  public DataStatYearWeek[] statByWeek(final int idUser, final int sportType) throws SQLException {
+    return (DataStatYearWeek[]) get("statByWeek", idUser, sportType, new Callable<Object>() {
+      public Object call() throws SQLException {
+        return RunLapTableManager.getInstance().statByWeek(idUser, sportType);
+      }
+    });
+  }
+
+  public DataStatYearMonth[] statByMonth(final int idUser, final int sportType) throws SQLException {
+    return (DataStatYearMonth[]) get("statByMonth", idUser, sportType, new Callable<Object>() {
+      public Object call() throws SQLException {
+        return RunLapTableManager.getInstance().statByMonth(idUser, sportType);
+      }
+    });
+  }
+
+  public DataStatYear[] statByYear(final int idUser, final int sportType) throws SQLException {
+    return (DataStatYear[]) get("statByYear", idUser, sportType, new Callable<Object>() {
+      public Object call() throws SQLException {
+        return RunLapTableManager.getInstance().statByYear(idUser, sportType);
+      }
+    });
+  }
+
+  public DataStatWeek[] distanceByDayOfWeek(final int idUser, final int sportType) throws SQLException {
+    return (DataStatWeek[]) get("distanceByDayOfWeek", idUser, sportType, new Callable<Object>() {
+      public Object call() throws SQLException {
+        return RunLapTableManager.getInstance().distanceByDayOfWeek(idUser, sportType);
+      }
+    });
+  }
+
+  public DataStatYearWeek[] distanceByWeek(final int idUser, final int sportType) throws SQLException {
+    return (DataStatYearWeek[]) get("distanceByWeek", idUser, sportType, new Callable<Object>() {
+      public Object call() throws SQLException {
+        return RunLapTableManager.getInstance().distanceByWeek(idUser, sportType);
+      }
+    });
+  }
+
+  public DataStatYear[] distanceByYear(final int idUser, final int sportType) throws SQLException {
+    return (DataStatYear[]) get("distanceByYear", idUser, sportType, new Callable<Object>() {
+      public Object call() throws SQLException {
+        return RunLapTableManager.getInstance().distanceByYear(idUser, sportType);
+      }
+    });
+  }
+
+  @SuppressWarnings("unchecked")
+  public List<DataRun> retreive(final int idUser, final int sportType) throws SQLException {
+    return (List<DataRun>) get("retreive", idUser, sportType, new Callable<Object>() {
+      public Object call() throws SQLException {
+        return RunTableManager.getInstance().retreive(idUser, sportType);
+      }
+    });
+  }
+
+  private Object get(String query, int idUser, int sportType, Callable<Object> loader) throws SQLException {
+    String key = query + '-' + idUser + '-' + sportType;
+    int v;
+    synchronized (this) {
+      Object value = cache.get(key);
+      if (value != null) {
+        return value;
+      }
+      v = version;
+    }
+
+    Object value;
+    try {
+      value = loader.call();
+    }
+    catch (SQLException e) {
+      throw e;
+    }
+    catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+
+    // une modification pendant la lecture rend la valeur perimee
+    synchronized (this) {
+      if (v == version && value != null) {
+        cache.put(key, value);
+      }
+    }
+    return value;
+  }
+
+}
@@ -0,0 +1,174 @@
+package fr.turtlesport.ui.swing.model;
+
+import java.util.List;
+
+import fr.turtlesport.ui.swing.component.GeoPositionMapKit;
+
+/**
+ * Index temporel d'une trace.
+ * <p>
+ * Les temps des points sont conserv&eacute;s dans un tableau tri&eacute; :
+ * la recherche d'un point par son temps est une recherche dichotomique et
+ * la position entre deux points est interpol&eacute;e.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public class TrackTimeIndex {
+
+  private final GeoPositionMapKit[] positions;
+
+  private final long[]              times;
+
+  /**
+   * @param positions
+   *          les points tri&eacute;s par temps.
+   */
+  public TrackTimeIndex(List<GeoPositionMapKit> positions) {
+    this(positions.toArray(new GeoPositionMapKit[positions.size()]));
+  }
+
+  /**
+   * @param positions
+   *          les points tri&eacute;s par temps.
+   */
+  public TrackTimeIndex(GeoPositionMapKit[] positions) {
+    super();
+    this.positions = positions;
+    times = new long[positions.length];
+    for (int i = 0; i < times.length; i++) {
+      // un point mal date ne doit pas casser le tri
+      times[i] = (i == 0) ? positions[i].getTime() : Math.max(times[i - 1],
+                                                               positions[i]
+                                                                   .getTime());
+    }
+  }
+
+  /**
+   * Restitue le nombre de points.
+   */
+  public int size() {
+    return times.length;
+  }
+
+  /**
+   * Restitue le temps du premier point.
+   */
+  public long getStartTime() {
+    return (times.length == 0) ? 0 : times[0];
+  }
+
+  /**
+   * Restitue la dur&eacute;e de la trace en ms.
+   */
+  public long getDuration() {
+    return (times.length == 0) ? 0 : times[times.length - 1] - times[0];
+  }
+
+  /**
+   * Restitue l'intervalle moyen entre deux points en ms.
+   */
+  public double getMeanInterval() {
+    return (times.length < 2) ? 1000 : getDuration()
+                                       / (double) (times.length - 1);
+  }
+
+  /**
+   * Restitue le temps d'un point.
+   */
+  public long getTime(int index) {
+    return times[index];
+  }
+
+  /**
+   * Restitue l'index du dernier point dont le temps est inf&eacute;rieur ou
+   * &eacute;gal &agrave; <code>time</code>, <code>0</code> si aucun.
+   */
+  public int indexAt(long time) {
+    int low = 0;
+    int high = times.length - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (times[mid] <= time) {
+        low = mid;
+      }
+      else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Restitue l'index du premier point dont le temps est sup&eacute;rieur ou
+   * &eacute;gal &agrave; <code>time</code>, <code>-1</code> si aucun.
+   */
+  public int indexAtOrAfter(long time) {
+    int low = 0;
+    int high = times.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (times[mid] < time) {
+        low = mid + 1;
+      }
+      else {
+        high = mid;
+      }
+    }
+    return (low == times.length) ? -1 : low;
+  }
+
+  /**
+   * Restitue la fraction parcourue entre le point <code>index</code> et le
+   * suivant.
+   */
+  public double fraction(int index, long time) {
+    if (index >= times.length - 1) {
+      return 0;
+    }
+    long dt = times[index + 1] - times[index];
+    if (dt <= 0) {
+      return 0;
+    }
+    return Math.max(0, Math.min(1, (time - times[index]) / (double) dt));
+  }
+
+  /**
+   * Restitue la position interpol&eacute;e &agrave; un temps.
+   *
+   * @param time
+   *          le temps.
+   * @return la position interpol&eacute;e ou <code>null</code> si la trace
+   *         est vide.
+   */
+  public GeoPositionMapKit interpolate(long time) {
+    if (times.length == 0) {
+      return null;
+    }
+    int index = indexAt(time);
+    double f = fraction(index, time);
+    GeoPositionMapKit p1 = positions[index];
+    if (f == 0) {
+      return p1;
+    }
+    GeoPositionMapKit p2 = positions[index + 1];
+    int heartRate = p1.getHeartRate();
+    if (heartRate > 0 && p2.getHeartRate() > 0) {
+      heartRate = (int) Math.round(heartRate + (p2.getHeartRate() - heartRate)
+                                   * f);
+    }
+    return new GeoPositionMapKit(p1.getLatitude()
+                                     + (p2.getLatitude() - p1.getLatitude())
+                                     * f,
+                                 p1.getLongitude()
+                                     + (p2.getLongitude() - p1.getLongitude())
+                                     * f,
+                                 p1.getIndex(),
+                                 time,
+                                 (float) (p1.getDistance() + (p2.getDistance() - p1
+                                     .getDistance())
+                                                             * f),
+                                 heartRate);
+  }
+
+}
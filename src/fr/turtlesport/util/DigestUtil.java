@@ -85,4 +85,35 @@ public final class DigestUtil {
   public static byte[] digest(File file, String algo) throws FileNotFoundException {
     return digest(new FileInputStream(file), algo);
   }
+
+  /**
+   * Restitue le digest d'un fichier sous forme hexad&eacute;cimale.
+   * 
+   * @param file
+   *          le fichier.
+   * @parm algo du digest.
+   * @return le digest hexad&eacute;cimal ou <code>null</code> si erreur.
+   */
+  public static String digestHex(File file, String algo) throws FileNotFoundException {
+    byte[] digest = digest(file, algo);
+    return (digest == null) ? null : toHexString(digest);
+  }
+
+  /**
+   * Conversion d'un tableau de bytes en cha&icirc;ne hexad&eacute;cimale.
+   * 
+   * @param data
+   *          les bytes.
+   * @return la cha&icirc;ne hexad&eacute;cimale.
+   */
+  public static String toHexString(byte[] data) {
+    char[] chars = new char[data.length * 2];
+    for (int i = 0; i < data.length; i++) {
+      int hi = (data[i] & 0xF0) >> 4;
+      int lo = data[i] & 0x0F;
+      chars[2 * i] = (char) (hi < 10 ? ('0' + hi) : ('A' + hi - 10));
+      chars[2 * i + 1] = (char) (lo < 10 ? ('0' + lo) : ('A' + lo - 10));
+    }
+    return new String(chars);
+  }
 }
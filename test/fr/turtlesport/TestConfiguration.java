@@ -0,0 +1,35 @@
+package fr.turtlesport;
+
+import java.io.File;
+
+import fr.turtlesport.util.Location;
+
+/**
+ * Configuration par d&eacute;faut des tests, dans un r&eacute;pertoire
+ * utilisateur temporaire.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public final class TestConfiguration {
+
+  private TestConfiguration() {
+  }
+
+  /**
+   * Initialise la configuration si besoin.
+   */
+  public static synchronized void initialize() throws Exception {
+    if (Configuration.getConfig() != null) {
+      return;
+    }
+    File home = File.createTempFile("turtlesport", "");
+    home.delete();
+    home.mkdirs();
+    home.deleteOnExit();
+    System.setProperty("user.home", home.getPath());
+    Location.initialize();
+    Configuration.initialize();
+  }
+
+}
@@ -0,0 +1,84 @@
+package fr.turtlesport.filter;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Lissage exponentiel compar&eacute; &agrave; sa r&eacute;currence.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public class ExponentialSmoothingTest extends TestCase {
+
+  public void testRecurrence() {
+    Random r = new Random(3);
+    double[] y = new double[300];
+    for (int i = 0; i < y.length; i++) {
+      y[i] = r.nextGaussian();
+    }
+
+    double alpha = 0.2;
+    double[] z = y.clone();
+    ExponentialSmoothing.filter(z, alpha);
+    double s = y[0];
+    assertEquals(s, z[0], 0);
+    for (int i = 1; i < y.length; i++) {
+      s = alpha * y[i] + (1 - alpha) * s;
+      assertEquals(s, z[i], 1e-12);
+    }
+  }
+
+  public void testRegularTimeEqualsAlpha() {
+    // intervalles d'une seconde : alpha = 1 - exp(-1 / tau)
+    Random r = new Random(4);
+    double[] y = new double[300];
+    long[] time = new long[y.length];
+    for (int i = 0; i < y.length; i++) {
+      y[i] = r.nextGaussian();
+      time[i] = i * 1000L;
+    }
+    double tau = 4;
+    double[] z1 = y.clone();
+    ExponentialSmoothing.filter(z1, 1 - Math.exp(-1 / tau));
+    double[] z2 = y.clone();
+    ExponentialSmoothing.filter(time, z2, tau);
+    for (int i = 0; i < y.length; i++) {
+      assertEquals(z1[i], z2[i], 1e-12);
+    }
+  }
+
+  public void testTwoWayNoDelay() {
+    // rampe symetrique : le pic reste au centre
+    int n = 201;
+    double[] y = new double[n];
+    long[] time = new long[n];
+    for (int i = 0; i < n; i++) {
+      y[i] = n / 2 - Math.abs(i - n / 2);
+      time[i] = i * 1000L;
+    }
+    ExponentialSmoothing.filterTwoWay(time, y, 5);
+    int max = 0;
+    for (int i = 1; i < n; i++) {
+      if (y[i] > y[max]) {
+        max = i;
+      }
+    }
+    assertEquals(n / 2, max);
+  }
+
+  public void testConstant() {
+    double[] y = new double[50];
+    long[] time = new long[50];
+    for (int i = 0; i < y.length; i++) {
+      y[i] = 7;
+      time[i] = i * 1500L;
+    }
+    ExponentialSmoothing.filterTwoWay(time, y, 3);
+    for (double v : y) {
+      assertEquals(7.0, v, 1e-12);
+    }
+  }
+
+}
@@ -0,0 +1,104 @@
+package fr.turtlesport.filter;
+
+import java.util.Random;
+
+/**
+ * Mesure du temps de chaque filtre sur 100 000 points.
+ * <p>
+ * Chaque filtre est ex&eacute;cut&eacute; <code>WARMUP</code> fois pour la
+ * compilation JIT puis <code>ITERATIONS</code> fois sur une copie des
+ * m&ecirc;mes donn&eacute;es ; le temps moyen par appel est affich&eacute;.
+ * Lancement : <code>ant benchmark</code>.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public final class FilterBenchmark {
+
+  private static final int SIZE       = 100000;
+
+  private static final int WARMUP     = 20;
+
+  private static final int ITERATIONS = 50;
+
+  private static double[]  data;
+
+  private static long[]    time;
+
+  /** Resultat consomme pour que le JIT ne supprime pas les calculs. */
+  private static double    sink;
+
+  private FilterBenchmark() {
+  }
+
+  public static void main(String[] args) {
+    Random r = new Random(7);
+    data = new double[SIZE];
+    time = new long[SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      // vitesse GPS bruitee, points toutes les 1 a 3 s
+      data[i] = 10 + 3 * Math.sin(i / 300.0) + r.nextGaussian();
+      time[i] = (i == 0) ? 0 : time[i - 1] + 1000 + r.nextInt(2000);
+    }
+
+    run("SavitzkyGolay 21/2", new Runnable() {
+      public void run() {
+        double[] y = data.clone();
+        SavitzkyGolay.filter(y,
+                             SavitzkyGolay.DEFAULT_HALF_WINDOW,
+                             SavitzkyGolay.DEFAULT_ORDER);
+        sink += y[SIZE / 2];
+      }
+    });
+    run("SmoothMedian 5", new Runnable() {
+      public void run() {
+        sink += SmoothMedian.filter(data)[SIZE / 2];
+      }
+    });
+    run("SmoothMedian 31", new Runnable() {
+      public void run() {
+        sink += SmoothMedian.filter(data, 15)[SIZE / 2];
+      }
+    });
+    run("ExponentialSmoothing", new Runnable() {
+      public void run() {
+        double[] y = data.clone();
+        ExponentialSmoothing.filterTwoWay(time, y, 5);
+        sink += y[SIZE / 2];
+      }
+    });
+    run("KalmanSmoothing", new Runnable() {
+      public void run() {
+        double[] y = data.clone();
+        KalmanSmoothing.filter(time,
+                               y,
+                               RunSeries.SPEED_PROCESS_VARIANCE,
+                               RunSeries.SPEED_MEASURE_VARIANCE);
+        sink += y[SIZE / 2];
+      }
+    });
+    run("copie seule", new Runnable() {
+      public void run() {
+        sink += data.clone()[SIZE / 2];
+      }
+    });
+
+    System.out.println("(" + sink + ")");
+  }
+
+  private static void run(String name, Runnable task) {
+    for (int i = 0; i < WARMUP; i++) {
+      task.run();
+    }
+    long deb = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      task.run();
+    }
+    double ms = (System.nanoTime() - deb) / 1e6 / ITERATIONS;
+    System.out.println(String.format("%-22s %8.3f ms/op (%d points)",
+                                     name,
+                                     ms,
+                                     SIZE));
+  }
+
+}
@@ -0,0 +1,130 @@
+package fr.turtlesport.filter;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Lissage de Kalman compar&eacute; &agrave; la forme matricielle
+ * (moindres carr&eacute;s pond&eacute;r&eacute;s de la marche
+ * al&eacute;atoire).
+ *
+ * @author Denis Apparicio
+ *
+ */
+public class KalmanSmoothingTest extends TestCase {
+
+  public void testEqualsLeastSquares() {
+    Random r = new Random(5);
+    int n = 60;
+    double[] y = new double[n];
+    long[] time = new long[n];
+    for (int i = 0; i < n; i++) {
+      y[i] = 10 + Math.sin(i / 5.0) * 3 + r.nextGaussian();
+      // intervalles irreguliers
+      time[i] = (i == 0) ? 0 : time[i - 1] + 500 + r.nextInt(3000);
+    }
+    double q = 0.3;
+    double rr = 2;
+
+    double[] expected = leastSquares(time, y, q, rr);
+    double[] z = y.clone();
+    KalmanSmoothing.filter(time, z, q, rr);
+    for (int i = 0; i < n; i++) {
+      assertEquals("i=" + i, expected[i], z[i], 1e-9);
+    }
+  }
+
+  public void testConstant() {
+    double[] y = new double[100];
+    java.util.Arrays.fill(y, 5);
+    KalmanSmoothing.filter(null, y, 0.1, 1);
+    for (double v : y) {
+      assertEquals(5.0, v, 1e-12);
+    }
+  }
+
+  public void testNoiseReduced() {
+    Random r = new Random(6);
+    int n = 2000;
+    double[] y = new double[n];
+    for (int i = 0; i < n; i++) {
+      y[i] = 12 + r.nextGaussian() * 2;
+    }
+    double[] z = y.clone();
+    KalmanSmoothing.filter(null, z, 0.01, 4);
+    assertTrue(variance(z) < variance(y) / 10);
+  }
+
+  public void testInvalid() {
+    try {
+      KalmanSmoothing.filter(null, new double[3], 1, 0);
+      fail();
+    }
+    catch (IllegalArgumentException e) {
+    }
+  }
+
+  /**
+   * R&eacute;f&eacute;rence : le lissage minimise
+   * <code>sum (y[i] - x[i])^2 / r + sum (x[i+1] - x[i])^2 / (q dt)</code>
+   * avec une variance initiale <code>r</code> centr&eacute;e sur
+   * <code>y[0]</code>, syst&egrave;me tridiagonal r&eacute;solu par Gauss.
+   */
+  private static double[] leastSquares(long[] time, double[] y, double q, double r) {
+    int n = y.length;
+    double[][] a = new double[n][n];
+    double[] b = new double[n];
+    // a priori du premier point
+    a[0][0] += 1 / r;
+    b[0] += y[0] / r;
+    // mesures, la premiere est l'a priori
+    for (int i = 1; i < n; i++) {
+      a[i][i] += 1 / r;
+      b[i] += y[i] / r;
+    }
+    for (int i = 0; i < n - 1; i++) {
+      double dt = (time[i + 1] - time[i]) / 1000.0;
+      double w = 1 / (q * dt);
+      a[i][i] += w;
+      a[i + 1][i + 1] += w;
+      a[i][i + 1] -= w;
+      a[i + 1][i] -= w;
+    }
+    for (int col = 0; col < n; col++) {
+      for (int row = col + 1; row < n; row++) {
+        double f = a[row][col] / a[col][col];
+        if (f == 0) {
+          continue;
+        }
+        for (int k = col; k < n; k++) {
+          a[row][k] -= f * a[col][k];
+        }
+        b[row] -= f * b[col];
+      }
+    }
+    double[] x = new double[n];
+    for (int row = n - 1; row >= 0; row--) {
+      double s = b[row];
+      for (int k = row + 1; k < n; k++) {
+        s -= a[row][k] * x[k];
+      }
+      x[row] = s / a[row][row];
+    }
+    return x;
+  }
+
+  private static double variance(double[] y) {
+    double mean = 0;
+    for (double v : y) {
+      mean += v;
+    }
+    mean /= y.length;
+    double var = 0;
+    for (double v : y) {
+      var += (v - mean) * (v - mean);
+    }
+    return var / y.length;
+  }
+
+}
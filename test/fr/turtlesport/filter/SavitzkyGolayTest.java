@@ -0,0 +1,112 @@
+package fr.turtlesport.filter;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Filtre de Savitzky-Golay compar&eacute; &agrave; une convolution directe.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public class SavitzkyGolayTest extends TestCase {
+
+  /** Coefficients tabul&eacute;s : 21 points, ordre 2 (norme 3059). */
+  private static final int[] TABLE_21_2 = { -171, -76, 9, 84, 149, 204, 249,
+      284, 309, 324, 329, 324, 309, 284, 249, 204, 149, 84, 9, -76, -171 };
+
+  public void testCoefficientsTable() {
+    double[] c = SavitzkyGolay.coefficients(10, 2);
+    assertEquals(TABLE_21_2.length, c.length);
+    for (int i = 0; i < c.length; i++) {
+      assertEquals(TABLE_21_2[i] / 3059.0, c[i], 1e-12);
+    }
+  }
+
+  public void testCoefficientsSum() {
+    for (int m = 0; m <= 12; m++) {
+      for (int order = 0; order <= Math.min(2 * m, 6); order++) {
+        double sum = 0;
+        for (double v : SavitzkyGolay.coefficients(m, order)) {
+          sum += v;
+        }
+        assertEquals("m=" + m + " order=" + order, 1.0, sum, 1e-9);
+      }
+    }
+  }
+
+  public void testPolynomialPreserved() {
+    // un polynome de degre <= ordre n'est pas modifie
+    double[] y = new double[200];
+    for (int i = 0; i < y.length; i++) {
+      double x = i / 10.0;
+      y[i] = 2 - 3 * x + 0.5 * x * x - 0.05 * x * x * x;
+    }
+    double[] z = y.clone();
+    SavitzkyGolay.filter(z, 5, 3);
+    for (int i = 0; i < y.length; i++) {
+      assertEquals(y[i], z[i], 1e-9);
+    }
+  }
+
+  public void testInPlaceEqualsConvolution() {
+    Random r = new Random(1);
+    double[] y = new double[1000];
+    for (int i = 0; i < y.length; i++) {
+      y[i] = r.nextGaussian() + i * 0.01;
+    }
+
+    for (int m : new int[] { 1, 3, 10 }) {
+      for (int order : new int[] { 0, 2, 4 }) {
+        if (order > 2 * m) {
+          continue;
+        }
+        double[] expected = convolution(y, m, order);
+        double[] z = y.clone();
+        SavitzkyGolay.filter(z, m, order);
+        for (int i = 0; i < y.length; i++) {
+          assertEquals("m=" + m + " order=" + order + " i=" + i,
+                       expected[i],
+                       z[i],
+                       1e-12);
+        }
+      }
+    }
+  }
+
+  public void testShortData() {
+    double[] y = { 1, 5, 2 };
+    double[] z = SavitzkyGolay.filter(y);
+    assertNotSame(y, z);
+    assertEquals(1.0, z[0], 0);
+    assertEquals(5.0, z[1], 0);
+    assertEquals(2.0, z[2], 0);
+  }
+
+  public void testInvalidOrder() {
+    try {
+      SavitzkyGolay.coefficients(2, 5);
+      fail();
+    }
+    catch (IllegalArgumentException e) {
+    }
+  }
+
+  /**
+   * R&eacute;f&eacute;rence : convolution dans un nouveau tableau.
+   */
+  private static double[] convolution(double[] y, int m, int order) {
+    double[] c = SavitzkyGolay.coefficients(m, order);
+    double[] out = y.clone();
+    for (int i = m; i < y.length - m; i++) {
+      double sum = 0;
+      for (int j = 0; j < c.length; j++) {
+        sum += c[j] * y[i - m + j];
+      }
+      out[i] = sum;
+    }
+    return out;
+  }
+
+}
@@ -0,0 +1,67 @@
+package fr.turtlesport.filter;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Filtre m&eacute;dian compar&eacute; au tri de chaque fen&ecirc;tre.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public class SmoothMedianTest extends TestCase {
+
+  public void testEqualsSortedWindow() {
+    Random r = new Random(2);
+    double[] y = new double[500];
+    for (int i = 0; i < y.length; i++) {
+      // valeurs repetees : l'ordre sur les indices est utilise
+      y[i] = r.nextInt(20);
+    }
+
+    for (int m : new int[] { 0, 1, 2, 5, 300 }) {
+      double[] z = SmoothMedian.filter(y, m);
+      for (int i = 0; i < y.length; i++) {
+        assertEquals("m=" + m + " i=" + i, median(y, i, m), z[i], 0);
+      }
+    }
+  }
+
+  public void testSpikeRemoved() {
+    double[] y = { 10, 10, 10, 10, 200, 10, 10, 10, 10 };
+    double[] z = SmoothMedian.filter(y);
+    for (double v : z) {
+      assertEquals(10.0, v, 0);
+    }
+  }
+
+  public void testEmpty() {
+    assertEquals(0, SmoothMedian.filter(new double[0]).length);
+  }
+
+  public void testSameArray() {
+    double[] y = { 1, 2, 3 };
+    try {
+      SmoothMedian.filter(y, 1, y);
+      fail();
+    }
+    catch (IllegalArgumentException e) {
+    }
+  }
+
+  /**
+   * R&eacute;f&eacute;rence : m&eacute;diane de la fen&ecirc;tre
+   * tri&eacute;e.
+   */
+  private static double median(double[] y, int i, int m) {
+    int lo = Math.max(0, i - m);
+    int hi = Math.min(y.length - 1, i + m);
+    double[] w = Arrays.copyOfRange(y, lo, hi + 1);
+    Arrays.sort(w);
+    int k = w.length;
+    return (k % 2 == 1) ? w[k / 2] : (w[k / 2 - 1] + w[k / 2]) / 2;
+  }
+
+}
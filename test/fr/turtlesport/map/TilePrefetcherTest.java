@@ -0,0 +1,273 @@
+package fr.turtlesport.map;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import fr.turtlesport.TestConfiguration;
+import fr.turtlesport.Version;
+import fr.turtlesport.geo.GeoPosition;
+
+/**
+ * T&eacute;l&eacute;chargement des tuiles depuis un serveur HTTP local.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public class TilePrefetcherTest extends TestCase {
+
+  private static final byte[]       TILE     = { (byte) 0x89, 'P', 'N', 'G',
+      '\r', '\n', 0x1A, '\n'                };
+
+  private static final GeoBounds    BOUNDS   = new GeoBounds(48.85,
+                                                             2.33,
+                                                             48.87,
+                                                             2.36);
+
+  private HttpServer                server;
+
+  private final AtomicInteger       requests = new AtomicInteger();
+
+  /** Chemin de la tuile en erreur. */
+  private volatile String           failPath;
+
+  private volatile String           userAgent;
+
+  private File                      dir;
+
+  private UserDefineMapTileFactory  tileFactory;
+
+  @Override
+  protected void setUp() throws Exception {
+    TestConfiguration.initialize();
+
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/", new HttpHandler() {
+      public void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        userAgent = exchange.getRequestHeaders().getFirst("User-Agent");
+        String path = exchange.getRequestURI().getPath();
+        if (path.equals(failPath)) {
+          exchange.sendResponseHeaders(404, -1);
+        }
+        else {
+          exchange.sendResponseHeaders(200, TILE.length);
+          OutputStream out = exchange.getResponseBody();
+          out.write(TILE);
+          out.close();
+        }
+        exchange.close();
+      }
+    });
+    server.start();
+
+    dir = File.createTempFile("tiles", "");
+    dir.delete();
+    dir.mkdirs();
+
+    String url = "http://127.0.0.1:" + server.getAddress().getPort()
+                 + "/#zoom#/#x#/#y#.png";
+    UserDefineMapTileProviderInfo info = new UserDefineMapTileProviderInfo(url,
+                                                                           "test");
+    tileFactory = new UserDefineMapTileFactory(info, url);
+    tileFactory.setTileCache(new DiskTitleCache(dir, info));
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    server.stop(0);
+    delete(dir);
+  }
+
+  public void testBounds() throws Exception {
+    TilePrefetcher prefetcher = newPrefetcher();
+    prefetcher.addBounds(BOUNDS, 5, 6);
+    int count = prefetcher.getTileCount();
+    assertTrue(count > 0);
+
+    Progress progress = new Progress(-1);
+    prefetcher.run(progress);
+    assertEquals(count, requests.get());
+    assertEquals(count, progress.done);
+    assertEquals(0, progress.nbFailed);
+    assertTrue(progress.isComplete);
+    assertFalse(prefetcher.canResume());
+    assertTrue(userAgent.startsWith("TurtleSport/" + Version.VERSION));
+
+    DiskTitleCache cache = (DiskTitleCache) tileFactory.getTileCache();
+    for (int zoom = 5; zoom <= 6; zoom++) {
+      int tileSize = tileFactory.getTileSize(zoom);
+      int x = (int) (tileFactory.geoToPixel(new org.jdesktop.swingx.mapviewer.GeoPosition(48.86,
+                                                                                        2.345),
+                                            zoom).getX() / tileSize);
+      int y = (int) (tileFactory.geoToPixel(new org.jdesktop.swingx.mapviewer.GeoPosition(48.86,
+                                                                                        2.345),
+                                            zoom).getY() / tileSize);
+      assertTrue(cache.contains(new URI(tileFactory.getInfo()
+          .getTileUrl(x, y, zoom))));
+    }
+
+    // deuxieme passage : tout est en cache
+    prefetcher = newPrefetcher();
+    prefetcher.addBounds(BOUNDS, 5, 6);
+    prefetcher.run(new Progress(-1));
+    assertEquals(count, requests.get());
+  }
+
+  public void testAbortResume() throws Exception {
+    TilePrefetcher prefetcher = newPrefetcher();
+    prefetcher.addBounds(BOUNDS, 4, 6);
+    int count = prefetcher.getTileCount();
+    assertTrue(count > 3);
+
+    Progress progress = new Progress(3);
+    prefetcher.run(progress);
+    assertFalse(progress.isComplete);
+    assertEquals(3, requests.get());
+    assertTrue(prefetcher.canResume());
+
+    // reprise par une nouvelle instance
+    prefetcher = newPrefetcher();
+    assertTrue(prefetcher.resume());
+    assertEquals(count - 3, prefetcher.getTileCount());
+    progress = new Progress(-1);
+    prefetcher.run(progress);
+    assertTrue(progress.isComplete);
+    assertEquals(count, requests.get());
+    assertFalse(prefetcher.canResume());
+  }
+
+  public void testFailedTileKept() throws Exception {
+    TilePrefetcher prefetcher = newPrefetcher();
+    prefetcher.addBounds(BOUNDS, 6, 6);
+    int count = prefetcher.getTileCount();
+
+    int tileSize = tileFactory.getTileSize(6);
+    java.awt.geom.Point2D p = tileFactory
+        .geoToPixel(new org.jdesktop.swingx.mapviewer.GeoPosition(48.86, 2.345),
+                    6);
+    URI uri = new URI(tileFactory.getInfo()
+        .getTileUrl((int) (p.getX() / tileSize), (int) (p.getY() / tileSize), 6));
+    failPath = uri.getPath();
+
+    Progress progress = new Progress(-1);
+    prefetcher.run(progress);
+    assertEquals(1, progress.nbFailed);
+    assertTrue(prefetcher.canResume());
+
+    // le serveur repond de nouveau
+    failPath = null;
+    prefetcher = newPrefetcher();
+    assertTrue(prefetcher.resume());
+    assertEquals(1, prefetcher.getTileCount());
+    prefetcher.run(new Progress(-1));
+    assertEquals(count + 1, requests.get());
+    assertFalse(prefetcher.canResume());
+    assertTrue(((DiskTitleCache) tileFactory.getTileCache()).contains(uri));
+  }
+
+  public void testCorridor() throws Exception {
+    List<GeoPosition> track = Arrays.asList(new GeoPosition(48.85, 2.33),
+                                            new GeoPosition(48.87, 2.36));
+    TilePrefetcher corridor = newPrefetcher();
+    corridor.addCorridor(track, 250, 6, 6);
+
+    TilePrefetcher bounds = newPrefetcher();
+    bounds.addBounds(new GeoBounds(48.83, 2.31, 48.89, 2.38), 6, 6);
+
+    assertTrue(corridor.getTileCount() > 0);
+    assertTrue(corridor.getTileCount() <= bounds.getTileCount());
+  }
+
+  public void testTooManyTiles() throws Exception {
+    TilePrefetcher prefetcher = newPrefetcher();
+    try {
+      prefetcher.addBounds(new GeoBounds(40, -5, 50, 10), 6, 6);
+      fail();
+    }
+    catch (IllegalArgumentException e) {
+      // attendu
+    }
+  }
+
+  public void testNotAllowed() throws Exception {
+    OpenStreetMapTileFactory osm = new OpenStreetMapTileFactory("http://tile.openstreetmap.org",
+                                                                "mapnik");
+    osm.setTileCache(new DiskTitleCache(dir, osm.getInfo()));
+    try {
+      new TilePrefetcher(osm);
+      fail();
+    }
+    catch (IllegalArgumentException e) {
+      // attendu
+    }
+
+    String url = "http://a.tile.openstreetmap.org/#zoom#/#x#/#y#.png";
+    UserDefineMapTileFactory user = new UserDefineMapTileFactory(new UserDefineMapTileProviderInfo(url,
+                                                                                                   "osm"),
+                                                                 url);
+    assertFalse(user.isPrefetchAllowed());
+    assertTrue(tileFactory.isPrefetchAllowed());
+  }
+
+  private TilePrefetcher newPrefetcher() {
+    TilePrefetcher prefetcher = new TilePrefetcher(tileFactory);
+    prefetcher.setRate(0);
+    return prefetcher;
+  }
+
+  private static void delete(File file) {
+    File[] files = file.listFiles();
+    if (files != null) {
+      for (File f : files) {
+        delete(f);
+      }
+    }
+    file.delete();
+  }
+
+  /**
+   * Progression annulee apres <code>abortAfter</code> tuiles.
+   */
+  private static class Progress implements IPrefetchProgress {
+    private final int abortAfter;
+
+    private int       done;
+
+    private int       nbFailed;
+
+    private boolean   isComplete;
+
+    public Progress(int abortAfter) {
+      this.abortAfter = abortAfter;
+    }
+
+    public boolean abortPrefetch() {
+      return abortAfter >= 0 && done >= abortAfter;
+    }
+
+    public void beginPrefetch(int nbTiles) {
+    }
+
+    public void prefetch(int done, int nbFailed) {
+      this.done = done;
+      this.nbFailed = nbFailed;
+    }
+
+    public void endPrefetch(boolean isComplete) {
+      this.isComplete = isComplete;
+    }
+  }
+
+}
@@ -0,0 +1,215 @@
+package fr.turtlesport.protocol;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import fr.turtlesport.IUsbProtocol;
+import fr.turtlesport.TestConfiguration;
+import fr.turtlesport.UsbPacket;
+import fr.turtlesport.UsbProtocolException;
+import fr.turtlesport.UsbProtocolRecorder;
+import fr.turtlesport.UsbProtocolReplay;
+import fr.turtlesport.device.garmin.GarminUsbDevice;
+import fr.turtlesport.protocol.data.D1006CourseType;
+import fr.turtlesport.protocol.data.D1012CoursePointType;
+import fr.turtlesport.protocol.data.D304TrkPointType;
+import fr.turtlesport.util.ByteUtil;
+
+/**
+ * Aller-retour d'un parcours : envoi &agrave; une montre simul&eacute;e,
+ * r&eacute;cup&eacute;ration enregistr&eacute;e par
+ * {@link UsbProtocolRecorder} puis rejou&eacute;e par
+ * {@link UsbProtocolReplay}.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public class A1006CourseReplayTest extends TestCase {
+
+  private File dir;
+
+  @Override
+  protected void setUp() throws Exception {
+    TestConfiguration.initialize();
+    dir = File.createTempFile("usb", "");
+    dir.delete();
+    dir.mkdirs();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    GarminUsbDevice.setUsbProtocol(null);
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File f : files) {
+        f.delete();
+      }
+    }
+    dir.delete();
+  }
+
+  public void testRoundTrip() throws Exception {
+    CourseBuilder builder = CourseBuilderTest.newZigzag("Aller retour", 800);
+    builder.addCoursePoint(100, "Eau", D1012CoursePointType.POINT_TYPE_WATER);
+    builder.addAltitudePoints("Sommet", "Vallee");
+
+    // envoi : pas de protocole A1009, limites par defaut
+    FakeGarmin garmin = new FakeGarmin();
+    GarminUsbDevice.setUsbProtocol(garmin);
+    A1006Course a1006 = builder.prepareSend();
+    D1006CourseType sent = a1006.getListCourseType().get(0);
+    a1006.send(null);
+    assertFalse(GarminUsbDevice.isInit());
+
+    // recuperation enregistree
+    GarminUsbDevice.setUsbProtocol(new UsbProtocolRecorder(garmin, dir));
+    D1006CourseType retrieved = retrieve();
+    assertCourseEquals(sent, retrieved);
+
+    File[] files = dir.listFiles();
+    assertEquals(1, files.length);
+
+    // rejeu de l'enregistrement sans la montre
+    GarminUsbDevice.setUsbProtocol(new UsbProtocolReplay(files[0], 0));
+    D1006CourseType replayed = retrieve();
+    assertCourseEquals(sent, replayed);
+  }
+
+  private static D1006CourseType retrieve() throws Exception {
+    A1006Course a1006 = new A1006Course();
+    a1006.init();
+    a1006.retrieve(null);
+    assertEquals(1, a1006.getListCourseTypeSize());
+    return a1006.getListCourseType().get(0);
+  }
+
+  private static void assertCourseEquals(D1006CourseType expected,
+                                         D1006CourseType actual) {
+    assertEquals(expected.getCourseName(), actual.getCourseName());
+    assertEquals(expected.getListCourseLapTypeSize(), actual
+        .getListCourseLapTypeSize());
+
+    assertEquals(expected.getListTrkPointTypeSize(), actual
+        .getListTrkPointTypeSize());
+    for (int i = 0; i < expected.getListTrkPointTypeSize(); i++) {
+      D304TrkPointType e = expected.getListTrkPointType(i);
+      D304TrkPointType a = actual.getListTrkPointType(i);
+      assertEquals(e.getPosn().getLatitude(), a.getPosn().getLatitude());
+      assertEquals(e.getPosn().getLongitude(), a.getPosn().getLongitude());
+      assertEquals(e.getTime(), a.getTime());
+      assertEquals(e.getAltitude(), a.getAltitude(), 1e-3);
+    }
+
+    assertEquals(3, actual.getListPointTypeSize());
+    assertEquals(expected.getListPointTypeSize(), actual.getListPointTypeSize());
+    for (int i = 0; i < expected.getListPointTypeSize(); i++) {
+      D1012CoursePointType e = expected.getListPointType().get(i);
+      D1012CoursePointType a = actual.getListPointType().get(i);
+      assertEquals(e.getName(), a.getName());
+      assertEquals(e.getPointType(), a.getPointType());
+      assertEquals(e.getTrackPointTime(), a.getTrackPointTime());
+    }
+  }
+
+  /**
+   * Montre simul&eacute;e : m&eacute;morise les parcours envoy&eacute;s et
+   * les restitue &agrave; la demande.
+   */
+  private static class FakeGarmin implements IUsbProtocol {
+    private static final byte         PID_START_SESSION  = 5;
+
+    private static final byte         PID_SESSION_STATED = 6;
+
+    private static final short        PID_PRODUCT_RQST   = 254;
+
+    private static final short        PID_PRODUCT_DATA   = 255;
+
+    private static final short        PID_PROTOCOL_ARRAY = 253;
+
+    private LinkedList<UsbPacket>     reads              = new LinkedList<UsbPacket>();
+
+    /** Packets recus par commande de transfert. */
+    private Map<Short, List<UsbPacket>> transfers        = new HashMap<Short, List<UsbPacket>>();
+
+    private List<UsbPacket>           current;
+
+    public void init() {
+      reads.clear();
+    }
+
+    public void close() {
+    }
+
+    public void send(UsbPacket packet) {
+      byte type = packet.getPacketType();
+      short id = packet.getPacketID();
+
+      if (type == ICommand.USB_PROTOCOL_LAYER && id == PID_START_SESSION) {
+        reads.add(packet(ICommand.USB_PROTOCOL_LAYER,
+                         PID_SESSION_STATED,
+                         new byte[4]));
+      }
+      else if (id == PID_PRODUCT_RQST) {
+        reads.add(packet(ICommand.PACKET_TYPE_APP_LAYER,
+                         PID_PRODUCT_DATA,
+                         new byte[] { 0, 1, 0, 1, 0, 'F', 'a', 'k', 'e', 0 }));
+        reads.add(packet(ICommand.PACKET_TYPE_APP_LAYER,
+                         PID_PROTOCOL_ARRAY,
+                         protocols("A1006", "D1006", "D1007", "D304", "D1012")));
+      }
+      else if (id == AbstractTransfertProtocol.PID_COMMAND_DATA) {
+        // demande de transfert : restitution de l'envoi
+        List<UsbPacket> list = transfers.get(command(packet));
+        if (list != null) {
+          reads.addAll(list);
+        }
+      }
+      else if (id == AbstractTransfertProtocol.PID_RECORDS) {
+        current = new ArrayList<UsbPacket>();
+        current.add(packet);
+      }
+      else if (current != null) {
+        current.add(packet);
+        if (id == AbstractTransfertProtocol.PID_XFER_CMPLT) {
+          transfers.put(command(packet), current);
+          current = null;
+        }
+      }
+    }
+
+    public UsbPacket read() throws UsbProtocolException {
+      if (reads.isEmpty()) {
+        throw new UsbProtocolException(UsbProtocolException.ERR_READ_GARMIN);
+      }
+      return reads.removeFirst();
+    }
+
+    private static short command(UsbPacket packet) {
+      return ByteUtil.toShort(packet.getData()[0], packet.getData()[1]);
+    }
+
+    private static UsbPacket packet(byte type, short id, byte[] data) {
+      UsbPacket packet = new UsbPacket(type, id);
+      packet.setData(data);
+      return packet;
+    }
+
+    private static byte[] protocols(String... names) {
+      byte[] data = new byte[3 * names.length];
+      for (int i = 0; i < names.length; i++) {
+        byte[] value = ByteUtil.to2Bytes(Integer.parseInt(names[i]
+            .substring(1)));
+        data[3 * i] = (byte) names[i].charAt(0);
+        data[3 * i + 1] = value[0];
+        data[3 * i + 2] = value[1];
+      }
+      return data;
+    }
+  }
+
+}
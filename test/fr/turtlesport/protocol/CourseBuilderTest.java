@@ -0,0 +1,166 @@
+package fr.turtlesport.protocol;
+
+import java.util.Date;
+
+import junit.framework.TestCase;
+import fr.turtlesport.TestConfiguration;
+import fr.turtlesport.UsbPacketInputStream;
+import fr.turtlesport.UsbPacketOutputStream;
+import fr.turtlesport.geo.gpx.Wpt;
+import fr.turtlesport.protocol.data.D1006CourseType;
+import fr.turtlesport.protocol.data.D1012CoursePointType;
+import fr.turtlesport.protocol.data.D1013CourseLimitsType;
+import fr.turtlesport.protocol.data.D304TrkPointType;
+
+/**
+ * Construction des parcours : r&eacute;duction aux limites de la montre et
+ * conservation des points de parcours.
+ *
+ * @author Denis Apparicio
+ *
+ */
+public class CourseBuilderTest extends TestCase {
+
+  /** 1 degre en semi-cercles. */
+  private static final int DEGREE = (int) (2147483648.0 / 180);
+
+  @Override
+  protected void setUp() throws Exception {
+    TestConfiguration.initialize();
+  }
+
+  /**
+   * Trace en zigzag de <code>n</code> points sur 2 tours, altitude en cloche.
+   */
+  static CourseBuilder newZigzag(String name, int n) {
+    CourseBuilder builder = new CourseBuilder(name);
+    long time = 1262304000000L;
+    for (int i = 0; i < n; i++) {
+      if (i == n / 2) {
+        builder.newLap();
+      }
+      int lat = 45 * DEGREE + i * 200;
+      int lon = 5 * DEGREE + ((i % 2 == 0) ? 0 : 400);
+      float alt = 200 + 100 * (float) Math.sin(Math.PI * i / (n - 1));
+      builder.addPoint(time + i * 5000L, lat, lon, alt, Float.NaN, 140, 0);
+    }
+    return builder;
+  }
+
+  static D1013CourseLimitsType limits(int maxTrkPnt, int maxPnt) {
+    D1013CourseLimitsType limits = new D1013CourseLimitsType();
+    limits.setMaxCourses(1);
+    limits.setMaxCourseLaps(20);
+    limits.setMaxCoursePnt(maxPnt);
+    limits.setMaxCourseTrkPnt(maxTrkPnt);
+    return limits;
+  }
+
+  public void testReduceToLimits() {
+    CourseBuilder builder = newZigzag("zigzag", 2000);
+    builder.addCoursePoint(1500, "pt1500", D1012CoursePointType.POINT_TYPE_WATER);
+    builder.addCoursePoint(10, "pt10", D1012CoursePointType.POINT_TYPE_FOOD);
+
+    D1006CourseType course = builder.build(limits(300, 10));
+
+    assertTrue(course.getListTrkPointTypeSize() <= 300);
+    assertEquals(2, course.getListCourseLapTypeSize());
+    assertTrue(builder.getMaxError() > 0);
+
+    // points de parcours dans l'ordre du trace, sur un point conserve
+    assertEquals(2, course.getListPointTypeSize());
+    D1012CoursePointType p1 = course.getListPointType().get(0);
+    D1012CoursePointType p2 = course.getListPointType().get(1);
+    assertEquals("pt10", p1.getName());
+    assertEquals(D1012CoursePointType.POINT_TYPE_FOOD, p1.getPointType());
+    assertEquals("pt1500", p2.getName());
+    assertTrue(containsTime(course, p1.getTrackPointTime()));
+    assertTrue(containsTime(course, p2.getTrackPointTime()));
+  }
+
+  public void testCoursePointLimit() {
+    CourseBuilder builder = newZigzag("zigzag", 200);
+    for (int i = 0; i < 5; i++) {
+      builder.addCoursePoint(i * 40, "p" + i, D1012CoursePointType.POINT_TYPE_GENERIC);
+    }
+    D1006CourseType course = builder.build(limits(100, 3));
+    assertEquals(3, course.getListPointTypeSize());
+    assertEquals("p0", course.getListPointType().get(0).getName());
+  }
+
+  public void testNamedWaypoints() {
+    CourseBuilder builder = new CourseBuilder("route");
+    for (int i = 0; i < 50; i++) {
+      Wpt p = new Wpt(45 + i * 0.001, 5 + ((i % 2 == 0) ? 0 : 0.0005));
+      if (i == 20) {
+        p.setName("  Refuge du col  ");
+      }
+      builder.addPoint(p);
+    }
+    assertEquals(1, builder.coursePointSize());
+
+    D1006CourseType course = builder.build(limits(500, 10));
+    D1012CoursePointType point = course.getListPointType().get(0);
+    // 10 caracteres au plus
+    assertEquals("Refuge du ", point.getName());
+    assertEquals(D1012CoursePointType.POINT_TYPE_GENERIC, point.getPointType());
+    assertTrue(containsTime(course, point.getTrackPointTime()));
+  }
+
+  public void testAltitudePoints() {
+    CourseBuilder builder = newZigzag("alt", 101);
+    builder.addAltitudePoints("Sommet", "Vallee");
+    assertEquals(2, builder.coursePointSize());
+
+    D1006CourseType course = builder.build(limits(500, 10));
+    D1012CoursePointType summit = null;
+    for (D1012CoursePointType p : course.getListPointType()) {
+      if (p.getPointType() == D1012CoursePointType.POINT_TYPE_SUMMIT) {
+        summit = p;
+      }
+    }
+    assertNotNull(summit);
+    assertEquals("Sommet", summit.getName());
+    // sommet de la cloche au milieu du trace
+    assertEquals(1262304000000L + 50 * 5000L, summit.getTrackPointTime()
+        .getTime());
+
+    // pas de denivele, pas de point
+    CourseBuilder flat = new CourseBuilder("plat");
+    flat.addPoint(0, 0, 0, 100, Float.NaN, 0, 0);
+    flat.addPoint(1000, DEGREE, 0, 100, Float.NaN, 0, 0);
+    flat.addAltitudePoints("Sommet", "Vallee");
+    assertEquals(0, flat.coursePointSize());
+  }
+
+  public void testCoursePointWire() throws Exception {
+    D1012CoursePointType point = new D1012CoursePointType();
+    point.setName("Sommet");
+    point.setCourseIndex(3);
+    point.setPointType(D1012CoursePointType.POINT_TYPE_SUMMIT);
+    point.setTrackPointTime(new Date(1262304000000L));
+
+    UsbPacketOutputStream out = new UsbPacketOutputStream();
+    point.serialize(out);
+    byte[] bytes = out.toByteArray();
+    // char[11], uint8, uint16, uint16, time_type, uint8
+    assertEquals(11 + 1 + 2 + 2 + 4 + 1, bytes.length);
+
+    D1012CoursePointType read = new D1012CoursePointType();
+    read.parse(new UsbPacketInputStream(bytes));
+    assertEquals("Sommet", read.getName());
+    assertEquals(3, read.getCourseIndex());
+    assertEquals(D1012CoursePointType.POINT_TYPE_SUMMIT, read.getPointType());
+    assertEquals(1262304000000L, read.getTrackPointTime().getTime());
+  }
+
+  private static boolean containsTime(D1006CourseType course, Date time) {
+    for (D304TrkPointType trk : course.getListTrkPointType()) {
+      if (trk.getTime().equals(time)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}